@@ -0,0 +1,994 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A private HTTP cache for {@link HttpClient}, as defined by
+ * <a href="https://tools.ietf.org/html/rfc7234">RFC 7234</a>.</p>
+ * <p>Cacheable responses to {@code GET} requests are stored, and served to
+ * subsequent matching requests without contacting the server while they are fresh.
+ * Stale responses that carry validators ({@code ETag} or {@code Last-Modified})
+ * are revalidated with a conditional request; a {@code 304} response refreshes
+ * the stored response, which is then served to the application.</p>
+ * <p>A stale response within its {@code stale-while-revalidate} window
+ * (<a href="https://tools.ietf.org/html/rfc5861">RFC 5861</a>), specified by the
+ * response or by {@link #setStaleWhileRevalidate(long)}, is served immediately
+ * while it is revalidated in the background.</p>
+ * <p>Response content is stored in a bounded memory tier of direct buffers.
+ * When the memory tier is full, the least recently used content is moved to a
+ * bounded disk tier of memory-mapped files, if a directory has been configured,
+ * and it is evicted when the disk tier is full.</p>
+ * <p>Requests served from the cache do not emit request events, and their
+ * response events are notified by the thread that sends the request.</p>
+ *
+ * @see HttpClient#setHttpCache(HttpCache)
+ */
+@ManagedObject("The HTTP response cache")
+public class HttpCache extends AbstractLifeCycle
+{
+    private static final Logger LOG = LoggerFactory.getLogger(HttpCache.class);
+    private static final String VALIDATION_ATTRIBUTE = HttpCache.class.getName() + ".validation";
+    private static final long MAX_HEURISTIC_FRESHNESS = TimeUnit.DAYS.toMillis(1);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AutoLock lock = new AutoLock();
+    private final ResponseNotifier notifier = new ResponseNotifier();
+    private final ValidationProtocolHandler protocolHandler = new ValidationProtocolHandler();
+    private final AtomicLong fileIds = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder validations = new LongAdder();
+    private final long maxMemorySize;
+    private final Path directory;
+    private final long maxDiskSize;
+    private long memorySize;
+    private long diskSize;
+    private int maxContentLength = 2 * 1024 * 1024;
+    private long staleWhileRevalidate;
+
+    /**
+     * @param maxMemorySize the max size in bytes of the response content stored in memory
+     */
+    public HttpCache(long maxMemorySize)
+    {
+        this(maxMemorySize, null, 0);
+    }
+
+    /**
+     * @param maxMemorySize the max size in bytes of the response content stored in memory
+     * @param directory the directory of the disk tier, or null to disable the disk tier
+     * @param maxDiskSize the max size in bytes of the response content stored on disk
+     */
+    public HttpCache(long maxMemorySize, Path directory, long maxDiskSize)
+    {
+        this.maxMemorySize = maxMemorySize;
+        this.directory = directory;
+        this.maxDiskSize = directory == null ? 0 : maxDiskSize;
+    }
+
+    @ManagedAttribute("The max size in bytes of the response content stored in memory")
+    public long getMaxMemorySize()
+    {
+        return maxMemorySize;
+    }
+
+    @ManagedAttribute("The max size in bytes of the response content stored on disk")
+    public long getMaxDiskSize()
+    {
+        return maxDiskSize;
+    }
+
+    @ManagedAttribute("The directory of the disk tier")
+    public String getDirectory()
+    {
+        return directory == null ? null : directory.toString();
+    }
+
+    @ManagedAttribute("The size in bytes of the response content stored in memory")
+    public long getMemorySize()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return memorySize;
+        }
+    }
+
+    @ManagedAttribute("The size in bytes of the response content stored on disk")
+    public long getDiskSize()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return diskSize;
+        }
+    }
+
+    @ManagedAttribute("The number of stored responses")
+    public int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    @ManagedAttribute("The number of requests served with a fresh stored response")
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    @ManagedAttribute("The number of requests served with a stale stored response while revalidating it")
+    public long getStaleHits()
+    {
+        return staleHits.sum();
+    }
+
+    @ManagedAttribute("The number of requests sent to the server")
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    @ManagedAttribute("The number of stored responses revalidated by the server")
+    public long getValidations()
+    {
+        return validations.sum();
+    }
+
+    /**
+     * @return the max length of the response content that is stored
+     */
+    @ManagedAttribute("The max length of the response content that is stored")
+    public int getMaxContentLength()
+    {
+        return maxContentLength;
+    }
+
+    /**
+     * @param maxContentLength the max length of the response content that is stored
+     */
+    public void setMaxContentLength(int maxContentLength)
+    {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * @return the time in milliseconds a stale response may be served while it is revalidated
+     * @see #setStaleWhileRevalidate(long)
+     */
+    @ManagedAttribute("The time in ms a stale response may be served while it is revalidated")
+    public long getStaleWhileRevalidate()
+    {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * <p>Sets the time in milliseconds a stale response may be served while it is revalidated,
+     * for responses that do not specify the {@code stale-while-revalidate} directive.</p>
+     * <p>Responses with the {@code must-revalidate} directive are never served stale.</p>
+     *
+     * @param staleWhileRevalidate the time in milliseconds a stale response may be served while it is revalidated
+     */
+    public void setStaleWhileRevalidate(long staleWhileRevalidate)
+    {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    /**
+     * @return the protocol handler that replaces {@code 304} responses with the revalidated stored responses
+     */
+    public ProtocolHandler getProtocolHandler()
+    {
+        return protocolHandler;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (directory != null)
+            Files.createDirectories(directory);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        clear();
+        super.doStop();
+    }
+
+    /**
+     * <p>Removes all the stored responses.</p>
+     */
+    @ManagedOperation(value = "Removes all the stored responses", impact = "ACTION")
+    public void clear()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            for (Entry entry : entries.values())
+            {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * <p>Serves the given request with a stored response, if possible.</p>
+     *
+     * @param destination the destination of the request
+     * @param request the request to send
+     * @param listeners the response listeners of the request
+     * @return the listeners the request must be sent with, or {@code null}
+     * if the request has been served by the cache and must not be sent
+     */
+    List<Response.ResponseListener> intercept(HttpDestination destination, HttpRequest request, List<Response.ResponseListener> listeners)
+    {
+        if (!isStarted())
+            return listeners;
+
+        String method = request.getMethod();
+        if (!HttpMethod.GET.is(method))
+        {
+            // Unsafe methods invalidate the stored response, see RFC 7234 section 4.4.
+            if (!HttpMethod.HEAD.is(method) && !HttpMethod.OPTIONS.is(method) && !HttpMethod.TRACE.is(method))
+                invalidate(key(request));
+            return listeners;
+        }
+
+        // A validation request sent by this cache.
+        if (request.getAttributes().containsKey(VALIDATION_ATTRIBUTE))
+            return listeners;
+
+        HttpFields headers = request.getHeaders();
+        Request.Content body = request.getBody();
+        if ((body != null && body.getLength() != 0) || isConditional(headers))
+            return listeners;
+
+        CacheControl cacheControl = CacheControl.from(headers);
+        if (cacheControl.noStore)
+            return listeners;
+
+        String key = key(request);
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.matches(headers))
+            entry = null;
+
+        if (entry != null && !cacheControl.noCache)
+        {
+            long age = entry.getAge();
+            long freshness = entry.freshness;
+            if (cacheControl.maxAge >= 0)
+                freshness = Math.min(freshness, cacheControl.maxAge);
+            if (age < freshness)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Fresh hit {} for {}", entry, request);
+                hits.increment();
+                serve(request, listeners, entry);
+                return null;
+            }
+            if (cacheControl.maxAge < 0 && !entry.mustRevalidate && entry.hasValidators() &&
+                age < freshness + entry.staleWhileRevalidate)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Stale hit {} for {}", entry, request);
+                staleHits.increment();
+                if (entry.validating.compareAndSet(false, true))
+                    validate(destination.getHttpClient(), request, entry);
+                serve(request, listeners, entry);
+                return null;
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Miss {} for {}", entry, request);
+        misses.increment();
+        Store store = new Store(destination.getHttpClient(), key, request, entry, false);
+        if (entry != null && entry.hasValidators())
+            store.prepareValidation(request);
+        List<Response.ResponseListener> result = new ArrayList<>(listeners.size() + 1);
+        result.addAll(listeners);
+        result.add(store);
+        return result;
+    }
+
+    private boolean isConditional(HttpFields headers)
+    {
+        return headers.contains(HttpHeader.IF_NONE_MATCH) ||
+            headers.contains(HttpHeader.IF_MODIFIED_SINCE) ||
+            headers.contains(HttpHeader.IF_MATCH) ||
+            headers.contains(HttpHeader.IF_UNMODIFIED_SINCE) ||
+            headers.contains(HttpHeader.IF_RANGE) ||
+            headers.contains(HttpHeader.RANGE);
+    }
+
+    private String key(Request request)
+    {
+        return String.valueOf(request.getURI());
+    }
+
+    private void validate(HttpClient client, HttpRequest request, Entry entry)
+    {
+        HttpRequest validation = (HttpRequest)client.newRequest(request.getURI())
+            .headers(fields -> fields.add(request.getHeaders()))
+            .followRedirects(request.isFollowRedirects());
+        if (request.getTimeout() > 0)
+            validation.timeout(request.getTimeout(), TimeUnit.MILLISECONDS);
+        Store store = new Store(client, entry.key, validation, entry, true);
+        store.prepareValidation(validation);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Revalidating {} in background with {}", entry, validation);
+        validation.send(store);
+    }
+
+    private void serve(HttpRequest request, List<Response.ResponseListener> listeners, Entry entry)
+    {
+        Throwable abort = request.getAbortCause();
+        if (abort != null)
+        {
+            HttpResponse response = new HttpResponse(request, listeners);
+            notifier.notifyFailure(listeners, response, abort);
+            notifier.notifyComplete(listeners, new Result(request, abort, response, abort));
+            return;
+        }
+
+        Body body = entry.body;
+        body.lastAccess = System.nanoTime();
+        ByteBuffer content = body.buffer;
+        long age = TimeUnit.MILLISECONDS.toSeconds(entry.getAge());
+        HttpResponse response = new HttpResponse(request, listeners)
+            .version(entry.version)
+            .status(entry.status)
+            .reason(entry.reason)
+            .headers(fields -> fields.add(entry.headers).put(HttpHeader.AGE, Long.toString(age)));
+        notifier.forwardSuccessComplete(listeners, request, response, content);
+    }
+
+    private void store(Entry entry)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            Entry old = entries.put(entry.key, entry);
+            if (old != null)
+                release(old.body);
+            memorySize += entry.body.size;
+            if (entry.body.size > maxMemorySize)
+                demote(entry);
+            evict();
+        }
+    }
+
+    private boolean replace(Entry old, Entry entry)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return entries.replace(entry.key, old, entry);
+        }
+    }
+
+    private void invalidate(String key)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            Entry entry = entries.get(key);
+            if (entry != null)
+                remove(entry);
+        }
+    }
+
+    private void evict()
+    {
+        assert lock.isHeldByCurrentThread();
+        while (memorySize > maxMemorySize)
+        {
+            Entry entry = leastRecentlyUsed(false);
+            if (entry == null)
+                break;
+            demote(entry);
+        }
+        while (diskSize > maxDiskSize)
+        {
+            Entry entry = leastRecentlyUsed(true);
+            if (entry == null)
+                break;
+            remove(entry);
+        }
+    }
+
+    private Entry leastRecentlyUsed(boolean onDisk)
+    {
+        Entry result = null;
+        for (Entry entry : entries.values())
+        {
+            Body body = entry.body;
+            if (body.size == 0 || (body.path != null) != onDisk)
+                continue;
+            if (result == null || body.lastAccess - result.body.lastAccess < 0)
+                result = entry;
+        }
+        return result;
+    }
+
+    private void demote(Entry entry)
+    {
+        Body body = entry.body;
+        if (directory == null || body.size > maxDiskSize)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Evicting {}", entry);
+            remove(entry);
+            return;
+        }
+
+        Path path = directory.resolve(Long.toHexString(fileIds.incrementAndGet()) + ".cache");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buffer = body.buffer.slice();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            body.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, body.size);
+            body.path = path;
+            memorySize -= body.size;
+            diskSize += body.size;
+            if (LOG.isDebugEnabled())
+                LOG.debug("Moved to disk {} at {}", entry, path);
+        }
+        catch (IOException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Could not move to disk {}", entry, x);
+            delete(path);
+            remove(entry);
+        }
+    }
+
+    private void remove(Entry entry)
+    {
+        entries.remove(entry.key, entry);
+        release(entry.body);
+    }
+
+    private void release(Body body)
+    {
+        assert lock.isHeldByCurrentThread();
+        if (body.released)
+            return;
+        body.released = true;
+        if (body.path == null)
+        {
+            memorySize -= body.size;
+        }
+        else
+        {
+            diskSize -= body.size;
+            delete(body.path);
+        }
+    }
+
+    private void delete(Path path)
+    {
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException x)
+        {
+            LOG.warn("Could not delete {}", path, x);
+        }
+    }
+
+    private Entry newEntry(Store store, HttpVersion version, int status, String reason, HttpFields headers, Body body, long responseTime)
+    {
+        CacheControl cacheControl = CacheControl.from(headers);
+
+        // Age calculation, see RFC 7234 section 4.2.3.
+        long date = date(headers, HttpHeader.DATE, -1);
+        long apparentAge = date < 0 ? 0 : Math.max(0, responseTime - date);
+        long responseDelay = Math.max(0, responseTime - store.requestTime);
+        long initialAge = Math.max(apparentAge, CacheControl.millis(headers.get(HttpHeader.AGE)) + responseDelay);
+
+        // Freshness lifetime, see RFC 7234 sections 4.2.1 and 4.2.2.
+        long freshness;
+        long origin = date < 0 ? responseTime : date;
+        if (cacheControl.noCache)
+            freshness = 0;
+        else if (cacheControl.maxAge >= 0)
+            freshness = cacheControl.maxAge;
+        else if (headers.contains(HttpHeader.EXPIRES))
+            freshness = Math.max(0, date(headers, HttpHeader.EXPIRES, 0) - origin);
+        else
+        {
+            long lastModified = date(headers, HttpHeader.LAST_MODIFIED, -1);
+            freshness = lastModified < 0 ? 0 : Math.min(MAX_HEURISTIC_FRESHNESS, Math.max(0, origin - lastModified) / 10);
+        }
+
+        Map<String, String> vary = new HashMap<>();
+        for (String name : headers.getCSV(HttpHeader.VARY, false))
+        {
+            vary.put(name, values(store.requestHeaders, name));
+        }
+
+        long stale = cacheControl.staleWhileRevalidate >= 0 ? cacheControl.staleWhileRevalidate : getStaleWhileRevalidate();
+        return new Entry(store.key, version, status, reason, headers, vary, body, initialAge, freshness, stale, cacheControl.mustRevalidate);
+    }
+
+    private static long date(HttpFields headers, HttpHeader header, long defaultValue)
+    {
+        try
+        {
+            long date = headers.getDateField(header.asString());
+            return date < 0 ? defaultValue : date;
+        }
+        catch (IllegalArgumentException x)
+        {
+            return defaultValue;
+        }
+    }
+
+    private static String values(HttpFields headers, String name)
+    {
+        List<String> values = headers.getValuesList(name);
+        return values.isEmpty() ? null : String.join(",", values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[entries=%d,memory=%d/%d,disk=%d/%d]",
+            getClass().getSimpleName(),
+            hashCode(),
+            getEntryCount(),
+            getMemorySize(),
+            getMaxMemorySize(),
+            getDiskSize(),
+            getMaxDiskSize());
+    }
+
+    /**
+     * <p>Replaces a {@code 304} response to a validation request with the stored response.</p>
+     */
+    private class ValidationProtocolHandler extends Response.Listener.Adapter implements ProtocolHandler
+    {
+        @Override
+        public String getName()
+        {
+            return "cache-validation";
+        }
+
+        @Override
+        public boolean accept(Request request, Response response)
+        {
+            return response.getStatus() == HttpStatus.NOT_MODIFIED_304 &&
+                request.getAttributes().get(VALIDATION_ATTRIBUTE) instanceof Store;
+        }
+
+        @Override
+        public Response.Listener getResponseListener()
+        {
+            return this;
+        }
+
+        @Override
+        public void onComplete(Result result)
+        {
+            HttpRequest request = (HttpRequest)result.getRequest();
+            Store store = (Store)request.getAttributes().get(VALIDATION_ATTRIBUTE);
+            HttpConversation conversation = request.getConversation();
+            conversation.updateResponseListeners(null);
+            List<Response.ResponseListener> listeners = conversation.getResponseListeners().stream()
+                .filter(listener -> listener != store)
+                .collect(Collectors.toList());
+            Response response = result.getResponse();
+            if (result.isFailed())
+            {
+                store.done();
+                notifier.forwardFailureComplete(listeners, request, result.getRequestFailure(), response, result.getResponseFailure());
+            }
+            else
+            {
+                serve(request, listeners, store.validated(response));
+            }
+        }
+    }
+
+    /**
+     * <p>Buffers the response content and stores the response, if it is cacheable.</p>
+     */
+    private class Store extends Response.Listener.Adapter
+    {
+        private final long requestTime = System.currentTimeMillis();
+        private final HttpClient client;
+        private final String key;
+        private final HttpFields requestHeaders;
+        private final Entry entry;
+        private final boolean background;
+        private boolean storable;
+        private ByteBuffer content;
+
+        private Store(HttpClient client, String key, HttpRequest request, Entry entry, boolean background)
+        {
+            this.client = client;
+            this.key = key;
+            // Snapshot the headers before the request is normalized by the connection.
+            this.requestHeaders = request.getHeaders().asImmutable();
+            this.entry = entry;
+            this.background = background;
+        }
+
+        private void prepareValidation(HttpRequest request)
+        {
+            request.headers(fields ->
+            {
+                if (entry.etag != null)
+                    fields.put(HttpHeader.IF_NONE_MATCH, entry.etag);
+                if (entry.lastModified != null)
+                    fields.put(HttpHeader.IF_MODIFIED_SINCE, entry.lastModified);
+            });
+            request.attribute(VALIDATION_ATTRIBUTE, this);
+        }
+
+        @Override
+        public void onHeaders(Response response)
+        {
+            storable = isStorable(response);
+            if (storable && response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH) > maxContentLength)
+                storable = false;
+        }
+
+        private boolean isStorable(Response response)
+        {
+            // See RFC 7234 section 3.
+            switch (response.getStatus())
+            {
+                case 200:
+                case 203:
+                case 204:
+                case 300:
+                case 301:
+                case 308:
+                case 404:
+                case 405:
+                case 410:
+                case 414:
+                case 501:
+                    break;
+                default:
+                    return false;
+            }
+            HttpFields headers = response.getHeaders();
+            CacheControl cacheControl = CacheControl.from(headers);
+            if (cacheControl.noStore)
+                return false;
+            if (requestHeaders.contains(HttpHeader.AUTHORIZATION) && !cacheControl.isPublic)
+                return false;
+            if (headers.getCSV(HttpHeader.VARY, false).contains("*"))
+                return false;
+            return cacheControl.maxAge >= 0 ||
+                headers.contains(HttpHeader.EXPIRES) ||
+                headers.contains(HttpHeader.ETAG) ||
+                headers.contains(HttpHeader.LAST_MODIFIED);
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer buffer)
+        {
+            if (!storable)
+                return;
+            int length = buffer.remaining();
+            if (length > BufferUtil.space(content))
+            {
+                int remaining = content == null ? 0 : content.remaining();
+                if (remaining + length > maxContentLength)
+                {
+                    storable = false;
+                    content = null;
+                    return;
+                }
+                int requiredCapacity = content == null ? length : content.capacity() + length;
+                int newCapacity = Math.min(Integer.highestOneBit(requiredCapacity) << 1, maxContentLength);
+                content = BufferUtil.ensureCapacity(content, newCapacity);
+            }
+            BufferUtil.append(content, buffer);
+        }
+
+        @Override
+        public void onComplete(Result result)
+        {
+            try
+            {
+                if (result.isFailed() || !key.equals(key(result.getRequest())))
+                    return;
+                Response response = result.getResponse();
+                if (storable)
+                {
+                    Entry entry = newEntry(this, response.getVersion(), response.getStatus(), response.getReason(),
+                        storedHeaders(response.getHeaders()), new Body(content), System.currentTimeMillis());
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Storing {}", entry);
+                    store(entry);
+                }
+                else if (response.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR_500)
+                {
+                    invalidate(key);
+                }
+            }
+            finally
+            {
+                done();
+            }
+        }
+
+        private HttpFields storedHeaders(HttpFields headers)
+        {
+            // The content has been decoded, so the stored headers must not refer to the encoded content.
+            List<String> encodings = headers.getCSV(HttpHeader.CONTENT_ENCODING, false);
+            for (ContentDecoder.Factory factory : client.getContentDecoderFactories())
+            {
+                for (String encoding : encodings)
+                {
+                    if (factory.getEncoding().equalsIgnoreCase(encoding))
+                        return HttpFields.build(headers, EnumSet.of(HttpHeader.CONTENT_ENCODING, HttpHeader.CONTENT_LENGTH)).asImmutable();
+                }
+            }
+            return headers.asImmutable();
+        }
+
+        private Entry validated(Response response)
+        {
+            try
+            {
+                validations.increment();
+                // Update the stored headers, see RFC 7234 section 4.3.4.
+                HttpFields.Mutable headers = HttpFields.build(entry.headers);
+                for (HttpField field : response.getHeaders())
+                {
+                    if (isUpdatable(field))
+                        headers.remove(field.getName());
+                }
+                for (HttpField field : response.getHeaders())
+                {
+                    if (isUpdatable(field))
+                        headers.add(field);
+                }
+                Entry result = newEntry(this, entry.version, entry.status, entry.reason, headers.asImmutable(), entry.body, System.currentTimeMillis());
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Revalidated {}", result);
+                if (!replace(entry, result) && LOG.isDebugEnabled())
+                    LOG.debug("Could not replace {} with {}", entry, result);
+                return result;
+            }
+            finally
+            {
+                done();
+            }
+        }
+
+        private boolean isUpdatable(HttpField field)
+        {
+            HttpHeader header = field.getHeader();
+            return header != HttpHeader.CONTENT_LENGTH &&
+                header != HttpHeader.TRANSFER_ENCODING &&
+                header != HttpHeader.CONTENT_ENCODING &&
+                header != HttpHeader.CONNECTION;
+        }
+
+        private void done()
+        {
+            if (background)
+                entry.validating.set(false);
+        }
+    }
+
+    private static class Entry
+    {
+        private final AtomicBoolean validating = new AtomicBoolean();
+        private final String key;
+        private final HttpVersion version;
+        private final int status;
+        private final String reason;
+        private final HttpFields headers;
+        private final Map<String, String> vary;
+        private final Body body;
+        private final long initialAge;
+        private final long responseNanoTime = System.nanoTime();
+        private final long freshness;
+        private final long staleWhileRevalidate;
+        private final boolean mustRevalidate;
+        private final String etag;
+        private final String lastModified;
+
+        private Entry(String key, HttpVersion version, int status, String reason, HttpFields headers, Map<String, String> vary, Body body, long initialAge, long freshness, long staleWhileRevalidate, boolean mustRevalidate)
+        {
+            this.key = key;
+            this.version = version;
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.vary = vary;
+            this.body = body;
+            this.initialAge = initialAge;
+            this.freshness = freshness;
+            this.staleWhileRevalidate = staleWhileRevalidate;
+            this.mustRevalidate = mustRevalidate;
+            this.etag = headers.get(HttpHeader.ETAG);
+            this.lastModified = headers.get(HttpHeader.LAST_MODIFIED);
+        }
+
+        private long getAge()
+        {
+            return initialAge + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - responseNanoTime);
+        }
+
+        private boolean hasValidators()
+        {
+            return etag != null || lastModified != null;
+        }
+
+        private boolean matches(HttpFields requestHeaders)
+        {
+            for (Map.Entry<String, String> field : vary.entrySet())
+            {
+                if (!Objects.equals(field.getValue(), values(requestHeaders, field.getKey())))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[%s,%d,age=%d,freshness=%d,%s]", getClass().getSimpleName(), hashCode(), key, status, getAge(), freshness, body);
+        }
+    }
+
+    private static class Body
+    {
+        private final long size;
+        private volatile ByteBuffer buffer;
+        private volatile long lastAccess = System.nanoTime();
+        // Guarded by the cache lock.
+        private Path path;
+        private boolean released;
+
+        private Body(ByteBuffer content)
+        {
+            int size = content == null ? 0 : content.remaining();
+            this.size = size;
+            if (size == 0)
+            {
+                this.buffer = BufferUtil.EMPTY_BUFFER;
+            }
+            else
+            {
+                ByteBuffer direct = ByteBuffer.allocateDirect(size);
+                direct.put(content).flip();
+                this.buffer = direct.asReadOnlyBuffer();
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s[size=%d,%s]", getClass().getSimpleName(), size, path == null ? "memory" : path);
+        }
+    }
+
+    private static class CacheControl
+    {
+        private boolean noStore;
+        private boolean noCache;
+        private boolean mustRevalidate;
+        private boolean isPublic;
+        private long maxAge = -1;
+        private long staleWhileRevalidate = -1;
+
+        private static CacheControl from(HttpFields headers)
+        {
+            CacheControl result = new CacheControl();
+            for (String directive : headers.getCSV(HttpHeader.CACHE_CONTROL, false))
+            {
+                String name = directive;
+                String value = null;
+                int equals = directive.indexOf('=');
+                if (equals > 0)
+                {
+                    name = directive.substring(0, equals).trim();
+                    value = directive.substring(equals + 1).trim();
+                }
+                switch (name.toLowerCase(Locale.ENGLISH))
+                {
+                    case "no-store":
+                        result.noStore = true;
+                        break;
+                    case "no-cache":
+                        result.noCache = true;
+                        break;
+                    case "must-revalidate":
+                    case "proxy-revalidate":
+                        result.mustRevalidate = true;
+                        break;
+                    case "public":
+                        result.isPublic = true;
+                        break;
+                    case "max-age":
+                        result.maxAge = millis(value);
+                        break;
+                    case "stale-while-revalidate":
+                        result.staleWhileRevalidate = millis(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (!headers.contains(HttpHeader.CACHE_CONTROL) && headers.getCSV(HttpHeader.PRAGMA, false).contains("no-cache"))
+                result.noCache = true;
+            return result;
+        }
+
+        private static long millis(String seconds)
+        {
+            if (seconds == null)
+                return 0;
+            try
+            {
+                if (seconds.length() > 1 && seconds.charAt(0) == '"' && seconds.charAt(seconds.length() - 1) == '"')
+                    seconds = seconds.substring(1, seconds.length() - 1);
+                return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(seconds)));
+            }
+            catch (NumberFormatException x)
+            {
+                // Invalid values are treated as stale, see RFC 7234 section 1.2.1.
+                return 0;
+            }
+        }
+    }
+}
@@ -139,6 +139,8 @@ public class HttpClient extends ContainerLifeCycle
     private long addressResolutionTimeout = 15000;
     private boolean tcpNoDelay = true;
     private boolean strictEventOrdering = false;
+    private boolean coalesceRequests = false;
+    private HttpCache httpCache;
     private HttpField encodingField;
     private boolean removeIdleDestinations = false;
     private String name = getClass().getSimpleName() + "@" + Integer.toHexString(hashCode());
@@ -204,13 +206,15 @@ public class HttpClient extends ContainerLifeCycle
             setScheduler(new ScheduledExecutorScheduler(name + "-scheduler", false));
 
         if (resolver == null)
-            setSocketAddressResolver(new SocketAddressResolver.Async(getExecutor(), getScheduler(), getAddressResolutionTimeout()));
+            setSocketAddressResolver(new SocketAddressResolver.Caching(new SocketAddressResolver.Async(getExecutor(), getScheduler(), getAddressResolutionTimeout())));
 
         handlers.put(new ContinueProtocolHandler());
         handlers.put(new RedirectProtocolHandler(this));
         handlers.put(new WWWAuthenticationProtocolHandler(this));
         handlers.put(new ProxyAuthenticationProtocolHandler(this));
         handlers.put(new UpgradeProtocolHandler());
+        if (httpCache != null)
+            handlers.put(httpCache.getProtocolHandler());
 
         decoderFactories.add(new GZIPContentDecoder.Factory(byteBufferPool));
 
@@ -567,7 +571,8 @@ public class HttpClient extends ContainerLifeCycle
                 Map<String, Object> context = new ConcurrentHashMap<>();
                 context.put(ClientConnectionFactory.CLIENT_CONTEXT_KEY, HttpClient.this);
                 context.put(HttpClientTransport.HTTP_DESTINATION_CONTEXT_KEY, destination);
-                connect(socketAddresses, 0, context);
+                context.put(HttpClientTransport.HTTP_CONNECTION_PROMISE_CONTEXT_KEY, promise);
+                transport.connect(socketAddresses, context);
             }
 
             @Override
@@ -575,23 +580,6 @@ public class HttpClient extends ContainerLifeCycle
             {
                 promise.failed(x);
             }
-
-            private void connect(List<InetSocketAddress> socketAddresses, int index, Map<String, Object> context)
-            {
-                context.put(HttpClientTransport.HTTP_CONNECTION_PROMISE_CONTEXT_KEY, new Promise.Wrapper<>(promise)
-                {
-                    @Override
-                    public void failed(Throwable x)
-                    {
-                        int nextIndex = index + 1;
-                        if (nextIndex == socketAddresses.size())
-                            super.failed(x);
-                        else
-                            connect(socketAddresses, nextIndex, context);
-                    }
-                });
-                transport.connect(socketAddresses.get(index), context);
-            }
         });
     }
 
@@ -997,6 +985,61 @@ public class HttpClient extends ContainerLifeCycle
         this.strictEventOrdering = strictEventOrdering;
     }
 
+    /**
+     * @return whether identical in-flight requests are coalesced
+     * @see #setCoalesceRequests(boolean)
+     */
+    @ManagedAttribute("Whether identical in-flight requests are coalesced")
+    public boolean isCoalesceRequests()
+    {
+        return coalesceRequests;
+    }
+
+    /**
+     * Whether identical in-flight requests should be coalesced.
+     * <p>
+     * When enabled, a {@code GET} or {@code HEAD} request without content that is identical
+     * (same method, URI and content negotiation headers) to another request in flight to the
+     * same destination is not sent to the server; it waits for the in-flight request to complete
+     * and its response listeners are notified with a copy of that response and its content.
+     * <p>
+     * This reduces the load on the server when many identical requests are issued concurrently,
+     * but it is only correct for resources whose representation does not depend on request
+     * data other than the one used to identify identical requests.
+     * <p>
+     * The default value for this property is {@code false}.
+     *
+     * @param coalesceRequests whether identical in-flight requests should be coalesced
+     * @see HttpRequestCoalescer
+     */
+    public void setCoalesceRequests(boolean coalesceRequests)
+    {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    /**
+     * @return the HTTP response cache, or null if responses are not cached
+     * @see #setHttpCache(HttpCache)
+     */
+    public HttpCache getHttpCache()
+    {
+        return httpCache;
+    }
+
+    /**
+     * <p>Sets the HTTP response cache, that serves cacheable responses without contacting the server.</p>
+     * <p>The cache must be set before this HttpClient is started.</p>
+     *
+     * @param httpCache the HTTP response cache, or null to disable caching
+     */
+    public void setHttpCache(HttpCache httpCache)
+    {
+        if (isStarted())
+            throw new IllegalStateException("Cannot set the HTTP cache after start");
+        updateBean(this.httpCache, httpCache);
+        this.httpCache = httpCache;
+    }
+
     /**
      * @return whether destinations that have no connections should be removed
      * @see #setRemoveIdleDestinations(boolean)
@@ -14,9 +14,12 @@
 package org.eclipse.jetty.client;
 
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.jetty.client.api.Connection;
 import org.eclipse.jetty.io.ClientConnectionFactory;
+import org.eclipse.jetty.util.Promise;
 
 /**
  * {@link HttpClientTransport} represents what transport implementations should provide
@@ -72,6 +75,40 @@ public interface HttpClientTransport extends ClientConnectionFactory
      */
     public void connect(InetSocketAddress address, Map<String, Object> context);
 
+    /**
+     * <p>Establishes a physical connection to one of the given addresses.</p>
+     * <p>The default implementation tries the addresses one after the other,
+     * until a connection is established or all the addresses have been tried.
+     * Implementations may race connection attempts to multiple addresses,
+     * as specified by RFC 8305.</p>
+     *
+     * @param addresses the addresses to connect to
+     * @param context the context information to establish the connection
+     */
+    public default void connect(List<InetSocketAddress> addresses, Map<String, Object> context)
+    {
+        @SuppressWarnings("unchecked")
+        Promise<Connection> promise = (Promise<Connection>)context.get(HTTP_CONNECTION_PROMISE_CONTEXT_KEY);
+        connect(addresses, 0, context, promise);
+    }
+
+    private void connect(List<InetSocketAddress> addresses, int index, Map<String, Object> context, Promise<Connection> promise)
+    {
+        context.put(HTTP_CONNECTION_PROMISE_CONTEXT_KEY, new Promise.Wrapper<>(promise)
+        {
+            @Override
+            public void failed(Throwable x)
+            {
+                int nextIndex = index + 1;
+                if (nextIndex == addresses.size())
+                    super.failed(x);
+                else
+                    connect(addresses, nextIndex, context, promise);
+            }
+        });
+        connect(addresses.get(index), context);
+    }
+
     /**
      * @return the factory for ConnectionPool instances
      */
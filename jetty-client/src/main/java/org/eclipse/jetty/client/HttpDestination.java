@@ -35,6 +35,7 @@ import org.eclipse.jetty.io.CyclicTimeout;
 import org.eclipse.jetty.util.BlockingArrayQueue;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.HostPort;
+import org.eclipse.jetty.util.MpmcArrayQueue;
 import org.eclipse.jetty.util.Promise;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -51,6 +52,7 @@ import org.slf4j.LoggerFactory;
 public abstract class HttpDestination extends ContainerLifeCycle implements Destination, Closeable, Callback, Dumpable
 {
     private static final Logger LOG = LoggerFactory.getLogger(HttpDestination.class);
+    private static final int MAX_LOCK_FREE_QUEUE_CAPACITY = 64 * 1024;
 
     private final HttpClient client;
     private final Origin origin;
@@ -61,6 +63,7 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
     private final ClientConnectionFactory connectionFactory;
     private final HttpField hostField;
     private final TimeoutTask timeout;
+    private final HttpRequestCoalescer coalescer;
     private ConnectionPool connectionPool;
 
     public HttpDestination(HttpClient client, Origin origin)
@@ -74,6 +77,7 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         this.responseNotifier = new ResponseNotifier();
 
         this.timeout = new TimeoutTask(client.getScheduler());
+        this.coalescer = new HttpRequestCoalescer(this);
 
         String host = HostPort.normalizeHost(getHost());
         if (!client.isDefaultPort(getScheme(), getPort()))
@@ -133,7 +137,12 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
 
     protected Queue<HttpExchange> newExchangeQueue(HttpClient client)
     {
-        return new BlockingArrayQueue<>(client.getMaxRequestsQueuedPerDestination());
+        int maxCapacity = client.getMaxRequestsQueuedPerDestination();
+        // The lock-free queue preallocates its slots, so it is
+        // not used when the queue is configured to be very large.
+        if (maxCapacity > MAX_LOCK_FREE_QUEUE_CAPACITY)
+            return new BlockingArrayQueue<>(maxCapacity);
+        return new MpmcArrayQueue<>(maxCapacity);
     }
 
     protected ClientConnectionFactory newSslClientConnectionFactory(SslContextFactory.Client sslContextFactory, ClientConnectionFactory connectionFactory)
@@ -210,6 +219,12 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         return exchanges.size();
     }
 
+    @ManagedAttribute(value = "The number of distinct coalesced requests in flight", readonly = true)
+    public int getCoalescedRequestCount()
+    {
+        return coalescer.getInFlightCount();
+    }
+
     public Origin.Address getConnectAddress()
     {
         return proxy == null ? getOrigin().getAddress() : proxy.getAddress();
@@ -245,6 +260,19 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
 
     protected void send(HttpRequest request, List<Response.ResponseListener> listeners)
     {
+        HttpCache httpCache = client.getHttpCache();
+        if (httpCache != null)
+        {
+            listeners = httpCache.intercept(this, request, listeners);
+            if (listeners == null)
+                return;
+        }
+        if (client.isCoalesceRequests())
+        {
+            listeners = coalescer.coalesce(request, listeners);
+            if (listeners == null)
+                return;
+        }
         send(new HttpExchange(this, request, listeners));
     }
 
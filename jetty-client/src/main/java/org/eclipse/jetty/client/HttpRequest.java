@@ -39,6 +39,7 @@ import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import org.eclipse.jetty.client.api.ContentProvider;
@@ -65,6 +66,7 @@ public class HttpRequest implements Request
     private final Fields params = new Fields(true);
     private final List<Response.ResponseListener> responseListeners = new ArrayList<>();
     private final AtomicReference<Throwable> aborted = new AtomicReference<>();
+    private volatile Predicate<Throwable> abortHandler;
     private final HttpClient client;
     private final HttpConversation conversation;
     private String scheme;
@@ -857,10 +859,29 @@ public class HttpRequest implements Request
     public boolean abort(Throwable cause)
     {
         if (aborted.compareAndSet(null, Objects.requireNonNull(cause)))
+        {
+            Predicate<Throwable> handler = abortHandler;
+            if (handler != null && handler.test(cause))
+                return true;
             return conversation.abort(cause);
+        }
         return false;
     }
 
+    /**
+     * <p>Sets the handler of the abort of this request while it is not associated
+     * with an exchange, for example while it waits for an identical request.</p>
+     * <p>The handler returns whether it aborted the request; if it did not,
+     * the request exchange, if any, is aborted.</p>
+     *
+     * @param handler the abort handler, or null to remove it
+     * @see HttpRequestCoalescer
+     */
+    void setAbortHandler(Predicate<Throwable> handler)
+    {
+        abortHandler = handler;
+    }
+
     @Override
     public Throwable getAbortCause()
     {
@@ -0,0 +1,353 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Coalesces identical in-flight requests sent to a {@link HttpDestination}.</p>
+ * <p>The first request for a given key (the method, the URI and the values of the
+ * headers that typically select a representation) is sent to the server, while the
+ * identical requests that arrive before it completes wait for it and then receive
+ * a copy of its response and content, without another round-trip to the server.</p>
+ * <p>Only {@code GET} and {@code HEAD} requests without content are coalesced.
+ * The waiting requests are sent individually when the response fails, when its
+ * content exceeds the max buffered length, or when it carries a {@code Vary} header
+ * naming a header whose value differs from the one of the first request.</p>
+ * <p>Waiting requests do not emit request events; their response events are
+ * replayed when the first request completes. Their total timeout and their
+ * abort are honored while they wait: they fail immediately, without waiting
+ * for the first request to complete.</p>
+ *
+ * @see HttpClient#setCoalesceRequests(boolean)
+ */
+public class HttpRequestCoalescer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(HttpRequestCoalescer.class);
+    private static final HttpHeader[] KEY_HEADERS =
+    {
+        HttpHeader.ACCEPT,
+        HttpHeader.ACCEPT_ENCODING,
+        HttpHeader.ACCEPT_LANGUAGE,
+        HttpHeader.AUTHORIZATION,
+        HttpHeader.COOKIE,
+        HttpHeader.RANGE,
+        HttpHeader.IF_RANGE,
+        HttpHeader.IF_MATCH,
+        HttpHeader.IF_NONE_MATCH,
+        HttpHeader.IF_MODIFIED_SINCE,
+        HttpHeader.IF_UNMODIFIED_SINCE
+    };
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final HttpDestination destination;
+    private final int maxContentLength;
+
+    public HttpRequestCoalescer(HttpDestination destination)
+    {
+        this(destination, 2 * 1024 * 1024);
+    }
+
+    /**
+     * @param destination the destination the requests are sent to
+     * @param maxContentLength the max response content length that is buffered to be replayed
+     */
+    public HttpRequestCoalescer(HttpDestination destination, int maxContentLength)
+    {
+        this.destination = destination;
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * @return the number of distinct requests currently in flight
+     */
+    public int getInFlightCount()
+    {
+        return flights.size();
+    }
+
+    /**
+     * <p>Coalesces the given request with an identical in-flight request, if any.</p>
+     *
+     * @param request the request to send
+     * @param listeners the response listeners of the request
+     * @return the listeners the request must be sent with, or {@code null}
+     * if the request has been coalesced and must not be sent
+     */
+    public List<Response.ResponseListener> coalesce(HttpRequest request, List<Response.ResponseListener> listeners)
+    {
+        if (!isCoalescable(request))
+            return listeners;
+
+        String key = key(request);
+        while (true)
+        {
+            Flight flight = flights.get(key);
+            if (flight == null)
+            {
+                flight = new Flight(key, request);
+                if (flights.putIfAbsent(key, flight) == null)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Leading {} for {}", request, key);
+                    List<Response.ResponseListener> result = new ArrayList<>(listeners.size() + 1);
+                    result.addAll(listeners);
+                    result.add(flight);
+                    return result;
+                }
+            }
+            else if (flight.join(request, listeners))
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Coalesced {} with {}", request, flight);
+                return null;
+            }
+            else
+            {
+                // The flight is completing, help to remove it and retry.
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    protected boolean isCoalescable(HttpRequest request)
+    {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.is(method) && !HttpMethod.HEAD.is(method))
+            return false;
+        Request.Content body = request.getBody();
+        return body == null || body.getLength() == 0;
+    }
+
+    private String key(HttpRequest request)
+    {
+        StringBuilder builder = new StringBuilder(128);
+        builder.append(request.getMethod()).append(' ').append(request.getURI());
+        HttpFields headers = request.getHeaders();
+        for (HttpHeader header : KEY_HEADERS)
+        {
+            List<String> values = headers.getValuesList(header);
+            if (!values.isEmpty())
+                builder.append('\n').append(header.asString()).append(':').append(String.join(",", values));
+        }
+        if (!request.getCookies().isEmpty())
+            builder.append("\ncookies:").append(request.getCookies());
+        if (!request.isFollowRedirects())
+            builder.append("\nno-redirects");
+        return builder.toString();
+    }
+
+    private void send(Follower follower)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Sending {} individually", follower.request);
+        destination.send(new HttpExchange(destination, follower.request, follower.listeners));
+    }
+
+    private void fail(Follower follower, Throwable failure)
+    {
+        ResponseNotifier notifier = destination.getResponseNotifier();
+        HttpResponse response = new HttpResponse(follower.request, follower.listeners);
+        notifier.notifyFailure(follower.listeners, response, failure);
+        notifier.notifyComplete(follower.listeners, new Result(follower.request, failure, response, failure));
+    }
+
+    private class Flight extends Response.Listener.Adapter
+    {
+        private final AutoLock lock = new AutoLock();
+        private final List<Follower> followers = new ArrayList<>();
+        private final String key;
+        private final HttpFields headers;
+        private ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private boolean complete;
+
+        private Flight(String key, HttpRequest request)
+        {
+            this.key = key;
+            // Snapshot the headers before the request is normalized by the connection.
+            this.headers = request.getHeaders().asImmutable();
+        }
+
+        private boolean join(HttpRequest request, List<Response.ResponseListener> listeners)
+        {
+            Follower follower = new Follower(request, listeners);
+            try (AutoLock l = lock.lock())
+            {
+                if (complete)
+                    return false;
+                followers.add(follower);
+            }
+            long timeoutAt = request.getTimeoutAt();
+            if (timeoutAt != -1)
+            {
+                Scheduler scheduler = destination.getHttpClient().getScheduler();
+                long delay = Math.max(0, timeoutAt - System.nanoTime());
+                follower.task = scheduler.schedule(() -> expire(follower), delay, TimeUnit.NANOSECONDS);
+            }
+            request.setAbortHandler(cause -> abort(follower, cause));
+            // The request may have been aborted before the handler was set.
+            Throwable abort = request.getAbortCause();
+            if (abort != null)
+                abort(follower, abort);
+            return true;
+        }
+
+        private void expire(Follower follower)
+        {
+            HttpRequest request = follower.request;
+            if (remove(follower))
+                fail(follower, new TimeoutException("Total timeout " + request.getTimeout() + " ms elapsed"));
+        }
+
+        private boolean abort(Follower follower, Throwable cause)
+        {
+            if (!remove(follower))
+                return false;
+            if (LOG.isDebugEnabled())
+                LOG.debug("Aborted {} waiting for {}", follower.request, this, cause);
+            fail(follower, cause);
+            return true;
+        }
+
+        private boolean remove(Follower follower)
+        {
+            try (AutoLock l = lock.lock())
+            {
+                if (!followers.remove(follower))
+                    return false;
+            }
+            follower.request.setAbortHandler(null);
+            if (follower.task != null)
+                follower.task.cancel();
+            return true;
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer buffer)
+        {
+            if (content == null)
+                return;
+            int length = buffer.remaining();
+            if (content.size() + length > maxContentLength)
+            {
+                // Too large to buffer, the followers will be sent individually.
+                content = null;
+                return;
+            }
+            byte[] bytes = BufferUtil.toArray(buffer);
+            content.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void onComplete(Result result)
+        {
+            List<Follower> followers;
+            try (AutoLock l = lock.lock())
+            {
+                complete = true;
+                followers = new ArrayList<>(this.followers);
+                this.followers.clear();
+            }
+            flights.remove(key, this);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Completed {} with {} followers {}", this, followers.size(), result);
+
+            Response response = result.getResponse();
+            byte[] bytes = result.isFailed() || content == null ? null : content.toByteArray();
+            for (Follower follower : followers)
+            {
+                // Once sent individually, the request is aborted via its exchange.
+                follower.request.setAbortHandler(null);
+                if (follower.task != null)
+                    follower.task.cancel();
+
+                Throwable abort = follower.request.getAbortCause();
+                if (abort != null)
+                    fail(follower, abort);
+                else if (bytes == null || !matches(follower.request, response))
+                    send(follower);
+                else
+                    replay(follower, response, bytes);
+            }
+        }
+
+        private boolean matches(HttpRequest request, Response response)
+        {
+            for (String name : response.getHeaders().getCSV(HttpHeader.VARY, false))
+            {
+                if ("*".equals(name))
+                    return false;
+                if (!Objects.equals(headers.get(name), request.getHeaders().get(name)))
+                    return false;
+            }
+            return true;
+        }
+
+        private void replay(Follower follower, Response response, byte[] bytes)
+        {
+            HttpResponse copy = new HttpResponse(follower.request, follower.listeners)
+                .version(response.getVersion())
+                .status(response.getStatus())
+                .reason(response.getReason())
+                .headers(fields -> fields.add(response.getHeaders()));
+            String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
+            String mediaType = contentType == null ? null : MimeTypes.getContentTypeWithoutCharset(contentType);
+            String encoding = contentType == null ? null : MimeTypes.getCharsetFromContentType(contentType);
+            ContentResponse contentResponse = new HttpContentResponse(copy, bytes, mediaType, encoding);
+            destination.getResponseNotifier().forwardSuccessComplete(follower.listeners, follower.request, contentResponse);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[%s]", getClass().getSimpleName(), hashCode(), key.replace('\n', ' '));
+        }
+    }
+
+    private static class Follower
+    {
+        private final HttpRequest request;
+        private final List<Response.ResponseListener> listeners;
+        private volatile Scheduler.Task task;
+
+        private Follower(HttpRequest request, List<Response.ResponseListener> listeners)
+        {
+            this.request = request;
+            this.listeners = listeners;
+        }
+    }
+}
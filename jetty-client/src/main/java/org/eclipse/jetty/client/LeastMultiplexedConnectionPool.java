@@ -0,0 +1,117 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Pool;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A {@link ConnectionPool} that provides the connection with the least
+ * number of active requests, such as the HTTP/2 connection with the least
+ * number of active streams.</p>
+ * <p>When the ratio between the active requests and the max number of
+ * requests that the connections can multiplex reaches the
+ * {@link #getPrewarmThreshold() pre-warm threshold}, a spare connection
+ * is opened, so that it is ready to be used before all the connections
+ * are saturated.</p>
+ *
+ * @see MultiplexConnectionPool
+ */
+@ManagedObject
+public class LeastMultiplexedConnectionPool extends MultiplexConnectionPool
+{
+    private static final Logger LOG = LoggerFactory.getLogger(LeastMultiplexedConnectionPool.class);
+
+    private final Pool<Connection> pool;
+    private double prewarmThreshold = 0.75;
+
+    public LeastMultiplexedConnectionPool(HttpDestination destination, int maxConnections, Callback requester, int maxMultiplex)
+    {
+        this(destination, new Pool<>(Pool.StrategyType.LEAST_MULTIPLEXED, maxConnections, false), requester, maxMultiplex);
+    }
+
+    private LeastMultiplexedConnectionPool(HttpDestination destination, Pool<Connection> pool, Callback requester, int maxMultiplex)
+    {
+        super(destination, pool, requester, maxMultiplex);
+        this.pool = pool;
+    }
+
+    @ManagedAttribute("The utilization ratio that triggers the opening of a spare connection")
+    public double getPrewarmThreshold()
+    {
+        return prewarmThreshold;
+    }
+
+    /**
+     * <p>Sets the ratio between the active requests and the max number of requests
+     * that the connections can multiplex, that triggers the opening of a spare connection.</p>
+     *
+     * @param prewarmThreshold the utilization ratio, or a value greater than 1 to disable pre-warming
+     */
+    public void setPrewarmThreshold(double prewarmThreshold)
+    {
+        this.prewarmThreshold = prewarmThreshold;
+    }
+
+    @ManagedAttribute(value = "The ratio between the active requests and the max number of requests of the connections", readonly = true)
+    public double getUtilization()
+    {
+        int capacity = 0;
+        int active = 0;
+        int maxMultiplex = getMaxMultiplex();
+        for (Pool<Connection>.Entry entry : pool.values())
+        {
+            if (entry.isClosed())
+                continue;
+            capacity += maxMultiplex;
+            active += entry.getMultiplexCount();
+        }
+        return capacity == 0 ? 0 : (double)active / capacity;
+    }
+
+    @ManagedAttribute(value = "The number of active requests of each connection", readonly = true)
+    public Map<String, Integer> getConnectionOccupancy()
+    {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Pool<Connection>.Entry entry : pool.values())
+        {
+            Connection connection = entry.getPooled();
+            if (connection != null && !entry.isClosed())
+                result.put(connection.toString(), entry.getMultiplexCount());
+        }
+        return result;
+    }
+
+    @Override
+    protected void acquired(Connection connection)
+    {
+        super.acquired(connection);
+        double utilization = getUtilization();
+        if (utilization >= getPrewarmThreshold())
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Pre-warming connection, utilization {} on {}", utilization, this);
+            // Open at most one spare connection at a time.
+            tryCreate(1);
+        }
+    }
+}
@@ -236,7 +236,26 @@ public class ResponseNotifier
         notifyFailure(listeners, response, failure);
     }
 
+    public void forwardSuccessComplete(List<Response.ResponseListener> listeners, Request request, Response response, ByteBuffer content)
+    {
+        forwardEvents(listeners, response, content);
+        notifySuccess(listeners, response);
+        notifyComplete(listeners, new Result(request, response));
+    }
+
     private void forwardEvents(List<Response.ResponseListener> listeners, Response response)
+    {
+        ByteBuffer content = null;
+        if (response instanceof ContentResponse)
+        {
+            byte[] bytes = ((ContentResponse)response).getContent();
+            if (bytes != null)
+                content = ByteBuffer.wrap(bytes);
+        }
+        forwardEvents(listeners, response, content);
+    }
+
+    private void forwardEvents(List<Response.ResponseListener> listeners, Response response, ByteBuffer content)
     {
         notifyBegin(listeners, response);
         Iterator<HttpField> iterator = response.getHeaders().iterator();
@@ -247,19 +266,15 @@ public class ResponseNotifier
                 iterator.remove();
         }
         notifyHeaders(listeners, response);
-        if (response instanceof ContentResponse)
+        if (content != null && content.hasRemaining())
         {
-            byte[] content = ((ContentResponse)response).getContent();
-            if (content != null && content.length > 0)
-            {
-                List<Response.DemandedContentListener> contentListeners = listeners.stream()
-                    .filter(Response.DemandedContentListener.class::isInstance)
-                    .map(Response.DemandedContentListener.class::cast)
-                    .collect(Collectors.toList());
-                ObjLongConsumer<Object> demand = (context, value) -> {};
-                notifyBeforeContent(response, demand, contentListeners);
-                notifyContent(response, demand, ByteBuffer.wrap(content), Callback.NOOP, contentListeners);
-            }
+            List<Response.DemandedContentListener> contentListeners = listeners.stream()
+                .filter(Response.DemandedContentListener.class::isInstance)
+                .map(Response.DemandedContentListener.class::cast)
+                .collect(Collectors.toList());
+            ObjLongConsumer<Object> demand = (context, value) -> {};
+            notifyBeforeContent(response, demand, contentListeners);
+            notifyContent(response, demand, content, Callback.NOOP, contentListeners);
         }
     }
 
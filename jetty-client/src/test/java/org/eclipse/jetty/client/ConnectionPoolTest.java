@@ -69,7 +69,14 @@ public class ConnectionPoolTest
         return Stream.of(
             new ConnectionPoolFactory("duplex", destination -> new DuplexConnectionPool(destination, destination.getHttpClient().getMaxConnectionsPerDestination(), destination)),
             new ConnectionPoolFactory("multiplex", destination -> new MultiplexConnectionPool(destination, destination.getHttpClient().getMaxConnectionsPerDestination(), destination, 1)),
-            new ConnectionPoolFactory("random", destination -> new RandomConnectionPool(destination, destination.getHttpClient().getMaxConnectionsPerDestination(), destination, 1))
+            new ConnectionPoolFactory("random", destination -> new RandomConnectionPool(destination, destination.getHttpClient().getMaxConnectionsPerDestination(), destination, 1)),
+            new ConnectionPoolFactory("least-multiplexed", destination ->
+            {
+                LeastMultiplexedConnectionPool pool = new LeastMultiplexedConnectionPool(destination, destination.getHttpClient().getMaxConnectionsPerDestination(), destination, 1);
+                // Spare connections would break the connection count assertions.
+                pool.setPrewarmThreshold(2);
+                return pool;
+            })
         );
     }
 
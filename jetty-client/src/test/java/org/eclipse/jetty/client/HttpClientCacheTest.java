@@ -0,0 +1,176 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class HttpClientCacheTest extends AbstractHttpClientServerTest
+{
+    private HttpCache httpCache;
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testFreshResponseIsServedFromCache(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        start(scenario, new CacheHandler(requests, "max-age=60"));
+
+        for (int i = 0; i < 3; ++i)
+        {
+            ContentResponse response = newRequest(scenario).send();
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertEquals("content", response.getContentAsString());
+        }
+
+        assertEquals(1, requests.get());
+        assertEquals(1, httpCache.getMisses());
+        assertEquals(2, httpCache.getHits());
+        assertNotNull(newRequest(scenario).send().getHeaders().get(HttpHeader.AGE));
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testStaleResponseIsRevalidated(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        start(scenario, new CacheHandler(requests, "no-cache"));
+
+        ContentResponse response1 = newRequest(scenario).send();
+        assertEquals(HttpStatus.OK_200, response1.getStatus());
+
+        // The server replies 304, but the application sees the stored response.
+        ContentResponse response2 = newRequest(scenario).send();
+        assertEquals(HttpStatus.OK_200, response2.getStatus());
+        assertEquals("content", response2.getContentAsString());
+
+        assertEquals(2, requests.get());
+        assertEquals(1, httpCache.getValidations());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testStaleWhileRevalidate(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        start(scenario, new CacheHandler(requests, "max-age=0, stale-while-revalidate=60"));
+
+        newRequest(scenario).send();
+
+        // Served stale, while revalidating in background.
+        ContentResponse response = newRequest(scenario).send();
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("content", response.getContentAsString());
+        assertEquals(1, httpCache.getStaleHits());
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (httpCache.getValidations() == 0 && System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(2, requests.get());
+        assertEquals(1, httpCache.getValidations());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testNoStoreIsNotCached(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        start(scenario, new CacheHandler(requests, "no-store"));
+
+        newRequest(scenario).send();
+        newRequest(scenario).send();
+
+        assertEquals(2, requests.get());
+        assertEquals(0, httpCache.getEntryCount());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testUnsafeMethodInvalidates(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        start(scenario, new CacheHandler(requests, "max-age=60"));
+
+        newRequest(scenario).send();
+        assertEquals(1, httpCache.getEntryCount());
+
+        newRequest(scenario).method(HttpMethod.POST).send();
+        assertEquals(0, httpCache.getEntryCount());
+
+        newRequest(scenario).send();
+        assertEquals(3, requests.get());
+    }
+
+    @Override
+    protected void startClient(Scenario scenario) throws Exception
+    {
+        httpCache = new HttpCache(1024 * 1024);
+        startClient(scenario, httpClient -> httpClient.setHttpCache(httpCache));
+    }
+
+    private Request newRequest(Scenario scenario)
+    {
+        return client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .path("/resource")
+            .timeout(5, TimeUnit.SECONDS);
+    }
+
+    private static class CacheHandler extends EmptyServerHandler
+    {
+        private static final String ETAG = "\"v1\"";
+
+        private final AtomicInteger requests;
+        private final String cacheControl;
+
+        private CacheHandler(AtomicInteger requests, String cacheControl)
+        {
+            this.requests = requests;
+            this.cacheControl = cacheControl;
+        }
+
+        @Override
+        protected void service(String target, org.eclipse.jetty.server.Request jettyRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+        {
+            requests.incrementAndGet();
+            response.setHeader(HttpHeader.CACHE_CONTROL.asString(), cacheControl);
+            response.setHeader(HttpHeader.ETAG.asString(), ETAG);
+            if (ETAG.equals(request.getHeader(HttpHeader.IF_NONE_MATCH.asString())))
+            {
+                response.setStatus(HttpStatus.NOT_MODIFIED_304);
+                return;
+            }
+            response.setContentType("text/plain");
+            response.getOutputStream().write("content".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpClientCoalesceTest extends AbstractHttpClientServerTest
+{
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testIdenticalRequestsAreCoalesced(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(scenario, new BlockingHandler(requests, serverLatch, null));
+
+        int count = 3;
+        List<Result> results = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; ++i)
+        {
+            client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scenario.getScheme())
+                .path("/resource")
+                .timeout(5, TimeUnit.SECONDS)
+                .send(new BufferingResponseListener()
+                {
+                    @Override
+                    public void onComplete(Result result)
+                    {
+                        synchronized (results)
+                        {
+                            results.add(result);
+                            contents.add(getContentAsString());
+                        }
+                        latch.countDown();
+                    }
+                });
+        }
+        HttpDestination destination = (HttpDestination)client.resolveDestination(client.newRequest("localhost", connector.getLocalPort()).scheme(scenario.getScheme()));
+        assertEquals(1, destination.getCoalescedRequestCount());
+
+        serverLatch.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+        for (int i = 0; i < count; ++i)
+        {
+            Result result = results.get(i);
+            assertTrue(result.isSucceeded());
+            assertEquals(200, result.getResponse().getStatus());
+            assertEquals("/resource", contents.get(i));
+        }
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testDifferentRequestsAreNotCoalesced(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(scenario, new BlockingHandler(requests, serverLatch, null));
+
+        CountDownLatch latch = new CountDownLatch(3);
+        client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .path("/a")
+            .send(result -> latch.countDown());
+        client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .path("/b")
+            .send(result -> latch.countDown());
+        client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .path("/a")
+            .headers(headers -> headers.put(HttpHeader.ACCEPT_LANGUAGE, "it"))
+            .send(result -> latch.countDown());
+
+        serverLatch.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, requests.get());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testVaryMismatchSendsRequestIndividually(Scenario scenario) throws Exception
+    {
+        String header = "X-Variant";
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(scenario, new BlockingHandler(requests, serverLatch, header));
+
+        List<String> contents = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        for (String variant : new String[]{"one", "one", "two"})
+        {
+            client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scenario.getScheme())
+                .path("/resource")
+                .headers(headers -> headers.put(header, variant))
+                .send(new BufferingResponseListener()
+                {
+                    @Override
+                    public void onComplete(Result result)
+                    {
+                        synchronized (contents)
+                        {
+                            contents.add(getContentAsString());
+                        }
+                        latch.countDown();
+                    }
+                });
+        }
+
+        serverLatch.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // The second request is coalesced, the third is sent again.
+        assertEquals(2, requests.get());
+        assertEquals(2, contents.stream().filter("/resource one"::equals).count());
+        assertEquals(1, contents.stream().filter("/resource two"::equals).count());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testCoalescedRequestTimeout(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(scenario, new BlockingHandler(requests, serverLatch, null));
+
+        CountDownLatch leaderLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .send(result ->
+            {
+                if (result.isSucceeded())
+                    leaderLatch.countDown();
+            });
+
+        CountDownLatch followerLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .timeout(500, TimeUnit.MILLISECONDS)
+            .send(result ->
+            {
+                if (result.getFailure() instanceof TimeoutException)
+                    followerLatch.countDown();
+            });
+
+        assertTrue(followerLatch.await(5, TimeUnit.SECONDS));
+
+        serverLatch.countDown();
+
+        assertTrue(leaderLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testCoalescedRequestAbort(Scenario scenario) throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(scenario, new BlockingHandler(requests, serverLatch, null));
+
+        CountDownLatch leaderLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .send(result ->
+            {
+                if (result.isSucceeded())
+                    leaderLatch.countDown();
+            });
+
+        Throwable cause = new Exception("explicitly_aborted_by_test");
+        CountDownLatch followerLatch = new CountDownLatch(1);
+        Request follower = client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme());
+        follower.send(result ->
+        {
+            if (result.getFailure() == cause)
+                followerLatch.countDown();
+        });
+
+        // The follower is failed immediately, while the leader is still in flight.
+        assertTrue(follower.abort(cause));
+        assertTrue(followerLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, leaderLatch.getCount());
+
+        serverLatch.countDown();
+
+        assertTrue(leaderLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Override
+    protected void startClient(Scenario scenario) throws Exception
+    {
+        startClient(scenario, httpClient -> httpClient.setCoalesceRequests(true));
+    }
+
+    private static class BlockingHandler extends EmptyServerHandler
+    {
+        private final AtomicInteger requests;
+        private final CountDownLatch latch;
+        private final String vary;
+
+        private BlockingHandler(AtomicInteger requests, CountDownLatch latch, String vary)
+        {
+            this.requests = requests;
+            this.latch = latch;
+            this.vary = vary;
+        }
+
+        @Override
+        protected void service(String target, org.eclipse.jetty.server.Request jettyRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+        {
+            requests.incrementAndGet();
+            try
+            {
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException x)
+            {
+                throw new ServletException(x);
+            }
+            String content = request.getRequestURI();
+            if (vary != null)
+            {
+                response.setHeader(HttpHeader.VARY.asString(), vary);
+                content += " " + request.getHeader(vary);
+            }
+            response.setContentType("text/plain");
+            response.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -139,13 +139,14 @@ public class HttpField
      */
     public boolean contains(String search)
     {
+        String value = getValue();
         if (search == null)
-            return _value == null;
+            return value == null;
         if (search.isEmpty())
             return false;
-        if (_value == null)
+        if (value == null)
             return false;
-        if (search.equals(_value))
+        if (search.equals(value))
             return true;
 
         search = StringUtil.asciiToLowerCase(search);
@@ -154,9 +155,9 @@ public class HttpField
         int match = 0;
         int param = 0;
 
-        for (int i = 0; i < _value.length(); i++)
+        for (int i = 0; i < value.length(); i++)
         {
-            char c = _value.charAt(i);
+            char c = value.charAt(i);
             switch (state)
             {
                 case 0: // initial white space
@@ -317,7 +318,7 @@ public class HttpField
             return false;
         if (!_name.equalsIgnoreCase(field.getName()))
             return false;
-        return Objects.equals(_value, field.getValue());
+        return Objects.equals(getValue(), field.getValue());
     }
 
     public HttpHeader getHeader()
@@ -327,12 +328,12 @@ public class HttpField
 
     public int getIntValue()
     {
-        return Integer.parseInt(_value);
+        return Integer.parseInt(getValue());
     }
 
     public long getLongValue()
     {
-        return Long.parseLong(_value);
+        return Long.parseLong(getValue());
     }
 
     public String getLowerCaseName()
@@ -352,17 +353,18 @@ public class HttpField
 
     public String[] getValues()
     {
-        if (_value == null)
+        String value = getValue();
+        if (value == null)
             return null;
 
-        QuotedCSV list = new QuotedCSV(false, _value);
+        QuotedCSV list = new QuotedCSV(false, value);
         return list.getValues().toArray(new String[list.size()]);
     }
 
     @Override
     public int hashCode()
     {
-        int vhc = Objects.hashCode(_value);
+        int vhc = Objects.hashCode(getValue());
         if (_header == null)
             return vhc ^ nameHashCode();
         return vhc ^ _header.hashCode();
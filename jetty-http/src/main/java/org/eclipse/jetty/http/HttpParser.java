@@ -88,6 +88,7 @@ public class HttpParser
     public static final Logger LOG = LoggerFactory.getLogger(HttpParser.class);
     public static final int INITIAL_URI_LENGTH = 256;
     private static final int MAX_CHUNK_LENGTH = Integer.MAX_VALUE / 16 - 16;
+    private static final int INITIAL_LAZY_VALUES_LENGTH = 1024;
 
     /**
      * Cache of common {@link HttpField}s including: <UL>
@@ -243,10 +244,14 @@ public class HttpParser
     private boolean _cr;
     private ByteBuffer _contentChunk;
     private Index.Mutable<HttpField> _fieldCache;
+    private SharedHttpFieldCache _sharedFieldCache;
     private int _length;
     private final StringBuilder _string = new StringBuilder();
     private int _headerCacheSize = 1024;
     private boolean _headerCacheCaseSensitive;
+    private boolean _lazyHeaderValues;
+    private byte[] _lazyValues;
+    private int _lazyValuesIndex;
 
     private static HttpCompliance compliance()
     {
@@ -323,6 +328,42 @@ public class HttpParser
         _headerCacheCaseSensitive = headerCacheCaseSensitive;
     }
 
+    public SharedHttpFieldCache getSharedFieldCache()
+    {
+        return _sharedFieldCache;
+    }
+
+    /**
+     * <p>Sets a field cache shared with other parsers, which is looked up after the
+     * per connection field cache and which learns the fields that are not found.</p>
+     *
+     * @param sharedFieldCache the shared field cache, or null for no shared cache
+     */
+    public void setSharedFieldCache(SharedHttpFieldCache sharedFieldCache)
+    {
+        _sharedFieldCache = sharedFieldCache;
+    }
+
+    public boolean isLazyHeaderValues()
+    {
+        return _lazyHeaderValues;
+    }
+
+    /**
+     * <p>Sets whether header values are parsed lazily.</p>
+     * <p>When enabled, the bytes of the header values that the parser does not need to
+     * inspect are copied into a byte array shared by many fields, and the value
+     * {@code String} of each {@link HttpField} is only created when it is first accessed.
+     * Header values that are never read by the application therefore cost neither a
+     * {@code String} nor a byte array of their own.</p>
+     *
+     * @param lazyHeaderValues whether header values are parsed lazily
+     */
+    public void setLazyHeaderValues(boolean lazyHeaderValues)
+    {
+        _lazyHeaderValues = lazyHeaderValues;
+    }
+
     protected void checkViolation(Violation violation) throws BadMessageException
     {
         if (violation.isAllowedBy(_complianceMode))
@@ -1075,6 +1116,9 @@ public class HttpParser
                         _fieldCache.clear();
                         _fieldCache.put(_field);
                     }
+
+                    if (_sharedFieldCache != null)
+                        _sharedFieldCache.learn(_field);
                 }
             }
             _handler.parsedHeader(_field != null ? _field : new HttpField(_header, _headerString, _valueString));
@@ -1142,6 +1186,13 @@ public class HttpParser
                         {
                             checkViolation(Violation.MULTILINE_FIELD_VALUE);
 
+                            // A lazy value must be materialized to be continued.
+                            if (_field instanceof LazyValueHttpField)
+                            {
+                                _valueString = _field.getValue();
+                                _field = null;
+                            }
+
                             // header value without name - continuation?
                             if (StringUtil.isEmpty(_valueString))
                             {
@@ -1254,6 +1305,8 @@ public class HttpParser
                             {
                                 // Try a look ahead for the known header name and value.
                                 HttpField cachedField = _fieldCache == null ? null : _fieldCache.getBest(buffer, -1, buffer.remaining());
+                                if (cachedField == null && _sharedFieldCache != null)
+                                    cachedField = _sharedFieldCache.getBest(buffer, -1, buffer.remaining());
                                 if (cachedField == null)
                                     cachedField = CACHE.getBest(buffer, -1, buffer.remaining());
 
@@ -1433,6 +1486,8 @@ public class HttpParser
                         case VCHAR:
                         case COLON:
                         case OTEXT: // TODO review? should this be a utf8 string?
+                            if (_lazyHeaderValues && _string.length() == 0 && isLazyValue(_header) && parseLazyValue(buffer))
+                                break;
                             _string.append(t.getChar());
                             _length = _string.length();
                             setState(FieldState.IN_VALUE);
@@ -1483,6 +1538,119 @@ public class HttpParser
         return false;
     }
 
+    private boolean isLazyValue(HttpHeader header)
+    {
+        if (header == null)
+            return true;
+        switch (header)
+        {
+            // The values inspected by the parser.
+            case CONTENT_LENGTH:
+            case TRANSFER_ENCODING:
+            case HOST:
+            case CONNECTION:
+                return false;
+
+            // The values that may be added to the field cache.
+            case AUTHORIZATION:
+            case ACCEPT:
+            case ACCEPT_CHARSET:
+            case ACCEPT_ENCODING:
+            case ACCEPT_LANGUAGE:
+            case COOKIE:
+            case CACHE_CONTROL:
+            case USER_AGENT:
+                return _sharedFieldCache == null && (getHeaderCacheSize() <= 0 || _fieldCache == NO_CACHE);
+
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * <p>Parses the rest of a header value line, whose first character has already been consumed,
+     * capturing its bytes so that the value {@code String} is only created when it is accessed.</p>
+     *
+     * @param buffer the buffer to parse
+     * @return true if the value line was entirely parsed, false if the line is not
+     * complete in the buffer or if it must be parsed character by character
+     */
+    private boolean parseLazyValue(ByteBuffer buffer)
+    {
+        int start = buffer.position() - 1;
+        int end = start + 1;
+        int limit = buffer.limit();
+        for (int i = start + 1; i < limit; ++i)
+        {
+            byte b = buffer.get(i);
+            switch (HttpTokens.TOKENS[0xff & b].getType())
+            {
+                case ALPHA:
+                case DIGIT:
+                case TCHAR:
+                case VCHAR:
+                case COLON:
+                case OTEXT:
+                    end = i + 1;
+                    break;
+
+                case SPACE:
+                case HTAB:
+                    // Trailing white space is not part of the value.
+                    break;
+
+                case LF:
+                    return lazyValue(buffer, start, end, i + 1);
+
+                case CR:
+                    if (i + 1 < limit && buffer.get(i + 1) == HttpTokens.LINE_FEED)
+                        return lazyValue(buffer, start, end, i + 2);
+                    return false;
+
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean lazyValue(ByteBuffer buffer, int start, int end, int next)
+    {
+        int consumed = next - buffer.position();
+        // Let the character by character parsing report the error.
+        if (_maxHeaderBytes > 0 && _headerBytes + consumed > _maxHeaderBytes)
+            return false;
+        _headerBytes += consumed;
+
+        int length = end - start;
+        if (_lazyValues == null || _lazyValues.length - _lazyValuesIndex < length)
+        {
+            // Previous arrays are never overwritten, as they may still be referenced by fields.
+            _lazyValues = new byte[Math.max(length, INITIAL_LAZY_VALUES_LENGTH)];
+            _lazyValuesIndex = 0;
+        }
+        if (buffer.hasArray())
+        {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + start, _lazyValues, _lazyValuesIndex, length);
+        }
+        else
+        {
+            for (int i = 0; i < length; ++i)
+            {
+                _lazyValues[_lazyValuesIndex + i] = buffer.get(start + i);
+            }
+        }
+
+        _field = new LazyValueHttpField(_header, _headerString, _lazyValues, _lazyValuesIndex, length);
+        _lazyValuesIndex += length;
+        _valueString = null;
+        _string.setLength(0);
+        _length = -1;
+        buffer.position(next);
+        setState(FieldState.FIELD);
+        return true;
+    }
+
     /**
      * Parse until next Event.
      *
@@ -2009,4 +2177,37 @@ public class HttpParser
                 LOG.debug(String.format("Illegal character %s in state=%s for buffer %s", token, state, BufferUtil.toDetailString(buffer)));
         }
     }
+
+    /**
+     * <p>A {@link HttpField} whose value is held as bytes, and
+     * converted to a {@code String} only when first accessed.</p>
+     */
+    private static class LazyValueHttpField extends HttpField
+    {
+        private final byte[] _bytes;
+        private final int _offset;
+        private final int _length;
+        private String _value;
+
+        private LazyValueHttpField(HttpHeader header, String name, byte[] bytes, int offset, int length)
+        {
+            super(header, name, (String)null);
+            _bytes = bytes;
+            _offset = offset;
+            _length = length;
+        }
+
+        @Override
+        public String getValue()
+        {
+            // Racy single-check idiom, like String.hashCode().
+            String value = _value;
+            if (value == null)
+            {
+                value = new String(_bytes, _offset, _length, StandardCharsets.ISO_8859_1);
+                _value = value;
+            }
+            return value;
+        }
+    }
 }
@@ -0,0 +1,349 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.Index;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A bounded cache of header fields that can be shared by many {@link HttpParser}s,
+ * typically all the connections of a connector.</p>
+ * <p>The cache learns the exact header lines that are most frequently received:
+ * fields that the parser offers via {@link #learn(HttpField)} are first tracked as
+ * candidates, and are admitted to the cache once they have been seen
+ * {@link #getAdmissionThreshold() a number of times}.
+ * When the cache is full, a candidate is admitted only if it is more frequent than
+ * the least frequent entries it would replace.
+ * Frequencies are periodically halved, so that the cache adapts to changes in traffic.</p>
+ * <p>Lookups are lock free, as they are performed on an immutable {@link Index}
+ * that is rebuilt only when entries are admitted or evicted.</p>
+ * <p>Fields carrying credentials ({@code Cookie} and {@code Authorization}) are never cached.</p>
+ */
+@ManagedObject("Shared header field cache")
+public class SharedHttpFieldCache
+{
+    private final ConcurrentMap<HttpField, AtomicInteger> _candidates = new ConcurrentHashMap<>();
+    private final Map<String, Entry> _entries = new HashMap<>();
+    private final AtomicInteger _observations = new AtomicInteger();
+    private final LongAdder _admissions = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final int _capacity;
+    private final int _maxCandidates;
+    private volatile Index<Entry> _index = new Index.Builder<Entry>().caseSensitive(false).build();
+    private int _admissionThreshold = 8;
+    private int _decayPeriod;
+    private int _size;
+
+    /**
+     * @param capacity the capacity of the cache, in characters of the cached header lines
+     */
+    public SharedHttpFieldCache(int capacity)
+    {
+        this(capacity, 1024);
+    }
+
+    /**
+     * @param capacity the capacity of the cache, in characters of the cached header lines
+     * @param maxCandidates the max number of candidate fields whose frequency is tracked
+     */
+    public SharedHttpFieldCache(int capacity, int maxCandidates)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        if (maxCandidates <= 0)
+            throw new IllegalArgumentException("Invalid max candidates " + maxCandidates);
+        // The rows of the trie are indexed by char.
+        _capacity = Math.min(capacity, Character.MAX_VALUE - 1);
+        _maxCandidates = maxCandidates;
+        _decayPeriod = 16 * maxCandidates;
+    }
+
+    @ManagedAttribute("The capacity of the cache, in characters")
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    @ManagedAttribute("The max number of candidate fields whose frequency is tracked")
+    public int getMaxCandidates()
+    {
+        return _maxCandidates;
+    }
+
+    @ManagedAttribute("The number of times a field must be seen before being cached")
+    public int getAdmissionThreshold()
+    {
+        return _admissionThreshold;
+    }
+
+    public void setAdmissionThreshold(int admissionThreshold)
+    {
+        _admissionThreshold = Math.max(1, admissionThreshold);
+    }
+
+    @ManagedAttribute("The number of observed fields after which frequencies are halved")
+    public int getDecayPeriod()
+    {
+        return _decayPeriod;
+    }
+
+    public void setDecayPeriod(int decayPeriod)
+    {
+        _decayPeriod = Math.max(1, decayPeriod);
+    }
+
+    @ManagedAttribute("The size of the cache, in characters")
+    public int getSize()
+    {
+        synchronized (this)
+        {
+            return _size;
+        }
+    }
+
+    @ManagedAttribute("The number of cached fields")
+    public int getEntries()
+    {
+        synchronized (this)
+        {
+            return _entries.size();
+        }
+    }
+
+    @ManagedAttribute("The number of candidate fields")
+    public int getCandidates()
+    {
+        return _candidates.size();
+    }
+
+    @ManagedAttribute("The number of cache hits since the last decay")
+    public long getHits()
+    {
+        synchronized (this)
+        {
+            long hits = 0;
+            for (Entry entry : _entries.values())
+            {
+                hits += entry._hits.sum();
+            }
+            return hits;
+        }
+    }
+
+    @ManagedAttribute("The number of fields admitted to the cache")
+    public long getAdmissions()
+    {
+        return _admissions.sum();
+    }
+
+    @ManagedAttribute("The number of fields evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    /**
+     * <p>Gets the cached field that is the best match for the header line
+     * at the given segment of the buffer.</p>
+     *
+     * @param buffer the buffer
+     * @param offset the offset of the header line from the buffer position
+     * @param length the max length of the header line
+     * @return the cached field, or null if no field matches
+     * @see Index#getBest(ByteBuffer, int, int)
+     */
+    public HttpField getBest(ByteBuffer buffer, int offset, int length)
+    {
+        Entry entry = _index.getBest(buffer, offset, length);
+        if (entry == null)
+            return null;
+        entry._hits.increment();
+        return entry._field;
+    }
+
+    /**
+     * <p>Offers a field that was parsed and that was not found in the cache.</p>
+     *
+     * @param field the field to learn
+     */
+    public void learn(HttpField field)
+    {
+        if (!isCacheable(field))
+            return;
+
+        if (_observations.incrementAndGet() % _decayPeriod == 0)
+            decay();
+
+        AtomicInteger frequency = _candidates.get(field);
+        if (frequency == null)
+        {
+            if (_candidates.size() >= _maxCandidates)
+                return;
+            frequency = _candidates.computeIfAbsent(field, f -> new AtomicInteger());
+        }
+
+        // Candidates that are not admitted retry only every threshold observations.
+        int count = frequency.incrementAndGet();
+        if (count % _admissionThreshold == 0)
+            admit(field, count);
+    }
+
+    /**
+     * @param field the field to test
+     * @return whether the field may be cached
+     */
+    protected boolean isCacheable(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        if (header == null || header == HttpHeader.COOKIE || header == HttpHeader.AUTHORIZATION)
+            return false;
+        String value = field.getValue();
+        if (value == null)
+            return false;
+        String name = field.getName();
+        if (name.length() + value.length() + 2 > _capacity)
+            return false;
+        // The Index only supports US-ASCII keys.
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (value.charAt(i) > 0x7F)
+                return false;
+        }
+        return true;
+    }
+
+    private void admit(HttpField field, int frequency)
+    {
+        synchronized (this)
+        {
+            String key = field.toString();
+            if (_entries.containsKey(key))
+            {
+                // Another thread has already admitted the field.
+                _candidates.remove(field);
+                return;
+            }
+
+            int size = _size + key.length();
+            List<Entry> victims = null;
+            if (size > _capacity)
+            {
+                // Evict the least frequent entries, only if they are less frequent than the candidate.
+                List<Entry> entries = new ArrayList<>(_entries.values());
+                entries.sort((e1, e2) -> Long.compare(e1.frequency(), e2.frequency()));
+                victims = new ArrayList<>();
+                for (Entry entry : entries)
+                {
+                    if (size <= _capacity)
+                        break;
+                    // Not admitted, but keep counting the candidate frequency.
+                    if (entry.frequency() >= frequency)
+                        return;
+                    victims.add(entry);
+                    size -= entry._key.length();
+                }
+                if (size > _capacity)
+                    return;
+            }
+
+            if (victims != null)
+            {
+                for (Entry victim : victims)
+                {
+                    _entries.remove(victim._key);
+                    _evictions.increment();
+                }
+            }
+            _candidates.remove(field);
+            _entries.put(key, new Entry(key, field, frequency));
+            _size = size;
+            _admissions.increment();
+            rebuild();
+        }
+    }
+
+    private void decay()
+    {
+        synchronized (this)
+        {
+            for (Entry entry : _entries.values())
+            {
+                entry._frequency = (entry._frequency + entry._hits.sumThenReset()) / 2;
+            }
+        }
+        _candidates.values().removeIf(frequency -> frequency.updateAndGet(f -> f / 2) == 0);
+    }
+
+    private void rebuild()
+    {
+        assert Thread.holdsLock(this);
+        Index.Builder<Entry> builder = new Index.Builder<Entry>().caseSensitive(false);
+        _entries.forEach(builder::with);
+        _index = builder.build();
+    }
+
+    /**
+     * <p>Removes all the cached and candidate fields.</p>
+     */
+    @ManagedOperation(value = "Clears the cache", impact = "ACTION")
+    public void clear()
+    {
+        synchronized (this)
+        {
+            _candidates.clear();
+            _entries.clear();
+            _size = 0;
+            rebuild();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{entries=%d,size=%d/%d,candidates=%d}",
+            getClass().getSimpleName(), hashCode(), getEntries(), getSize(), getCapacity(), getCandidates());
+    }
+
+    private static class Entry
+    {
+        private final LongAdder _hits = new LongAdder();
+        private final String _key;
+        private final HttpField _field;
+        private long _frequency;
+
+        private Entry(String key, HttpField field, long frequency)
+        {
+            _key = key;
+            _field = field;
+            _frequency = frequency;
+        }
+
+        private long frequency()
+        {
+            return _frequency + _hits.sum();
+        }
+    }
+}
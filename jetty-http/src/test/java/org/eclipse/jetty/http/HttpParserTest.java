@@ -2152,6 +2152,65 @@ public class HttpParserTest
         assertEquals("unknown", _val[4]);
     }
 
+    @Test
+    public void testLazyHeaderValues()
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "POST / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Header1: value1  \r\n" +
+                "Folded: value\r\n" +
+                " extra\r\n" +
+                "Content-Length: 10\r\n" +
+                "Connection: close\r\n" +
+                "\r\n" +
+                "0123456789");
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler, HttpCompliance.RFC2616_LEGACY);
+        parser.setLazyHeaderValues(true);
+        parseAll(parser, buffer);
+
+        assertNull(_bad);
+        assertEquals("Host", _hdr[0]);
+        assertEquals("localhost", _val[0]);
+        assertEquals("Header1", _hdr[1]);
+        assertEquals("value1", _val[1]);
+        assertEquals("Folded", _hdr[2]);
+        assertEquals("value extra", _val[2]);
+        assertEquals("Content-Length", _hdr[3]);
+        assertEquals("10", _val[3]);
+        assertEquals("Connection", _hdr[4]);
+        assertEquals("close", _val[4]);
+        assertEquals("0123456789", _content);
+        assertTrue(_messageCompleted);
+    }
+
+    @Test
+    public void testLazyHeaderValuesSplitBuffers()
+    {
+        String request =
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Header1: value1\r\n" +
+                "Header2: value2\r\n" +
+                "\r\n";
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLazyHeaderValues(true);
+        for (int i = 0; i < request.length(); i++)
+        {
+            parser.parseNext(BufferUtil.toBuffer(request.substring(i, i + 1)));
+        }
+
+        assertTrue(_headerCompleted);
+        assertEquals("Header1", _hdr[1]);
+        assertEquals("value1", _val[1]);
+        assertEquals("Header2", _hdr[2]);
+        assertEquals("value2", _val[2]);
+    }
+
     @Test
     public void testHTTP2Preface()
     {
@@ -0,0 +1,194 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SharedHttpFieldCacheTest
+{
+    private static HttpField lookup(SharedHttpFieldCache cache, String line)
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(line + "\r\n");
+        return cache.getBest(buffer, 0, buffer.remaining());
+    }
+
+    @Test
+    public void testAdmission()
+    {
+        SharedHttpFieldCache cache = new SharedHttpFieldCache(1024);
+        cache.setAdmissionThreshold(3);
+        HttpField field = new HttpField(HttpHeader.USER_AGENT, "test/1.0");
+
+        cache.learn(field);
+        cache.learn(new HttpField(HttpHeader.USER_AGENT, "test/1.0"));
+        assertNull(lookup(cache, "User-Agent: test/1.0"));
+        assertEquals(1, cache.getCandidates());
+
+        cache.learn(field);
+        assertSame(field, lookup(cache, "User-Agent: test/1.0"));
+        assertSame(field, lookup(cache, "user-agent: test/1.0"));
+        assertNull(lookup(cache, "User-Agent: other"));
+        assertEquals(1, cache.getEntries());
+        assertEquals(0, cache.getCandidates());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testCredentialsNotCached()
+    {
+        SharedHttpFieldCache cache = new SharedHttpFieldCache(1024);
+        cache.setAdmissionThreshold(1);
+
+        cache.learn(new HttpField(HttpHeader.COOKIE, "session=secret"));
+        cache.learn(new HttpField(HttpHeader.AUTHORIZATION, "Basic c2VjcmV0"));
+        cache.learn(new HttpField("X-Custom", "value"));
+
+        assertEquals(0, cache.getEntries());
+        assertEquals(0, cache.getCandidates());
+    }
+
+    @Test
+    public void testFrequencyBasedReplacement()
+    {
+        // Room for only one of the fields.
+        SharedHttpFieldCache cache = new SharedHttpFieldCache(30);
+        cache.setAdmissionThreshold(2);
+        HttpField frequent = new HttpField(HttpHeader.ACCEPT, "text/html");
+        HttpField rare = new HttpField(HttpHeader.ACCEPT, "text/xml");
+
+        cache.learn(frequent);
+        cache.learn(frequent);
+        assertNotNull(lookup(cache, "Accept: text/html"));
+        for (int i = 0; i < 10; i++)
+        {
+            lookup(cache, "Accept: text/html");
+        }
+
+        // The rare field is not frequent enough to replace the cached one.
+        cache.learn(rare);
+        cache.learn(rare);
+        assertNull(lookup(cache, "Accept: text/xml"));
+        assertEquals(0, cache.getEvictions());
+
+        // Until it becomes more frequent.
+        for (int i = 0; i < 12; i++)
+        {
+            cache.learn(rare);
+        }
+        assertSame(rare, lookup(cache, "Accept: text/xml"));
+        assertNull(lookup(cache, "Accept: text/html"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getEntries());
+    }
+
+    @Test
+    public void testDecay()
+    {
+        SharedHttpFieldCache cache = new SharedHttpFieldCache(1024);
+        cache.setAdmissionThreshold(10);
+        cache.setDecayPeriod(4);
+
+        HttpField field = new HttpField(HttpHeader.ACCEPT, "*/*");
+        for (int i = 0; i < 8; i++)
+        {
+            cache.learn(field);
+        }
+
+        // The frequency has been halved twice, so the field is not admitted.
+        assertEquals(0, cache.getEntries());
+        assertEquals(1, cache.getCandidates());
+    }
+
+    @Test
+    public void testSharedByParsers()
+    {
+        SharedHttpFieldCache cache = new SharedHttpFieldCache(1024);
+        cache.setAdmissionThreshold(2);
+        String request =
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "User-Agent: agent/1.0\r\n" +
+                "\r\n";
+
+        HttpField[] fields = new HttpField[3];
+        for (int i = 0; i < fields.length; i++)
+        {
+            HttpFields.Mutable parsed = HttpFields.build();
+            HttpParser parser = new HttpParser(new HttpParser.RequestHandler()
+            {
+                @Override
+                public void startRequest(String method, String uri, HttpVersion version)
+                {
+                }
+
+                @Override
+                public void parsedHeader(HttpField field)
+                {
+                    parsed.add(field);
+                }
+
+                @Override
+                public boolean headerComplete()
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean content(ByteBuffer item)
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean contentComplete()
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean messageComplete()
+                {
+                    return true;
+                }
+
+                @Override
+                public void earlyEOF()
+                {
+                }
+
+                @Override
+                public void badMessage(BadMessageException failure)
+                {
+                }
+            });
+            parser.setHeaderCacheSize(0);
+            parser.setSharedFieldCache(cache);
+            parser.parseNext(BufferUtil.toBuffer(request));
+            fields[i] = parsed.getField(HttpHeader.USER_AGENT);
+            assertEquals("agent/1.0", fields[i].getValue());
+        }
+
+        // The field learned by the first two parsers is shared with the third.
+        assertSame(fields[1], fields[2]);
+        assertSame(fields[1], lookup(cache, "User-Agent: agent/1.0"));
+    }
+}
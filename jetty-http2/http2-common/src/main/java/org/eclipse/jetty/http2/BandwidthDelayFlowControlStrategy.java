@@ -0,0 +1,322 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.util.Atomics;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A flow control strategy that sizes the receive windows from the
+ * bandwidth-delay product (BDP) of the session.</p>
+ * <p>When data is received, a PING frame is sent to the other peer, and the
+ * bytes received until the PING reply arrives are the bytes received in one
+ * round trip, that is an estimate of the BDP.</p>
+ * <p>If the bytes received in a round trip are at least 2/3 of the session
+ * receive window, then the window is limiting the throughput, and the session
+ * receive window is grown to twice the estimated BDP, up to
+ * {@link #getMaxSessionRecvWindow()}; the initial stream receive window is
+ * grown accordingly, up to {@link #getMaxStreamRecvWindow()}, by sending a
+ * SETTINGS frame.</p>
+ * <p>If the bytes received in a round trip are less than 1/4 of the session
+ * receive window, the windows are halved, down to their initial sizes, so that
+ * sessions that became idle or slow do not retain memory. Since a window
+ * update cannot be negative, the session receive window is shrunk by not
+ * returning to the other peer the credit of the data consumed in excess.</p>
+ * <p>Window updates are otherwise accumulated like in
+ * {@link BufferingFlowControlStrategy}, using the {@code bufferRatio}.</p>
+ * <p>A new instance must be created for each session, typically via
+ * {@code setFlowControlStrategyFactory(() -> new BandwidthDelayFlowControlStrategy(0.5F, maxSessionWindow, maxStreamWindow))}.</p>
+ */
+@ManagedObject
+public class BandwidthDelayFlowControlStrategy extends AbstractFlowControlStrategy
+{
+    private final long pingPayload = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong pingNanoTime = new AtomicLong();
+    private final AtomicLong sampleBytes = new AtomicLong();
+    private final AtomicInteger sessionRecvWindowTarget = new AtomicInteger(DEFAULT_WINDOW_SIZE);
+    private final AtomicInteger sessionLevel = new AtomicInteger();
+    private final Map<IStream, AtomicInteger> streamLevels = new ConcurrentHashMap<>();
+    private final float bufferRatio;
+    private final int maxSessionRecvWindow;
+    private final int maxStreamRecvWindow;
+    private long pingInterval = 1000;
+    private volatile long lastSampleNanoTime = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private volatile int minSessionRecvWindow;
+    private volatile int minStreamRecvWindow;
+    private volatile long roundTripTime;
+    private volatile long bandwidth;
+
+    public BandwidthDelayFlowControlStrategy()
+    {
+        this(0.5F, 16 * 1024 * 1024, 8 * 1024 * 1024);
+    }
+
+    /**
+     * @param bufferRatio the ratio between the receive buffer and the consume buffer
+     * @param maxSessionRecvWindow the max size of the session receive window
+     * @param maxStreamRecvWindow the max size of the streams receive window
+     */
+    public BandwidthDelayFlowControlStrategy(float bufferRatio, int maxSessionRecvWindow, int maxStreamRecvWindow)
+    {
+        super(DEFAULT_WINDOW_SIZE);
+        this.bufferRatio = bufferRatio;
+        this.maxSessionRecvWindow = maxSessionRecvWindow;
+        this.maxStreamRecvWindow = maxStreamRecvWindow;
+    }
+
+    @ManagedAttribute("The ratio between the receive buffer and the consume buffer")
+    public float getBufferRatio()
+    {
+        return bufferRatio;
+    }
+
+    @ManagedAttribute("The max size of the session receive window")
+    public int getMaxSessionRecvWindow()
+    {
+        return maxSessionRecvWindow;
+    }
+
+    @ManagedAttribute("The max size of the streams receive window")
+    public int getMaxStreamRecvWindow()
+    {
+        return maxStreamRecvWindow;
+    }
+
+    @ManagedAttribute("The min interval in milliseconds between BDP samples")
+    public long getPingInterval()
+    {
+        return pingInterval;
+    }
+
+    /**
+     * <p>Sets the min interval between the PING frames sent to sample the BDP.</p>
+     * <p>Peers may consider frequent PING frames abusive, so the interval should
+     * not be shorter than what the other peer tolerates.</p>
+     *
+     * @param pingInterval the min interval in milliseconds between BDP samples
+     */
+    public void setPingInterval(long pingInterval)
+    {
+        this.pingInterval = pingInterval;
+    }
+
+    @ManagedAttribute(value = "The current target size of the session receive window", readonly = true)
+    public int getSessionRecvWindowTarget()
+    {
+        return sessionRecvWindowTarget.get();
+    }
+
+    @ManagedAttribute(value = "The last measured round trip time in microseconds", readonly = true)
+    public long getRoundTripTime()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(roundTripTime);
+    }
+
+    @ManagedAttribute(value = "The last measured receive bandwidth in bytes/s", readonly = true)
+    public long getBandwidth()
+    {
+        return bandwidth;
+    }
+
+    @Override
+    public void onStreamCreated(IStream stream)
+    {
+        super.onStreamCreated(stream);
+        streamLevels.put(stream, new AtomicInteger());
+    }
+
+    @Override
+    public void onStreamDestroyed(IStream stream)
+    {
+        streamLevels.remove(stream);
+        super.onStreamDestroyed(stream);
+    }
+
+    @Override
+    public void onDataReceived(ISession session, IStream stream, int length)
+    {
+        super.onDataReceived(session, stream, length);
+
+        sampleBytes.addAndGet(length);
+        long now = System.nanoTime();
+        if (now - lastSampleNanoTime < TimeUnit.MILLISECONDS.toNanos(getPingInterval()))
+            return;
+        if (!pingNanoTime.compareAndSet(0, now))
+            return;
+
+        // Only count the bytes received after the PING is sent.
+        sampleBytes.set(0);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Sampling BDP for {}", session);
+        session.ping(new PingFrame(pingPayload, false), Callback.from(() -> {}, x -> pingNanoTime.set(0)));
+    }
+
+    @Override
+    public boolean onPingReply(ISession session, PingFrame frame)
+    {
+        if (frame.getPayloadAsLong() != pingPayload)
+            return false;
+
+        long now = System.nanoTime();
+        long start = pingNanoTime.getAndSet(0);
+        if (start != 0)
+        {
+            lastSampleNanoTime = now;
+            onSample(session, sampleBytes.getAndSet(0), Math.max(1, now - start));
+        }
+        return true;
+    }
+
+    /**
+     * <p>Updates the receive windows from a BDP sample.</p>
+     *
+     * @param session the session the sample refers to
+     * @param bytes the bytes received in a round trip
+     * @param roundTripTime the round trip time in nanoseconds
+     */
+    protected void onSample(ISession session, long bytes, long roundTripTime)
+    {
+        this.roundTripTime = roundTripTime;
+        this.bandwidth = bytes * TimeUnit.SECONDS.toNanos(1) / roundTripTime;
+
+        // The initial windows are the minimum windows.
+        if (minSessionRecvWindow == 0)
+        {
+            minSessionRecvWindow = sessionRecvWindowTarget.get();
+            minStreamRecvWindow = getInitialStreamRecvWindow();
+        }
+
+        int target = sessionRecvWindowTarget.get();
+        long bdp = 2 * bytes;
+        int newTarget = target;
+        if (3 * bytes >= 2L * target)
+            newTarget = (int)Math.min(Math.max(bdp, target), getMaxSessionRecvWindow());
+        else if (2 * bdp < target)
+            newTarget = Math.max(target / 2, minSessionRecvWindow);
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("BDP sample {} bytes in {} us, session recv window target {} -> {} for {}",
+                bytes, TimeUnit.NANOSECONDS.toMicros(roundTripTime), target, newTarget, session);
+
+        if (newTarget == target || !sessionRecvWindowTarget.compareAndSet(target, newTarget))
+            return;
+
+        if (newTarget > target)
+        {
+            int delta = newTarget - target;
+            session.updateRecvWindow(delta);
+            sendWindowUpdate(null, session, new WindowUpdateFrame(0, delta));
+        }
+
+        int streamTarget = Math.max(minStreamRecvWindow, Math.min(newTarget, getMaxStreamRecvWindow()));
+        if (streamTarget != getInitialStreamRecvWindow())
+        {
+            // The new initial stream window is applied to all streams when the SETTINGS frame is sent.
+            SettingsFrame settings = new SettingsFrame(Map.of(SettingsFrame.INITIAL_WINDOW_SIZE, streamTarget), false);
+            session.settings(settings, Callback.NOOP);
+        }
+    }
+
+    @Override
+    public void onDataConsumed(ISession session, IStream stream, int length)
+    {
+        if (length <= 0)
+            return;
+
+        float ratio = bufferRatio;
+
+        int level = sessionLevel.addAndGet(length);
+        int target = sessionRecvWindowTarget.get();
+        int maxLevel = (int)(target * ratio);
+        if (level > maxLevel)
+        {
+            if (sessionLevel.compareAndSet(level, 0))
+            {
+                // Return only the credit that does not exceed the
+                // target, so that the session window can shrink.
+                int delta = Math.min(level, target - session.updateRecvWindow(0));
+                if (delta > 0)
+                {
+                    session.updateRecvWindow(delta);
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Data consumed, {} bytes, updated session recv window by {}/{} for {}", length, delta, maxLevel, session);
+                    sendWindowUpdate(null, session, new WindowUpdateFrame(0, delta));
+                }
+                else
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Data consumed, {} bytes, shrinking session recv window to {} for {}", length, target, session);
+                }
+            }
+        }
+
+        if (stream != null && !stream.isRemotelyClosed())
+        {
+            AtomicInteger streamLevel = streamLevels.get(stream);
+            if (streamLevel != null)
+            {
+                level = streamLevel.addAndGet(length);
+                maxLevel = (int)(getInitialStreamRecvWindow() * ratio);
+                if (level > maxLevel)
+                {
+                    level = streamLevel.getAndSet(0);
+                    stream.updateRecvWindow(level);
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Data consumed, {} bytes, updated stream recv window by {}/{} for {}", length, level, maxLevel, stream);
+                    sendWindowUpdate(stream, session, new WindowUpdateFrame(stream.getId(), level));
+                }
+            }
+        }
+    }
+
+    protected void sendWindowUpdate(IStream stream, ISession session, WindowUpdateFrame frame)
+    {
+        session.frames(stream, List.of(frame), Callback.NOOP);
+    }
+
+    @Override
+    public void windowUpdate(ISession session, IStream stream, WindowUpdateFrame frame)
+    {
+        super.windowUpdate(session, stream, frame);
+        // Track the session window enlarged by the initial window update.
+        if (frame.getStreamId() == 0)
+            Atomics.updateMax(sessionRecvWindowTarget, session.updateRecvWindow(0));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[target=%d,rtt=%dus,bandwidth=%dB/s,sessionStallTime=%dms,streamsStallTime=%dms]",
+            getClass().getSimpleName(),
+            hashCode(),
+            getSessionRecvWindowTarget(),
+            getRoundTripTime(),
+            getBandwidth(),
+            getSessionStallTime(),
+            getStreamsStallTime());
+    }
+}
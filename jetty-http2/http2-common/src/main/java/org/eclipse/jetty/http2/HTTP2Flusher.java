@@ -18,14 +18,18 @@ import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
 import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.FrameType;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.http2.hpack.HpackException;
 import org.eclipse.jetty.io.ByteBufferPool;
@@ -47,6 +51,9 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     private final Deque<Entry> entries = new ArrayDeque<>();
     private final Queue<Entry> pendingEntries = new ArrayDeque<>();
     private final Collection<Entry> processedEntries = new ArrayList<>();
+    private final List<Entry> prioritizedEntries = new ArrayList<>();
+    private final Map<IStream, Integer> streamOrders = new HashMap<>();
+    private final List<IStream> deferredStreams = new ArrayList<>();
     private final HTTP2Session session;
     private final ByteBufferPool.Lease lease;
     private Throwable terminated;
@@ -169,6 +176,8 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             }
         }
 
+        prioritize();
+
         if (pendingEntries.isEmpty())
         {
             if (LOG.isDebugEnabled())
@@ -183,6 +192,14 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             if (pendingEntries.isEmpty())
                 break;
 
+            // DATA frames are generated in urgency order: less urgent
+            // entries are deferred while more urgent entries make progress,
+            // and non-incremental entries are not interleaved with others.
+            // The frames of a stream are never reordered: once an entry of a
+            // stream is deferred, the following entries of that stream are too.
+            int servedUrgency = Integer.MAX_VALUE;
+            boolean servedExclusively = false;
+            deferredStreams.clear();
             Iterator<Entry> pending = pendingEntries.iterator();
             while (pending.hasNext())
             {
@@ -201,6 +218,16 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
                     continue;
                 }
 
+                int urgency = entry.getUrgency();
+                if (isDeferred(entry.getOrderedStream()) ||
+                    entry.getDataBytesRemaining() > 0 && (urgency > servedUrgency || (urgency == servedUrgency && servedExclusively)))
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Deferred {}", entry);
+                    defer(entry.getOrderedStream());
+                    continue;
+                }
+
                 try
                 {
                     if (entry.generate(lease))
@@ -210,6 +237,15 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 
                         progress = true;
 
+                        // Entries with more data to write keep
+                        // precedence over less urgent entries.
+                        if (urgency >= 0 && entry.getDataBytesRemaining() > 0)
+                        {
+                            servedUrgency = urgency;
+                            if (!entry.isIncremental())
+                                servedExclusively = true;
+                        }
+
                         // We use ArrayList contains() + add() instead of HashSet add()
                         // because that is faster for collections of size up to 250 entries.
                         if (!processedEntries.contains(entry))
@@ -217,9 +253,12 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 
                         if (entry.getDataBytesRemaining() == 0)
                             pending.remove();
+                        else
+                            defer(entry.getOrderedStream());
                     }
                     else
                     {
+                        defer(entry.getOrderedStream());
                         if (session.getSendWindow() <= 0 && stalledEntry == null)
                         {
                             stalledEntry = entry;
@@ -281,6 +320,50 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
         return Action.SCHEDULED;
     }
 
+    /**
+     * <p>Sorts the pending entries by urgency, so that DATA frames of different streams are interleaved.</p>
+     * <p>An entry is never sorted before a previous entry of the same stream, so that for example
+     * trailers or a RST_STREAM are never written before the DATA frames of their stream.
+     * The sort is stable, so that session frames keep their FIFO order.</p>
+     */
+    private void prioritize()
+    {
+        if (pendingEntries.size() < 2)
+            return;
+        for (Entry entry : pendingEntries)
+        {
+            int order = entry.getUrgency();
+            IStream stream = entry.getOrderedStream();
+            if (stream != null)
+            {
+                Integer previous = streamOrders.get(stream);
+                if (previous != null && previous > order)
+                    order = previous;
+                streamOrders.put(stream, order);
+            }
+            entry.order = order;
+        }
+        streamOrders.clear();
+        prioritizedEntries.addAll(pendingEntries);
+        prioritizedEntries.sort(Comparator.comparingInt(entry -> entry.order));
+        pendingEntries.clear();
+        pendingEntries.addAll(prioritizedEntries);
+        prioritizedEntries.clear();
+    }
+
+    private boolean isDeferred(IStream stream)
+    {
+        // We use ArrayList contains() instead of HashSet contains()
+        // because that is faster for small collections.
+        return stream != null && deferredStreams.contains(stream);
+    }
+
+    private void defer(IStream stream)
+    {
+        if (stream != null && !deferredStreams.contains(stream))
+            deferredStreams.add(stream);
+    }
+
     void onFlushed(long bytes) throws IOException
     {
         // A single EndPoint write may be flushed multiple times (for example with SSL).
@@ -411,6 +494,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     {
         protected final Frame frame;
         protected final IStream stream;
+        private int order;
 
         protected Entry(Frame frame, IStream stream, Callback callback)
         {
@@ -435,6 +519,46 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             return false;
         }
 
+        /**
+         * @return the urgency of this entry, lower values being more urgent,
+         * or {@code -1} for non-DATA frames that are never deferred
+         * @see Priority#getUrgency()
+         */
+        int getUrgency()
+        {
+            if (stream == null || frame.getType() != FrameType.DATA)
+                return -1;
+            return stream.getPriority().getUrgency();
+        }
+
+        /**
+         * @return the stream whose frames must be written in order with this entry's frame,
+         * or {@code null} for session frames and for stream frames that may be reordered
+         */
+        IStream getOrderedStream()
+        {
+            if (stream == null)
+                return null;
+            switch (frame.getType())
+            {
+                case PRIORITY:
+                case PRIORITY_UPDATE:
+                case WINDOW_UPDATE:
+                    return null;
+                default:
+                    return stream;
+            }
+        }
+
+        /**
+         * @return whether this entry may be interleaved with other entries of the same urgency
+         * @see Priority#isIncremental()
+         */
+        boolean isIncremental()
+        {
+            return stream != null && stream.getPriority().isIncremental();
+        }
+
         @Override
         public void failed(Throwable x)
         {
@@ -470,6 +594,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
                 case CONTINUATION:
                     return false;
                 case PRIORITY:
+                case PRIORITY_UPDATE:
                 case RST_STREAM:
                 case SETTINGS:
                 case PING:
@@ -38,6 +38,7 @@ import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
+import org.eclipse.jetty.http2.frames.StreamFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.io.IdleTimeout;
@@ -75,6 +76,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     private long dataDemand;
     private boolean dataInitial;
     private boolean dataProcess;
+    private volatile Priority priority = Priority.DEFAULT;
 
     public HTTP2Stream(Scheduler scheduler, ISession session, int streamId, MetaData.Request request, boolean local)
     {
@@ -126,6 +128,14 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     @Override
     public void send(FrameList frameList, Callback callback)
     {
+        // SPEC: the server may override the priority with a response header.
+        StreamFrame first = frameList.getFrames().get(0);
+        if (first instanceof HeadersFrame)
+        {
+            MetaData metaData = ((HeadersFrame)first).getMetaData();
+            if (metaData.isResponse())
+                updatePriority(metaData);
+        }
         if (startWrite(callback))
             session.frames(this, frameList.getFrames(), this);
     }
@@ -356,6 +366,8 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     private void onHeaders(HeadersFrame frame, Callback callback)
     {
         MetaData metaData = frame.getMetaData();
+        if (metaData.isRequest())
+            updatePriority(metaData);
         if (metaData.isRequest() || metaData.isResponse())
         {
             HttpFields fields = metaData.getFields();
@@ -367,6 +379,28 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
         callback.succeeded();
     }
 
+    private void updatePriority(MetaData metaData)
+    {
+        HttpFields fields = metaData.getFields();
+        String value = fields == null ? null : fields.get(Priority.HEADER_NAME);
+        if (value != null)
+            setPriority(Priority.from(value, priority));
+    }
+
+    @Override
+    public Priority getPriority()
+    {
+        return priority;
+    }
+
+    @Override
+    public void setPriority(Priority priority)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Priority {} for {}", priority, this);
+        this.priority = priority;
+    }
+
     private void onData(DataFrame frame, Callback callback)
     {
         // SPEC: remotely closed streams must be replied with a reset.
@@ -850,7 +884,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     @Override
     public String toString()
     {
-        return String.format("%s@%x#%d@%x{sendWindow=%s,recvWindow=%s,demand=%d,reset=%b/%b,%s,age=%d,attachment=%s}",
+        return String.format("%s@%x#%d@%x{sendWindow=%s,recvWindow=%s,demand=%d,reset=%b/%b,%s,priority=%s,age=%d,attachment=%s}",
             getClass().getSimpleName(),
             hashCode(),
             getId(),
@@ -861,6 +895,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
             localReset,
             remoteReset,
             closeState,
+            priority,
             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - timeStamp),
             attachment);
     }
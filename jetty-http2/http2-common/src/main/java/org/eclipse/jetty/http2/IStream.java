@@ -129,6 +129,17 @@ public interface IStream extends Stream, Attachable, Closeable
      */
     boolean isResetOrFailed();
 
+    /**
+     * @return the priority of this stream, used to schedule the DATA frames it sends
+     */
+    public Priority getPriority();
+
+    /**
+     * @param priority the new priority of this stream
+     * @see Priority
+     */
+    public void setPriority(Priority priority);
+
     /**
      * <p>An ordered list of frames belonging to the same stream.</p>
      */
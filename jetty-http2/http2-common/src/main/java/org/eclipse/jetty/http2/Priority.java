@@ -0,0 +1,156 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.Objects;
+
+import org.eclipse.jetty.util.StringUtil;
+
+/**
+ * <p>The priority of a stream, as defined by the
+ * <a href="https://www.rfc-editor.org/rfc/rfc9218">extensible priority scheme</a>.</p>
+ * <p>The priority is made of an {@link #getUrgency() urgency} in the range {@code [0..7]},
+ * where lower values are more urgent, and of an {@link #isIncremental() incremental} flag
+ * that indicates whether the response can be processed incrementally by the receiver,
+ * so that its DATA frames may be interleaved with those of other responses of the
+ * same urgency.</p>
+ * <p>Priorities are carried by the {@code priority} request and response header,
+ * and by the {@link org.eclipse.jetty.http2.frames.PriorityUpdateFrame PRIORITY_UPDATE} frame,
+ * using the same syntax, for example {@code u=1, i}.</p>
+ */
+public class Priority
+{
+    public static final String HEADER_NAME = "priority";
+    public static final int MIN_URGENCY = 0;
+    public static final int MAX_URGENCY = 7;
+    public static final int DEFAULT_URGENCY = 3;
+    public static final Priority DEFAULT = new Priority(DEFAULT_URGENCY, false);
+
+    /**
+     * <p>Parses the given priority field value.</p>
+     * <p>Unknown parameters and invalid values are ignored, as required by the specification,
+     * and the corresponding default is used instead.</p>
+     *
+     * @param value the priority field value, for example {@code u=5, i}
+     * @return the priority for the given value, or {@link #DEFAULT} if the value is null
+     */
+    public static Priority from(String value)
+    {
+        return from(value, DEFAULT);
+    }
+
+    /**
+     * <p>Parses the given priority field value, using the given base priority
+     * for the parameters that are not present in the value.</p>
+     *
+     * @param value the priority field value, for example {@code u=5, i}
+     * @param base the priority providing the values of the parameters missing from the field value
+     * @return the priority for the given value, or {@code base} if the value is null
+     */
+    public static Priority from(String value, Priority base)
+    {
+        if (value == null)
+            return base;
+
+        int urgency = base.getUrgency();
+        boolean incremental = base.isIncremental();
+        for (String parameter : StringUtil.csvSplit(value))
+        {
+            int equal = parameter.indexOf('=');
+            String name = (equal < 0 ? parameter : parameter.substring(0, equal)).trim();
+            String param = equal < 0 ? null : parameter.substring(equal + 1).trim();
+            // Strip structured field parameters, if any.
+            if (param != null)
+            {
+                int semicolon = param.indexOf(';');
+                if (semicolon >= 0)
+                    param = param.substring(0, semicolon).trim();
+            }
+            if ("u".equals(name))
+            {
+                if (param != null && param.length() == 1)
+                {
+                    int u = param.charAt(0) - '0';
+                    if (u >= MIN_URGENCY && u <= MAX_URGENCY)
+                        urgency = u;
+                }
+            }
+            else if ("i".equals(name))
+            {
+                // A bare key is a boolean true.
+                if (param == null || "?1".equals(param))
+                    incremental = true;
+                else if ("?0".equals(param))
+                    incremental = false;
+            }
+        }
+        if (urgency == DEFAULT_URGENCY && !incremental)
+            return DEFAULT;
+        return new Priority(urgency, incremental);
+    }
+
+    private final int urgency;
+    private final boolean incremental;
+
+    public Priority(int urgency, boolean incremental)
+    {
+        if (urgency < MIN_URGENCY || urgency > MAX_URGENCY)
+            throw new IllegalArgumentException("Invalid urgency: " + urgency);
+        this.urgency = urgency;
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return the urgency in the range {@code [0..7]}, where {@code 0} is the most urgent
+     */
+    public int getUrgency()
+    {
+        return urgency;
+    }
+
+    /**
+     * @return whether DATA frames of this stream may be interleaved with those
+     * of other streams with the same urgency
+     */
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        Priority that = (Priority)obj;
+        return urgency == that.urgency && incremental == that.incremental;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(urgency, incremental);
+    }
+
+    /**
+     * @return the priority field value, for example {@code u=5, i}
+     */
+    @Override
+    public String toString()
+    {
+        return incremental ? "u=" + urgency + ", i" : "u=" + urgency;
+    }
+}
@@ -28,6 +28,7 @@ public enum FrameType
     GO_AWAY(7),
     WINDOW_UPDATE(8),
     CONTINUATION(9),
+    PRIORITY_UPDATE(16),
     // Synthetic frames only needed by the implementation.
     PREFACE(10),
     DISCONNECT(11),
@@ -38,6 +39,19 @@ public enum FrameType
         return Types.types.get(type);
     }
 
+    /**
+     * @return the length of an array that can be indexed by the type code of any frame type
+     */
+    public static int maxLength()
+    {
+        int max = 0;
+        for (FrameType frameType : values())
+        {
+            max = Math.max(max, frameType.getType());
+        }
+        return max + 1;
+    }
+
     private final int type;
 
     private FrameType(int type)
@@ -0,0 +1,190 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.PushPromiseFrame;
+import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.parser.Parser;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class BandwidthDelayFlowControlStrategyTest
+{
+    private final ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+    private final AtomicInteger applicationPings = new AtomicInteger();
+    private ByteArrayEndPoint endPoint;
+    private BandwidthDelayFlowControlStrategy flowControl;
+    private TestSession session;
+
+    @BeforeEach
+    public void prepare()
+    {
+        endPoint = new ByteArrayEndPoint();
+        flowControl = new BandwidthDelayFlowControlStrategy(0.5F, 1024 * 1024, 512 * 1024);
+        flowControl.setPingInterval(0);
+        session = new TestSession(endPoint, new Generator(byteBufferPool), flowControl, applicationPings);
+    }
+
+    @Test
+    public void testWindowsGrowWhenWindowLimitsThroughput() throws Exception
+    {
+        int window = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
+        long payload = receive(1000);
+
+        // More than 2/3 of the window received in a round trip.
+        flowControl.onDataReceived(session, null, 50_000);
+        session.onPing(new PingFrame(payload, true));
+
+        int target = 2 * 50_000;
+        assertEquals(target, flowControl.getSessionRecvWindowTarget());
+        assertEquals(window - 51_000 + target - window, session.getRecvWindow());
+        assertEquals(0, applicationPings.get());
+
+        List<Frame> frames = drain();
+        assertEquals(2, frames.size());
+        WindowUpdateFrame windowUpdate = (WindowUpdateFrame)frames.get(0);
+        assertEquals(0, windowUpdate.getStreamId());
+        assertEquals(target - window, windowUpdate.getWindowDelta());
+        SettingsFrame settings = (SettingsFrame)frames.get(1);
+        assertEquals(target, (int)settings.getSettings().get(SettingsFrame.INITIAL_WINDOW_SIZE));
+        assertEquals(target, flowControl.getInitialStreamRecvWindow());
+    }
+
+    @Test
+    public void testWindowsShrinkWhenIdle() throws Exception
+    {
+        int window = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
+        long payload = receive(1000);
+        flowControl.onDataReceived(session, null, 50_000);
+        session.onPing(new PingFrame(payload, true));
+        drain();
+
+        // Nothing received in a round trip.
+        payload = receive(100);
+        session.onPing(new PingFrame(payload, true));
+        assertEquals(window, flowControl.getSessionRecvWindowTarget());
+        List<Frame> frames = drain();
+        assertEquals(1, frames.size());
+        SettingsFrame settings = (SettingsFrame)frames.get(0);
+        assertEquals(window, (int)settings.getSettings().get(SettingsFrame.INITIAL_WINDOW_SIZE));
+
+        // Consuming the data only returns the credit up to the smaller window.
+        flowControl.onDataConsumed(session, null, 51_100);
+        assertEquals(window, session.getRecvWindow());
+        WindowUpdateFrame windowUpdate = (WindowUpdateFrame)drain().get(0);
+        assertEquals(window - (2 * 50_000 - 51_100), windowUpdate.getWindowDelta());
+    }
+
+    @Test
+    public void testApplicationPingIsNotConsumed() throws Exception
+    {
+        receive(1000);
+        session.onPing(new PingFrame(42, true));
+        assertEquals(1, applicationPings.get());
+        assertEquals(FlowControlStrategy.DEFAULT_WINDOW_SIZE, flowControl.getSessionRecvWindowTarget());
+    }
+
+    /**
+     * Receives data, which triggers the PING frame that samples the BDP.
+     *
+     * @return the PING frame payload
+     */
+    private long receive(int length)
+    {
+        flowControl.onDataReceived(session, null, length);
+        List<Frame> frames = drain();
+        assertEquals(1, frames.size());
+        assertThat(frames.get(0), instanceOf(PingFrame.class));
+        PingFrame ping = (PingFrame)frames.get(0);
+        assertFalse(ping.isReply());
+        return ping.getPayloadAsLong();
+    }
+
+    private List<Frame> drain()
+    {
+        List<Frame> frames = new ArrayList<>();
+        Parser parser = new Parser(byteBufferPool, new Parser.Listener.Adapter()
+        {
+            @Override
+            public void onPing(PingFrame frame)
+            {
+                frames.add(frame);
+            }
+
+            @Override
+            public void onSettings(SettingsFrame frame)
+            {
+                frames.add(frame);
+            }
+
+            @Override
+            public void onWindowUpdate(WindowUpdateFrame frame)
+            {
+                frames.add(frame);
+            }
+        }, 4096, 8192);
+        parser.init(UnaryOperator.identity());
+        ByteBuffer buffer = endPoint.takeOutput();
+        while (buffer.hasRemaining())
+        {
+            parser.parse(buffer);
+        }
+        return frames;
+    }
+
+    private static class TestSession extends HTTP2Session
+    {
+        private TestSession(ByteArrayEndPoint endPoint, Generator generator, FlowControlStrategy flowControl, AtomicInteger pings)
+        {
+            super(null, endPoint, generator, new Session.Listener.Adapter()
+            {
+                @Override
+                public void onPing(Session session, PingFrame frame)
+                {
+                    pings.incrementAndGet();
+                }
+            }, flowControl, 1);
+        }
+
+        @Override
+        public void onHeaders(HeadersFrame frame)
+        {
+        }
+
+        @Override
+        public void onPushPromise(PushPromiseFrame frame)
+        {
+        }
+    }
+}
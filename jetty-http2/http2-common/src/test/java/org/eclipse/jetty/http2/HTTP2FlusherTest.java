@@ -0,0 +1,210 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PushPromiseFrame;
+import org.eclipse.jetty.http2.frames.ResetFrame;
+import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.parser.Parser;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HTTP2FlusherTest
+{
+    private static final int FRAME_SIZE = 16;
+
+    private final ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+    private ByteArrayEndPoint endPoint;
+    private TestSession session;
+
+    @BeforeEach
+    public void prepare()
+    {
+        // A small output buffer keeps the flusher busy writing,
+        // so that the entries under test are queued together.
+        endPoint = new ByteArrayEndPoint(null, 0, (ByteBuffer)null, BufferUtil.allocate(FRAME_SIZE));
+        endPoint.setGrowOutput(false);
+        Generator generator = new Generator(byteBufferPool);
+        generator.setMaxFrameSize(FRAME_SIZE);
+        session = new TestSession(endPoint, generator);
+    }
+
+    @Test
+    public void testMoreUrgentStreamsAreWrittenFirst() throws Exception
+    {
+        send(newStream(1, Priority.DEFAULT));
+        send(newStream(3, new Priority(7, false)));
+        send(newStream(5, new Priority(0, false)));
+        send(newStream(7, new Priority(0, false)));
+
+        // Stream 1 was already being written; then the non-incremental
+        // streams of urgency 0 are written sequentially, then stream 3.
+        assertEquals(List.of(1, 1, 1, 1, 5, 5, 5, 5, 7, 7, 7, 7, 3, 3, 3, 3), drain());
+    }
+
+    @Test
+    public void testIncrementalStreamsAreInterleaved() throws Exception
+    {
+        send(newStream(1, Priority.DEFAULT));
+        send(newStream(3, new Priority(2, true)));
+        send(newStream(5, new Priority(2, true)));
+
+        assertEquals(List.of(1, 1, 1, 1, 3, 5, 3, 5, 3, 5, 3, 5), drain());
+    }
+
+    @Test
+    public void testPriorityUpdateReordersPendingStreams() throws Exception
+    {
+        send(newStream(1, Priority.DEFAULT));
+        send(newStream(3, Priority.DEFAULT));
+        IStream stream = newStream(5, Priority.DEFAULT);
+        send(stream);
+        stream.setPriority(Priority.from("u=1"));
+
+        assertEquals(List.of(1, 1, 1, 1, 5, 5, 5, 5, 3, 3, 3, 3), drain());
+    }
+
+    @Test
+    public void testTrailersAreWrittenAfterQueuedData() throws Exception
+    {
+        send(newStream(1, Priority.DEFAULT));
+        // The DATA of the less urgent stream 3 is deferred, but its
+        // trailers and RST_STREAM must not be written before its DATA.
+        IStream stream = newStream(3, new Priority(7, false));
+        DataFrame data = new DataFrame(stream.getId(), ByteBuffer.allocate(2 * FRAME_SIZE), false);
+        MetaData trailers = new MetaData(HttpVersion.HTTP_2, HttpFields.build().put("x-trailer", "value"));
+        HeadersFrame trailersFrame = new HeadersFrame(stream.getId(), trailers, null, true);
+        session.frames(stream, List.of(data, trailersFrame), Callback.NOOP);
+        send(newStream(5, new Priority(0, false)));
+
+        assertEquals(List.of("DATA#1", "DATA#1", "DATA#1", "DATA#1", "DATA#5", "DATA#5", "DATA#5", "DATA#5", "DATA#3", "DATA#3", "HEADERS#3"), drainFrames());
+    }
+
+    @Test
+    public void testResetIsWrittenAfterQueuedData() throws Exception
+    {
+        send(newStream(1, Priority.DEFAULT));
+        IStream stream = newStream(3, new Priority(7, false));
+        DataFrame data = new DataFrame(stream.getId(), ByteBuffer.allocate(2 * FRAME_SIZE), false);
+        session.frames(stream, List.of(data, new ResetFrame(stream.getId(), ErrorCode.CANCEL_STREAM_ERROR.code)), Callback.NOOP);
+        send(newStream(5, new Priority(0, false)));
+
+        assertEquals(List.of("DATA#1", "DATA#1", "DATA#1", "DATA#1", "DATA#5", "DATA#5", "DATA#5", "DATA#5", "DATA#3", "DATA#3", "RST_STREAM#3"), drainFrames());
+    }
+
+    private IStream newStream(int streamId, Priority priority)
+    {
+        MetaData.Request request = new MetaData.Request("GET", HttpURI.from("http://localhost/"), HttpVersion.HTTP_2, HttpFields.EMPTY);
+        IStream stream = session.newStream(streamId, request, true);
+        session.getFlowControlStrategy().onStreamCreated(stream);
+        stream.setPriority(priority);
+        return stream;
+    }
+
+    private void send(IStream stream)
+    {
+        ByteBuffer data = ByteBuffer.allocate(4 * FRAME_SIZE);
+        session.data(stream, Callback.NOOP, new DataFrame(stream.getId(), data, false));
+    }
+
+    private List<Integer> drain()
+    {
+        List<Integer> streamIds = new ArrayList<>();
+        for (String frame : drainFrames())
+        {
+            if (frame.startsWith("DATA#"))
+                streamIds.add(Integer.parseInt(frame.substring(5)));
+        }
+        return streamIds;
+    }
+
+    private List<String> drainFrames()
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        while (true)
+        {
+            ByteBuffer buffer = endPoint.takeOutput();
+            if (!buffer.hasRemaining())
+                break;
+            output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        List<String> frames = new ArrayList<>();
+        Parser parser = new Parser(byteBufferPool, new Parser.Listener.Adapter()
+        {
+            @Override
+            public void onData(DataFrame frame)
+            {
+                frames.add("DATA#" + frame.getStreamId());
+            }
+
+            @Override
+            public void onHeaders(HeadersFrame frame)
+            {
+                frames.add("HEADERS#" + frame.getStreamId());
+            }
+
+            @Override
+            public void onReset(ResetFrame frame)
+            {
+                frames.add("RST_STREAM#" + frame.getStreamId());
+            }
+        }, 4096, 8192);
+        parser.init(UnaryOperator.identity());
+        ByteBuffer buffer = ByteBuffer.wrap(output.toByteArray());
+        while (buffer.hasRemaining())
+        {
+            parser.parse(buffer);
+        }
+        return frames;
+    }
+
+    private static class TestSession extends HTTP2Session
+    {
+        private TestSession(ByteArrayEndPoint endPoint, Generator generator)
+        {
+            super(null, endPoint, generator, new Session.Listener.Adapter(), new SimpleFlowControlStrategy(), 1);
+        }
+
+        @Override
+        public void onHeaders(HeadersFrame frame)
+        {
+        }
+
+        @Override
+        public void onPushPromise(PushPromiseFrame frame)
+        {
+        }
+    }
+}
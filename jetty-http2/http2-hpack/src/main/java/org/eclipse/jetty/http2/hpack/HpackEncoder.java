@@ -97,6 +97,8 @@ public class HpackEncoder
     private int _maxHeaderListSize;
     private int _headerListSize;
     private boolean _validateEncoding = true;
+    private HpackValueCache _valueCache;
+    private boolean _stickyDynamicTable;
 
     public HpackEncoder()
     {
@@ -157,6 +159,46 @@ public class HpackEncoder
         _validateEncoding = validateEncoding;
     }
 
+    /**
+     * @return the cache of encoded values, or null if values are always encoded
+     */
+    public HpackValueCache getValueCache()
+    {
+        return _valueCache;
+    }
+
+    /**
+     * @param valueCache the cache of encoded values, or null to always encode values
+     */
+    public void setValueCache(HpackValueCache valueCache)
+    {
+        _valueCache = valueCache;
+    }
+
+    /**
+     * @return whether the dynamic table is sticky
+     * @see #setStickyDynamicTable(boolean)
+     */
+    public boolean isStickyDynamicTable()
+    {
+        return _stickyDynamicTable;
+    }
+
+    /**
+     * <p>Sets whether the dynamic table is sticky.</p>
+     * <p>By default, fields are added to the dynamic table even if that evicts the
+     * oldest entries, so a stream of distinct values may evict the fields that
+     * are repeated in every response. A sticky dynamic table only adds a field
+     * if it fits in the free space of the table, so that the fields that are
+     * indexed first, typically the most common ones, stay indexed.</p>
+     *
+     * @param stickyDynamicTable whether the dynamic table is sticky
+     */
+    public void setStickyDynamicTable(boolean stickyDynamicTable)
+    {
+        _stickyDynamicTable = stickyDynamicTable;
+    }
+
     public void encode(ByteBuffer buffer, MetaData metadata) throws HpackException
     {
         try
@@ -343,14 +385,14 @@ public class HpackEncoder
                     if (_debug)
                         encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
                 }
-                else if (name == null && fieldSize < _context.getMaxDynamicTableSize())
+                else if (name == null && fieldSize < _context.getMaxDynamicTableSize() && isIndexable(fieldSize))
                 {
                     // unknown name and value that will fit in dynamic table, so let's index
                     // this just in case it is the first time we have seen a custom name or a
                     // custom field.  Unless the name is once only, this is worthwhile
                     indexed = true;
                     encodeName(buffer, (byte)0x40, 6, field.getName(), null);
-                    encodeValue(buffer, true, field.getValue());
+                    encodeValue(buffer, true, field);
                     if (_debug)
                         encoding = "LitHuffNHuffVIdx";
                 }
@@ -408,14 +450,16 @@ public class HpackEncoder
                 }
                 else
                 {
-                    // indexed
-                    indexed = true;
+                    // indexed, unless a sticky dynamic table has no room for it
+                    indexed = isIndexable(fieldSize);
+                    int bits = indexed ? 6 : 4;
                     boolean huffman = !DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer, (byte)0x40, 6, header.asString(), name);
-                    encodeValue(buffer, huffman, field.getValue());
+                    encodeName(buffer, indexed ? (byte)0x40 : (byte)0x00, bits, header.asString(), name);
+                    encodeValue(buffer, huffman, field);
                     if (_debug)
-                        encoding = ((name == null) ? "LitHuffN" : ("LitIdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(6, _context.index(name))))) +
-                            (huffman ? "HuffVIdx" : "LitVIdx");
+                        encoding = ((name == null) ? "LitHuffN" : ("LitIdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(bits, _context.index(name))))) +
+                            (huffman ? "HuffV" : "LitV") +
+                            (indexed ? "Idx" : "!Idx");
                 }
             }
 
@@ -431,6 +475,23 @@ public class HpackEncoder
         }
     }
 
+    private boolean isIndexable(int fieldSize)
+    {
+        if (!_stickyDynamicTable)
+            return true;
+        // Only index the field if it does not evict other entries.
+        return _context.getDynamicTableSize() + fieldSize + 32 <= _context.getMaxDynamicTableSize();
+    }
+
+    private void encodeValue(ByteBuffer buffer, boolean huffman, HttpField field)
+    {
+        HpackValueCache valueCache = _valueCache;
+        if (huffman && valueCache != null)
+            valueCache.encodeValue(buffer, field);
+        else
+            encodeValue(buffer, huffman, field.getValue());
+    }
+
     private void encodeName(ByteBuffer buffer, byte mask, int bits, String name, Entry entry)
     {
         buffer.put(mask);
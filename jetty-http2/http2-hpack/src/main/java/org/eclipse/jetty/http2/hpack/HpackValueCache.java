@@ -0,0 +1,186 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http.HttpField;
+
+/**
+ * <p>A cache of the HPACK encoded value literals of {@link HttpField}s.</p>
+ * <p>The encoding of a value literal (the Huffman flag, the length and the
+ * Huffman encoded bytes) only depends on the value, not on the HPACK context,
+ * so it can be shared by the connections created by the same connection factory,
+ * in the same spirit of {@link org.eclipse.jetty.http.PreEncodedHttpField},
+ * but without requiring applications to pre-encode their fields.</p>
+ * <p>{@link HpackEncoder} uses this cache for the fields that it adds to the
+ * dynamic table, as those are the fields that are expected to be repeated,
+ * such as {@code server}, {@code content-type} or {@code cache-control}.
+ * Only the values of known headers (see {@link HttpField#getHeader()}) that are
+ * not longer than {@link #getMaxValueLength()} are cached.</p>
+ * <p>A value is admitted in the cache only the second time it is seen, so that
+ * values that are never repeated are encoded directly into the buffer, without
+ * allocations and without evicting useful entries.</p>
+ * <p>Lookups do not take any lock. The cache is bounded: when it holds
+ * {@link #getMaxEntries()} entries, the least recently used entry among a
+ * small sample of entries is evicted, which approximates a LRU eviction.</p>
+ */
+public class HpackValueCache
+{
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    // Advances only when a value is cached, so that a cache hit
+    // writes to its entry at most once between two insertions.
+    private final AtomicLong clock = new AtomicLong();
+    private final int[] seen;
+    private final int maxEntries;
+    private final int maxValueLength;
+
+    /**
+     * @param maxEntries the max number of cached values
+     * @param maxValueLength the max length of the cached values
+     */
+    public HpackValueCache(int maxEntries, int maxValueLength)
+    {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("Invalid maxEntries " + maxEntries);
+        this.maxEntries = maxEntries;
+        this.maxValueLength = maxValueLength;
+        // Remembers the hashes of the values seen once, to decide their admission.
+        this.seen = new int[Integer.highestOneBit(Math.min(maxEntries, 1 << 18)) << 2];
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public int getMaxValueLength()
+    {
+        return maxValueLength;
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public int size()
+    {
+        return cache.size();
+    }
+
+    boolean contains(String value)
+    {
+        return cache.containsKey(value);
+    }
+
+    public void clear()
+    {
+        cache.clear();
+        Arrays.fill(seen, 0);
+    }
+
+    /**
+     * <p>Encodes the Huffman value literal of the given field into the given buffer,
+     * using the cached encoding if present.</p>
+     * <p>The encoding of the value is cached only if the field is a known header
+     * and its value has already been seen.</p>
+     *
+     * @param buffer the buffer to encode the value literal into
+     * @param field the field whose value is encoded
+     */
+    public void encodeValue(ByteBuffer buffer, HttpField field)
+    {
+        String value = field.getValue();
+        if (field.getHeader() == null || value.length() > maxValueLength)
+        {
+            HpackEncoder.encodeValue(buffer, true, value);
+            return;
+        }
+
+        Entry entry = cache.get(value);
+        if (entry != null)
+        {
+            long now = clock.get();
+            if (entry.lastAccess != now)
+                entry.lastAccess = now;
+            buffer.put(entry.encoded);
+            return;
+        }
+
+        // Racy updates of the admission hashes only
+        // affect whether a value is admitted or not.
+        int hash = value.hashCode();
+        hash ^= hash >>> 16;
+        int slot = hash & (seen.length - 1);
+        boolean admit = seen[slot] == hash;
+        seen[slot] = admit ? 0 : hash;
+
+        int position = buffer.position();
+        HpackEncoder.encodeValue(buffer, true, value);
+        if (admit)
+        {
+            byte[] encoded = new byte[buffer.position() - position];
+            buffer.duplicate().position(position).get(encoded);
+            if (cache.size() >= maxEntries)
+                evict();
+            cache.putIfAbsent(value, new Entry(encoded, clock.getAndIncrement()));
+        }
+    }
+
+    private void evict()
+    {
+        // Sample the entries from a random position, as
+        // the iteration order of the map does not change.
+        int skip = ThreadLocalRandom.current().nextInt(Math.max(1, cache.size() - EVICTION_SAMPLES + 1));
+        Iterator<Map.Entry<String, Entry>> iterator = cache.entrySet().iterator();
+        for (int i = 0; i < skip && iterator.hasNext(); ++i)
+        {
+            iterator.next();
+        }
+        Map.Entry<String, Entry> oldest = null;
+        for (int i = 0; i < EVICTION_SAMPLES && iterator.hasNext(); ++i)
+        {
+            Map.Entry<String, Entry> candidate = iterator.next();
+            if (oldest == null || candidate.getValue().lastAccess < oldest.getValue().lastAccess)
+                oldest = candidate;
+        }
+        if (oldest != null)
+            cache.remove(oldest.getKey(), oldest.getValue());
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d,maxEntries=%d,maxValueLength=%d]", getClass().getSimpleName(), hashCode(), size(), maxEntries, maxValueLength);
+    }
+
+    private static class Entry
+    {
+        private final byte[] encoded;
+        private volatile long lastAccess;
+
+        private Entry(byte[] encoded, long lastAccess)
+        {
+            this.encoded = encoded;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -292,6 +292,21 @@ public class Huffman
     static final char[] rowsym;
     static final byte[] rowbits;
 
+    // Multi-symbol decode table indexed by the next LOOKAHEAD bits of input.
+    // Since the shortest code is 5 bits, an entry decodes up to 2 symbols:
+    // bits 0-7 and 8-11 are the first symbol and its code length, bits 12-19
+    // and 20-23 are the second symbol and its code length. A zero length means
+    // that the lookahead is not enough to decode the symbol, so that codes
+    // longer than LOOKAHEAD bits are decoded by walking the tree.
+    static final int LOOKAHEAD = 12;
+    static final int[] lookup = new int[1 << LOOKAHEAD];
+
+    // Flattened code tables for the encoder.
+    private static final int[] codeValues = new int[256];
+    private static final byte[] codeLengths = new byte[256];
+    private static final int[] lcCodeValues = new int[256];
+    private static final byte[] lcCodeLengths = new byte[256];
+
     // Build the Huffman lookup tree and LC TABLE
     static
     {
@@ -346,6 +361,47 @@ public class Huffman
                 tree[i] = (char)terminal;
             }
         }
+
+        // Build the multi-symbol lookup table, first the symbols
+        // that are at the beginning of the lookahead bits.
+        int[] first = new int[lookup.length];
+        for (int sym = 0; sym < 256; sym++)
+        {
+            int len = CODES[sym][1];
+            if (len > LOOKAHEAD)
+                continue;
+            int shift = LOOKAHEAD - len;
+            int start = CODES[sym][0] << shift;
+            int end = start + (1 << shift);
+            for (int i = start; i < end; i++)
+            {
+                first[i] = sym | len << 8;
+            }
+        }
+        // Then the symbols that follow the first one within the lookahead
+        // bits. The bits after the lookahead are unknown, so the second
+        // symbol is only kept if it is fully contained in the lookahead.
+        for (int i = 0; i < lookup.length; i++)
+        {
+            int entry = first[i];
+            int len = entry >>> 8;
+            if (len > 0)
+            {
+                int next = first[(i << len) & (lookup.length - 1)];
+                int nextLen = next >>> 8;
+                if (nextLen > 0 && len + nextLen <= LOOKAHEAD)
+                    entry |= next << 12;
+            }
+            lookup[i] = entry;
+        }
+
+        for (int i = 0; i < 256; i++)
+        {
+            codeValues[i] = CODES[i][0];
+            codeLengths[i] = (byte)CODES[i][1];
+            lcCodeValues[i] = LCCODES[i][0];
+            lcCodeLengths[i] = (byte)LCCODES[i][1];
+        }
     }
 
     public static String decode(ByteBuffer buffer) throws HpackException.CompressionException
@@ -353,103 +409,147 @@ public class Huffman
         return decode(buffer, buffer.remaining());
     }
 
+    /**
+     * <p>Decodes Huffman encoded octets.</p>
+     * <p>Up to 2 symbols are decoded for each lookup of the next {@link #LOOKAHEAD}
+     * bits of input, and only the rare codes longer than that walk the decode tree.</p>
+     *
+     * @param buffer the buffer containing the Huffman encoded octets
+     * @param length the number of octets to decode
+     * @return the decoded string
+     * @throws HpackException.CompressionException if the encoded octets are invalid
+     */
     public static String decode(ByteBuffer buffer, int length) throws HpackException.CompressionException
     {
         Utf8StringBuilder utf8 = new Utf8StringBuilder(length * 2);
-        int node = 0;
-        int current = 0;
+        long current = 0;
         int bits = 0;
+        int remaining = length;
 
-        for (int i = 0; i < length; i++)
+        while (true)
         {
-            int b = buffer.get() & 0xFF;
-            current = (current << 8) | b;
-            bits += 8;
-            while (bits >= 8)
+            // Refill the bit accumulator.
+            while (bits <= 56 && remaining > 0)
+            {
+                current = (current << 8) | (buffer.get() & 0xFF);
+                bits += 8;
+                --remaining;
+            }
+
+            if (bits < LOOKAHEAD)
+                break;
+
+            int entry = lookup[(int)(current >>> (bits - LOOKAHEAD)) & (lookup.length - 1)];
+            int len = (entry >>> 8) & 0x0F;
+            if (len > 0)
+            {
+                utf8.append((byte)entry);
+                bits -= len;
+                len = entry >>> 20;
+                if (len > 0)
+                {
+                    utf8.append((byte)(entry >>> 12));
+                    bits -= len;
+                }
+                continue;
+            }
+
+            // A code longer than the lookahead, walk the tree.
+            int node = 0;
+            while (true)
             {
-                int c = (current >>> (bits - 8)) & 0xFF;
+                int c;
+                if (bits >= 8)
+                    c = (int)(current >>> (bits - 8)) & 0xFF;
+                else
+                    c = ((int)(current << (8 - bits)) & 0xFF) | (0xFF >>> bits);
                 node = tree[node * 256 + c];
                 if (rowbits[node] != 0)
                 {
+                    if (rowbits[node] > bits)
+                        throw badTermination(current, bits);
                     if (rowsym[node] == EOS)
                         throw new HpackException.CompressionException("EOS in content");
-
-                    // terminal node
-                    utf8.append((byte)(0xFF & rowsym[node]));
+                    utf8.append((byte)rowsym[node]);
                     bits -= rowbits[node];
-                    node = 0;
-                }
-                else
-                {
-                    // non-terminal node
-                    bits -= 8;
+                    break;
                 }
+                if (bits < 8)
+                    throw badTermination(current, bits);
+                bits -= 8;
             }
         }
 
+        // Decode the last symbols, padding the lookahead with ones.
         while (bits > 0)
         {
-            int c = (current << (8 - bits)) & 0xFF;
-            int lastNode = node;
-            node = tree[node * 256 + c];
-
-            if (rowbits[node] == 0 || rowbits[node] > bits)
-            {
-                int requiredPadding = 0;
-                for (int i = 0; i < bits; i++)
-                {
-                    requiredPadding = (requiredPadding << 1) | 1;
-                }
-
-                if ((c >> (8 - bits)) != requiredPadding)
-                    throw new HpackException.CompressionException("Incorrect padding");
-
-                node = lastNode;
+            int pad = LOOKAHEAD - bits;
+            int entry = lookup[((int)(current << pad) & (lookup.length - 1)) | ((1 << pad) - 1)];
+            int len = (entry >>> 8) & 0x0F;
+            if (len == 0 || len > bits)
                 break;
+            utf8.append((byte)entry);
+            bits -= len;
+            len = entry >>> 20;
+            if (len > 0 && len <= bits)
+            {
+                utf8.append((byte)(entry >>> 12));
+                bits -= len;
             }
-
-            utf8.append((byte)(0xFF & rowsym[node]));
-            bits -= rowbits[node];
-            node = 0;
         }
 
-        if (node != 0)
-            throw new HpackException.CompressionException("Bad termination");
+        // The padding must be shorter than 8 bits and
+        // must correspond to the most significant bits of EOS.
+        if (bits >= 8 || !isPadding(current, bits))
+            throw badTermination(current, bits);
 
         return utf8.toString();
     }
 
+    private static boolean isPadding(long current, int bits)
+    {
+        int padding = (1 << bits) - 1;
+        return ((int)current & padding) == padding;
+    }
+
+    private static HpackException.CompressionException badTermination(long current, int bits)
+    {
+        if (isPadding(current, bits & 0x07))
+            return new HpackException.CompressionException("Bad termination");
+        return new HpackException.CompressionException("Incorrect padding");
+    }
+
     public static int octetsNeeded(String s)
     {
-        return octetsNeeded(CODES, s);
+        return octetsNeeded(codeLengths, s);
     }
 
     public static int octetsNeeded(byte[] b)
     {
-        return octetsNeeded(CODES, b);
+        return octetsNeeded(codeLengths, b);
     }
 
     public static void encode(ByteBuffer buffer, String s)
     {
-        encode(CODES, buffer, s);
+        encode(codeValues, codeLengths, buffer, s);
     }
 
     public static void encode(ByteBuffer buffer, byte[] b)
     {
-        encode(CODES, buffer, b);
+        encode(codeValues, codeLengths, buffer, b);
     }
 
     public static int octetsNeededLC(String s)
     {
-        return octetsNeeded(LCCODES, s);
+        return octetsNeeded(lcCodeLengths, s);
     }
 
     public static void encodeLC(ByteBuffer buffer, String s)
     {
-        encode(LCCODES, buffer, s);
+        encode(lcCodeValues, lcCodeLengths, buffer, s);
     }
 
-    private static int octetsNeeded(final int[][] table, String s)
+    private static int octetsNeeded(final byte[] lengths, String s)
     {
         int needed = 0;
         int len = s.length();
@@ -458,30 +558,33 @@ public class Huffman
             char c = s.charAt(i);
             if (c >= 128 || c < ' ')
                 return -1;
-            needed += table[c][1];
+            needed += lengths[c];
         }
 
         return (needed + 7) / 8;
     }
 
-    private static int octetsNeeded(final int[][] table, byte[] b)
+    private static int octetsNeeded(final byte[] lengths, byte[] b)
     {
         int needed = 0;
         int len = b.length;
         for (int i = 0; i < len; i++)
         {
-            int c = 0xFF & b[i];
-            needed += table[c][1];
+            needed += lengths[0xFF & b[i]];
         }
         return (needed + 7) / 8;
     }
 
     /**
-     * @param table The table to encode by
+     * <p>Encodes the string, accumulating the codes in a long
+     * so that they are written 4 octets at a time.</p>
+     *
+     * @param codes The codes to encode by
+     * @param lengths The lengths of the codes
      * @param buffer The buffer to encode to
      * @param s The string to encode
      */
-    private static void encode(final int[][] table, ByteBuffer buffer, String s)
+    private static void encode(final int[] codes, final byte[] lengths, ByteBuffer buffer, String s)
     {
         long current = 0;
         int n = 0;
@@ -491,50 +594,43 @@ public class Huffman
             char c = s.charAt(i);
             if (c >= 128 || c < ' ')
                 throw new IllegalArgumentException();
-            int code = table[c][0];
-            int bits = table[c][1];
-
-            current <<= bits;
-            current |= code;
-            n += bits;
-
-            while (n >= 8)
+            current = (current << lengths[c]) | codes[c];
+            n += lengths[c];
+            if (n >= 32)
             {
-                n -= 8;
-                buffer.put((byte)(current >> n));
+                n -= 32;
+                buffer.putInt((int)(current >>> n));
             }
         }
-
-        if (n > 0)
-        {
-            current <<= (8 - n);
-            current |= (0xFF >>> n);
-            buffer.put((byte)(current));
-        }
+        flush(buffer, current, n);
     }
 
-    private static void encode(final int[][] table, ByteBuffer buffer, byte[] b)
+    private static void encode(final int[] codes, final byte[] lengths, ByteBuffer buffer, byte[] b)
     {
         long current = 0;
         int n = 0;
-
         int len = b.length;
         for (int i = 0; i < len; i++)
         {
             int c = 0xFF & b[i];
-            int code = table[c][0];
-            int bits = table[c][1];
-
-            current <<= bits;
-            current |= code;
-            n += bits;
-
-            while (n >= 8)
+            current = (current << lengths[c]) | codes[c];
+            n += lengths[c];
+            if (n >= 32)
             {
-                n -= 8;
-                buffer.put((byte)(current >> n));
+                n -= 32;
+                buffer.putInt((int)(current >>> n));
             }
         }
+        flush(buffer, current, n);
+    }
+
+    private static void flush(ByteBuffer buffer, long current, int n)
+    {
+        while (n >= 8)
+        {
+            n -= 8;
+            buffer.put((byte)(current >>> n));
+        }
 
         if (n > 0)
         {
@@ -14,6 +14,7 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
@@ -27,6 +28,8 @@ import org.junit.jupiter.api.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HpackEncoderTest
 {
@@ -306,4 +309,119 @@ public class HpackEncoderTest
         assertThat(context.getMaxDynamicTableSize(), Matchers.is(50));
         assertThat(context.size(), Matchers.is(1));
     }
+
+    @Test
+    public void testValueCache() throws Exception
+    {
+        HttpFields fields = HttpFields.build()
+            .add(HttpHeader.SERVER, "Jetty(10.0.x)")
+            .add(HttpHeader.CACHE_CONTROL, "public, max-age=31536000, immutable")
+            .add("x-custom", "some custom value");
+        MetaData metaData = new MetaData(HttpVersion.HTTP_2, fields);
+
+        HpackValueCache valueCache = new HpackValueCache(16, 256);
+        HpackEncoder uncached = new HpackEncoder();
+        ByteBuffer uncachedBuffer = encode(uncached, metaData);
+
+        // The first time the values are seen they are not cached.
+        ByteBuffer firstBuffer = encode(newCachingEncoder(valueCache), metaData);
+        assertEquals(0, valueCache.size());
+
+        // The second time the values of the known headers are cached.
+        ByteBuffer secondBuffer = encode(newCachingEncoder(valueCache), metaData);
+        assertEquals(2, valueCache.size());
+
+        ByteBuffer cachedBuffer = encode(newCachingEncoder(valueCache), metaData);
+        assertEquals(2, valueCache.size());
+
+        // The cached values are encoded exactly as the uncached ones.
+        assertEquals(uncachedBuffer, firstBuffer);
+        assertEquals(uncachedBuffer, secondBuffer);
+        assertEquals(uncachedBuffer, cachedBuffer);
+    }
+
+    @Test
+    public void testValueCacheEvictsLeastRecentlyUsed()
+    {
+        HpackValueCache valueCache = new HpackValueCache(2, 256);
+        HttpField a = new HttpField(HttpHeader.CONTENT_TYPE, "text/plain");
+        HttpField b = new HttpField(HttpHeader.CONTENT_TYPE, "text/html");
+        HttpField c = new HttpField(HttpHeader.CONTENT_TYPE, "application/json");
+        HttpField d = new HttpField(HttpHeader.CONTENT_TYPE, "application/xml");
+        ByteBuffer buffer = BufferUtil.allocate(1024);
+        for (HttpField field : List.of(a, a, b, b, a, c, c))
+        {
+            BufferUtil.clearToFill(buffer);
+            valueCache.encodeValue(buffer, field);
+        }
+        // The value of b was the least recently used, so it was evicted.
+        assertEquals(2, valueCache.size());
+        assertTrue(valueCache.contains(a.getValue()));
+        assertFalse(valueCache.contains(b.getValue()));
+        assertTrue(valueCache.contains(c.getValue()));
+
+        // A value that is seen only once is encoded but never cached.
+        int position = buffer.position();
+        valueCache.encodeValue(buffer, d);
+        assertThat(buffer.position(), Matchers.greaterThan(position));
+        assertFalse(valueCache.contains(d.getValue()));
+
+        // Unknown headers are never cached.
+        HttpField custom = new HttpField("x-custom", "text/plain");
+        valueCache.clear();
+        valueCache.encodeValue(buffer, custom);
+        valueCache.encodeValue(buffer, custom);
+        assertEquals(0, valueCache.size());
+    }
+
+    private static HpackEncoder newCachingEncoder(HpackValueCache valueCache)
+    {
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.setValueCache(valueCache);
+        return encoder;
+    }
+
+    private static ByteBuffer encode(HpackEncoder encoder, MetaData metaData) throws HpackException
+    {
+        ByteBuffer buffer = BufferUtil.allocate(4096);
+        int pos = BufferUtil.flipToFill(buffer);
+        encoder.encode(buffer, metaData);
+        BufferUtil.flipToFlush(buffer, pos);
+        return buffer;
+    }
+
+    @Test
+    public void testStickyDynamicTable() throws Exception
+    {
+        HpackEncoder encoder = new HpackEncoder(38 * 5);
+        encoder.setStickyDynamicTable(true);
+        HpackDecoder decoder = new HpackDecoder(38 * 5, 8192);
+        HpackContext context = encoder.getHpackContext();
+
+        // Each field has a size of 38 bytes, so only 5 fit in the table.
+        HttpFields.Mutable fields = HttpFields.build();
+        for (int i = 0; i < 8; i++)
+        {
+            fields.add("fo" + i, "b" + i + "r");
+        }
+
+        for (int i = 0; i < 2; i++)
+        {
+            ByteBuffer buffer = BufferUtil.allocate(4096);
+            int pos = BufferUtil.flipToFill(buffer);
+            encoder.encode(buffer, new MetaData(HttpVersion.HTTP_2, fields));
+            BufferUtil.flipToFlush(buffer, pos);
+
+            // The decoder is kept in sync with the encoder.
+            MetaData decoded = decoder.decode(buffer);
+            assertEquals(fields.asImmutable(), decoded.getFields());
+
+            // The first fields stay indexed, and the others are never indexed.
+            assertEquals(5, context.size());
+            for (int f = 0; f < 8; f++)
+            {
+                assertEquals(f < 5, context.get(fields.getField(f)) != null);
+            }
+        }
+    }
 }
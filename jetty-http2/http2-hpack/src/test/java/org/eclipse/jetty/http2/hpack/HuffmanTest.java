@@ -15,12 +15,14 @@ package org.eclipse.jetty.http2.hpack;
 
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.stream.Stream;
 
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.TypeUtil;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -79,4 +81,56 @@ public class HuffmanTest
         assertThrows(BufferOverflowException.class,
             () -> Huffman.encode(BufferUtil.allocate(32), s));
     }
+
+    @Test
+    public void testEncodeDecodeAllPrintable() throws Exception
+    {
+        // Mixes short codes, decoded by the lookup table, and long codes, decoded by the tree.
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 3; i++)
+        {
+            for (char c = ' '; c < 127; c++)
+            {
+                builder.append(c);
+            }
+        }
+        String expected = builder.toString();
+
+        ByteBuffer buf = BufferUtil.allocate(1024);
+        int pos = BufferUtil.flipToFill(buf);
+        Huffman.encode(buf, expected);
+        BufferUtil.flipToFlush(buf, pos);
+        assertEquals(Huffman.octetsNeeded(expected), buf.remaining());
+
+        assertEquals(expected, Huffman.decode(buf));
+    }
+
+    @Test
+    public void testEncodeDecodeUTF8() throws Exception
+    {
+        String expected = "caf\u00e9 \u20ac \uD83D\uDE00";
+        byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buf = BufferUtil.allocate(1024);
+        int pos = BufferUtil.flipToFill(buf);
+        Huffman.encode(buf, bytes);
+        BufferUtil.flipToFlush(buf, pos);
+        assertEquals(Huffman.octetsNeeded(bytes), buf.remaining());
+
+        assertEquals(expected, Huffman.decode(buf));
+    }
+
+    @Test
+    public void testDecodeInvalid()
+    {
+        // EOS in content.
+        assertThrows(HpackException.CompressionException.class,
+            () -> Huffman.decode(ByteBuffer.wrap(TypeUtil.fromHexString("fe7fffffff"))));
+        // Padding longer than 7 bits.
+        assertThrows(HpackException.CompressionException.class,
+            () -> Huffman.decode(ByteBuffer.wrap(TypeUtil.fromHexString("a8eb10649cbfff"))));
+        // Padding that is not the most significant bits of EOS.
+        assertThrows(HpackException.CompressionException.class,
+            () -> Huffman.decode(ByteBuffer.wrap(TypeUtil.fromHexString("a8eb10649cbe"))));
+    }
 }
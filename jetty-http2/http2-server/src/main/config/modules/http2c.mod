@@ -32,4 +32,12 @@ etc/jetty-http2c.xml
 ## Specifies the maximum number of bad frames and pings per second,
 ## after which a session is closed to avoid denial of service attacks.
 # jetty.http2.rateControl.maxEventsPerSecond=20
+
+## Whether the HPACK dynamic table only indexes new fields when they do not
+## evict other entries, so that the fields indexed first stay indexed.
+# jetty.http2.stickyDynamicTable=false
+
+## The max number of HPACK encoded values of known headers cached and shared
+## by the connections of the connector, or 0 to disable the cache.
+# jetty.http2.hpackValueCacheSize=0
 # end::documentation[]
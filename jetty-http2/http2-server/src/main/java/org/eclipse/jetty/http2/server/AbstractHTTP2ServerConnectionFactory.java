@@ -32,6 +32,7 @@ import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
 import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.hpack.HpackValueCache;
 import org.eclipse.jetty.http2.parser.RateControl;
 import org.eclipse.jetty.http2.parser.ServerParser;
 import org.eclipse.jetty.http2.parser.WindowRateControl;
@@ -65,6 +66,9 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
     private long streamIdleTimeout;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
+    private boolean stickyDynamicTable;
+    private int hpackValueCacheSize;
+    private HpackValueCache hpackValueCache;
 
     public AbstractHTTP2ServerConnectionFactory(@Name("config") HttpConfiguration httpConfiguration)
     {
@@ -236,11 +240,73 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.useOutputDirectByteBuffers = useOutputDirectByteBuffers;
     }
 
+    @ManagedAttribute("Whether the HPACK dynamic table only indexes fields without evicting entries")
+    public boolean isStickyDynamicTable()
+    {
+        return stickyDynamicTable;
+    }
+
+    /**
+     * @param stickyDynamicTable whether the HPACK dynamic table only indexes fields without evicting entries
+     * @see org.eclipse.jetty.http2.hpack.HpackEncoder#setStickyDynamicTable(boolean)
+     */
+    public void setStickyDynamicTable(boolean stickyDynamicTable)
+    {
+        this.stickyDynamicTable = stickyDynamicTable;
+    }
+
+    @ManagedAttribute("The max number of HPACK encoded values cached by this factory")
+    public int getHpackValueCacheSize()
+    {
+        return hpackValueCacheSize;
+    }
+
+    /**
+     * @param hpackValueCacheSize the max number of HPACK encoded values shared
+     * by the connections created by this factory, or 0 (the default) for no cache
+     */
+    public void setHpackValueCacheSize(int hpackValueCacheSize)
+    {
+        this.hpackValueCacheSize = hpackValueCacheSize;
+    }
+
+    /**
+     * @return the cache of HPACK encoded values shared by the connections created
+     * by this factory, or null if {@link #getHpackValueCacheSize()} is not positive
+     */
+    public HpackValueCache getHpackValueCache()
+    {
+        return hpackValueCache;
+    }
+
     public HttpConfiguration getHttpConfiguration()
     {
         return httpConfiguration;
     }
 
+    @Override
+    protected void doStart() throws Exception
+    {
+        int hpackValueCacheSize = getHpackValueCacheSize();
+        if (hpackValueCacheSize > 0)
+        {
+            hpackValueCache = new HpackValueCache(hpackValueCacheSize, 256);
+            addBean(hpackValueCache);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        if (hpackValueCache != null)
+        {
+            removeBean(hpackValueCache);
+            hpackValueCache = null;
+        }
+    }
+
     protected Map<Integer, Integer> newSettings()
     {
         Map<Integer, Integer> settings = new HashMap<>();
@@ -260,6 +326,8 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         ServerSessionListener listener = newSessionListener(connector, endPoint);
 
         Generator generator = new Generator(connector.getByteBufferPool(), isUseOutputDirectByteBuffers(), getMaxDynamicTableSize(), getMaxHeaderBlockFragment());
+        generator.setStickyDynamicTable(isStickyDynamicTable());
+        generator.setHpackValueCache(getHpackValueCache());
         FlowControlStrategy flowControl = getFlowControlStrategyFactory().newFlowControlStrategy();
         HTTP2ServerSession session = new HTTP2ServerSession(connector.getScheduler(), endPoint, generator, listener, flowControl);
         session.setMaxLocalStreams(getMaxConcurrentStreams());
@@ -0,0 +1,413 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Pool;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.component.DumpableCollection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A {@link RetainableByteBufferPool} where {@link RetainableByteBuffer}s are held
+ * in {@link Pool}s that are held in array elements.</p>
+ * <p>Given a capacity {@code factor} of 1024, the first array element holds a {@link Pool}
+ * of buffers each of capacity 1024, the second array element holds a {@link Pool} of
+ * buffers each of capacity 2048, and so on.</p>
+ * <p>Each {@link Pool} uses its {@link ThreadLocal} cache, so that a thread releasing
+ * a buffer is likely to acquire the same buffer again without contending with other
+ * threads, unlike the queue based {@link ByteBufferPool.Bucket}s.</p>
+ * <p>Each size class records the number of acquires that were satisfied by a pooled
+ * buffer (hits), that required the allocation of a new buffer (misses) and the number
+ * of buffers evicted to respect the max memory configuration.</p>
+ */
+@ManagedObject
+public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool, Dumpable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ArrayRetainableByteBufferPool.class);
+
+    private final Bucket[] _direct;
+    private final Bucket[] _indirect;
+    private final int _factor;
+    private final int _minCapacity;
+    private final long _maxHeapMemory;
+    private final long _maxDirectMemory;
+    private final AtomicLong _currentHeapMemory = new AtomicLong();
+    private final AtomicLong _currentDirectMemory = new AtomicLong();
+
+    /**
+     * Creates a new ArrayRetainableByteBufferPool with a default configuration.
+     */
+    public ArrayRetainableByteBufferPool()
+    {
+        this(0, -1, -1, Integer.MAX_VALUE, -1L, -1L);
+    }
+
+    /**
+     * Creates a new ArrayRetainableByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     * @param maxBucketSize the maximum number of ByteBuffers for each bucket
+     */
+    public ArrayRetainableByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxBucketSize)
+    {
+        this(minCapacity, factor, maxCapacity, maxBucketSize, -1L, -1L);
+    }
+
+    /**
+     * Creates a new ArrayRetainableByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     * @param maxBucketSize the maximum number of ByteBuffers for each bucket
+     * @param maxHeapMemory the max heap memory in bytes, or a non-positive value for unlimited
+     * @param maxDirectMemory the max direct memory in bytes, or a non-positive value for unlimited
+     */
+    public ArrayRetainableByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory)
+    {
+        _factor = factor <= 0 ? 1024 : factor;
+        if (minCapacity <= 0)
+            minCapacity = 0;
+        if (maxCapacity <= 0)
+            maxCapacity = 64 * 1024;
+        if ((maxCapacity % _factor) != 0 || _factor >= maxCapacity)
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        if (maxBucketSize <= 0)
+            throw new IllegalArgumentException("The max bucket size must be positive");
+        _minCapacity = minCapacity;
+        _maxHeapMemory = maxHeapMemory;
+        _maxDirectMemory = maxDirectMemory;
+
+        int length = maxCapacity / _factor;
+        _direct = new Bucket[length];
+        _indirect = new Bucket[length];
+        for (int i = 0; i < length; ++i)
+        {
+            int capacity = (i + 1) * _factor;
+            _direct[i] = new Bucket(capacity, maxBucketSize);
+            _indirect[i] = new Bucket(capacity, maxBucketSize);
+        }
+    }
+
+    @Override
+    public RetainableByteBuffer acquire(int size, boolean direct)
+    {
+        Bucket bucket = bucketFor(size, direct);
+        if (bucket == null)
+            return newRetainableByteBuffer(size, direct, retainable -> {});
+
+        Pool<RetainableByteBuffer>.Entry entry = bucket.acquire();
+        if (entry != null)
+        {
+            bucket.hits.increment();
+            RetainableByteBuffer buffer = entry.getPooled();
+            buffer.acquire();
+            return buffer;
+        }
+
+        bucket.misses.increment();
+        Pool<RetainableByteBuffer>.Entry reserved = bucket.reserve(-1);
+        if (reserved == null)
+        {
+            // The bucket is full, the buffer will not be pooled.
+            return newRetainableByteBuffer(bucket.capacity, direct, retainable -> {});
+        }
+
+        RetainableByteBuffer buffer = newRetainableByteBuffer(bucket.capacity, direct, retainable -> release(bucket, reserved));
+        reserved.enable(buffer, true);
+        updateMemory(direct, bucket.capacity);
+        releaseExcessMemory(direct);
+        return buffer;
+    }
+
+    protected ByteBuffer allocate(int capacity)
+    {
+        return ByteBuffer.allocate(capacity);
+    }
+
+    protected ByteBuffer allocateDirect(int capacity)
+    {
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    private RetainableByteBuffer newRetainableByteBuffer(int capacity, boolean direct, Consumer<RetainableByteBuffer> releaser)
+    {
+        ByteBuffer buffer = direct ? allocateDirect(capacity) : allocate(capacity);
+        BufferUtil.clear(buffer);
+        RetainableByteBuffer retainableByteBuffer = new RetainableByteBuffer(buffer, releaser);
+        retainableByteBuffer.acquire();
+        return retainableByteBuffer;
+    }
+
+    private void release(Bucket bucket, Pool<RetainableByteBuffer>.Entry entry)
+    {
+        BufferUtil.clear(entry.getPooled().getBuffer());
+        if (!entry.release())
+        {
+            // The entry has been concurrently evicted, or the pool has been closed.
+            if (entry.remove())
+                updateMemory(entry.getPooled().getBuffer().isDirect(), -bucket.capacity);
+        }
+    }
+
+    private Bucket bucketFor(int capacity, boolean direct)
+    {
+        if (capacity < _minCapacity)
+            return null;
+        int idx = capacity == 0 ? 0 : (capacity - 1) / _factor;
+        Bucket[] buckets = direct ? _direct : _indirect;
+        if (idx >= buckets.length)
+            return null;
+        return buckets[idx];
+    }
+
+    private void updateMemory(boolean direct, long delta)
+    {
+        (direct ? _currentDirectMemory : _currentHeapMemory).addAndGet(delta);
+    }
+
+    private void releaseExcessMemory(boolean direct)
+    {
+        long maxMemory = direct ? _maxDirectMemory : _maxHeapMemory;
+        if (maxMemory <= 0)
+            return;
+        AtomicLong memory = direct ? _currentDirectMemory : _currentHeapMemory;
+        Bucket[] buckets = direct ? _direct : _indirect;
+        // Evict idle buffers starting from the largest, as
+        // they free the most memory for each eviction.
+        for (int i = buckets.length; i-- > 0 && memory.get() > maxMemory;)
+        {
+            Bucket bucket = buckets[i];
+            while (memory.get() > maxMemory)
+            {
+                if (!evict(bucket, direct))
+                    break;
+            }
+        }
+    }
+
+    private boolean evict(Bucket bucket, boolean direct)
+    {
+        // Only an idle entry can be acquired, and an acquired entry can be removed.
+        Pool<RetainableByteBuffer>.Entry entry = bucket.acquire();
+        if (entry == null)
+            return false;
+        if (bucket.remove(entry))
+        {
+            bucket.evictions.increment();
+            updateMemory(direct, -bucket.capacity);
+            if (LOG.isDebugEnabled())
+                LOG.debug("evicted {} from {}", entry.getPooled(), bucket);
+        }
+        return true;
+    }
+
+    @ManagedAttribute("The number of pooled direct ByteBuffers")
+    public long getDirectByteBufferCount()
+    {
+        return sum(true, Bucket::size);
+    }
+
+    @ManagedAttribute("The number of pooled heap ByteBuffers")
+    public long getHeapByteBufferCount()
+    {
+        return sum(false, Bucket::size);
+    }
+
+    @ManagedAttribute("The number of pooled direct ByteBuffers that are in use")
+    public long getDirectInUseCount()
+    {
+        return sum(true, Bucket::getInUseCount);
+    }
+
+    @ManagedAttribute("The number of pooled heap ByteBuffers that are in use")
+    public long getHeapInUseCount()
+    {
+        return sum(false, Bucket::getInUseCount);
+    }
+
+    @ManagedAttribute("The bytes retained by direct ByteBuffers")
+    public long getDirectMemory()
+    {
+        return _currentDirectMemory.get();
+    }
+
+    @ManagedAttribute("The bytes retained by heap ByteBuffers")
+    public long getHeapMemory()
+    {
+        return _currentHeapMemory.get();
+    }
+
+    @ManagedAttribute("The number of acquires satisfied by a pooled ByteBuffer")
+    public long getHits()
+    {
+        return sum(true, Bucket::getHits) + sum(false, Bucket::getHits);
+    }
+
+    @ManagedAttribute("The number of acquires that allocated a new ByteBuffer")
+    public long getMisses()
+    {
+        return sum(true, Bucket::getMisses) + sum(false, Bucket::getMisses);
+    }
+
+    @ManagedAttribute("The number of ByteBuffers evicted to respect the max memory")
+    public long getEvictions()
+    {
+        return sum(true, Bucket::getEvictions) + sum(false, Bucket::getEvictions);
+    }
+
+    @ManagedAttribute("The statistics of the direct ByteBuffers size classes")
+    public String[] getDirectBucketStatistics()
+    {
+        return Arrays.stream(_direct).map(Bucket::toString).toArray(String[]::new);
+    }
+
+    @ManagedAttribute("The statistics of the heap ByteBuffers size classes")
+    public String[] getHeapBucketStatistics()
+    {
+        return Arrays.stream(_indirect).map(Bucket::toString).toArray(String[]::new);
+    }
+
+    private long sum(boolean direct, ToLongFunction<Bucket> fn)
+    {
+        return Arrays.stream(direct ? _direct : _indirect).mapToLong(fn).sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        for (int i = 0; i < _direct.length; ++i)
+        {
+            _direct[i].resetStatistics();
+            _indirect[i].resetStatistics();
+        }
+    }
+
+    @ManagedOperation(value = "Evicts the idle ByteBuffers from this pool", impact = "ACTION")
+    public void clear()
+    {
+        for (int i = 0; i < _direct.length; ++i)
+        {
+            evictAll(_direct[i], true);
+            evictAll(_indirect[i], false);
+        }
+    }
+
+    private void evictAll(Bucket bucket, boolean direct)
+    {
+        while (true)
+        {
+            if (!evict(bucket, direct))
+                return;
+        }
+    }
+
+    // Package local for testing
+    Bucket[] bucketsFor(boolean direct)
+    {
+        return direct ? _direct : _indirect;
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        Dumpable.dumpObjects(out, indent, this,
+            DumpableCollection.fromArray("direct", _direct),
+            DumpableCollection.fromArray("indirect", _indirect));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{minCapacity=%s,factor=%d,buckets=%d,heap=%d/%d,direct=%d/%d}",
+            getClass().getSimpleName(), hashCode(),
+            _minCapacity, _factor, _direct.length,
+            getHeapMemory(), _maxHeapMemory,
+            getDirectMemory(), _maxDirectMemory);
+    }
+
+    static class Bucket extends Pool<RetainableByteBuffer>
+    {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final int capacity;
+
+        Bucket(int capacity, int size)
+        {
+            super(StrategyType.THREAD_ID, size, true);
+            this.capacity = capacity;
+        }
+
+        int getCapacity()
+        {
+            return capacity;
+        }
+
+        long getHits()
+        {
+            return hits.longValue();
+        }
+
+        long getMisses()
+        {
+            return misses.longValue();
+        }
+
+        long getEvictions()
+        {
+            return evictions.longValue();
+        }
+
+        void resetStatistics()
+        {
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+
+        @Override
+        public String toString()
+        {
+            int entries = 0;
+            int inUse = 0;
+            for (Entry entry : values())
+            {
+                entries++;
+                if (entry.isInUse())
+                    inUse++;
+            }
+
+            return String.format("%s@%x{capacity=%d,inuse=%d/%d,hits=%d,misses=%d,evictions=%d}",
+                getClass().getSimpleName(), hashCode(),
+                capacity, inUse, entries,
+                getHits(), getMisses(), getEvictions());
+        }
+    }
+}
@@ -13,7 +13,11 @@
 
 package org.eclipse.jetty.io;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.StandardSocketOptions;
@@ -21,14 +25,20 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.Promise;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.eclipse.jetty.util.thread.Scheduler;
@@ -41,6 +51,7 @@ public class ClientConnector extends ContainerLifeCycle
     public static final String REMOTE_SOCKET_ADDRESS_CONTEXT_KEY = CLIENT_CONNECTOR_CONTEXT_KEY + ".remoteSocketAddress";
     public static final String CLIENT_CONNECTION_FACTORY_CONTEXT_KEY = CLIENT_CONNECTOR_CONTEXT_KEY + ".clientConnectionFactory";
     public static final String CONNECTION_PROMISE_CONTEXT_KEY = CLIENT_CONNECTOR_CONTEXT_KEY + ".connectionPromise";
+    private static final String CONNECTION_ATTEMPT_CONTEXT_KEY = CLIENT_CONNECTOR_CONTEXT_KEY + ".connectionAttempt";
     private static final Logger LOG = LoggerFactory.getLogger(ClientConnector.class);
 
     private Executor executor;
@@ -51,9 +62,11 @@ public class ClientConnector extends ContainerLifeCycle
     private int selectors = 1;
     private boolean connectBlocking;
     private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration connectionAttemptDelay = Duration.ofMillis(250);
     private Duration idleTimeout = Duration.ofSeconds(30);
     private SocketAddress bindAddress;
     private boolean reuseAddress = true;
+    private final Map<SelectableChannel, HappyEyeballs.Attempt> attempts = new ConcurrentHashMap<>();
 
     public Executor getExecutor()
     {
@@ -141,6 +154,30 @@ public class ClientConnector extends ContainerLifeCycle
             selectorManager.setConnectTimeout(connectTimeout.toMillis());
     }
 
+    /**
+     * @return the delay between connection attempts to different addresses
+     * @see #setConnectionAttemptDelay(Duration)
+     */
+    public Duration getConnectionAttemptDelay()
+    {
+        return connectionAttemptDelay;
+    }
+
+    /**
+     * <p>Sets the delay after which, if the current connection attempt has not completed yet,
+     * a concurrent connection attempt to the next address is started when connecting
+     * to multiple addresses; the recommended value is 250 ms.</p>
+     * <p>A zero or negative delay disables concurrent connection attempts,
+     * so that the addresses are tried one after the other.</p>
+     *
+     * @param connectionAttemptDelay the delay between connection attempts to different addresses
+     * @see #connect(List, Map)
+     */
+    public void setConnectionAttemptDelay(Duration connectionAttemptDelay)
+    {
+        this.connectionAttemptDelay = connectionAttemptDelay;
+    }
+
     public Duration getIdleTimeout()
     {
         return idleTimeout;
@@ -211,6 +248,68 @@ public class ClientConnector extends ContainerLifeCycle
         return new ClientSelectorManager(getExecutor(), getScheduler(), getSelectors());
     }
 
+    /**
+     * <p>Connects to one of the given addresses, as specified by RFC 8305 ("Happy Eyeballs").</p>
+     * <p>The addresses are sorted to alternate between IPv6 and IPv4, starting with the
+     * family of the first address; a connection attempt to the first address is started
+     * and, if it has not completed within the {@link #getConnectionAttemptDelay() connection
+     * attempt delay}, or when it fails, a concurrent connection attempt to the next address
+     * is started.
+     * The first connection attempt that succeeds wins, and the others are closed.</p>
+     *
+     * @param addresses the addresses to connect to
+     * @param context the context information to establish the connection
+     */
+    public void connect(List<? extends SocketAddress> addresses, Map<String, Object> context)
+    {
+        if (addresses.isEmpty())
+            throw new IllegalArgumentException("No addresses to connect to");
+        if (context == null)
+            context = new HashMap<>();
+        if (addresses.size() == 1)
+        {
+            connect(addresses.get(0), context);
+            return;
+        }
+        long delay = isConnectBlocking() ? 0 : getConnectionAttemptDelay().toMillis();
+        new HappyEyeballs(interleave(addresses), context, delay).next();
+    }
+
+    /**
+     * <p>Sorts the given addresses so that the address families alternate,
+     * starting with the family of the first address, see RFC 8305 section 4.</p>
+     *
+     * @param addresses the addresses to sort
+     * @return the sorted addresses
+     */
+    static List<SocketAddress> interleave(List<? extends SocketAddress> addresses)
+    {
+        List<SocketAddress> preferred = new ArrayList<>();
+        List<SocketAddress> others = new ArrayList<>();
+        boolean ipv6 = isIPv6(addresses.get(0));
+        for (SocketAddress address : addresses)
+        {
+            if (isIPv6(address) == ipv6)
+                preferred.add(address);
+            else
+                others.add(address);
+        }
+        List<SocketAddress> result = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(preferred.size(), others.size()); ++i)
+        {
+            if (i < preferred.size())
+                result.add(preferred.get(i));
+            if (i < others.size())
+                result.add(others.get(i));
+        }
+        return result;
+    }
+
+    private static boolean isIPv6(SocketAddress address)
+    {
+        return address instanceof InetSocketAddress && ((InetSocketAddress)address).getAddress() instanceof Inet6Address;
+    }
+
     public void connect(SocketAddress address, Map<String, Object> context)
     {
         SocketChannel channel = null;
@@ -221,7 +320,10 @@ public class ClientConnector extends ContainerLifeCycle
             context.put(ClientConnector.CLIENT_CONNECTOR_CONTEXT_KEY, this);
             context.putIfAbsent(REMOTE_SOCKET_ADDRESS_CONTEXT_KEY, address);
 
-            channel = SocketChannel.open();
+            channel = selectorManager.getSelectorProvider().openSocketChannel();
+            HappyEyeballs.Attempt attempt = (HappyEyeballs.Attempt)context.get(CONNECTION_ATTEMPT_CONTEXT_KEY);
+            if (attempt != null)
+                attempt.register(channel);
             SocketAddress bindAddress = getBindAddress();
             if (bindAddress != null)
             {
@@ -249,9 +351,18 @@ public class ClientConnector extends ContainerLifeCycle
             }
 
             if (connected)
+            {
+                if (attempt != null && !attempt.win())
+                {
+                    IO.close(channel);
+                    return;
+                }
                 selectorManager.accept(channel, context);
+            }
             else
+            {
                 selectorManager.connect(channel, context);
+            }
         }
         // Must catch all exceptions, since some like
         // UnresolvedAddressException are not IOExceptions.
@@ -322,6 +433,19 @@ public class ClientConnector extends ContainerLifeCycle
             return endPoint;
         }
 
+        @Override
+        protected boolean doFinishConnect(SelectableChannel channel) throws IOException
+        {
+            boolean connected = super.doFinishConnect(channel);
+            if (connected)
+            {
+                HappyEyeballs.Attempt attempt = attempts.get(channel);
+                if (attempt != null && !attempt.win())
+                    throw new ConnectException("Superseded connection attempt to " + attempt.address);
+            }
+            return connected;
+        }
+
         @Override
         public Connection newConnection(SelectableChannel channel, EndPoint endPoint, Object attachment) throws IOException
         {
@@ -351,4 +475,161 @@ public class ClientConnector extends ContainerLifeCycle
             connectFailed(failure, context);
         }
     }
+
+    /**
+     * <p>Races the connection attempts to multiple addresses, see RFC 8305.</p>
+     */
+    private class HappyEyeballs
+    {
+        private final AutoLock lock = new AutoLock();
+        private final List<Attempt> pending = new ArrayList<>();
+        private final List<SocketAddress> addresses;
+        private final Map<String, Object> context;
+        private final Promise<Object> promise;
+        private final long delay;
+        private int index;
+        private Attempt winner;
+        private Scheduler.Task task;
+
+        @SuppressWarnings("unchecked")
+        private HappyEyeballs(List<SocketAddress> addresses, Map<String, Object> context, long delay)
+        {
+            this.addresses = addresses;
+            this.context = context;
+            this.promise = (Promise<Object>)context.get(CONNECTION_PROMISE_CONTEXT_KEY);
+            this.delay = delay;
+        }
+
+        private void next()
+        {
+            Attempt attempt;
+            try (AutoLock l = lock.lock())
+            {
+                if (winner != null || index == addresses.size())
+                    return;
+                if (task != null)
+                    task.cancel();
+                attempt = new Attempt(addresses.get(index++));
+                pending.add(attempt);
+                task = delay > 0 && index < addresses.size() ? getScheduler().schedule(this::next, delay, TimeUnit.MILLISECONDS) : null;
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Connection attempt {}/{} to {}", index, addresses.size(), attempt.address);
+            connect(attempt.address, attempt.newContext());
+        }
+
+        private boolean win(Attempt attempt)
+        {
+            List<Attempt> losers;
+            try (AutoLock l = lock.lock())
+            {
+                if (winner != null)
+                    return winner == attempt;
+                winner = attempt;
+                if (task != null)
+                    task.cancel();
+                losers = new ArrayList<>(pending);
+                losers.remove(attempt);
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Connection attempt to {} won over {}", attempt.address, losers);
+            losers.forEach(Attempt::close);
+            return true;
+        }
+
+        private void failed(Attempt attempt, Throwable failure)
+        {
+            boolean next;
+            try (AutoLock l = lock.lock())
+            {
+                if (winner != null && winner != attempt)
+                    return;
+                pending.remove(attempt);
+                next = winner == null && index < addresses.size();
+                if (winner == null && !next && !pending.isEmpty())
+                    return;
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Connection attempt to {} failed", attempt.address, failure);
+            if (next)
+                next();
+            else if (promise != null)
+                promise.failed(failure);
+        }
+
+        private class Attempt implements Promise<Object>
+        {
+            private final SocketAddress address;
+            private volatile SocketChannel channel;
+
+            private Attempt(SocketAddress address)
+            {
+                this.address = address;
+            }
+
+            private Map<String, Object> newContext()
+            {
+                Map<String, Object> result = context instanceof ConcurrentMap ? new ConcurrentHashMap<>(context) : new HashMap<>(context);
+                result.put(REMOTE_SOCKET_ADDRESS_CONTEXT_KEY, address);
+                result.put(CONNECTION_PROMISE_CONTEXT_KEY, this);
+                result.put(CONNECTION_ATTEMPT_CONTEXT_KEY, this);
+                return result;
+            }
+
+            private void register(SocketChannel channel)
+            {
+                this.channel = channel;
+                attempts.put(channel, this);
+            }
+
+            private boolean win()
+            {
+                SocketChannel channel = this.channel;
+                if (channel != null)
+                    attempts.remove(channel);
+                return HappyEyeballs.this.win(this);
+            }
+
+            private void close()
+            {
+                SocketChannel channel = this.channel;
+                if (channel != null)
+                {
+                    attempts.remove(channel);
+                    IO.close(channel);
+                }
+            }
+
+            @Override
+            public void succeeded(Object result)
+            {
+                // Connectors that do not use the selector to connect
+                // (e.g. Unix sockets) only notify the connection opened.
+                if (win())
+                {
+                    if (promise != null)
+                        promise.succeeded(result);
+                }
+                else if (result instanceof Closeable)
+                {
+                    IO.close((Closeable)result);
+                }
+            }
+
+            @Override
+            public void failed(Throwable x)
+            {
+                SocketChannel channel = this.channel;
+                if (channel != null)
+                    attempts.remove(channel);
+                HappyEyeballs.this.failed(this, x);
+            }
+
+            @Override
+            public String toString()
+            {
+                return String.valueOf(address);
+            }
+        }
+    }
 }
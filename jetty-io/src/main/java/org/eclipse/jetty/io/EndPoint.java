@@ -17,6 +17,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadPendingException;
 import java.nio.channels.WritePendingException;
 
@@ -250,6 +251,50 @@ public interface EndPoint extends Closeable
      */
     void write(Callback callback, ByteBuffer... buffers) throws WritePendingException;
 
+    /**
+     * @return whether this EndPoint supports {@link #transfer(Callback, FileChannel, long, long) file transfers}
+     */
+    default boolean isTransferSupported()
+    {
+        return false;
+    }
+
+    /**
+     * <p>Transfers bytes from a region of a file to this endpoint in a non blocking way,
+     * possibly without copying them through user space buffers.</p>
+     *
+     * @param file the file to transfer bytes from
+     * @param position the position in the file of the first byte to transfer
+     * @param count the max number of bytes to transfer
+     * @return the number of bytes transferred, possibly zero
+     * @throws IOException if the transfer fails
+     * @throws UnsupportedOperationException if {@link #isTransferSupported()} returns false
+     * @see #isTransferSupported()
+     */
+    default long transferFrom(FileChannel file, long position, long count) throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * <p>Transfers a region of a file via {@link #transferFrom(FileChannel, long, long)} and invokes
+     * callback methods when either the whole region has been transferred or an error occurs.</p>
+     * <p>This is the equivalent of {@link #write(Callback, ByteBuffer...)} for file content,
+     * and it is supported only if {@link #isTransferSupported()} returns true; otherwise the
+     * callback is failed with an {@link UnsupportedOperationException} and the endpoint
+     * remains writable.</p>
+     *
+     * @param callback the callback to call when an error occurs or the transfer completed
+     * @param file the file to transfer bytes from
+     * @param position the position in the file of the first byte to transfer
+     * @param count the number of bytes to transfer
+     * @throws WritePendingException if another write operation is concurrent.
+     */
+    default void transfer(Callback callback, FileChannel file, long position, long count) throws WritePendingException
+    {
+        callback.failed(new UnsupportedOperationException());
+    }
+
     /**
      * @return the {@link Connection} associated with this EndPoint
      * @see #setConnection(Connection)
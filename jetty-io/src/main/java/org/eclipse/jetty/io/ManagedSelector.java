@@ -24,10 +24,8 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -40,12 +38,13 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.MpscQueue;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
-import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
 import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ShardedThreadPool;
 import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,15 +74,19 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         }
     }
 
-    private final AutoLock _lock = new AutoLock();
     private final AtomicBoolean _started = new AtomicBoolean(false);
-    private boolean _selecting;
+    /**
+     * Whether the selector is, or is about to be, blocked in {@link Selector#select()}.
+     * Only the thread that flips it from true to false wakes up the selector, so
+     * that a single wakeup is issued for a batch of concurrently submitted updates.
+     */
+    private final AtomicBoolean _selecting = new AtomicBoolean();
+    private final MpscQueue<SelectorUpdate> _updates = new MpscQueue<>();
     private final SelectorManager _selectorManager;
     private final int _id;
     private final ExecutionStrategy _strategy;
+    private final Executor _shard;
     private Selector _selector;
-    private Deque<SelectorUpdate> _updates = new ArrayDeque<>();
-    private Deque<SelectorUpdate> _updateable = new ArrayDeque<>();
 
     public ManagedSelector(SelectorManager selectorManager, int id)
     {
@@ -91,6 +94,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         _id = id;
         SelectorProducer producer = new SelectorProducer();
         Executor executor = selectorManager.getExecutor();
+        if (executor instanceof ShardedThreadPool)
+        {
+            // This selector and its endpoints run on their own shard.
+            executor = ((ShardedThreadPool)executor).getShard(id);
+            _shard = executor;
+        }
+        else
+        {
+            _shard = null;
+        }
         _strategy = new EatWhatYouKill(producer, executor);
         addBean(_strategy, true);
     }
@@ -112,7 +125,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         // The normal strategy obtains the produced task, schedules
         // a new thread to produce more, runs the task and then exits.
-        _selectorManager.execute(_strategy::produce);
+        if (_shard != null)
+            _shard.execute(_strategy::produce);
+        else
+            _selectorManager.execute(_strategy::produce);
 
         // Set started only if we really are started
         Start start = new Start();
@@ -248,25 +264,20 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         if (LOG.isDebugEnabled())
             LOG.debug("Queued change lazy={} {} on {}", lazy, update, this);
 
-        Selector selector = null;
-        try (AutoLock l = _lock.lock())
-        {
-            _updates.offer(update);
+        _updates.offer(update);
 
-            if (_selecting && !lazy)
+        // Only the first submitter after the selector started selecting
+        // wakes it up, to avoid extra wakeups of the selector.
+        if (!lazy && _selecting.compareAndSet(true, false))
+        {
+            Selector selector = _selector;
+            if (selector != null)
             {
-                selector = _selector;
-                // To avoid the extra select wakeup.
-                _selecting = false;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Wakeup on submit {}", this);
+                selector.wakeup();
             }
         }
-
-        if (selector != null)
-        {
-            if (LOG.isDebugEnabled())
-                LOG.debug("Wakeup on submit {}", this);
-            selector.wakeup();
-        }
     }
 
     private void wakeup()
@@ -274,25 +285,22 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         if (LOG.isDebugEnabled())
             LOG.debug("Wakeup {}", this);
 
-        Selector selector = null;
-        try (AutoLock l = _lock.lock())
+        if (_selecting.compareAndSet(true, false))
         {
-            if (_selecting)
-            {
-                selector = _selector;
-                _selecting = false;
-            }
+            Selector selector = _selector;
+            if (selector != null)
+                selector.wakeup();
         }
-
-        if (selector != null)
-            selector.wakeup();
     }
 
     private void execute(Runnable task)
     {
         try
         {
-            _selectorManager.execute(task);
+            if (_shard != null)
+                _shard.execute(task);
+            else
+                _selectorManager.execute(task);
         }
         catch (RejectedExecutionException x)
         {
@@ -379,10 +387,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
     private int getActionSize()
     {
-        try (AutoLock l = _lock.lock())
-        {
-            return _updates.size();
-        }
+        return _updates.size();
     }
 
     static int safeReadyOps(SelectionKey selectionKey)
@@ -421,12 +426,9 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             DumpKeys dump = new DumpKeys();
             String updatesAt = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(ZonedDateTime.now());
-            try (AutoLock l = _lock.lock())
-            {
-                updates = new ArrayList<>(_updates);
-                _updates.addFirst(dump);
-                _selecting = false;
-            }
+            updates = new ArrayList<>(_updates);
+            _updates.offer(dump);
+            _selecting.set(false);
             if (LOG.isDebugEnabled())
                 LOG.debug("wakeup on dump {}", this);
             selector.wakeup();
@@ -511,50 +513,41 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         private void processUpdates()
         {
-            try (AutoLock l = _lock.lock())
-            {
-                Deque<SelectorUpdate> updates = _updates;
-                _updates = _updateable;
-                _updateable = updates;
-            }
-
+            // Only process the updates submitted so far, updates
+            // submitted by the updates are processed at the next loop.
+            int processed = _updates.drain(this::processUpdate);
             if (LOG.isDebugEnabled())
-                LOG.debug("updateable {}", _updateable.size());
+                LOG.debug("updated {}", processed);
 
-            for (SelectorUpdate update : _updateable)
+            // Publish that we are about to select, then check whether
+            // updates have been submitted in the meantime without a wakeup.
+            _selecting.set(true);
+            if (!_updates.isEmpty() && _selecting.compareAndSet(true, false))
             {
-                if (_selector == null)
-                    break;
-                try
+                Selector selector = _selector;
+                if (selector != null)
                 {
                     if (LOG.isDebugEnabled())
-                        LOG.debug("update {}", update);
-                    update.update(_selector);
-                }
-                catch (Throwable x)
-                {
-                    LOG.warn("Cannot update selector {}", ManagedSelector.this, x);
+                        LOG.debug("wakeup on updates {}", this);
+                    selector.wakeup();
                 }
             }
-            _updateable.clear();
+        }
 
-            Selector selector;
-            int updates;
-            try (AutoLock l = _lock.lock())
+        private void processUpdate(SelectorUpdate update)
+        {
+            Selector selector = _selector;
+            if (selector == null)
+                return;
+            try
             {
-                updates = _updates.size();
-                _selecting = updates == 0;
-                selector = _selecting ? null : _selector;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("update {}", update);
+                update.update(selector);
             }
-
-            if (LOG.isDebugEnabled())
-                LOG.debug("updates {}", updates);
-
-            if (selector != null)
+            catch (Throwable x)
             {
-                if (LOG.isDebugEnabled())
-                    LOG.debug("wakeup on updates {}", this);
-                selector.wakeup();
+                LOG.warn("Cannot update selector {}", ManagedSelector.this, x);
             }
         }
 
@@ -575,18 +568,13 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                         if (LOG.isDebugEnabled())
                             LOG.debug("Selector {} woken up from select, {}/{}/{} selected", selector, selected, selector.selectedKeys().size(), selector.keys().size());
 
-                        int updates;
-                        try (AutoLock l = _lock.lock())
-                        {
-                            // finished selecting
-                            _selecting = false;
-                            updates = _updates.size();
-                        }
+                        // finished selecting
+                        _selecting.set(false);
 
                         _keys = selector.selectedKeys();
                         _cursor = _keys.isEmpty() ? Collections.emptyIterator() : _keys.iterator();
                         if (LOG.isDebugEnabled())
-                            LOG.debug("Selector {} processing {} keys, {} updates", selector, _keys.size(), updates);
+                            LOG.debug("Selector {} processing {} keys, {} updates", selector, _keys.size(), _updates.size());
 
                         return true;
                     }
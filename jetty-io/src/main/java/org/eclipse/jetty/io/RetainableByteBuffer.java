@@ -15,6 +15,7 @@ package org.eclipse.jetty.io;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Retainable;
@@ -24,12 +25,15 @@ import org.eclipse.jetty.util.Retainable;
  * <p>Acquires a ByteBuffer from a {@link ByteBufferPool} and maintains a reference count that is
  * initially 1, incremented with {@link #retain()} and decremented with {@link #release()}. The buffer
  * is released to the pool when the reference count is decremented to 0.</p>
+ * <p>Instances created by a {@link RetainableByteBufferPool} are themselves pooled: their reference
+ * count is 0 while they are idle in the pool, it is set to 1 when they are acquired from the pool,
+ * and they are returned to the pool when the reference count is decremented back to 0.</p>
  */
 public class RetainableByteBuffer implements Retainable
 {
-    private final ByteBufferPool pool;
     private final ByteBuffer buffer;
     private final AtomicInteger references;
+    private final Consumer<RetainableByteBuffer> releaser;
 
     public RetainableByteBuffer(ByteBufferPool pool, int size)
     {
@@ -38,9 +42,23 @@ public class RetainableByteBuffer implements Retainable
 
     public RetainableByteBuffer(ByteBufferPool pool, int size, boolean direct)
     {
-        this.pool = pool;
         this.buffer = pool.acquire(size, direct);
         this.references = new AtomicInteger(1);
+        this.releaser = retainable -> pool.release(retainable.getBuffer());
+    }
+
+    /**
+     * <p>Creates a pooled instance, initially not acquired, that wraps the given buffer.</p>
+     *
+     * @param buffer the buffer to wrap
+     * @param releaser the function invoked when the reference count is decremented to 0
+     * @see #acquire()
+     */
+    protected RetainableByteBuffer(ByteBuffer buffer, Consumer<RetainableByteBuffer> releaser)
+    {
+        this.buffer = buffer;
+        this.references = new AtomicInteger();
+        this.releaser = releaser;
     }
 
     public ByteBuffer getBuffer()
@@ -53,6 +71,25 @@ public class RetainableByteBuffer implements Retainable
         return references.get();
     }
 
+    /**
+     * <p>Marks a pooled instance as acquired, setting its reference count to 1.</p>
+     *
+     * @throws IllegalStateException if this instance is already acquired
+     */
+    protected void acquire()
+    {
+        if (!references.compareAndSet(0, 1))
+            throw new IllegalStateException("re-pooled while still used " + this);
+    }
+
+    /**
+     * @return whether this buffer has been retained more than once, and is therefore shared
+     */
+    public boolean isRetained()
+    {
+        return references.get() > 1;
+    }
+
     @Override
     public void retain()
     {
@@ -70,7 +107,7 @@ public class RetainableByteBuffer implements Retainable
     {
         int ref = references.decrementAndGet();
         if (ref == 0)
-            pool.release(buffer);
+            releaser.accept(this);
         else if (ref < 0)
             throw new IllegalStateException("already released " + this);
         return ref;
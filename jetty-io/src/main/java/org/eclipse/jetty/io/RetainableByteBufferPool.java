@@ -0,0 +1,34 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+/**
+ * <p>A pool of {@link RetainableByteBuffer} instances.</p>
+ * <p>{@link RetainableByteBuffer} that are {@link #acquire(int, boolean) acquired}
+ * <b>must</b> be released by calling {@link RetainableByteBuffer#release()}
+ * otherwise the memory they hold will be leaked.</p>
+ */
+public interface RetainableByteBufferPool
+{
+    /**
+     * <p>Acquires a {@link RetainableByteBuffer} of at least the given size,
+     * with its reference count set to 1.</p>
+     * <p>The returned buffer is empty, in flush mode.</p>
+     *
+     * @param size the minimum size of the buffer
+     * @param direct whether the buffer must be direct or not
+     * @return a {@link RetainableByteBuffer} that must be released when no longer used
+     */
+    RetainableByteBuffer acquire(int size, boolean direct);
+}
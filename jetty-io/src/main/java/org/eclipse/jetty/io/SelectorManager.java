@@ -22,10 +22,12 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EventListener;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntUnaryOperator;
@@ -37,6 +39,7 @@ import org.eclipse.jetty.util.component.Container;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ShardedThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPoolBudget;
 import org.slf4j.Logger;
@@ -62,10 +65,14 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     private final IntUnaryOperator _selectorIndexUpdate;
     private final List<AcceptListener> _acceptListeners = new ArrayList<>();
     private long _connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private SelectorProvider _selectorProvider = SelectorProvider.provider();
     private ThreadPoolBudget.Lease _lease;
 
     private static int defaultSelectors(Executor executor)
     {
+        // One selector per shard, so that each shard runs the connections of one selector.
+        if (executor instanceof ShardedThreadPool)
+            return ((ShardedThreadPool)executor).getShards();
         if (executor instanceof ThreadPool.SizedThreadPool)
         {
             int threads = ((ThreadPool.SizedThreadPool)executor).getMaxThreads();
@@ -129,6 +136,33 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         _connectTimeout = milliseconds;
     }
 
+    /**
+     * @return the {@link SelectorProvider} used to open the {@link Selector}s and the channels
+     */
+    @ManagedAttribute("The NIO SelectorProvider")
+    public SelectorProvider getSelectorProvider()
+    {
+        return _selectorProvider;
+    }
+
+    /**
+     * <p>Sets the {@link SelectorProvider} used to open the {@link Selector}s and the channels.</p>
+     * <p>By default the JVM-wide {@link SelectorProvider#provider() provider} is used.
+     * An alternative provider may be configured to plug in a different I/O engine,
+     * for example one that batches readiness notifications and I/O operations.
+     * Channels may only be registered with {@link Selector}s of the same provider,
+     * so channels registered with this {@link SelectorManager} should be opened
+     * using the same provider.</p>
+     *
+     * @param selectorProvider the {@link SelectorProvider} to use
+     */
+    public void setSelectorProvider(SelectorProvider selectorProvider)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        _selectorProvider = Objects.requireNonNull(selectorProvider);
+    }
+
     /**
      * Executes the given task in a different thread.
      *
@@ -251,7 +285,7 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
 
     protected Selector newSelector() throws IOException
     {
-        return Selector.open();
+        return getSelectorProvider().openSelector();
     }
 
     @Override
@@ -0,0 +1,162 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ShardedThreadPool;
+
+/**
+ * <p>A {@link ByteBufferPool} partitioned in shards, each shard being a dedicated {@link ByteBufferPool}.</p>
+ * <p>Buffers are acquired from the shard with the same index as the
+ * {@link ShardedThreadPool#getCurrentShard() shard of the current thread}, so that when
+ * used together with a {@link ShardedThreadPool} the buffers of a connection are pooled by
+ * the same shard that runs its tasks.
+ * Threads that do not belong to a {@link ShardedThreadPool} use a shard chosen by thread id.</p>
+ * <p>Buffers are released to the shard they were acquired from, whatever the thread that
+ * releases them, so that they do not migrate between shards. The shard of a buffer is
+ * recorded in a fixed size table indexed by the buffer identity hash code, so that no
+ * allocation is needed; on the rare collisions, a buffer may be released to the shard of
+ * the releasing thread instead.</p>
+ */
+@ManagedObject
+public class ShardedByteBufferPool extends ContainerLifeCycle implements ByteBufferPool
+{
+    private static final int OWNERS = 1 << 14;
+
+    private final ByteBufferPool[] _shards;
+    // The index plus one of the shard each buffer was acquired from, or 0 if unknown.
+    private final AtomicIntegerArray _owners = new AtomicIntegerArray(OWNERS);
+
+    /**
+     * <p>Creates a pool with the given number of {@link ArrayByteBufferPool} shards.</p>
+     *
+     * @param shards the number of shards
+     */
+    public ShardedByteBufferPool(@Name("shards") int shards)
+    {
+        this(newArrayByteBufferPools(shards));
+    }
+
+    /**
+     * @param shards the shards
+     */
+    public ShardedByteBufferPool(@Name("shards") ByteBufferPool... shards)
+    {
+        if (shards.length == 0)
+            throw new IllegalArgumentException("No shards");
+        _shards = shards.clone();
+        for (ByteBufferPool shard : _shards)
+        {
+            addBean(shard);
+        }
+    }
+
+    private static ByteBufferPool[] newArrayByteBufferPools(int shards)
+    {
+        if (shards <= 0)
+            throw new IllegalArgumentException("Invalid shards " + shards);
+        ByteBufferPool[] pools = new ByteBufferPool[shards];
+        for (int i = 0; i < shards; ++i)
+        {
+            pools[i] = new ArrayByteBufferPool();
+        }
+        return pools;
+    }
+
+    /**
+     * @return the number of shards
+     */
+    @ManagedAttribute("The number of shards")
+    public int getShards()
+    {
+        return _shards.length;
+    }
+
+    /**
+     * @param index the shard index, modulo the number of shards
+     * @return the shard pool
+     */
+    public ByteBufferPool getShard(int index)
+    {
+        return _shards[Math.floorMod(index, _shards.length)];
+    }
+
+    private int currentShardIndex()
+    {
+        int index = ShardedThreadPool.getCurrentShard();
+        if (index < 0)
+            index = (int)Thread.currentThread().getId();
+        return Math.floorMod(index, _shards.length);
+    }
+
+    private ByteBufferPool currentShard()
+    {
+        return _shards[currentShardIndex()];
+    }
+
+    private static int ownerSlot(ByteBuffer buffer)
+    {
+        int hash = System.identityHashCode(buffer);
+        return (hash ^ (hash >>> 16)) & (OWNERS - 1);
+    }
+
+    private ByteBufferPool ownerShard(ByteBuffer buffer)
+    {
+        int owner = _owners.get(ownerSlot(buffer));
+        return owner > 0 && owner <= _shards.length ? _shards[owner - 1] : currentShard();
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        int index = currentShardIndex();
+        ByteBuffer buffer = _shards[index].acquire(size, direct);
+        _owners.lazySet(ownerSlot(buffer), index + 1);
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        ownerShard(buffer).release(buffer);
+    }
+
+    @Override
+    public void remove(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        ownerShard(buffer).remove(buffer);
+    }
+
+    @Override
+    public ByteBuffer newByteBuffer(int capacity, boolean direct)
+    {
+        return currentShard().newByteBuffer(capacity, direct);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{shards=%d}", getClass().getSimpleName(), hashCode(), _shards.length);
+    }
+}
@@ -19,6 +19,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
@@ -282,6 +283,35 @@ public class SocketChannelEndPoint extends AbstractEndPoint implements ManagedSe
         return true;
     }
 
+    @Override
+    public boolean isTransferSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public long transferFrom(FileChannel file, long position, long count) throws IOException
+    {
+        long transferred;
+        try
+        {
+            transferred = file.transferTo(position, count, _channel);
+            if (LOG.isDebugEnabled())
+                LOG.debug("transferred {} {}", transferred, this);
+        }
+        catch (IOException e)
+        {
+            throw new EofException(e);
+        }
+
+        if (transferred > 0)
+            notIdle();
+        else if (position >= file.size())
+            throw new EofException("File truncated at " + file.size());
+
+        return transferred;
+    }
+
     public SocketChannel getChannel()
     {
         return _channel;
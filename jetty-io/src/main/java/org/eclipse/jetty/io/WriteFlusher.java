@@ -16,6 +16,7 @@ package org.eclipse.jetty.io;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
 import java.util.Arrays;
 import java.util.EnumMap;
@@ -205,11 +206,23 @@ public abstract class WriteFlusher
     {
         private final Callback _callback;
         private final ByteBuffer[] _buffers;
+        private final Transfer _transfer;
 
         private PendingState(ByteBuffer[] buffers, Callback callback)
+        {
+            this(buffers, null, callback);
+        }
+
+        private PendingState(Transfer transfer, Callback callback)
+        {
+            this(null, transfer, callback);
+        }
+
+        private PendingState(ByteBuffer[] buffers, Transfer transfer, Callback callback)
         {
             super(StateType.PENDING);
             _buffers = buffers;
+            _transfer = transfer;
             _callback = callback;
         }
 
@@ -300,6 +313,72 @@ public abstract class WriteFlusher
         }
     }
 
+    /**
+     * <p>Tries to switch state to WRITING. If successful it transfers the given file region to the EndPoint
+     * via {@link EndPoint#transferFrom(FileChannel, long, long)}, with the same semantic of
+     * {@link #write(Callback, ByteBuffer...)}.</p>
+     *
+     * @param callback the callback to call on either failed or complete
+     * @param file the file to transfer bytes from
+     * @param position the position in the file of the first byte to transfer
+     * @param count the number of bytes to transfer
+     * @throws WritePendingException if unable to write due to prior pending write
+     */
+    public void transfer(Callback callback, FileChannel file, long position, long count) throws WritePendingException
+    {
+        Objects.requireNonNull(callback);
+
+        if (isFailed())
+        {
+            fail(callback);
+            return;
+        }
+
+        if (DEBUG)
+            LOG.debug("transfer: {} {}@{}", this, count, position);
+
+        // Fail without changing state, so that the content can still be written.
+        if (!_endPoint.isTransferSupported())
+        {
+            callback.failed(new UnsupportedOperationException("Transfer not supported by " + _endPoint));
+            return;
+        }
+
+        if (!updateState(__IDLE, __WRITING))
+            throw new WritePendingException();
+
+        try
+        {
+            Transfer transfer = new Transfer(file, position, count);
+            if (!flush(transfer))
+            {
+                if (DEBUG)
+                    LOG.debug("transferred incomplete");
+                PendingState pending = new PendingState(transfer, callback);
+                if (updateState(__WRITING, pending))
+                    onIncompleteFlush();
+                else
+                    fail(callback);
+
+                return;
+            }
+
+            if (updateState(__WRITING, __IDLE))
+                callback.succeeded();
+            else
+                fail(callback);
+        }
+        catch (Throwable e)
+        {
+            if (DEBUG)
+                LOG.debug("transfer exception", e);
+            if (updateState(__WRITING, new FailedState(e)))
+                callback.failed(e);
+            else
+                fail(callback, e);
+        }
+    }
+
     private void fail(Callback callback, Throwable... suppressed)
     {
         Throwable cause;
@@ -368,6 +447,27 @@ public abstract class WriteFlusher
         Callback callback = pending._callback;
         try
         {
+            Transfer transfer = pending._transfer;
+            if (transfer != null)
+            {
+                if (!flush(transfer))
+                {
+                    if (DEBUG)
+                        LOG.debug("transferred incomplete {}", transfer);
+                    if (updateState(__COMPLETING, pending))
+                        onIncompleteFlush();
+                    else
+                        fail(callback);
+                    return;
+                }
+
+                if (updateState(__COMPLETING, __IDLE))
+                    callback.succeeded();
+                else
+                    fail(callback);
+                return;
+            }
+
             ByteBuffer[] buffers = pending.getBuffers();
 
             buffers = flush(buffers);
@@ -465,6 +565,35 @@ public abstract class WriteFlusher
         return buffers == null ? EMPTY_BUFFERS : buffers;
     }
 
+    /**
+     * Transfers the file region iteratively until no progress is made.
+     *
+     * @param transfer the file region to transfer
+     * @return whether the whole file region has been transferred
+     * @throws IOException if unable to transfer
+     */
+    private boolean flush(Transfer transfer) throws IOException
+    {
+        while (transfer._count > 0)
+        {
+            long transferred = _endPoint.transferFrom(transfer._file, transfer._position, transfer._count);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Transferred={} remaining={} {}", transferred, transfer._count - transferred, this);
+
+            if (transferred <= 0)
+                return false;
+
+            transfer._position += transferred;
+            transfer._count -= transferred;
+
+            Connection connection = _endPoint.getConnection();
+            if (connection instanceof Listener)
+                ((Listener)connection).onFlushed(transferred);
+        }
+        return true;
+    }
+
     /**
      * Notify the flusher of a failure
      *
@@ -573,6 +702,29 @@ public abstract class WriteFlusher
         return String.format("WriteFlusher@%x{%s}->%s", hashCode(), s, s instanceof PendingState ? ((PendingState)s)._callback : null);
     }
 
+    /**
+     * The region of a file that is being transferred.
+     */
+    private static class Transfer
+    {
+        private final FileChannel _file;
+        private long _position;
+        private long _count;
+
+        private Transfer(FileChannel file, long position, long count)
+        {
+            _file = file;
+            _position = position;
+            _count = count;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%d@%d}", getClass().getSimpleName(), hashCode(), _count, _position);
+        }
+    }
+
     /**
      * <p>A listener of {@link WriteFlusher} events.
      * If implemented by a Connection class, the {@link #onFlushed(long)} event will be delivered to it.</p>
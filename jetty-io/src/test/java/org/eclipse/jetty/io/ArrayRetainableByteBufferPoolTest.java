@@ -0,0 +1,163 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArrayRetainableByteBufferPoolTest
+{
+    @Test
+    public void testAcquireRelease()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 100, 20);
+
+        for (int size = 1; size <= 100; size++)
+        {
+            RetainableByteBuffer buffer = pool.acquire(size, true);
+            assertTrue(buffer.getBuffer().isDirect());
+            assertThat(buffer.getBuffer().capacity(), greaterThanOrEqualTo(size));
+            assertThat(buffer.getBuffer().capacity(), lessThanOrEqualTo(size + 9));
+            assertTrue(buffer.isEmpty());
+            assertEquals(1, buffer.getReferences());
+            assertEquals(0, buffer.release());
+        }
+
+        assertEquals(10, pool.getDirectByteBufferCount());
+        assertEquals(0, pool.getDirectInUseCount());
+        assertEquals(0, pool.getHeapByteBufferCount());
+        assertEquals(10, pool.getMisses());
+        assertEquals(90, pool.getHits());
+        assertEquals(550, pool.getDirectMemory());
+    }
+
+    @Test
+    public void testReuse()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool();
+
+        RetainableByteBuffer buffer1 = pool.acquire(10, false);
+        buffer1.getBuffer().limit(1);
+        buffer1.getBuffer().put(0, (byte)'x');
+        buffer1.release();
+
+        RetainableByteBuffer buffer2 = pool.acquire(10, false);
+        assertSame(buffer1, buffer2);
+        assertTrue(buffer2.isEmpty());
+        assertEquals(1, pool.getHeapInUseCount());
+        buffer2.release();
+        assertEquals(0, pool.getHeapInUseCount());
+    }
+
+    @Test
+    public void testRetain()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool();
+
+        RetainableByteBuffer buffer = pool.acquire(10, true);
+        buffer.retain();
+        assertTrue(buffer.isRetained());
+        assertEquals(1, buffer.release());
+        assertEquals(1, pool.getDirectInUseCount());
+        assertFalse(buffer.isRetained());
+        assertEquals(0, buffer.release());
+        assertEquals(0, pool.getDirectInUseCount());
+        assertThrows(IllegalStateException.class, buffer::retain);
+    }
+
+    @Test
+    public void testTooLargeBufferIsNotPooled()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 100, 20);
+
+        RetainableByteBuffer buffer = pool.acquire(101, true);
+        assertEquals(101, buffer.getBuffer().capacity());
+        buffer.release();
+
+        assertEquals(0, pool.getDirectByteBufferCount());
+        assertEquals(0, pool.getDirectMemory());
+    }
+
+    @Test
+    public void testMaxBucketSize()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 100, 2);
+
+        List<RetainableByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            buffers.add(pool.acquire(10, true));
+        }
+        buffers.forEach(RetainableByteBuffer::release);
+
+        assertEquals(2, pool.getDirectByteBufferCount());
+        assertEquals(20, pool.getDirectMemory());
+        assertEquals(5, pool.getMisses());
+    }
+
+    @Test
+    public void testMaxMemoryEvictsIdleBuffers()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 100, 20, -1, 50);
+
+        List<RetainableByteBuffer> buffers = new ArrayList<>();
+        for (int i = 1; i <= 3; i++)
+        {
+            buffers.add(pool.acquire(i * 10, true));
+        }
+        // Buffers in use cannot be evicted.
+        assertEquals(60, pool.getDirectMemory());
+        assertEquals(0, pool.getEvictions());
+        buffers.forEach(RetainableByteBuffer::release);
+
+        // The next allocation evicts idle buffers, largest first.
+        RetainableByteBuffer buffer = pool.acquire(40, true);
+        assertEquals(50, pool.getDirectMemory());
+        assertEquals(2, pool.getEvictions());
+        assertEquals(2, pool.getDirectByteBufferCount());
+        buffer.release();
+    }
+
+    @Test
+    public void testClear()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool();
+
+        RetainableByteBuffer buffer1 = pool.acquire(10, true);
+        RetainableByteBuffer buffer2 = pool.acquire(10, false);
+        buffer1.release();
+
+        pool.clear();
+
+        assertEquals(0, pool.getDirectByteBufferCount());
+        assertEquals(0, pool.getDirectMemory());
+        assertEquals(1, pool.getHeapByteBufferCount());
+
+        buffer2.release();
+        pool.clear();
+        assertEquals(0, pool.getHeapByteBufferCount());
+        assertEquals(0, pool.getHeapMemory());
+    }
+}
@@ -0,0 +1,172 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.Promise;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ClientConnectorTest
+{
+    private final List<ServerSocketChannel> servers = new ArrayList<>();
+    private ClientConnector connector;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        connector = new ClientConnector();
+        connector.setConnectionAttemptDelay(Duration.ofMillis(100));
+        connector.start();
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        connector.stop();
+        for (ServerSocketChannel server : servers)
+        {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testInterleaveAddressFamilies() throws Exception
+    {
+        InetSocketAddress ipv4a = new InetSocketAddress(InetAddress.getByName("10.0.0.1"), 80);
+        InetSocketAddress ipv4b = new InetSocketAddress(InetAddress.getByName("10.0.0.2"), 80);
+        InetSocketAddress ipv4c = new InetSocketAddress(InetAddress.getByName("10.0.0.3"), 80);
+        InetSocketAddress ipv6a = new InetSocketAddress(InetAddress.getByName("::1"), 80);
+        InetSocketAddress ipv6b = new InetSocketAddress(InetAddress.getByName("::2"), 80);
+
+        assertEquals(List.of(ipv6a, ipv4a, ipv6b, ipv4b, ipv4c), ClientConnector.interleave(List.of(ipv6a, ipv6b, ipv4a, ipv4b, ipv4c)));
+        assertEquals(List.of(ipv4a, ipv6a, ipv4b, ipv6b, ipv4c), ClientConnector.interleave(List.of(ipv4a, ipv4b, ipv4c, ipv6a, ipv6b)));
+    }
+
+    @Test
+    public void testConnectFallsBackToNextAddress() throws Exception
+    {
+        InetSocketAddress refused = closedAddress();
+        InetSocketAddress address = listen();
+
+        CompletableFuture<Connection> promise = new CompletableFuture<>();
+        connector.connect(List.of(refused, address), newContext(promise));
+
+        Connection connection = promise.get(5, TimeUnit.SECONDS);
+        assertEquals(address, connection.getEndPoint().getRemoteAddress());
+        connection.close();
+    }
+
+    @Test
+    public void testConnectSequentialWithoutAttemptDelay() throws Exception
+    {
+        connector.setConnectionAttemptDelay(Duration.ZERO);
+        InetSocketAddress refused = closedAddress();
+        InetSocketAddress address = listen();
+
+        CompletableFuture<Connection> promise = new CompletableFuture<>();
+        connector.connect(List.of(refused, refused, address), newContext(promise));
+
+        Connection connection = promise.get(5, TimeUnit.SECONDS);
+        assertEquals(address, connection.getEndPoint().getRemoteAddress());
+        connection.close();
+    }
+
+    @Test
+    public void testConnectFailsWhenAllAddressesFail() throws Exception
+    {
+        InetSocketAddress refused1 = closedAddress();
+        InetSocketAddress refused2 = closedAddress();
+
+        CompletableFuture<Connection> promise = new CompletableFuture<>();
+        connector.connect(List.of(refused1, refused2), newContext(promise));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> promise.get(5, TimeUnit.SECONDS));
+        assertThat(failure.getCause(), instanceOf(ConnectException.class));
+    }
+
+    @Test
+    public void testFirstConnectionWins() throws Exception
+    {
+        InetSocketAddress address1 = listen();
+        InetSocketAddress address2 = listen();
+
+        CompletableFuture<Connection> promise = new CompletableFuture<>();
+        connector.connect(List.of(address1, address2), newContext(promise));
+
+        // The first attempt completes before the attempt delay,
+        // so the second address is never tried.
+        Connection connection = promise.get(5, TimeUnit.SECONDS);
+        assertEquals(address1, connection.getEndPoint().getRemoteAddress());
+        Thread.sleep(2 * connector.getConnectionAttemptDelay().toMillis());
+        try (SocketChannel accepted = servers.get(1).accept())
+        {
+            assertNull(accepted);
+        }
+        connection.close();
+    }
+
+    private InetSocketAddress listen() throws Exception
+    {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        server.configureBlocking(false);
+        servers.add(server);
+        return (InetSocketAddress)server.getLocalAddress();
+    }
+
+    private InetSocketAddress closedAddress() throws Exception
+    {
+        try (ServerSocketChannel server = ServerSocketChannel.open())
+        {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            return (InetSocketAddress)server.getLocalAddress();
+        }
+    }
+
+    private Map<String, Object> newContext(CompletableFuture<Connection> promise)
+    {
+        Map<String, Object> context = new HashMap<>();
+        context.put(ClientConnector.CLIENT_CONNECTION_FACTORY_CONTEXT_KEY, (ClientConnectionFactory)(endPoint, ctx) -> new AbstractConnection(endPoint, connector.getExecutor())
+        {
+            @Override
+            public void onFillable()
+            {
+            }
+        });
+        context.put(ClientConnector.CONNECTION_PROMISE_CONTEXT_KEY, Promise.from(promise));
+        return context;
+    }
+}
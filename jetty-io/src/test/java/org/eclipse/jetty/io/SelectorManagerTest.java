@@ -15,13 +15,19 @@ package org.eclipse.jetty.io;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
 import java.net.SocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.AbstractSelector;
+import java.nio.channels.spi.SelectorProvider;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.util.Callback;
@@ -32,7 +38,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SelectorManagerTest
@@ -158,4 +167,83 @@ public class SelectorManagerTest
             selectorManager.stop();
         }
     }
+
+    @Test
+    public void testCustomSelectorProvider() throws Exception
+    {
+        AtomicInteger selectors = new AtomicInteger();
+        SelectorProvider defaultProvider = SelectorProvider.provider();
+        SelectorProvider provider = new SelectorProvider()
+        {
+            @Override
+            public DatagramChannel openDatagramChannel() throws IOException
+            {
+                return defaultProvider.openDatagramChannel();
+            }
+
+            @Override
+            public DatagramChannel openDatagramChannel(ProtocolFamily family) throws IOException
+            {
+                return defaultProvider.openDatagramChannel(family);
+            }
+
+            @Override
+            public Pipe openPipe() throws IOException
+            {
+                return defaultProvider.openPipe();
+            }
+
+            @Override
+            public AbstractSelector openSelector() throws IOException
+            {
+                selectors.incrementAndGet();
+                return defaultProvider.openSelector();
+            }
+
+            @Override
+            public ServerSocketChannel openServerSocketChannel() throws IOException
+            {
+                return defaultProvider.openServerSocketChannel();
+            }
+
+            @Override
+            public SocketChannel openSocketChannel() throws IOException
+            {
+                return defaultProvider.openSocketChannel();
+            }
+        };
+
+        SelectorManager selectorManager = new SelectorManager(executor, scheduler, 2)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                return new SocketChannelEndPoint((SocketChannel)channel, selector, key, getScheduler());
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                return new AbstractConnection(endpoint, executor)
+                {
+                    @Override
+                    public void onFillable()
+                    {
+                    }
+                };
+            }
+        };
+        selectorManager.setSelectorProvider(provider);
+        selectorManager.start();
+        try
+        {
+            assertSame(provider, selectorManager.getSelectorProvider());
+            assertEquals(2, selectors.get());
+            assertThrows(IllegalStateException.class, () -> selectorManager.setSelectorProvider(defaultProvider));
+        }
+        finally
+        {
+            selectorManager.stop();
+        }
+    }
 }
@@ -0,0 +1,189 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.thread.ShardedThreadPool;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedByteBufferPoolTest
+{
+    @Test
+    public void testBuffersArePooledByShardOfCurrentThread() throws Exception
+    {
+        ShardedThreadPool threadPool = new ShardedThreadPool(2, 4);
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(2);
+        threadPool.start();
+        bufferPool.start();
+        try
+        {
+            AtomicReference<ByteBuffer> buffer = new AtomicReference<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            threadPool.getShard(1).execute(() ->
+            {
+                ByteBuffer b = bufferPool.acquire(1024, true);
+                bufferPool.release(b);
+                buffer.set(b);
+                latch.countDown();
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            ArrayByteBufferPool shard0 = (ArrayByteBufferPool)bufferPool.getShard(0);
+            ArrayByteBufferPool shard1 = (ArrayByteBufferPool)bufferPool.getShard(1);
+            assertEquals(0, shard0.getDirectByteBufferCount());
+            assertEquals(1, shard1.getDirectByteBufferCount());
+            assertSame(buffer.get(), shard1.acquire(1024, true));
+        }
+        finally
+        {
+            bufferPool.stop();
+            threadPool.stop();
+        }
+    }
+
+    @Test
+    public void testBuffersAreReleasedToTheShardThatAcquiredThem() throws Exception
+    {
+        ShardedThreadPool threadPool = new ShardedThreadPool(2, 4);
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(2);
+        threadPool.start();
+        bufferPool.start();
+        try
+        {
+            AtomicReference<ByteBuffer> buffer = new AtomicReference<>();
+            CountDownLatch acquired = new CountDownLatch(1);
+            threadPool.getShard(0).execute(() ->
+            {
+                buffer.set(bufferPool.acquire(1024, true));
+                acquired.countDown();
+            });
+            assertTrue(acquired.await(5, TimeUnit.SECONDS));
+
+            CountDownLatch released = new CountDownLatch(1);
+            threadPool.getShard(1).execute(() ->
+            {
+                bufferPool.release(buffer.get());
+                released.countDown();
+            });
+            assertTrue(released.await(5, TimeUnit.SECONDS));
+
+            ArrayByteBufferPool shard0 = (ArrayByteBufferPool)bufferPool.getShard(0);
+            ArrayByteBufferPool shard1 = (ArrayByteBufferPool)bufferPool.getShard(1);
+            assertEquals(1, shard0.getDirectByteBufferCount());
+            assertEquals(0, shard1.getDirectByteBufferCount());
+
+            // Released by a thread that does not belong to a shard.
+            CountDownLatch acquiredByShard1 = new CountDownLatch(1);
+            threadPool.getShard(1).execute(() ->
+            {
+                buffer.set(bufferPool.acquire(1024, true));
+                acquiredByShard1.countDown();
+            });
+            assertTrue(acquiredByShard1.await(5, TimeUnit.SECONDS));
+            bufferPool.release(buffer.get());
+            assertEquals(1, shard0.getDirectByteBufferCount());
+            assertEquals(1, shard1.getDirectByteBufferCount());
+        }
+        finally
+        {
+            bufferPool.stop();
+            threadPool.stop();
+        }
+    }
+
+    @Test
+    public void testDefaultSelectorsFromShards() throws Exception
+    {
+        ShardedThreadPool threadPool = new ShardedThreadPool(3, 4);
+        SelectorManager selectorManager = new SelectorManager(threadPool, new TimerScheduler())
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey selectionKey)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        assertEquals(3, selectorManager.getSelectorCount());
+    }
+
+    @Test
+    public void testSelectorsRunOnTheirShard() throws Exception
+    {
+        ShardedThreadPool threadPool = new ShardedThreadPool(2, 4);
+        TimerScheduler scheduler = new TimerScheduler();
+        SelectorManager selectorManager = new SelectorManager(threadPool, scheduler, 2)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey selectionKey)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        threadPool.start();
+        scheduler.start();
+        selectorManager.start();
+        try
+        {
+            List<ManagedSelector> selectors = new ArrayList<>(selectorManager.getBeans(ManagedSelector.class));
+            assertEquals(2, selectors.size());
+            AtomicInteger mismatches = new AtomicInteger();
+            CountDownLatch latch = new CountDownLatch(selectors.size());
+            for (int i = 0; i < selectors.size(); ++i)
+            {
+                // ManagedSelector i is serviced by shard i.
+                int shard = i;
+                selectors.get(i).submit(s ->
+                {
+                    if (ShardedThreadPool.getCurrentShard() != shard)
+                        mismatches.incrementAndGet();
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, mismatches.get());
+        }
+        finally
+        {
+            selectorManager.stop();
+            scheduler.stop();
+            threadPool.stop();
+        }
+    }
+}
@@ -16,7 +16,11 @@ package org.eclipse.jetty.io;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
@@ -83,6 +87,131 @@ public class WriteFlusherTest
         assertTrue(flusher.isIdle());
     }
 
+    @Test
+    public void testTransfer() throws Exception
+    {
+        Path path = Files.createTempFile("transfer", ".txt");
+        try
+        {
+            Files.write(path, "How now brown cow!".getBytes());
+            AtomicBoolean congested = new AtomicBoolean();
+            ByteArrayEndPoint endPoint = new ByteArrayEndPoint(new byte[0], 16)
+            {
+                @Override
+                public boolean isTransferSupported()
+                {
+                    return true;
+                }
+
+                @Override
+                public long transferFrom(FileChannel file, long position, long count) throws IOException
+                {
+                    if (congested.get())
+                        return 0;
+                    // Transfer at most 4 bytes at a time.
+                    ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(4, count));
+                    int read = file.read(buffer, position);
+                    buffer.flip();
+                    flush(buffer);
+                    // Simulate TCP congestion after each chunk.
+                    congested.set(true);
+                    return read;
+                }
+            };
+            endPoint.setGrowOutput(true);
+
+            AtomicBoolean incompleteFlush = new AtomicBoolean();
+            WriteFlusher flusher = new WriteFlusher(endPoint)
+            {
+                @Override
+                protected void onIncompleteFlush()
+                {
+                    incompleteFlush.set(true);
+                }
+            };
+
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                FutureCallback callback = new FutureCallback();
+                flusher.transfer(callback, file, 4, file.size() - 4);
+                assertFalse(callback.isDone());
+                assertTrue(incompleteFlush.get());
+                assertTrue(flusher.isPending());
+                assertEquals("now ", endPoint.takeOutputString());
+
+                while (!callback.isDone())
+                {
+                    congested.set(false);
+                    flusher.completeWrite();
+                }
+                assertTrue(flusher.isIdle());
+                assertEquals("brown cow!", endPoint.takeOutputString());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testTransferFailure() throws Exception
+    {
+        ByteArrayEndPoint endPoint = new ByteArrayEndPoint(new byte[0], 16)
+        {
+            @Override
+            public boolean isTransferSupported()
+            {
+                return true;
+            }
+
+            @Override
+            public long transferFrom(FileChannel file, long position, long count) throws IOException
+            {
+                throw new EofException("test");
+            }
+        };
+        WriteFlusher flusher = new WriteFlusher(endPoint)
+        {
+            @Override
+            protected void onIncompleteFlush()
+            {
+            }
+        };
+
+        FutureCallback callback = new FutureCallback();
+        flusher.transfer(callback, null, 0, 1);
+        ExecutionException e = assertThrows(ExecutionException.class, callback::get);
+        assertThat(e.getCause(), instanceOf(EofException.class));
+        assertTrue(flusher.isFailed());
+    }
+
+    @Test
+    public void testTransferNotSupported() throws Exception
+    {
+        ByteArrayEndPoint endPoint = new ByteArrayEndPoint(new byte[0], 16);
+        endPoint.setGrowOutput(true);
+        WriteFlusher flusher = new WriteFlusher(endPoint)
+        {
+            @Override
+            protected void onIncompleteFlush()
+            {
+            }
+        };
+
+        FutureCallback transfer = new FutureCallback();
+        flusher.transfer(transfer, null, 0, 1);
+        ExecutionException e = assertThrows(ExecutionException.class, transfer::get);
+        assertThat(e.getCause(), instanceOf(UnsupportedOperationException.class));
+
+        // The content can still be written.
+        assertTrue(flusher.isIdle());
+        FutureCallback write = new FutureCallback();
+        flusher.write(write, BufferUtil.toBuffer("How now brown cow!"));
+        write.get();
+        assertEquals("How now brown cow!", endPoint.takeOutputString());
+    }
+
     @Test
     public void testClosedNoBlocking() throws Exception
     {
@@ -16,14 +16,19 @@ package org.eclipse.jetty.nosql.mongodb;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.BulkWriteResult;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -461,9 +466,88 @@ public class MongoSessionDataStore extends NoSqlSessionDataStore
         // Form query for upsert
         final BasicDBObject key = new BasicDBObject(__ID, id);
 
+        DBObject current = null;
+        if (lastSaveTime > 0)
+        {
+            BasicDBObject fields = new BasicDBObject();
+            fields.append(__MAX_IDLE, true);
+            fields.append(__EXPIRY, true);
+            current = _dbSessions.findOne(new BasicDBObject("id", id), fields);
+        }
+
+        BasicDBObject update = newUpdate(id, data, lastSaveTime, current);
+
+        // Do the upsert
+        WriteResult res = _dbSessions.update(key, update, lastSaveTime <= 0, false, WriteConcern.SAFE);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Save:db.sessions.update( {}, {},{} )", key, update, res);
+    }
+
+    @Override
+    public void doStoreAll(Map<String, SessionData> sessions, Map<String, Long> lastSaveTimes) throws Exception
+    {
+        //fetch the max idle and expiry of all the sessions to update in a single query
+        List<String> updated = new ArrayList<>();
+        for (String id : sessions.keySet())
+        {
+            if (lastSaveTimes.get(id) > 0)
+                updated.add(id);
+        }
+
+        Map<String, DBObject> currents = new HashMap<>();
+        if (!updated.isEmpty())
+        {
+            BasicDBObject fields = new BasicDBObject(__ID, true);
+            fields.append(__MAX_IDLE, true);
+            fields.append(__EXPIRY, true);
+            DBCursor cursor = null;
+            try
+            {
+                cursor = _dbSessions.find(new BasicDBObject(__ID, new BasicDBObject("$in", updated)), fields);
+                for (DBObject o : cursor)
+                {
+                    currents.put((String)o.get(__ID), o);
+                }
+            }
+            finally
+            {
+                if (cursor != null)
+                    cursor.close();
+            }
+        }
+
+        BulkWriteOperation bulk = _dbSessions.initializeUnorderedBulkOperation();
+        for (Map.Entry<String, SessionData> entry : sessions.entrySet())
+        {
+            String id = entry.getKey();
+            long lastSaveTime = lastSaveTimes.get(id);
+            BasicDBObject update = newUpdate(id, entry.getValue(), lastSaveTime, currents.get(id));
+            BulkWriteRequestBuilder request = bulk.find(new BasicDBObject(__ID, id));
+            if (lastSaveTime <= 0)
+                request.upsert().updateOne(update);
+            else
+                request.updateOne(update);
+        }
+
+        BulkWriteResult res = bulk.execute(WriteConcern.SAFE);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Save:db.sessions bulk update of {} sessions {}", sessions.size(), res);
+    }
+
+    /**
+     * Form the update of the session document.
+     *
+     * @param id the session id
+     * @param data the session data
+     * @param lastSaveTime the time the session was last saved, or 0 if never saved
+     * @param current the max idle and expiry fields of the session document if it is being updated
+     * @return the update of the session document
+     * @throws Exception if the session attributes cannot be serialized
+     */
+    private BasicDBObject newUpdate(String id, SessionData data, long lastSaveTime, DBObject current) throws Exception
+    {
         // Form updates
         BasicDBObject update = new BasicDBObject();
-        boolean upsert = false;
         BasicDBObject sets = new BasicDBObject();
 
         Object version = ((NoSqlSessionData)data).getVersion();
@@ -471,7 +555,6 @@ public class MongoSessionDataStore extends NoSqlSessionDataStore
         // New session
         if (lastSaveTime <= 0)
         {
-            upsert = true;
             version = 1L;
             sets.put(__CREATED, data.getCreated());
             sets.put(__VALID, true);
@@ -490,15 +573,11 @@ public class MongoSessionDataStore extends NoSqlSessionDataStore
             ((NoSqlSessionData)data).setVersion(version);
             update.put("$inc", _version1);
             //if max idle time and/or expiry is smaller for this context, then choose that for the whole session doc
-            BasicDBObject fields = new BasicDBObject();
-            fields.append(__MAX_IDLE, true);
-            fields.append(__EXPIRY, true);
-            DBObject o = _dbSessions.findOne(new BasicDBObject("id", id), fields);
-            if (o != null)
+            if (current != null)
             {
-                Long tmpLong = (Long)o.get(__MAX_IDLE);
+                Long tmpLong = (Long)current.get(__MAX_IDLE);
                 long currentMaxIdle = (tmpLong == null ? 0 : tmpLong.longValue());
-                tmpLong = (Long)o.get(__EXPIRY);
+                tmpLong = (Long)current.get(__EXPIRY);
                 long currentExpiry = (tmpLong == null ? 0 : tmpLong.longValue());
 
                 if (currentMaxIdle != data.getMaxInactiveMs())
@@ -521,13 +600,9 @@ public class MongoSessionDataStore extends NoSqlSessionDataStore
             sets.put(getContextSubfield(__ATTRIBUTES), baos.toByteArray());
         }
 
-        // Do the upsert
         if (!sets.isEmpty())
             update.put("$set", sets);
-
-        WriteResult res = _dbSessions.update(key, update, upsert, false, WriteConcern.SAFE);
-        if (LOG.isDebugEnabled())
-            LOG.debug("Save:db.sessions.update( {}, {},{} )", key, update, res);
+        return update;
     }
 
     protected void ensureIndexes() throws MongoException
@@ -26,3 +26,6 @@ etc/jetty-threadpool.xml
 
 ## Whether to Output a Detailed Dump
 #jetty.threadPool.detailedDump=false
+
+## Whether to run blocking tasks in virtual threads (requires a JDK supporting virtual threads)
+#jetty.threadPool.useVirtualThreads=false
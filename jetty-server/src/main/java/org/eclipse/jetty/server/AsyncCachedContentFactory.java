@@ -0,0 +1,710 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.MimeTypes.Type;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.FrequencySketch;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A {@link HttpContent.ContentFactory} that caches the content of resources in direct
+ * {@link ByteBuffer}s that are shared by all the requests for the same resource.</p>
+ * <p>Unlike {@link CachedContentFactory}, a cache miss never reads the resource in the
+ * request thread: the request is served from the resource itself, while the resource is
+ * loaded into the cache by a task submitted to an {@link Executor}.
+ * Concurrent misses for the same resource submit only one loading task.</p>
+ * <p>The cache is bounded by {@link #getMaxCacheSize() size} and by
+ * {@link #getMaxCachedFiles() number of files}, and its eviction policy is W-TinyLFU:
+ * new entries enter a small LRU window, then move to a segmented LRU main space,
+ * where they must be estimated by a {@link FrequencySketch} to be more popular than
+ * the entry they would evict.
+ * Both admission and eviction are O(1) operations, regardless of the number of cached entries.</p>
+ * <p>The cached content is checked on every access for modifications of the
+ * last modified time or length of the resource.</p>
+ */
+@ManagedObject("Asynchronous off-heap content cache")
+public class AsyncCachedContentFactory implements HttpContent.ContentFactory
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncCachedContentFactory.class);
+
+    private final ConcurrentMap<String, Node> _cache = new ConcurrentHashMap<>();
+    private final Set<String> _loading = ConcurrentHashMap.newKeySet();
+    private final AutoLock _lock = new AutoLock();
+    private final LinkedQueue _window = new LinkedQueue();
+    private final LinkedQueue _probation = new LinkedQueue();
+    private final LinkedQueue _protected = new LinkedQueue();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _loads = new LongAdder();
+    private final LongAdder _rejections = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final ResourceContentFactory _contentFactory;
+    private final Executor _executor;
+    private final boolean _etags;
+    private volatile FrequencySketch _sketch;
+    private volatile long _maxCacheSize = 256 * 1024 * 1024;
+    private volatile int _maxCachedFiles = 2048;
+    private volatile int _maxCachedFileSize = 128 * 1024 * 1024;
+    private volatile int _windowPercent = 1;
+    private long _cachedSize;
+    private int _cachedFiles;
+
+    /**
+     * @param factory the resource factory
+     * @param mimeTypes the mime types to use for the content type
+     * @param etags true to support etags
+     * @param precompressedFormats array of precompression formats to support
+     * @param executor the executor used to load resources into the cache
+     */
+    public AsyncCachedContentFactory(ResourceFactory factory, MimeTypes mimeTypes, boolean etags, CompressedContentFormat[] precompressedFormats, Executor executor)
+    {
+        _contentFactory = new ResourceContentFactory(factory, mimeTypes, precompressedFormats);
+        _executor = Objects.requireNonNull(executor);
+        _etags = etags;
+        _sketch = new FrequencySketch(_maxCachedFiles);
+    }
+
+    @ManagedAttribute("The max size in bytes of the cache")
+    public long getMaxCacheSize()
+    {
+        return _maxCacheSize;
+    }
+
+    public void setMaxCacheSize(long maxCacheSize)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _maxCacheSize = maxCacheSize;
+            evict();
+        }
+    }
+
+    @ManagedAttribute("The max number of cached files")
+    public int getMaxCachedFiles()
+    {
+        return _maxCachedFiles;
+    }
+
+    public void setMaxCachedFiles(int maxCachedFiles)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _maxCachedFiles = maxCachedFiles;
+            _sketch = new FrequencySketch(maxCachedFiles);
+            evict();
+        }
+    }
+
+    @ManagedAttribute("The max size in bytes of a cached file")
+    public int getMaxCachedFileSize()
+    {
+        return _maxCachedFileSize;
+    }
+
+    public void setMaxCachedFileSize(int maxCachedFileSize)
+    {
+        _maxCachedFileSize = maxCachedFileSize;
+    }
+
+    @ManagedAttribute("The percentage of the cache size used by the admission window")
+    public int getWindowPercent()
+    {
+        return _windowPercent;
+    }
+
+    /**
+     * @param windowPercent the percentage of the cache size used by the admission window,
+     * where new entries are cached before competing for the main space of the cache
+     */
+    public void setWindowPercent(int windowPercent)
+    {
+        if (windowPercent < 0 || windowPercent > 100)
+            throw new IllegalArgumentException("Invalid window percent " + windowPercent);
+        try (AutoLock l = _lock.lock())
+        {
+            _windowPercent = windowPercent;
+            evict();
+        }
+    }
+
+    @ManagedAttribute("The size in bytes of the cached files")
+    public long getCachedSize()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _cachedSize;
+        }
+    }
+
+    @ManagedAttribute("The number of cached files")
+    public int getCachedFiles()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _cachedFiles;
+        }
+    }
+
+    @ManagedAttribute("The number of cache hits")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of cache misses")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of files loaded into the cache")
+    public long getLoads()
+    {
+        return _loads.sum();
+    }
+
+    @ManagedAttribute("The number of files not loaded because not popular enough")
+    public long getRejections()
+    {
+        return _rejections.sum();
+    }
+
+    @ManagedAttribute("The number of files evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedAttribute("The number of files being loaded")
+    public int getPendingLoads()
+    {
+        return _loading.size();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _loads.reset();
+        _rejections.reset();
+        _evictions.reset();
+    }
+
+    @ManagedOperation(value = "Removes all the cached files", impact = "ACTION")
+    public void flushCache()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            for (Node node : _cache.values())
+            {
+                unlink(node);
+            }
+        }
+    }
+
+    /**
+     * <p>Returns the cached content, or non cached content while the
+     * resource is loaded into the cache asynchronously.</p>
+     *
+     * @param pathInContext the path of the resource
+     * @param maxBufferSize the max buffer size for non cached content
+     * @return the content, or null if the resource does not exist
+     * @throws IOException if the resource cannot be retrieved
+     */
+    @Override
+    public HttpContent getContent(String pathInContext, int maxBufferSize) throws IOException
+    {
+        _sketch.increment(pathInContext);
+
+        Node node = _cache.get(pathInContext);
+        if (node != null)
+        {
+            if (node._content.isValid())
+            {
+                _hits.increment();
+                onAccess(node);
+                return node._content;
+            }
+            remove(node);
+        }
+        _misses.increment();
+
+        HttpContent content = _contentFactory.getContent(pathInContext, maxBufferSize);
+        if (content != null && isCacheable(content))
+            load(pathInContext, content);
+        return content;
+    }
+
+    /**
+     * @param content the content to test
+     * @return whether the content may be cached. The default implementation tests the cache sizes.
+     */
+    protected boolean isCacheable(HttpContent content)
+    {
+        Resource resource = content.getResource();
+        if (resource == null || resource.isDirectory() || _maxCachedFiles <= 0)
+            return false;
+        long length = content.getContentLengthValue();
+        return length > 0 && length <= _maxCachedFileSize && length <= _maxCacheSize;
+    }
+
+    /**
+     * <p>Reads the resource into a direct buffer.</p>
+     *
+     * @param resource the resource to read
+     * @return the buffer with the resource content
+     * @throws IOException if the resource cannot be read
+     */
+    protected ByteBuffer readBuffer(Resource resource) throws IOException
+    {
+        return BufferUtil.toBuffer(resource, true);
+    }
+
+    private void load(String pathInContext, HttpContent content)
+    {
+        if (_loading.contains(pathInContext) || !admit(pathInContext, content.getContentLengthValue()))
+            return;
+        if (!_loading.add(pathInContext))
+            return;
+
+        try
+        {
+            _executor.execute(() ->
+            {
+                try
+                {
+                    add(pathInContext, content);
+                }
+                catch (Throwable x)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Unable to load {}", content, x);
+                }
+                finally
+                {
+                    _loading.remove(pathInContext);
+                }
+            });
+        }
+        catch (RejectedExecutionException x)
+        {
+            _loading.remove(pathInContext);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Unable to load {}", content, x);
+        }
+    }
+
+    private boolean admit(String pathInContext, long weight)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            if (_cachedSize + weight <= _maxCacheSize && _cachedFiles < _maxCachedFiles)
+                return true;
+            Node victim = _probation.first();
+            if (victim == null || _sketch.frequency(pathInContext) > _sketch.frequency(victim._key))
+                return true;
+            _rejections.increment();
+            return false;
+        }
+    }
+
+    private void add(String pathInContext, HttpContent content) throws IOException
+    {
+        Resource resource = content.getResource();
+        long lastModified = resource.lastModified();
+        long length = resource.length();
+        ByteBuffer buffer = readBuffer(resource);
+        // Don't cache if the resource was modified while being read.
+        if (buffer.remaining() != length || resource.lastModified() != lastModified)
+            return;
+
+        Node node = new Node(pathInContext, new CachedContent(content, buffer, lastModified, length));
+        try (AutoLock l = _lock.lock())
+        {
+            if (_cache.putIfAbsent(pathInContext, node) != null)
+                return;
+            _window.addLast(node);
+            _cachedSize += node._weight;
+            _cachedFiles++;
+            _loads.increment();
+            evict();
+        }
+    }
+
+    private void remove(Node node)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            unlink(node);
+        }
+    }
+
+    private void unlink(Node node)
+    {
+        assert _lock.isHeldByCurrentThread();
+        if (_cache.remove(node._key, node))
+        {
+            node._queue.remove(node);
+            _cachedSize -= node._weight;
+            _cachedFiles--;
+        }
+    }
+
+    private void onAccess(Node node)
+    {
+        // Reordering is best effort: skip it rather than contend with other threads.
+        try (AutoLock l = _lock.tryLock())
+        {
+            if (l == null)
+                return;
+            LinkedQueue queue = node._queue;
+            if (queue == null)
+                return;
+            if (queue == _probation)
+            {
+                _probation.remove(node);
+                _protected.addLast(node);
+                // Demote the least recently used protected entries.
+                long maxProtectedSize = (_maxCacheSize - maxWindowSize()) * 4 / 5;
+                int maxProtectedFiles = (_maxCachedFiles - maxWindowFiles()) * 4 / 5;
+                while ((_protected._weight > maxProtectedSize || _protected._size > maxProtectedFiles) && _protected.first() != node)
+                {
+                    Node demoted = _protected.first();
+                    _protected.remove(demoted);
+                    _probation.addLast(demoted);
+                }
+            }
+            else
+            {
+                queue.moveToLast(node);
+            }
+        }
+    }
+
+    private long maxWindowSize()
+    {
+        return _maxCacheSize * _windowPercent / 100;
+    }
+
+    private int maxWindowFiles()
+    {
+        return _maxCachedFiles * _windowPercent / 100;
+    }
+
+    private void evict()
+    {
+        assert _lock.isHeldByCurrentThread();
+
+        // Move the least recently used entries from the window to the main space,
+        // where they become candidates competing with the probation victims.
+        long maxWindowSize = maxWindowSize();
+        int maxWindowFiles = maxWindowFiles();
+        while (_window._weight > maxWindowSize || _window._size > maxWindowFiles)
+        {
+            Node node = _window.first();
+            _window.remove(node);
+            _probation.addLast(node);
+        }
+
+        FrequencySketch sketch = _sketch;
+        while (_cachedSize > _maxCacheSize || _cachedFiles > _maxCachedFiles)
+        {
+            Node victim = _probation.first();
+            Node candidate = _probation.last();
+            Node evicted;
+            if (victim == null)
+                evicted = _protected.first() != null ? _protected.first() : _window.first();
+            else if (victim == candidate)
+                evicted = victim;
+            else
+                evicted = sketch.frequency(candidate._key) > sketch.frequency(victim._key) ? victim : candidate;
+
+            if (evicted == null)
+                break;
+            if (LOG.isDebugEnabled())
+                LOG.debug("Evicting {}", evicted._content);
+            unlink(evicted);
+            _evictions.increment();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{files=%d/%d,size=%d/%d}", getClass().getSimpleName(), hashCode(), getCachedFiles(), getMaxCachedFiles(), getCachedSize(), getMaxCacheSize());
+    }
+
+    private static class Node
+    {
+        private final String _key;
+        private final CachedContent _content;
+        private final long _weight;
+        private LinkedQueue _queue;
+        private Node _prev;
+        private Node _next;
+
+        private Node(String key, CachedContent content)
+        {
+            _key = key;
+            _content = content;
+            _weight = content.getContentLengthValue();
+        }
+    }
+
+    /**
+     * <p>A doubly linked list of nodes, ordered from the least recently used
+     * to the most recently used, that tracks the number and the weight of its nodes.</p>
+     */
+    private static class LinkedQueue
+    {
+        private Node _head;
+        private Node _tail;
+        private long _weight;
+        private int _size;
+
+        private Node first()
+        {
+            return _head;
+        }
+
+        private Node last()
+        {
+            return _tail;
+        }
+
+        private void addLast(Node node)
+        {
+            node._queue = this;
+            node._prev = _tail;
+            node._next = null;
+            if (_tail == null)
+                _head = node;
+            else
+                _tail._next = node;
+            _tail = node;
+            _weight += node._weight;
+            _size++;
+        }
+
+        private void remove(Node node)
+        {
+            if (node._prev == null)
+                _head = node._next;
+            else
+                node._prev._next = node._next;
+            if (node._next == null)
+                _tail = node._prev;
+            else
+                node._next._prev = node._prev;
+            node._prev = null;
+            node._next = null;
+            node._queue = null;
+            _weight -= node._weight;
+            _size--;
+        }
+
+        private void moveToLast(Node node)
+        {
+            if (node != _tail)
+            {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * <p>Content whose bytes are cached in a direct buffer.</p>
+     * <p>The same direct buffer is returned by both {@link #getDirectBuffer()}
+     * and {@link #getIndirectBuffer()}, so that the content is only stored off heap.</p>
+     */
+    public class CachedContent implements HttpContent
+    {
+        private final HttpContent _content;
+        private final ByteBuffer _buffer;
+        private final long _lastModifiedValue;
+        private final long _contentLengthValue;
+        private final HttpField _contentType;
+        private final HttpField _contentLength;
+        private final HttpField _lastModified;
+        private final HttpField _etag;
+
+        private CachedContent(HttpContent content, ByteBuffer buffer, long lastModified, long length)
+        {
+            _content = content;
+            _buffer = buffer;
+            _lastModifiedValue = lastModified;
+            _contentLengthValue = length;
+            String contentType = content.getContentTypeValue();
+            _contentType = contentType == null ? null : new PreEncodedHttpField(HttpHeader.CONTENT_TYPE, contentType);
+            _contentLength = new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, Long.toString(length));
+            _lastModified = lastModified == -1 ? null : new PreEncodedHttpField(HttpHeader.LAST_MODIFIED, DateGenerator.formatDate(lastModified));
+            _etag = _etags ? new PreEncodedHttpField(HttpHeader.ETAG, content.getResource().getWeakETag()) : null;
+        }
+
+        boolean isValid()
+        {
+            Resource resource = getResource();
+            return _lastModifiedValue == resource.lastModified() && _contentLengthValue == resource.length();
+        }
+
+        @Override
+        public HttpField getContentType()
+        {
+            return _contentType;
+        }
+
+        @Override
+        public String getContentTypeValue()
+        {
+            return _contentType == null ? null : _contentType.getValue();
+        }
+
+        @Override
+        public String getCharacterEncoding()
+        {
+            return _content.getCharacterEncoding();
+        }
+
+        @Override
+        public Type getMimeType()
+        {
+            return _content.getMimeType();
+        }
+
+        @Override
+        public HttpField getContentEncoding()
+        {
+            return null;
+        }
+
+        @Override
+        public String getContentEncodingValue()
+        {
+            return null;
+        }
+
+        @Override
+        public HttpField getContentLength()
+        {
+            return _contentLength;
+        }
+
+        @Override
+        public long getContentLengthValue()
+        {
+            return _contentLengthValue;
+        }
+
+        @Override
+        public HttpField getLastModified()
+        {
+            return _lastModified;
+        }
+
+        @Override
+        public String getLastModifiedValue()
+        {
+            return _lastModified == null ? null : _lastModified.getValue();
+        }
+
+        @Override
+        public HttpField getETag()
+        {
+            return _etag;
+        }
+
+        @Override
+        public String getETagValue()
+        {
+            return _etag == null ? null : _etag.getValue();
+        }
+
+        @Override
+        public ByteBuffer getIndirectBuffer()
+        {
+            return _buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public ByteBuffer getDirectBuffer()
+        {
+            return _buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public Resource getResource()
+        {
+            return _content.getResource();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException
+        {
+            return _content.getInputStream();
+        }
+
+        @Override
+        public ReadableByteChannel getReadableByteChannel() throws IOException
+        {
+            return _content.getReadableByteChannel();
+        }
+
+        @Override
+        public void release()
+        {
+        }
+
+        @Override
+        public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents()
+        {
+            return _content.getPrecompressedContents();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{r=%s,ct=%s,l=%d}", getClass().getSimpleName(), hashCode(), getResource(), _contentType, _contentLengthValue);
+        }
+    }
+}
@@ -16,6 +16,7 @@ package org.eclipse.jetty.server;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.EventListener;
 import java.util.List;
@@ -51,6 +52,7 @@ import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.SharedBlockingCallback.Blocker;
 import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -1017,6 +1019,34 @@ public abstract class HttpChannel implements Runnable, HttpOutput.Interceptor
         sendResponse(null, content, complete, callback);
     }
 
+    /**
+     * <p>Non-Blocking transfer of a region of a file as response content.</p>
+     * <p>The response must have already been committed with a content length
+     * matching the content, as the file region is sent as is by the transport.
+     * The transferred bytes are accounted and notified to listeners like the
+     * content passed to {@link #write(ByteBuffer, boolean, Callback)}.</p>
+     *
+     * @param file the file to transfer content from
+     * @param position the position in the file of the first byte to transfer
+     * @param count the number of bytes to transfer
+     * @param callback Callback when complete or failed
+     * @return true if the transfer has been initiated and the callback will be notified,
+     * false if the transfer is not supported, in which case the callback is not notified
+     * and the content must be written instead
+     * @see HttpTransport#isTransferSupported()
+     */
+    public boolean transfer(FileChannel file, long position, long count, Callback callback)
+    {
+        if (!isCommitted() || _transport == null || !_transport.isTransferSupported())
+            return false;
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("transfer {} bytes at {} of {} {}", count, position, file, this);
+
+        _transport.transfer(file, position, count, new TransferCallback(callback, file, position, count));
+        return true;
+    }
+
     @Override
     public void resetBuffer()
     {
@@ -1030,9 +1060,20 @@ public abstract class HttpChannel implements Runnable, HttpOutput.Interceptor
         return null;
     }
 
+    /**
+     * <p>Executes the given task, typically a dispatch of {@link #handle()}.</p>
+     * <p>If the server thread pool is {@link VirtualThreads.Configurable configured}
+     * to use virtual threads, the task is executed in a virtual thread.</p>
+     *
+     * @param task the task to execute
+     */
     protected void execute(Runnable task)
     {
-        _executor.execute(task);
+        Executor virtualThreadsExecutor = VirtualThreads.getVirtualThreadsExecutor(_executor);
+        if (virtualThreadsExecutor != null)
+            virtualThreadsExecutor.execute(task);
+        else
+            _executor.execute(task);
     }
 
     public Scheduler getScheduler()
@@ -1358,6 +1399,62 @@ public abstract class HttpChannel implements Runnable, HttpOutput.Interceptor
         }
     }
 
+    private class TransferCallback extends SendCallback
+    {
+        private final FileChannel _file;
+        private final long _position;
+        private final long _count;
+
+        private TransferCallback(Callback callback, FileChannel file, long position, long count)
+        {
+            super(callback, null, false, false);
+            _file = file;
+            _position = position;
+            _count = count;
+        }
+
+        @Override
+        public void succeeded()
+        {
+            _written += _count;
+            if (isResponseContentListened())
+                notifyResponseContent();
+            super.succeeded();
+        }
+
+        private boolean isResponseContentListened()
+        {
+            if (_combinedListener == NOOP_LISTENER)
+                return false;
+            if (_combinedListener instanceof HttpChannelListeners)
+                return ((HttpChannelListeners)_combinedListener).isResponseContentListened();
+            return true;
+        }
+
+        private void notifyResponseContent()
+        {
+            // The transferred bytes were never copied to user space,
+            // so map them to notify listeners without copying them.
+            try
+            {
+                long position = _position;
+                long count = _count;
+                while (count > 0)
+                {
+                    long length = Math.min(count, Integer.MAX_VALUE);
+                    _combinedListener.onResponseContent(_request, _file.map(FileChannel.MapMode.READ_ONLY, position, length));
+                    position += length;
+                    count -= length;
+                }
+            }
+            catch (IOException x)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Unable to notify transferred content {}", this, x);
+            }
+        }
+    }
+
     private class Send100Callback extends SendCallback
     {
         private Send100Callback(Callback callback)
@@ -194,6 +194,14 @@ public class HttpChannelListeners implements HttpChannel.Listener
         onResponseContent.onContent(request, content);
     }
 
+    /**
+     * @return whether at least one of the combined listeners is interested in response content
+     */
+    boolean isResponseContentListened()
+    {
+        return onResponseContent != NotifyContent.NOOP;
+    }
+
     @Override
     public void onResponseEnd(Request request)
     {
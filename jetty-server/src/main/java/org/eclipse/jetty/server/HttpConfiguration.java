@@ -55,6 +55,8 @@ public class HttpConfiguration implements Dumpable
     private int _responseHeaderSize = 8 * 1024;
     private int _headerCacheSize = 1024;
     private boolean _headerCacheCaseSensitive = false;
+    private int _sharedHeaderCacheSize = 0;
+    private boolean _lazyHeaderValues = false;
     private int _securePort;
     private long _idleTimeout = -1;
     private String _secureScheme = HttpScheme.HTTPS.asString();
@@ -66,6 +68,7 @@ public class HttpConfiguration implements Dumpable
     private int _maxErrorDispatches = 10;
     private boolean _useInputDirectByteBuffers = true;
     private boolean _useOutputDirectByteBuffers = true;
+    private boolean _useFileTransfer = false;
     private long _minRequestDataRate;
     private long _minResponseDataRate;
     private HttpCompliance _httpCompliance = HttpCompliance.RFC7230;
@@ -124,6 +127,8 @@ public class HttpConfiguration implements Dumpable
         _responseHeaderSize = config._responseHeaderSize;
         _headerCacheSize = config._headerCacheSize;
         _headerCacheCaseSensitive = config._headerCacheCaseSensitive;
+        _sharedHeaderCacheSize = config._sharedHeaderCacheSize;
+        _lazyHeaderValues = config._lazyHeaderValues;
         _secureScheme = config._secureScheme;
         _securePort = config._securePort;
         _idleTimeout = config._idleTimeout;
@@ -135,6 +140,7 @@ public class HttpConfiguration implements Dumpable
         _maxErrorDispatches = config._maxErrorDispatches;
         _useInputDirectByteBuffers = config._useInputDirectByteBuffers;
         _useOutputDirectByteBuffers = config._useOutputDirectByteBuffers;
+        _useFileTransfer = config._useFileTransfer;
         _minRequestDataRate = config._minRequestDataRate;
         _minResponseDataRate = config._minResponseDataRate;
         _httpCompliance = config._httpCompliance;
@@ -208,6 +214,18 @@ public class HttpConfiguration implements Dumpable
         return _headerCacheCaseSensitive;
     }
 
+    @ManagedAttribute("The maximum allowed size in characters for the HTTP header field cache shared by the connections of a connector")
+    public int getSharedHeaderCacheSize()
+    {
+        return _sharedHeaderCacheSize;
+    }
+
+    @ManagedAttribute("True if the request header values are parsed lazily")
+    public boolean isLazyHeaderValues()
+    {
+        return _lazyHeaderValues;
+    }
+
     @ManagedAttribute("The port to which Integral or Confidential security constraints are redirected")
     public int getSecurePort()
     {
@@ -355,6 +373,24 @@ public class HttpConfiguration implements Dumpable
         return _useOutputDirectByteBuffers;
     }
 
+    /**
+     * <p>Sets whether static file content is transferred to non secure connections
+     * directly from the file, with {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * rather than being copied through ByteBuffers.</p>
+     *
+     * @param useFileTransfer whether to use file transfers to write file content
+     */
+    public void setUseFileTransfer(boolean useFileTransfer)
+    {
+        _useFileTransfer = useFileTransfer;
+    }
+
+    @ManagedAttribute("Whether to use file transfers to write file content")
+    public boolean isUseFileTransfer()
+    {
+        return _useFileTransfer;
+    }
+
     /**
      * <p>Sets the {@link Customizer}s that are invoked for every
      * request received.</p>
@@ -433,6 +469,28 @@ public class HttpConfiguration implements Dumpable
         this._headerCacheCaseSensitive = headerCacheCaseSensitive;
     }
 
+    /**
+     * <p>Sets the size of a header field cache that is shared by all the connections of a connector,
+     * and that learns the most frequently received header fields.</p>
+     *
+     * @param sharedHeaderCacheSize the size in characters of the shared header field cache, or 0 for no shared cache
+     * @see org.eclipse.jetty.http.SharedHttpFieldCache
+     */
+    public void setSharedHeaderCacheSize(int sharedHeaderCacheSize)
+    {
+        _sharedHeaderCacheSize = sharedHeaderCacheSize;
+    }
+
+    /**
+     * @param lazyHeaderValues whether the request header values are parsed lazily,
+     * so that their {@code String} is only created when they are accessed.
+     * @see org.eclipse.jetty.http.HttpParser#setLazyHeaderValues(boolean)
+     */
+    public void setLazyHeaderValues(boolean lazyHeaderValues)
+    {
+        _lazyHeaderValues = lazyHeaderValues;
+    }
+
     /**
      * <p>Sets the TCP/IP port used for CONFIDENTIAL and INTEGRAL redirections.</p>
      *
@@ -652,9 +710,12 @@ public class HttpConfiguration implements Dumpable
             new DumpableCollection("formEncodedMethods", _formEncodedMethods.keySet()),
             "outputBufferSize=" + _outputBufferSize,
             "outputAggregationSize=" + _outputAggregationSize,
+            "useFileTransfer=" + _useFileTransfer,
             "requestHeaderSize=" + _requestHeaderSize,
             "responseHeaderSize=" + _responseHeaderSize,
             "headerCacheSize=" + _headerCacheSize,
+            "sharedHeaderCacheSize=" + _sharedHeaderCacheSize,
+            "lazyHeaderValues=" + _lazyHeaderValues,
             "secureScheme=" + _secureScheme,
             "securePort=" + _securePort,
             "idleTimeout=" + _idleTimeout,
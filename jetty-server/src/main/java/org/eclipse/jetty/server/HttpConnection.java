@@ -15,6 +15,7 @@ package org.eclipse.jetty.server;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -130,6 +131,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         HttpParser parser = new HttpParser(newRequestHandler(), getHttpConfiguration().getRequestHeaderSize(), compliance);
         parser.setHeaderCacheSize(getHttpConfiguration().getHeaderCacheSize());
         parser.setHeaderCacheCaseSensitive(getHttpConfiguration().isHeaderCacheCaseSensitive());
+        parser.setLazyHeaderValues(getHttpConfiguration().isLazyHeaderValues());
         return parser;
     }
 
@@ -574,6 +576,26 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         LOG.debug("ignore push in {}", this);
     }
 
+    @Override
+    public boolean isTransferSupported()
+    {
+        return getHttpConfiguration().isUseFileTransfer() && getEndPoint().isTransferSupported();
+    }
+
+    @Override
+    public void transfer(FileChannel file, long position, long count, Callback callback)
+    {
+        getEndPoint().transfer(new Callback.Nested(callback)
+        {
+            @Override
+            public void succeeded()
+            {
+                bytesOut.add(count);
+                super.succeeded();
+            }
+        }, file, position, count);
+    }
+
     public void asyncReadFillInterested()
     {
         getEndPoint().tryFillInterested(_asyncReadCallback);
@@ -16,6 +16,7 @@ package org.eclipse.jetty.server;
 import java.util.Objects;
 
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.SharedHttpFieldCache;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.annotation.Name;
@@ -32,6 +33,7 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
     private boolean _recordHttpComplianceViolations;
     private boolean _useInputDirectByteBuffers;
     private boolean _useOutputDirectByteBuffers;
+    private SharedHttpFieldCache _sharedFieldCache;
 
     public HttpConnectionFactory()
     {
@@ -83,12 +85,45 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
         _useOutputDirectByteBuffers = useOutputDirectByteBuffers;
     }
 
+    /**
+     * @return the header field cache shared by the connections created by this factory,
+     * or null if {@link HttpConfiguration#getSharedHeaderCacheSize()} is not positive
+     */
+    public SharedHttpFieldCache getSharedFieldCache()
+    {
+        return _sharedFieldCache;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        int sharedHeaderCacheSize = _config.getSharedHeaderCacheSize();
+        if (sharedHeaderCacheSize > 0)
+        {
+            _sharedFieldCache = new SharedHttpFieldCache(sharedHeaderCacheSize);
+            addBean(_sharedFieldCache);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        if (_sharedFieldCache != null)
+        {
+            removeBean(_sharedFieldCache);
+            _sharedFieldCache = null;
+        }
+    }
+
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint)
     {
         HttpConnection connection = new HttpConnection(_config, connector, endPoint, isRecordHttpComplianceViolations());
         connection.setUseInputDirectByteBuffers(isUseInputDirectByteBuffers());
         connection.setUseOutputDirectByteBuffers(isUseOutputDirectByteBuffers());
+        connection.getParser().setSharedFieldCache(getSharedFieldCache());
         return configure(connection, connector, endPoint);
     }
 }
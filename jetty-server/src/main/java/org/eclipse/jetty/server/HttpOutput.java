@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.Charset;
@@ -31,6 +32,7 @@ import javax.servlet.ServletResponse;
 import javax.servlet.WriteListener;
 
 import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.util.BufferUtil;
@@ -1200,7 +1202,44 @@ public class HttpOutput extends ServletOutputStream implements Runnable
             LOG.debug("sendContent(channel={},{})", in, callback);
 
         if (prepareSendContent(0, callback))
-            new ReadableByteChannelWritingCB(in, callback).iterate();
+        {
+            if (in instanceof FileChannel && isTransferable((FileChannel)in))
+                new FileChannelTransferringCB((FileChannel)in, callback).iterate();
+            else
+                new ReadableByteChannelWritingCB(in, callback).iterate();
+        }
+    }
+
+    /**
+     * <p>Returns whether the given file can be written with a
+     * {@link HttpChannel#transfer(FileChannel, long, long, Callback) transfer}
+     * rather than by copying it through a buffer.</p>
+     * <p>The content must be written as is by the transport, so there must be
+     * no interceptor, and the response must have a {@code Content-Length} that
+     * matches the remaining bytes of the file, so that no framing is needed.</p>
+     *
+     * @param file the file to send
+     * @return whether the file can be transferred
+     */
+    private boolean isTransferable(FileChannel file)
+    {
+        if (_interceptor != _channel)
+            return false;
+        HttpTransport transport = _channel.getHttpTransport();
+        if (transport == null || !transport.isTransferSupported())
+            return false;
+        if (HttpMethod.HEAD.is(_channel.getRequest().getMethod()))
+            return false;
+        try
+        {
+            long remaining = file.size() - file.position();
+            return remaining > 0 && _channel.getResponse().getLongContentLength() == remaining;
+        }
+        catch (IOException x)
+        {
+            LOG.trace("IGNORED", x);
+            return false;
+        }
     }
 
     private boolean prepareSendContent(int len, Callback callback)
@@ -1815,6 +1854,108 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * An iterating callback that commits the response headers, then
+     * {@link HttpChannel#transfer(FileChannel, long, long, Callback) transfers}
+     * the file directly to the transport, and finally completes the response.
+     * If the channel cannot transfer the file, its content is written via a buffer.
+     */
+    private class FileChannelTransferringCB extends NestedChannelWriteCB
+    {
+        private final FileChannel _file;
+        private long _position;
+        private long _count;
+        private long _pending;
+        private ByteBuffer _buffer;
+        private boolean _committed;
+        private boolean _completed;
+
+        FileChannelTransferringCB(FileChannel file, Callback callback) throws IOException
+        {
+            super(callback, true);
+            _file = file;
+            _position = file.position();
+            _count = file.size() - _position;
+        }
+
+        @Override
+        protected Action process() throws Exception
+        {
+            if (!_committed)
+            {
+                _committed = true;
+                channelWrite(BufferUtil.EMPTY_BUFFER, false, this);
+                return Action.SCHEDULED;
+            }
+
+            // Account the bytes of the previous transfer or write only once completed.
+            if (_pending > 0)
+            {
+                _written += _pending;
+                _position += _pending;
+                _count -= _pending;
+                _pending = 0;
+            }
+
+            if (_count > 0)
+            {
+                if (_buffer == null)
+                {
+                    _pending = _count;
+                    if (_channel.transfer(_file, _position, _count, this))
+                        return Action.SCHEDULED;
+                    _pending = 0;
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("transfer not supported, writing {}", this);
+                    _buffer = _channel.getByteBufferPool().acquire(getBufferSize(), _channel.isUseOutputDirectByteBuffers());
+                }
+
+                BufferUtil.clearToFill(_buffer);
+                if (_buffer.remaining() > _count)
+                    _buffer.limit((int)(_buffer.position() + _count));
+                if (_file.read(_buffer, _position) < 0)
+                    throw new EofException("File truncated at " + _position);
+                BufferUtil.flipToFlush(_buffer, 0);
+                _pending = _buffer.remaining();
+                channelWrite(_buffer, false, this);
+                return Action.SCHEDULED;
+            }
+
+            if (!_completed)
+            {
+                _completed = true;
+                channelWrite(BufferUtil.EMPTY_BUFFER, true, this);
+                return Action.SCHEDULED;
+            }
+
+            release();
+            return Action.SUCCEEDED;
+        }
+
+        @Override
+        public void onCompleteFailure(Throwable x)
+        {
+            release();
+            super.onCompleteFailure(x);
+        }
+
+        private void release()
+        {
+            if (_buffer != null)
+            {
+                _channel.getByteBufferPool().release(_buffer);
+                _buffer = null;
+            }
+            IO.close(_file);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%d@%d}", getClass().getSimpleName(), hashCode(), _count, _position);
+        }
+    }
+
     private static class WriteBlocker extends SharedBlockingCallback
     {
         private final HttpChannel _channel;
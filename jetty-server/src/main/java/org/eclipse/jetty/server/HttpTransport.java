@@ -14,6 +14,7 @@
 package org.eclipse.jetty.server;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.util.Callback;
@@ -37,6 +38,32 @@ public interface HttpTransport
      */
     void send(MetaData.Request request, MetaData.Response response, ByteBuffer content, boolean lastContent, Callback callback);
 
+    /**
+     * @return true if response content can be {@link #transfer(FileChannel, long, long, Callback) transferred}
+     * from a file over this transport
+     */
+    default boolean isTransferSupported()
+    {
+        return false;
+    }
+
+    /**
+     * <p>Asynchronously transfers a region of a file as response content,
+     * possibly without copying it through user space buffers.</p>
+     * <p>The response must have already been committed with a content length,
+     * and the file region is sent as is, without any transfer encoding.</p>
+     *
+     * @param file the file to transfer content from
+     * @param position the position in the file of the first byte to transfer
+     * @param count the number of bytes to transfer
+     * @param callback The Callback instance that success or failure of the transfer is notified on
+     * @see #isTransferSupported()
+     */
+    default void transfer(FileChannel file, long position, long count, Callback callback)
+    {
+        callback.failed(new UnsupportedOperationException());
+    }
+
     /**
      * @return true if responses can be pushed over this transport
      */
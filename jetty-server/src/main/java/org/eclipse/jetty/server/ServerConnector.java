@@ -24,6 +24,7 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
 import java.util.EventListener;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
@@ -275,6 +276,32 @@ public class ServerConnector extends AbstractNetworkConnector
         _inheritChannel = inheritChannel;
     }
 
+    /**
+     * @return the {@link SelectorProvider} used to open the accept channel and the selectors
+     * @see SelectorManager#getSelectorProvider()
+     */
+    public SelectorProvider getSelectorProvider()
+    {
+        return _manager.getSelectorProvider();
+    }
+
+    /**
+     * <p>Sets the {@link SelectorProvider} used to open the accept channel and the selectors.</p>
+     * <p>This allows to plug in an I/O engine other than the JVM default one,
+     * for example to measure it against the default NIO implementation.
+     * Channels inherited from the JVM are always opened by the default provider,
+     * so this setting should not be used together with {@link #setInheritChannel(boolean)}.</p>
+     *
+     * @param selectorProvider the {@link SelectorProvider} to use
+     * @see SelectorManager#setSelectorProvider(SelectorProvider)
+     */
+    public void setSelectorProvider(SelectorProvider selectorProvider)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        _manager.setSelectorProvider(selectorProvider);
+    }
+
     /**
      * Open the connector using the passed ServerSocketChannel.
      * This open method can be called before starting the connector to pass it a ServerSocketChannel
@@ -329,7 +356,7 @@ public class ServerConnector extends AbstractNetworkConnector
         if (serverChannel == null)
         {
             InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
-            serverChannel = ServerSocketChannel.open();
+            serverChannel = getSelectorProvider().openServerSocketChannel();
             try
             {
                 serverChannel.socket().setReuseAddress(getReuseAddress());
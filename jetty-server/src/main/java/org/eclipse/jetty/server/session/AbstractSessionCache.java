@@ -543,6 +543,7 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
                             LOG.debug("Eviction on request exit id={}", id);
                         doDelete(session.getId());
                         session.setResident(false);
+                        _sessionDataStore.flush(id);
                     }
                     else
                     {
@@ -565,6 +566,7 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
                         //throw out the passivated session object from the map
                         doDelete(id);
                         session.setResident(false);
+                        _sessionDataStore.flush(id);
                         if (LOG.isDebugEnabled())
                             LOG.debug("Evicted on request exit id={}", id);
                     }
@@ -726,6 +728,9 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
                         //Fake being dirty to force the write
                         session.getSessionData().setDirty(true);
                         _sessionDataStore.store(session.getId(), session.getSessionData());
+
+                        //the session is leaving this node, so don't leave it waiting to be written
+                        _sessionDataStore.flush(session.getId());
                     }
 
                     doDelete(session.getId()); //detach from this cache
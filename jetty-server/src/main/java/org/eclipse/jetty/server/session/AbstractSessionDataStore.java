@@ -13,7 +13,10 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -90,6 +93,24 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
      */
     public abstract void doStore(String id, SessionData data, long lastSaveTime) throws Exception;
 
+    /**
+     * Store the data of several sessions persistently.
+     *
+     * By default each session is stored in turn with {@link #doStore(String, SessionData, long)}.
+     * Implementations able to use a batch API of the persistence technology should override this method.
+     *
+     * @param sessions the sessions to store, keyed by session id
+     * @param lastSaveTimes the time of the previous save of each session, or 0 if never saved
+     * @throws Exception if unable to store the data
+     */
+    public void doStoreAll(Map<String, SessionData> sessions, Map<String, Long> lastSaveTimes) throws Exception
+    {
+        for (Map.Entry<String, SessionData> entry : sessions.entrySet())
+        {
+            doStore(entry.getKey(), entry.getValue(), lastSaveTimes.get(entry.getKey()));
+        }
+    }
+
     /**
      * Load the session from persistent store.
      *
@@ -204,9 +225,7 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
                 data.isDirty(), data.getLastSaved(), savePeriodMs, (System.currentTimeMillis() - lastSave));
         }
 
-        //save session if attribute changed, never been saved or metadata changed (eg expiry time) and save interval exceeded
-        if (data.isDirty() || (lastSave <= 0) ||
-            (data.isMetaDataDirty() && ((System.currentTimeMillis() - lastSave) >= savePeriodMs)))
+        if (isStoreRequired(data, savePeriodMs))
         {
             //set the last saved time to now
             data.setLastSaved(System.currentTimeMillis());
@@ -232,6 +251,74 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
         }
     }
 
+    @Override
+    public void storeAll(Map<String, SessionData> sessions) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+
+        long savePeriodMs = (_savePeriodSec <= 0 ? 0 : TimeUnit.SECONDS.toMillis(_savePeriodSec));
+        Map<String, SessionData> toStore = new LinkedHashMap<>();
+        Map<String, Long> lastSaveTimes = new HashMap<>();
+        for (Map.Entry<String, SessionData> entry : sessions.entrySet())
+        {
+            SessionData data = entry.getValue();
+            if (data != null && isStoreRequired(data, savePeriodMs))
+            {
+                toStore.put(entry.getKey(), data);
+                lastSaveTimes.put(entry.getKey(), data.getLastSaved());
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("StoreAll: {} of {} sessions to store", toStore.size(), sessions.size());
+
+        if (toStore.isEmpty())
+            return;
+
+        //set the last saved time to now
+        long now = System.currentTimeMillis();
+        for (SessionData data : toStore.values())
+        {
+            data.setLastSaved(now);
+        }
+
+        final Result<Object> result = new Result<>();
+        Runnable r = () ->
+        {
+            try
+            {
+                doStoreAll(toStore, lastSaveTimes);
+                for (SessionData data : toStore.values())
+                {
+                    data.clean(); //unset all dirty flags
+                }
+            }
+            catch (Exception e)
+            {
+                //reset last save times if save failed
+                for (Map.Entry<String, SessionData> entry : toStore.entrySet())
+                {
+                    entry.getValue().setLastSaved(lastSaveTimes.get(entry.getKey()));
+                }
+                result.setException(e);
+            }
+        };
+        _context.run(r);
+        result.throwIfException();
+    }
+
+    /**
+     * Save the session if an attribute changed, it has never been saved, or
+     * the metadata changed (eg expiry time) and the save interval is exceeded.
+     */
+    private boolean isStoreRequired(SessionData data, long savePeriodMs)
+    {
+        long lastSave = data.getLastSaved();
+        return data.isDirty() || (lastSave <= 0) ||
+            (data.isMetaDataDirty() && ((System.currentTimeMillis() - lastSave) >= savePeriodMs));
+    }
+
     @Override
     public boolean exists(String id) throws Exception
     {
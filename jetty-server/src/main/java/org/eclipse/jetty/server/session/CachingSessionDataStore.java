@@ -133,6 +133,13 @@ public class CachingSessionDataStore extends ContainerLifeCycle implements Sessi
             _cache.store(id, data);
     }
 
+    @Override
+    public void flush(String id) throws Exception
+    {
+        //pass thru to the delegate store
+        _store.flush(id);
+    }
+
     @Override
     protected void doStart() throws Exception
     {
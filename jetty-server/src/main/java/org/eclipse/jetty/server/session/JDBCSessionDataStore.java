@@ -24,6 +24,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
@@ -713,6 +714,54 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
         }
     }
 
+    @Override
+    public void doStoreAll(Map<String, SessionData> sessions, Map<String, Long> lastSaveTimes) throws Exception
+    {
+        try (Connection connection = _dbAdaptor.getConnection())
+        {
+            //write all the sessions in a single transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(_sessionTableSchema.getInsertSessionStatementAsString());
+                 PreparedStatement update = _sessionTableSchema.getUpdateSessionStatement(connection, null, _context)) //id set per session
+            {
+                int inserts = 0;
+                int updates = 0;
+                for (Map.Entry<String, SessionData> entry : sessions.entrySet())
+                {
+                    String id = entry.getKey();
+                    SessionData data = entry.getValue();
+                    if (lastSaveTimes.get(id) <= 0)
+                    {
+                        setInsertParameters(insert, id, data);
+                        insert.addBatch();
+                        inserts++;
+                    }
+                    else
+                    {
+                        setUpdateParameters(update, data);
+                        update.setString(8, data.getId()); //session id
+                        update.addBatch();
+                        updates++;
+                    }
+                }
+
+                if (inserts > 0)
+                    insert.executeBatch();
+                if (updates > 0)
+                    update.executeBatch();
+                connection.commit();
+
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Stored {} sessions, {} inserted, {} updated", sessions.size(), inserts, updates);
+            }
+            catch (Exception e)
+            {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
     protected void doInsert(String id, SessionData data)
         throws Exception
     {
@@ -723,33 +772,7 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
             connection.setAutoCommit(true);
             try (PreparedStatement statement = connection.prepareStatement(s))
             {
-                statement.setString(1, id); //session id
-
-                String cp = _context.getCanonicalContextPath();
-                if (_dbAdaptor.isEmptyStringNull() && StringUtil.isBlank(cp))
-                    cp = NULL_CONTEXT_PATH;
-
-                statement.setString(2, cp); //context path
-
-                statement.setString(3, _context.getVhost()); //first vhost
-                statement.setString(4, data.getLastNode());//my node id
-                statement.setLong(5, data.getAccessed());//accessTime
-                statement.setLong(6, data.getLastAccessed()); //lastAccessTime
-                statement.setLong(7, data.getCreated()); //time created
-                statement.setLong(8, data.getCookieSet());//time cookie was set
-                statement.setLong(9, data.getLastSaved()); //last saved time
-                statement.setLong(10, data.getExpiry());
-                statement.setLong(11, data.getMaxInactiveMs());
-
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    ObjectOutputStream oos = new ObjectOutputStream(baos))
-                {
-                    SessionData.serializeAttributes(data, oos);
-                    byte[] bytes = baos.toByteArray();
-                    ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-                    statement.setBinaryStream(12, bais, bytes.length);//attribute map as blob
-                }
-
+                setInsertParameters(statement, id, data);
                 statement.executeUpdate();
                 if (LOG.isDebugEnabled())
                     LOG.debug("Inserted session {}", data);
@@ -765,24 +788,7 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
             connection.setAutoCommit(true);
             try (PreparedStatement statement = _sessionTableSchema.getUpdateSessionStatement(connection, data.getId(), _context))
             {
-                statement.setString(1, data.getLastNode());//should be my node id
-                statement.setLong(2, data.getAccessed());//accessTime
-                statement.setLong(3, data.getLastAccessed()); //lastAccessTime
-                statement.setLong(4, data.getLastSaved()); //last saved time
-                statement.setLong(5, data.getExpiry());
-                statement.setLong(6, data.getMaxInactiveMs());
-
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    ObjectOutputStream oos = new ObjectOutputStream(baos))
-                {
-                    SessionData.serializeAttributes(data, oos);
-                    byte[] bytes = baos.toByteArray();
-                    try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes))
-                    {
-                        statement.setBinaryStream(7, bais, bytes.length);//attribute map as blob
-                    }
-                }
-
+                setUpdateParameters(statement, data);
                 statement.executeUpdate();
 
                 if (LOG.isDebugEnabled())
@@ -791,6 +797,59 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
         }
     }
 
+    private void setInsertParameters(PreparedStatement statement, String id, SessionData data)
+        throws Exception
+    {
+        statement.setString(1, id); //session id
+
+        String cp = _context.getCanonicalContextPath();
+        if (_dbAdaptor.isEmptyStringNull() && StringUtil.isBlank(cp))
+            cp = NULL_CONTEXT_PATH;
+
+        statement.setString(2, cp); //context path
+
+        statement.setString(3, _context.getVhost()); //first vhost
+        statement.setString(4, data.getLastNode());//my node id
+        statement.setLong(5, data.getAccessed());//accessTime
+        statement.setLong(6, data.getLastAccessed()); //lastAccessTime
+        statement.setLong(7, data.getCreated()); //time created
+        statement.setLong(8, data.getCookieSet());//time cookie was set
+        statement.setLong(9, data.getLastSaved()); //last saved time
+        statement.setLong(10, data.getExpiry());
+        statement.setLong(11, data.getMaxInactiveMs());
+
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos))
+        {
+            SessionData.serializeAttributes(data, oos);
+            byte[] bytes = baos.toByteArray();
+            ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+            statement.setBinaryStream(12, bais, bytes.length);//attribute map as blob
+        }
+    }
+
+    private void setUpdateParameters(PreparedStatement statement, SessionData data)
+        throws Exception
+    {
+        statement.setString(1, data.getLastNode());//should be my node id
+        statement.setLong(2, data.getAccessed());//accessTime
+        statement.setLong(3, data.getLastAccessed()); //lastAccessTime
+        statement.setLong(4, data.getLastSaved()); //last saved time
+        statement.setLong(5, data.getExpiry());
+        statement.setLong(6, data.getMaxInactiveMs());
+
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos))
+        {
+            SessionData.serializeAttributes(data, oos);
+            byte[] bytes = baos.toByteArray();
+            try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes))
+            {
+                statement.setBinaryStream(7, bais, bytes.length);//attribute map as blob
+            }
+        }
+    }
+
     @Override
     public Set<String> doCheckExpired(Set<String> candidates, long time)
     {
@@ -13,6 +13,7 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -63,4 +64,36 @@ public interface SessionDataStore extends SessionDataMap
      * @throws Exception if problem checking existence with persistence layer
      */
     public boolean exists(String id) throws Exception;
+
+    /**
+     * Store the data of several sessions.
+     *
+     * Stores that are able to write several sessions in a single
+     * round trip to the persistence layer should override this method,
+     * which by default stores each session in turn.
+     *
+     * @param sessions the session data to store, keyed by session id
+     * @throws Exception if unable to store the session data
+     */
+    public default void storeAll(Map<String, SessionData> sessions) throws Exception
+    {
+        for (Map.Entry<String, SessionData> entry : sessions.entrySet())
+        {
+            store(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Write out any data of the given session that this store has accepted
+     * but not yet persisted, because the session is leaving the SessionCache.
+     *
+     * Stores that persist the session data as soon as it is stored have
+     * nothing to do, which is the default.
+     *
+     * @param id Identity of the session to flush
+     * @throws Exception if unable to write the session data
+     */
+    public default void flush(String id) throws Exception
+    {
+    }
 }
@@ -0,0 +1,656 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * WriteBehindSessionDataStore
+ *
+ * A SessionDataStore that delegates to a pluggable SessionDataStore, but
+ * does not write the session data on the calling (request) thread.
+ * Instead a snapshot of the session data, with its attributes serialized, is
+ * taken on the calling thread, so that requests can keep using the session
+ * while it waits to be written,
+ * several stores of the same session are coalesced into one, and the queued
+ * snapshots are written in batches with {@link SessionDataStore#storeAll(Map)},
+ * either periodically every flush interval or as soon as the queue reaches
+ * the max batch size.
+ *
+ * Sessions that are queued but not yet written are returned by {@link #load(String)}
+ * and {@link #exists(String)}, so this node always sees its latest session data.
+ * Other nodes of a cluster only see the changes once they are flushed, so the
+ * flush interval bounds how stale their view of a session can be.
+ * The queue is flushed before checking for expired sessions, when a session
+ * is evicted from the SessionCache, and when this store is stopped.
+ * As a session is written as soon as it is evicted, there is no benefit
+ * in using this store with the SessionCache.EVICT_ON_SESSION_EXIT policy.
+ */
+@ManagedObject
+public class WriteBehindSessionDataStore extends ContainerLifeCycle implements SessionDataStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindSessionDataStore.class);
+
+    /**
+     * The actual store for the session data
+     */
+    protected SessionDataStore _store;
+
+    private final AutoLock _lock = new AutoLock();
+    private final LongAdder _stores = new LongAdder();
+    private final LongAdder _writes = new LongAdder();
+    private final LongAdder _batches = new LongAdder();
+    private final LongAdder _failures = new LongAdder();
+    private Map<String, Pending> _pending = new LinkedHashMap<>();
+    private Map<String, Pending> _flushing = new HashMap<>();
+    private long _flushIntervalMs = 1000;
+    private int _maxBatchSize = 100;
+    private SessionContext _context;
+    private Scheduler _scheduler;
+    private Scheduler _flushScheduler;
+    private boolean _ownScheduler;
+    private Scheduler.Task _task;
+    private boolean _flushScheduled;
+
+    /**
+     * A snapshot of a session waiting to be written, made of its metadata and of
+     * its serialized attributes, with the session data it was taken from or loaded
+     * into, which is updated once the snapshot is written.
+     */
+    private static class Pending
+    {
+        private final SessionData _snapshot;
+        private final byte[] _attributes;
+        private final List<SessionData> _sessions = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> _written = new CompletableFuture<>();
+
+        private Pending(SessionData snapshot, byte[] attributes, SessionData data)
+        {
+            _snapshot = snapshot;
+            _attributes = attributes;
+            _sessions.add(data);
+        }
+
+        private void awaitWritten()
+        {
+            _written.join();
+        }
+
+        private long getLastSaved()
+        {
+            long lastSaved = _snapshot.getLastSaved();
+            for (SessionData data : _sessions)
+            {
+                lastSaved = Math.max(lastSaved, data.getLastSaved());
+            }
+            return lastSaved;
+        }
+    }
+
+    /**
+     * @param store the actual store for the the session data
+     */
+    public WriteBehindSessionDataStore(SessionDataStore store)
+    {
+        _store = store;
+        addBean(_store, true);
+    }
+
+    /**
+     * @return the delegate session store
+     */
+    public SessionDataStore getSessionStore()
+    {
+        return _store;
+    }
+
+    @ManagedAttribute(value = "max interval in ms between flushes of the queued sessions", readonly = true)
+    public long getFlushIntervalMs()
+    {
+        return _flushIntervalMs;
+    }
+
+    /**
+     * @param flushIntervalMs the max time in ms a stored session waits in the queue before being written
+     */
+    public void setFlushIntervalMs(long flushIntervalMs)
+    {
+        if (flushIntervalMs <= 0)
+            throw new IllegalArgumentException("Flush interval must be positive");
+        _flushIntervalMs = flushIntervalMs;
+    }
+
+    @ManagedAttribute(value = "number of queued sessions that triggers a flush", readonly = true)
+    public int getMaxBatchSize()
+    {
+        return _maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize the number of queued sessions that triggers a flush before the flush interval expires
+     */
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        if (maxBatchSize <= 0)
+            throw new IllegalArgumentException("Max batch size must be positive");
+        _maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @param scheduler the scheduler used to flush the queued sessions, or null to use the session handler's one
+     */
+    public void setScheduler(Scheduler scheduler)
+    {
+        if (isStarted())
+            throw new IllegalStateException("Started");
+        _scheduler = scheduler;
+    }
+
+    @ManagedAttribute(value = "number of sessions waiting to be written", readonly = true)
+    public int getPendingCount()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _pending.size();
+        }
+    }
+
+    @ManagedAttribute(value = "number of session stores", readonly = true)
+    public long getStoreCount()
+    {
+        return _stores.longValue();
+    }
+
+    @ManagedAttribute(value = "number of sessions written to the delegate store", readonly = true)
+    public long getWriteCount()
+    {
+        return _writes.longValue();
+    }
+
+    @ManagedAttribute(value = "number of batches written to the delegate store", readonly = true)
+    public long getBatchCount()
+    {
+        return _batches.longValue();
+    }
+
+    @ManagedAttribute(value = "number of sessions that could not be written", readonly = true)
+    public long getFailureCount()
+    {
+        return _failures.longValue();
+    }
+
+    @Override
+    public void initialize(SessionContext context) throws Exception
+    {
+        //pass through
+        _store.initialize(context);
+        _context = context;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _flushScheduler = _scheduler;
+        //try and use the scheduler of the session handler, fallback to own
+        if (_flushScheduler == null && _context != null && _context.getSessionHandler() != null)
+            _flushScheduler = _context.getSessionHandler().getScheduler();
+        if (_flushScheduler == null)
+        {
+            _flushScheduler = new ScheduledExecutorScheduler(String.format("Session-WriteBehind-%x", hashCode()), false);
+            _ownScheduler = true;
+            _flushScheduler.start();
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            if (_task != null)
+                _task.cancel();
+            _task = null;
+            _flushScheduled = false;
+        }
+
+        //write out everything still queued before stopping the delegate
+        flush();
+
+        super.doStop();
+        if (_ownScheduler)
+        {
+            _ownScheduler = false;
+            _flushScheduler.stop();
+        }
+        _flushScheduler = null;
+    }
+
+    @Override
+    public SessionData load(String id) throws Exception
+    {
+        Pending pending;
+        try (AutoLock l = _lock.lock())
+        {
+            pending = _pending.get(id);
+            if (pending == null)
+                pending = _flushing.get(id);
+        }
+        if (pending == null)
+            return _store.load(id);
+
+        //never hand out the queued snapshot, it must not change until it is written
+        SessionData data = restore(pending);
+        data.clean();
+        //the loaded copy must also know when the snapshot is written
+        pending._sessions.add(data);
+        return data;
+    }
+
+    @Override
+    public boolean exists(String id) throws Exception
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            if (_pending.containsKey(id) || _flushing.containsKey(id))
+                return true;
+        }
+        return _store.exists(id);
+    }
+
+    @Override
+    public void store(String id, SessionData data) throws Exception
+    {
+        if (data == null)
+            return;
+
+        if (!isRunning())
+            throw new IllegalStateException("Not running");
+
+        //the session data keeps changing after this call, so queue a copy of its
+        //metadata and its serialized attributes, which are only deserialized when written
+        SessionData snapshot = _store.newSessionData(data.getId(), data.getCreated(), data.getAccessed(), data.getLastAccessed(), data.getMaxInactiveMs());
+        snapshot.copy(data);
+        snapshot.clearAllAttributes();
+        snapshot.setDirty(data.isDirty());
+        snapshot.setMetaDataDirty(data.isMetaDataDirty());
+        byte[] attributes = serialize(data);
+        //like any other store, clear the dirty flags once the changes are taken care of
+        data.clean();
+
+        _stores.increment();
+        boolean flushNow = false;
+        try (AutoLock l = _lock.lock())
+        {
+            Pending previous = _pending.put(id, new Pending(snapshot, attributes, data));
+            if (previous != null)
+            {
+                //the replaced snapshot was never written, so keep its changes
+                if (previous._snapshot.isDirty())
+                    snapshot.setDirty(true);
+                if (previous._snapshot.isMetaDataDirty())
+                    snapshot.setMetaDataDirty(true);
+            }
+
+            if (_pending.size() >= _maxBatchSize)
+            {
+                if (!_flushScheduled)
+                {
+                    _flushScheduled = true;
+                    flushNow = true;
+                }
+            }
+            else if (_task == null)
+            {
+                _task = _flushScheduler.schedule(this::flushScheduled, _flushIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Queued session {} flushNow={}", id, flushNow);
+
+        if (flushNow)
+            _flushScheduler.schedule(this::flushScheduled, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean delete(String id) throws Exception
+    {
+        Pending flushing;
+        try (AutoLock l = _lock.lock())
+        {
+            _pending.remove(id);
+            flushing = _flushing.get(id);
+        }
+
+        //wait for the write of the session in progress, if any, so it cannot be written back after the delete
+        if (flushing != null)
+            flushing.awaitWritten();
+        return _store.delete(id);
+    }
+
+    @Override
+    public Set<String> getExpired(Set<String> candidates)
+    {
+        //the delegate store must know the latest expiry of our sessions
+        flush();
+        return _store.getExpired(candidates);
+    }
+
+    @Override
+    public boolean isPassivating()
+    {
+        return _store.isPassivating();
+    }
+
+    @Override
+    public SessionData newSessionData(String id, long created, long accessed, long lastAccessed, long maxInactiveMs)
+    {
+        return _store.newSessionData(id, created, accessed, lastAccessed, maxInactiveMs);
+    }
+
+    /**
+     * Write the queued session with the given id, if any, to the delegate store.
+     *
+     * @param id the session id
+     */
+    @Override
+    public void flush(String id)
+    {
+        while (true)
+        {
+            Pending pending = null;
+            Pending flushing;
+            try (AutoLock l = _lock.lock())
+            {
+                flushing = _flushing.get(id);
+                if (flushing == null)
+                {
+                    pending = _pending.remove(id);
+                    if (pending == null)
+                        return;
+                    _flushing.put(id, pending);
+                }
+            }
+
+            if (pending != null)
+            {
+                Map<String, Pending> batch = new HashMap<>();
+                batch.put(id, pending);
+                write(batch);
+                return;
+            }
+
+            //a previous snapshot of the session is being written, it must be written first
+            flushing.awaitWritten();
+        }
+    }
+
+    /**
+     * Write all the queued sessions to the delegate store.
+     */
+    @ManagedOperation(value = "write all the queued sessions", impact = "ACTION")
+    public void flush()
+    {
+        while (true)
+        {
+            Map<String, Pending> batch;
+            Pending flushing = null;
+            try (AutoLock l = _lock.lock())
+            {
+                batch = takeBatch();
+                if (batch.isEmpty())
+                {
+                    if (_pending.isEmpty())
+                        return;
+                    //only sessions with a previous snapshot being written are left
+                    flushing = _flushing.get(_pending.keySet().iterator().next());
+                }
+            }
+
+            //each batch is written without holding any lock, so that
+            //requests deleting or flushing a session do not wait for it
+            if (flushing == null)
+                write(batch);
+            else
+                flushing.awaitWritten();
+        }
+    }
+
+    private void flushScheduled()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _task = null;
+            _flushScheduled = false;
+        }
+
+        try
+        {
+            flush();
+        }
+        catch (Throwable x)
+        {
+            LOG.warn("Unable to flush sessions", x);
+        }
+    }
+
+    private Map<String, Pending> takeBatch()
+    {
+        assert _lock.isHeldByCurrentThread();
+        Map<String, Pending> batch = new LinkedHashMap<>();
+        List<String> ids = new ArrayList<>(_pending.keySet());
+        for (String id : ids)
+        {
+            if (batch.size() >= _maxBatchSize)
+                break;
+            //the previous snapshot of a session must be written before the next one
+            if (_flushing.containsKey(id))
+                continue;
+            Pending pending = _pending.remove(id);
+            batch.put(id, pending);
+            _flushing.put(id, pending);
+        }
+        return batch;
+    }
+
+    /**
+     * Serialize the attributes of the session data, so that the queued snapshot
+     * does not share any mutable attribute value with the session.
+     */
+    private byte[] serialize(SessionData data) throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Exception failure = runWithContext(() ->
+        {
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+            {
+                SessionData.serializeAttributes(data, out);
+            }
+        });
+        if (failure != null)
+            throw new UnwriteableSessionDataException(data.getId(), _context, failure);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rebuild the session data of a queued snapshot, deserializing its attributes.
+     */
+    private SessionData restore(Pending pending) throws Exception
+    {
+        SessionData snapshot = pending._snapshot;
+        SessionData data = _store.newSessionData(snapshot.getId(), snapshot.getCreated(), snapshot.getAccessed(), snapshot.getLastAccessed(), snapshot.getMaxInactiveMs());
+        data.copy(snapshot);
+        Exception failure = runWithContext(() ->
+        {
+            try (ClassLoadingObjectInputStream in = new ClassLoadingObjectInputStream(new ByteArrayInputStream(pending._attributes)))
+            {
+                SessionData.deserializeAttributes(data, in);
+            }
+        });
+        if (failure != null)
+            throw new UnreadableSessionDataException(snapshot.getId(), _context, failure);
+        data.setDirty(snapshot.isDirty());
+        data.setMetaDataDirty(snapshot.isMetaDataDirty());
+        return data;
+    }
+
+    /**
+     * Run the given task with the context classloader, like the stores do.
+     *
+     * @return the failure of the task, or null if it succeeded
+     */
+    private Exception runWithContext(SerializationTask task)
+    {
+        Exception[] failure = new Exception[1];
+        Runnable r = () ->
+        {
+            try
+            {
+                task.run();
+            }
+            catch (Exception e)
+            {
+                failure[0] = e;
+            }
+        };
+        if (_context == null)
+            r.run();
+        else
+            _context.run(r);
+        return failure[0];
+    }
+
+    @FunctionalInterface
+    private interface SerializationTask
+    {
+        void run() throws Exception;
+    }
+
+    private void write(Map<String, Pending> batch)
+    {
+        Map<String, SessionData> sessions = new LinkedHashMap<>();
+        Map<String, Long> lastSaveTimes = new HashMap<>();
+        try
+        {
+            for (Map.Entry<String, Pending> entry : batch.entrySet())
+            {
+                Pending pending = entry.getValue();
+                SessionData data;
+                try
+                {
+                    data = restore(pending);
+                }
+                catch (Exception x)
+                {
+                    _failures.increment();
+                    LOG.warn("Unable to restore session {}", entry.getKey(), x);
+                    continue;
+                }
+                //an earlier snapshot of the session may have been written since this one was taken
+                data.setLastSaved(pending.getLastSaved());
+                sessions.put(entry.getKey(), data);
+                lastSaveTimes.put(entry.getKey(), data.getLastSaved());
+            }
+
+            if (!sessions.isEmpty())
+            {
+                _store.storeAll(sessions);
+                _batches.increment();
+                _writes.add(sessions.size());
+            }
+        }
+        catch (Exception x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Unable to store batch of {} sessions, storing individually", sessions.size(), x);
+
+            //retry the sessions that were not saved one by one, to isolate the failures
+            for (Map.Entry<String, SessionData> entry : sessions.entrySet())
+            {
+                SessionData data = entry.getValue();
+                if (data.getLastSaved() != lastSaveTimes.get(entry.getKey()))
+                    continue;
+                try
+                {
+                    _store.store(entry.getKey(), data);
+                    _writes.increment();
+                }
+                catch (Exception e)
+                {
+                    _failures.increment();
+                    LOG.warn("Unable to store session {}", entry.getKey(), e);
+                }
+            }
+        }
+        finally
+        {
+            try (AutoLock l = _lock.lock())
+            {
+                for (Map.Entry<String, Pending> entry : batch.entrySet())
+                {
+                    Pending pending = entry.getValue();
+                    _flushing.remove(entry.getKey(), pending);
+
+                    //the session data that was written, or the snapshot if it could not be restored
+                    SessionData written = sessions.getOrDefault(entry.getKey(), pending._snapshot);
+                    for (SessionData data : pending._sessions)
+                    {
+                        if (written.getLastSaved() > data.getLastSaved())
+                            data.setLastSaved(written.getLastSaved());
+                        //the changes that were not written must be stored again
+                        if (written.isDirty())
+                            data.setDirty(true);
+                        if (written.isMetaDataDirty())
+                            data.setMetaDataDirty(true);
+                    }
+                }
+            }
+
+            for (Pending pending : batch.values())
+            {
+                pending._written.complete(null);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[pending=%d,interval=%d,maxBatch=%d]", this.getClass().getName(), this.hashCode(), getPendingCount(), _flushIntervalMs, _maxBatchSize);
+    }
+}
@@ -0,0 +1,184 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.resource.PathResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(WorkDirExtension.class)
+public class AsyncCachedContentFactoryTest
+{
+    public WorkDir workDir;
+
+    private AsyncCachedContentFactory newContentFactory(Path dir, Executor executor)
+    {
+        PathResource base = new PathResource(dir);
+        return new AsyncCachedContentFactory(path -> base.getResource(path), new MimeTypes(), true, new CompressedContentFormat[0], executor);
+    }
+
+    private static String contentOf(HttpContent content)
+    {
+        return BufferUtil.toString(content.getDirectBuffer(), UTF_8);
+    }
+
+    @Test
+    public void testMissLoadsAsynchronously() throws Exception
+    {
+        Path dir = workDir.getEmptyPathDir();
+        Files.write(dir.resolve("a.txt"), "hello".getBytes(UTF_8));
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncCachedContentFactory factory = newContentFactory(dir, tasks::add);
+
+        // Concurrent misses are served from the resource and loaded only once.
+        HttpContent content1 = factory.getContent("/a.txt", 1024);
+        HttpContent content2 = factory.getContent("/a.txt", 1024);
+        assertThat(content1, not(instanceOf(AsyncCachedContentFactory.CachedContent.class)));
+        assertThat(content2, not(instanceOf(AsyncCachedContentFactory.CachedContent.class)));
+        assertEquals(1, tasks.size());
+        assertEquals(1, factory.getPendingLoads());
+        assertEquals(2, factory.getMisses());
+
+        tasks.forEach(Runnable::run);
+        assertEquals(0, factory.getPendingLoads());
+        assertEquals(1, factory.getLoads());
+        assertEquals(1, factory.getCachedFiles());
+        assertEquals(5, factory.getCachedSize());
+
+        HttpContent cached = factory.getContent("/a.txt", 1024);
+        assertThat(cached, instanceOf(AsyncCachedContentFactory.CachedContent.class));
+        assertTrue(cached.getDirectBuffer().isDirect());
+        assertEquals("hello", contentOf(cached));
+        assertEquals("text/plain", cached.getContentTypeValue());
+        assertNotNull(cached.getETag());
+        assertSame(cached, factory.getContent("/a.txt", 1024));
+        assertEquals(2, factory.getHits());
+    }
+
+    @Test
+    public void testModifiedResourceIsReloaded() throws Exception
+    {
+        Path dir = workDir.getEmptyPathDir();
+        Path file = dir.resolve("a.txt");
+        Files.write(file, "hello".getBytes(UTF_8));
+        AsyncCachedContentFactory factory = newContentFactory(dir, Runnable::run);
+
+        factory.getContent("/a.txt", 1024);
+        assertEquals("hello", contentOf(factory.getContent("/a.txt", 1024)));
+
+        Files.write(file, "hello world".getBytes(UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        HttpContent content = factory.getContent("/a.txt", 1024);
+        assertEquals(11, content.getContentLengthValue());
+        assertEquals("hello world", contentOf(factory.getContent("/a.txt", 1024)));
+        assertEquals(1, factory.getCachedFiles());
+        assertEquals(11, factory.getCachedSize());
+    }
+
+    @Test
+    public void testNotCacheable() throws Exception
+    {
+        Path dir = workDir.getEmptyPathDir();
+        Files.createDirectory(dir.resolve("sub"));
+        Files.write(dir.resolve("big.txt"), new byte[2048]);
+        AsyncCachedContentFactory factory = newContentFactory(dir, Runnable::run);
+        factory.setMaxCachedFileSize(1024);
+
+        assertNull(factory.getContent("/missing.txt", 1024));
+        assertNotNull(factory.getContent("/sub/", 1024));
+        assertNotNull(factory.getContent("/big.txt", 1024));
+        assertEquals(0, factory.getLoads());
+        assertEquals(0, factory.getCachedFiles());
+    }
+
+    @Test
+    public void testFrequencyBasedEviction() throws Exception
+    {
+        Path dir = workDir.getEmptyPathDir();
+        for (int i = 0; i < 10; i++)
+        {
+            Files.write(dir.resolve(i + ".txt"), ("content" + i).getBytes(UTF_8));
+        }
+        AsyncCachedContentFactory factory = newContentFactory(dir, Runnable::run);
+        factory.setMaxCachedFiles(4);
+
+        // Make the first files popular.
+        for (int r = 0; r < 5; r++)
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                factory.getContent("/" + i + ".txt", 1024);
+            }
+        }
+        assertEquals(4, factory.getCachedFiles());
+
+        // Files requested once do not replace the popular ones.
+        for (int i = 4; i < 10; i++)
+        {
+            factory.getContent("/" + i + ".txt", 1024);
+        }
+        assertEquals(4, factory.getCachedFiles());
+        for (int i = 0; i < 4; i++)
+        {
+            assertThat(factory.getContent("/" + i + ".txt", 1024), instanceOf(AsyncCachedContentFactory.CachedContent.class));
+        }
+        assertTrue(factory.getRejections() + factory.getEvictions() > 0);
+    }
+
+    @Test
+    public void testMaxCacheSize() throws Exception
+    {
+        Path dir = workDir.getEmptyPathDir();
+        for (int i = 0; i < 4; i++)
+        {
+            Files.write(dir.resolve(i + ".txt"), new byte[100]);
+        }
+        AsyncCachedContentFactory factory = newContentFactory(dir, Runnable::run);
+        factory.setMaxCacheSize(250);
+
+        for (int i = 0; i < 4; i++)
+        {
+            factory.getContent("/" + i + ".txt", 1024);
+        }
+        assertEquals(2, factory.getCachedFiles());
+        assertEquals(200, factory.getCachedSize());
+
+        factory.flushCache();
+        assertEquals(0, factory.getCachedFiles());
+        assertEquals(0, factory.getCachedSize());
+    }
+}
@@ -0,0 +1,344 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * WriteBehindSessionDataStoreTest
+ */
+public class WriteBehindSessionDataStoreTest
+{
+    public static class BatchingSessionDataStore extends AbstractSessionDataStore
+    {
+        public final Map<String, SessionData> _map = new ConcurrentHashMap<>();
+        public final AtomicInteger _batches = new AtomicInteger();
+        public volatile CountDownLatch _batchLatch = new CountDownLatch(1);
+        public volatile boolean _failBatches;
+        public volatile CountDownLatch _blockBatches;
+
+        @Override
+        public boolean isPassivating()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean doExists(String id)
+        {
+            return _map.containsKey(id);
+        }
+
+        @Override
+        public void doStoreAll(Map<String, SessionData> sessions, Map<String, Long> lastSaveTimes) throws Exception
+        {
+            CountDownLatch blockBatches = _blockBatches;
+            if (blockBatches != null)
+                blockBatches.await();
+            if (_failBatches)
+                throw new Exception("Batch failure");
+            super.doStoreAll(sessions, lastSaveTimes);
+            _batches.incrementAndGet();
+            _batchLatch.countDown();
+        }
+
+        @Override
+        public void doStore(String id, SessionData data, long lastSaveTime)
+        {
+            _map.put(id, data);
+        }
+
+        @Override
+        public SessionData doLoad(String id)
+        {
+            return _map.get(id);
+        }
+
+        @Override
+        public boolean delete(String id)
+        {
+            return _map.remove(id) != null;
+        }
+
+        @Override
+        public Set<String> doCheckExpired(Set<String> candidates, long time)
+        {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Set<String> doGetExpired(long before)
+        {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void doCleanOrphans(long time)
+        {
+        }
+    }
+
+    private BatchingSessionDataStore _delegate;
+    private WriteBehindSessionDataStore _store;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _delegate = new BatchingSessionDataStore();
+        _store = new WriteBehindSessionDataStore(_delegate);
+        _store.setFlushIntervalMs(TimeUnit.MINUTES.toMillis(1));
+        _store.initialize(new SessionContext("node0", null));
+        _store.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _store.stop();
+    }
+
+    private SessionData newSessionData(String id)
+    {
+        long now = System.currentTimeMillis();
+        return _store.newSessionData(id, now, now, now, -1);
+    }
+
+    @Test
+    public void testStoreIsWrittenBehind() throws Exception
+    {
+        SessionData data = newSessionData("1234");
+        data.setAttribute("a", "b");
+        _store.store("1234", data);
+
+        //not yet written, but visible to this node
+        assertFalse(_delegate._map.containsKey("1234"));
+        assertEquals(1, _store.getPendingCount());
+        assertTrue(_store.exists("1234"));
+        SessionData loaded = _store.load("1234");
+        assertNotSame(data, loaded);
+        assertEquals("b", loaded.getAttribute("a"));
+
+        _store.flush();
+        assertEquals(0, _store.getPendingCount());
+        assertEquals("b", _delegate._map.get("1234").getAttribute("a"));
+        assertEquals(1, _store.getBatchCount());
+        assertFalse(data.isDirty());
+        assertTrue(data.getLastSaved() > 0);
+    }
+
+    @Test
+    public void testStoresAreCoalescedAndBatched() throws Exception
+    {
+        _store.setMaxBatchSize(3);
+
+        SessionData data1 = newSessionData("1");
+        _store.store("1", data1);
+        data1.setAttribute("a", "b");
+        _store.store("1", data1);
+        _store.store("2", newSessionData("2"));
+        assertEquals(0, _delegate._batches.get());
+
+        //reaching the max batch size triggers a flush
+        _store.store("3", newSessionData("3"));
+        assertTrue(_delegate._batchLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, _delegate._batches.get());
+        assertEquals(3, _delegate._map.size());
+        assertEquals(4, _store.getStoreCount());
+        assertEquals(3, _store.getWriteCount());
+        assertEquals("b", _delegate._map.get("1").getAttribute("a"));
+    }
+
+    @Test
+    public void testFlushInterval() throws Exception
+    {
+        _store.stop();
+        _store.setFlushIntervalMs(100);
+        _store.start();
+
+        _store.store("1234", newSessionData("1234"));
+        assertTrue(_delegate._batchLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(_delegate._map.containsKey("1234"));
+    }
+
+    @Test
+    public void testReplacedSnapshotChangesAreNotLost() throws Exception
+    {
+        SessionData data = newSessionData("1234");
+        _store.store("1234", data);
+        _store.flush();
+        assertTrue(data.getLastSaved() > 0);
+
+        //queue a change, then queue the session again without any further change
+        data.setAttribute("a", "b");
+        _store.store("1234", data);
+        _store.store("1234", data);
+        assertFalse(data.isDirty());
+
+        _delegate._map.clear();
+        _store.flush();
+        assertEquals("b", _delegate._map.get("1234").getAttribute("a"));
+    }
+
+    @Test
+    public void testQueuedSnapshotIsNotAffectedByMutation() throws Exception
+    {
+        SessionData data = newSessionData("1234");
+        List<Integer> list = new ArrayList<>(Arrays.asList(1));
+        data.setAttribute("a", "b");
+        data.setAttribute("list", list);
+        _store.store("1234", data);
+
+        //keep mutating the session while it is being stored and written
+        CountDownLatch mutated = new CountDownLatch(1);
+        Thread mutator = new Thread(() ->
+        {
+            for (int i = 0; i < 10000; i++)
+            {
+                data.setAttribute("attr" + i, i);
+                data.setMaxInactiveMs(i);
+                if (i == 0)
+                {
+                    list.add(2);
+                    data.setAttribute("a", "c");
+                    mutated.countDown();
+                }
+            }
+        });
+        mutator.start();
+        assertTrue(mutated.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++)
+        {
+            _store.store("5678", data);
+        }
+        _store.flush();
+        mutator.join();
+
+        SessionData written = _delegate._map.get("1234");
+        assertNotSame(data, written);
+        assertEquals("b", written.getAttribute("a"));
+        assertEquals(Arrays.asList(1), written.getAttribute("list"));
+        assertEquals(-1, written.getMaxInactiveMs());
+        assertEquals(2, written.getKeys().size());
+        assertTrue(_delegate._map.containsKey("5678"));
+        assertEquals(0, _store.getFailureCount());
+    }
+
+    @Test
+    public void testDeleteDiscardsPending() throws Exception
+    {
+        _store.store("1234", newSessionData("1234"));
+        _store.delete("1234");
+        assertEquals(0, _store.getPendingCount());
+        assertNull(_store.load("1234"));
+
+        _store.flush();
+        assertFalse(_delegate._map.containsKey("1234"));
+    }
+
+    @Test
+    public void testDeleteOnlyWaitsForTheWriteOfItsSession() throws Exception
+    {
+        _delegate._blockBatches = new CountDownLatch(1);
+        _store.store("1", newSessionData("1"));
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(_store::flush);
+        // Wait for the batch with session 1 to be taken.
+        while (_store.getPendingCount() > 0)
+        {
+            Thread.sleep(10);
+        }
+
+        // Session 2 is not being written, so it is deleted without waiting for the batch.
+        _store.store("2", newSessionData("2"));
+        CompletableFuture.runAsync(() -> delete("2")).get(5, TimeUnit.SECONDS);
+        assertEquals(0, _store.getPendingCount());
+
+        // Session 1 is being written, so its delete waits for the write.
+        CompletableFuture<Void> delete = CompletableFuture.runAsync(() -> delete("1"));
+        Thread.sleep(100);
+        assertFalse(delete.isDone());
+
+        _delegate._blockBatches.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        delete.get(5, TimeUnit.SECONDS);
+        assertFalse(_delegate._map.containsKey("1"));
+        assertFalse(_delegate._map.containsKey("2"));
+    }
+
+    private void delete(String id)
+    {
+        try
+        {
+            _store.delete(id);
+        }
+        catch (Exception x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+
+    @Test
+    public void testFlushSingleSession() throws Exception
+    {
+        _store.store("1", newSessionData("1"));
+        _store.store("2", newSessionData("2"));
+
+        _store.flush("1");
+        assertTrue(_delegate._map.containsKey("1"));
+        assertFalse(_delegate._map.containsKey("2"));
+        assertEquals(1, _store.getPendingCount());
+    }
+
+    @Test
+    public void testFailedBatchIsStoredIndividually() throws Exception
+    {
+        _delegate._failBatches = true;
+        _store.store("1", newSessionData("1"));
+        _store.store("2", newSessionData("2"));
+
+        _store.flush();
+        assertEquals(0, _delegate._batches.get());
+        assertEquals(2, _delegate._map.size());
+        assertEquals(2, _store.getWriteCount());
+        assertEquals(0, _store.getFailureCount());
+    }
+
+    @Test
+    public void testStopFlushes() throws Exception
+    {
+        _store.store("1234", newSessionData("1234"));
+        _store.stop();
+        assertTrue(_delegate._map.containsKey("1234"));
+        assertFalse(_delegate.isRunning());
+    }
+}
@@ -22,6 +22,7 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 
@@ -106,12 +107,22 @@ public class HttpClientTransportOverUnixSockets extends AbstractConnectorHttpCli
             return new UnixSocketSelectorManager(getExecutor(), getScheduler(), getSelectors());
         }
 
+        @Override
+        public void connect(List<? extends SocketAddress> addresses, Map<String, Object> context)
+        {
+            // All the addresses lead to the same Unix socket, so there is nothing to race.
+            SocketAddress address = addresses.stream()
+                .filter(a -> isLocal((InetSocketAddress)a))
+                .findFirst()
+                .orElse(addresses.get(0));
+            connect(address, context);
+        }
+
         @Override
         public void connect(SocketAddress address, Map<String, Object> context)
         {
             InetSocketAddress socketAddress = (InetSocketAddress)address;
-            InetAddress inetAddress = socketAddress.getAddress();
-            if (inetAddress.isLoopbackAddress() || inetAddress.isLinkLocalAddress() || inetAddress.isSiteLocalAddress())
+            if (isLocal(socketAddress))
             {
                 SocketChannel channel = null;
                 try
@@ -134,6 +145,12 @@ public class HttpClientTransportOverUnixSockets extends AbstractConnectorHttpCli
             }
         }
 
+        private boolean isLocal(InetSocketAddress socketAddress)
+        {
+            InetAddress inetAddress = socketAddress.getAddress();
+            return inetAddress.isLoopbackAddress() || inetAddress.isLinkLocalAddress() || inetAddress.isSiteLocalAddress();
+        }
+
         private class UnixSocketSelectorManager extends ClientSelectorManager
         {
             private UnixSocketSelectorManager(Executor executor, Scheduler scheduler, int selectors)
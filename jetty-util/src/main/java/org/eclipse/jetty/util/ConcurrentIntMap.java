@@ -0,0 +1,303 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A concurrent map from primitive {@code int} keys to object values.</p>
+ * <p>Lookups are lock-free and do not box the key, while modifications are
+ * serialized by a lock, so this map is suited to read-mostly workloads such as
+ * looking up HTTP/2 streams by stream id for every frame.</p>
+ * <p>Entries are stored in open addressing tables with linear probing, in two
+ * parallel arrays of keys and values, without a node object per entry.
+ * A slot is assigned a key only once per table: removing an entry leaves the key
+ * in place with a {@code null} value, so that concurrent lookups never observe
+ * a slot changing key. Removed slots are reused if the same key is put again,
+ * and are discarded when the table is rehashed.</p>
+ * <p>The hash function is tuned for keys that are mostly monotonic and of the
+ * same parity, like HTTP/2 stream ids: consecutive keys map to consecutive slots.</p>
+ * <p>{@link #size()} and {@link #values()} are weakly consistent.</p>
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentIntMap<V>
+{
+    private static final int MIN_CAPACITY = 16;
+
+    private final AutoLock lock = new AutoLock();
+    // The zero key is the marker of empty slots, so its value is stored separately.
+    private final AtomicReference<V> zero = new AtomicReference<>();
+    private volatile Table<V> table;
+    private volatile int size;
+
+    public ConcurrentIntMap()
+    {
+        table = new Table<>(MIN_CAPACITY);
+    }
+
+    /**
+     * @param capacity the expected number of entries
+     */
+    public ConcurrentIntMap(int capacity)
+    {
+        table = new Table<>(capacityFor(capacity));
+    }
+
+    /**
+     * @param key the key
+     * @return the value associated with the key, or null if there is no such value
+     */
+    public V get(int key)
+    {
+        if (key == 0)
+            return zero.get();
+        Table<V> table = this.table;
+        int mask = table.mask;
+        int slot = table.index(key);
+        while (true)
+        {
+            int k = table.keys.get(slot);
+            if (k == key)
+                return table.values.get(slot);
+            if (k == 0)
+                return null;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return whether a value is associated with the key
+     */
+    public boolean containsKey(int key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key the key
+     * @param value the value, not null
+     * @return the value previously associated with the key, or null if there was no such value
+     */
+    public V put(int key, V value)
+    {
+        return put(key, value, false);
+    }
+
+    /**
+     * @param key the key
+     * @param value the value, not null
+     * @return the value already associated with the key, in which case the map is not
+     * modified, or null if the key was not associated with a value
+     */
+    public V putIfAbsent(int key, V value)
+    {
+        return put(key, value, true);
+    }
+
+    private V put(int key, V value, boolean onlyIfAbsent)
+    {
+        Objects.requireNonNull(value);
+        try (AutoLock l = lock.lock())
+        {
+            V existing;
+            if (key == 0)
+            {
+                existing = zero.get();
+                if (existing == null || !onlyIfAbsent)
+                    zero.set(value);
+            }
+            else
+            {
+                Table<V> table = this.table;
+                int slot = table.find(key);
+                if (table.keys.get(slot) == 0)
+                {
+                    // Keep at least one empty slot to terminate the lookups.
+                    if (table.used + 1 > table.threshold)
+                    {
+                        table = rehash(size + 1);
+                        slot = table.find(key);
+                    }
+                    table.keys.set(slot, key);
+                    ++table.used;
+                }
+                existing = table.values.get(slot);
+                if (existing == null || !onlyIfAbsent)
+                    table.values.set(slot, value);
+            }
+            if (existing == null)
+                ++size;
+            return existing;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the value previously associated with the key, or null if there was no such value
+     */
+    public V remove(int key)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            V existing;
+            if (key == 0)
+            {
+                existing = zero.getAndSet(null);
+            }
+            else
+            {
+                Table<V> table = this.table;
+                int slot = table.find(key);
+                existing = table.keys.get(slot) == key ? table.values.getAndSet(slot, null) : null;
+            }
+            if (existing != null)
+                --size;
+            return existing;
+        }
+    }
+
+    /**
+     * <p>Removes all the entries.</p>
+     */
+    public void clear()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            zero.set(null);
+            table = new Table<>(MIN_CAPACITY);
+            size = 0;
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return whether this map has no entries
+     */
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * @return a snapshot of the values
+     */
+    public List<V> values()
+    {
+        List<V> result = new ArrayList<>(size());
+        V value = zero.get();
+        if (value != null)
+            result.add(value);
+        Table<V> table = this.table;
+        for (int i = 0; i < table.values.length(); ++i)
+        {
+            value = table.values.get(i);
+            if (value != null)
+                result.add(value);
+        }
+        return result;
+    }
+
+    private Table<V> rehash(int size)
+    {
+        Table<V> oldTable = this.table;
+        Table<V> newTable = new Table<>(capacityFor(size));
+        for (int i = 0; i < oldTable.values.length(); ++i)
+        {
+            V value = oldTable.values.get(i);
+            if (value != null)
+            {
+                int key = oldTable.keys.get(i);
+                int slot = newTable.find(key);
+                newTable.keys.set(slot, key);
+                newTable.values.set(slot, value);
+                ++newTable.used;
+            }
+        }
+        // Lookups in progress complete on the old table,
+        // which is never modified after the new table is published.
+        this.table = newTable;
+        return newTable;
+    }
+
+    private static int capacityFor(int size)
+    {
+        // Leave room for as many removed slots as live entries before the next rehash.
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, size * 4) - 1) << 1;
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid size " + size);
+        return capacity;
+    }
+
+    @Override
+    public String toString()
+    {
+        Table<V> table = this.table;
+        return String.format("%s@%x[size=%d,capacity=%d]", getClass().getSimpleName(), hashCode(), size(), table.keys.length());
+    }
+
+    private static class Table<V>
+    {
+        private final AtomicIntegerArray keys;
+        private final AtomicReferenceArray<V> values;
+        private final int mask;
+        private final int threshold;
+        // Only accessed with the lock held.
+        private int used;
+
+        private Table(int capacity)
+        {
+            keys = new AtomicIntegerArray(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            threshold = capacity - (capacity >>> 2);
+        }
+
+        private int index(int key)
+        {
+            // Keys of the same parity that differ by 2 map to consecutive slots.
+            return (key >>> 1) & mask;
+        }
+
+        /**
+         * @return the slot that holds the key, or the empty slot where the key should be stored
+         */
+        private int find(int key)
+        {
+            int slot = index(key);
+            while (true)
+            {
+                int k = keys.get(slot);
+                if (k == key || k == 0)
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+}
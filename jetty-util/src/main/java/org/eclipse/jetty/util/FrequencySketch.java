@@ -0,0 +1,149 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A probabilistic estimator of the popularity of items, within a time window.</p>
+ * <p>This is a Count-Min sketch with 4 bits counters, so that the estimated frequency
+ * of an item is at most 15.
+ * Each item is counted in 4 counters, and its frequency is the minimum of those counters,
+ * so that it may be overestimated when items collide, but it is never underestimated.
+ * When the number of increments reaches a sample size that is proportional to
+ * the expected number of items, all the counters are halved, so that the sketch
+ * ages the frequency of items that are no longer popular.</p>
+ * <p>This class is thread safe, but updates are not atomic with respect to aging,
+ * so that concurrent increments may be lost; this is acceptable for an estimator.</p>
+ * <p>This is the frequency estimator of the TinyLFU admission policy, which can be used
+ * to decide whether a new item should replace the victim chosen by a cache eviction policy.</p>
+ */
+public class FrequencySketch
+{
+    private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_FREQUENCY = 15;
+
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicLongArray _table;
+    private final int _mask;
+    private final int _sampleSize;
+
+    /**
+     * @param maxItems the expected max number of items
+     */
+    public FrequencySketch(int maxItems)
+    {
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(maxItems, 1 << 30)) - 1) << 1;
+        _table = new AtomicLongArray(capacity);
+        _mask = capacity - 1;
+        _sampleSize = 10 * Math.max(16, maxItems);
+    }
+
+    /**
+     * @return the number of increments after which the counters are halved
+     */
+    public int getSampleSize()
+    {
+        return _sampleSize;
+    }
+
+    /**
+     * @param item the item
+     * @return the estimated frequency of the item, between 0 and 15
+     */
+    public int frequency(Object item)
+    {
+        int hash = spread(item.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++)
+        {
+            int index = indexOf(hash, i);
+            int count = (int)((_table.get(index) >>> ((start + i) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * <p>Increments the estimated frequency of the item,
+     * unless it has already reached the max value.</p>
+     *
+     * @param item the item
+     */
+    public void increment(Object item)
+    {
+        int hash = spread(item.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++)
+        {
+            int index = indexOf(hash, i);
+            added |= incrementAt(index, start + i);
+        }
+
+        if (added && _size.incrementAndGet() == _sampleSize)
+            reset();
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        while (true)
+        {
+            long value = _table.get(index);
+            if ((value & mask) == mask)
+                return false;
+            if (_table.compareAndSet(index, value, value + (1L << offset)))
+                return true;
+        }
+    }
+
+    private void reset()
+    {
+        int odd = 0;
+        for (int i = 0; i < _table.length(); i++)
+        {
+            long value = _table.getAndUpdate(i, v -> (v >>> 1) & RESET_MASK);
+            odd += Long.bitCount(value & ONE_MASK);
+        }
+        // Halve the size, accounting for the truncation of odd counters.
+        int halved = (_sampleSize >>> 1) - (odd >>> 2);
+        _size.addAndGet(halved - _sampleSize);
+    }
+
+    private int indexOf(int hash, int i)
+    {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int)h & _mask;
+    }
+
+    private static int spread(int hash)
+    {
+        hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+        hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+        return (hash >>> 16) ^ hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{capacity=%d,sample=%d/%d}", getClass().getSimpleName(), hashCode(), _table.length(), _size.get(), _sampleSize);
+    }
+}
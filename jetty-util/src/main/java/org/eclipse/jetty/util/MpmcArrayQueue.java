@@ -0,0 +1,281 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>A bounded, lock-free, multiple producers multiple consumers queue.</p>
+ * <p>Any thread may {@link #offer(Object) offer}, {@link #poll() poll} or
+ * {@link #remove(Object) remove} elements without ever blocking.
+ * {@link #offer(Object)} returns {@code false} if the queue already
+ * contains {@link #getCapacity() capacity} elements.</p>
+ * <p>The elements are stored in a ring of slots, each with a sequence number
+ * that tells producers and consumers whether the slot can be written or read,
+ * so that they only contend on the atomic increment of the tail and the head
+ * positions. The algorithm is the bounded MPMC queue by Dmitry Vyukov.</p>
+ * <p>An element removed with {@link #remove(Object)} leaves its slot empty
+ * until consumers move the head past it. The ring has twice the slots of the
+ * capacity, so that empty slots do not reduce the capacity, unless more than
+ * {@code capacity} elements are removed behind an element that is not
+ * consumed, in which case {@link #offer(Object)} may return {@code false}
+ * before the capacity is reached.</p>
+ * <p>{@link #size()} is constant time, while {@link #peek()},
+ * {@link #remove(Object)} and {@link #iterator()} are weakly consistent
+ * and linear in the number of elements.</p>
+ *
+ * @param <E> the type of the elements
+ */
+public class MpmcArrayQueue<E> extends AbstractQueue<E>
+{
+    private final AtomicLong _head = new AtomicLong();
+    private final AtomicLong _tail = new AtomicLong();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final int _capacity;
+    private final int _mask;
+    private final AtomicLongArray _sequences;
+    private final AtomicReferenceArray<E> _elements;
+
+    /**
+     * @param capacity the max number of elements in the queue
+     */
+    public MpmcArrayQueue(int capacity)
+    {
+        if (capacity <= 0 || capacity > 1 << 29)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        _capacity = capacity;
+        int slots = Integer.highestOneBit(2 * capacity - 1) << 1;
+        _mask = slots - 1;
+        _sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++)
+        {
+            _sequences.set(i, i);
+        }
+        _elements = new AtomicReferenceArray<>(slots);
+    }
+
+    /**
+     * @return the max number of elements in the queue
+     */
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+
+        // Reserve room for the element.
+        while (true)
+        {
+            int size = _size.get();
+            if (size >= _capacity)
+                return false;
+            if (_size.compareAndSet(size, size + 1))
+                break;
+        }
+
+        while (true)
+        {
+            long tail = _tail.get();
+            int index = (int)tail & _mask;
+            long delta = _sequences.get(index) - tail;
+            if (delta == 0)
+            {
+                if (_tail.compareAndSet(tail, tail + 1))
+                {
+                    _elements.set(index, e);
+                    // Publish the element to consumers.
+                    _sequences.set(index, tail + 1);
+                    return true;
+                }
+            }
+            else if (delta < 0)
+            {
+                // The ring is full of removed elements.
+                if (!purge())
+                {
+                    _size.decrementAndGet();
+                    return false;
+                }
+            }
+            // Otherwise another producer moved the tail, retry.
+        }
+    }
+
+    @Override
+    public E poll()
+    {
+        while (true)
+        {
+            long head = _head.get();
+            int index = (int)head & _mask;
+            long delta = _sequences.get(index) - (head + 1);
+            if (delta == 0)
+            {
+                if (_head.compareAndSet(head, head + 1))
+                {
+                    E element = _elements.getAndSet(index, null);
+                    // Release the slot to producers.
+                    _sequences.set(index, head + _mask + 1);
+                    if (element != null)
+                    {
+                        _size.decrementAndGet();
+                        return element;
+                    }
+                    // The element has been removed, try the next.
+                }
+            }
+            else if (delta < 0)
+            {
+                return null;
+            }
+            // Otherwise another consumer moved the head, retry.
+        }
+    }
+
+    /**
+     * <p>Moves the head past the slots of removed elements.</p>
+     *
+     * @return whether at least one slot has been released
+     */
+    private boolean purge()
+    {
+        boolean purged = false;
+        while (true)
+        {
+            long head = _head.get();
+            int index = (int)head & _mask;
+            if (_sequences.get(index) != head + 1 || _elements.get(index) != null)
+                return purged;
+            if (_head.compareAndSet(head, head + 1))
+            {
+                _sequences.set(index, head + _mask + 1);
+                purged = true;
+            }
+        }
+    }
+
+    @Override
+    public E peek()
+    {
+        Iterator<E> iterator = iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        if (o == null)
+            return false;
+        long tail = _tail.get();
+        for (long position = _head.get(); position < tail; ++position)
+        {
+            int index = (int)position & _mask;
+            E element = get(index, position);
+            if (element != null && element.equals(o))
+            {
+                // Races with consumers, only one can empty the slot.
+                if (_elements.compareAndSet(index, element, null))
+                {
+                    _size.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the element of the slot at the given index if it
+     * is published for the given position, or null otherwise
+     */
+    private E get(int index, long position)
+    {
+        if (_sequences.get(index) != position + 1)
+            return null;
+        E element = _elements.get(index);
+        // Verify that the slot has not been reused.
+        if (_sequences.get(index) != position + 1)
+            return null;
+        return element;
+    }
+
+    @Override
+    public int size()
+    {
+        return _size.get();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return new Iterator<E>()
+        {
+            private final long _end = _tail.get();
+            private long _position = _head.get();
+            private E _next = advance();
+
+            private E advance()
+            {
+                // Skip the slots of removed or concurrently consumed elements.
+                while (_position < _end)
+                {
+                    long position = _position++;
+                    E element = get((int)position & _mask, position);
+                    if (element != null)
+                        return element;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return _next != null;
+            }
+
+            @Override
+            public E next()
+            {
+                E element = _next;
+                if (element == null)
+                    throw new NoSuchElementException();
+                _next = advance();
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d/%d]", getClass().getSimpleName(), hashCode(), size(), getCapacity());
+    }
+}
@@ -0,0 +1,211 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * <p>An unbounded, lock-free, multiple producers single consumer queue.</p>
+ * <p>Any thread may {@link #offer(Object) offer} elements, with a single atomic
+ * exchange and without ever blocking or retrying, while only one thread at a time,
+ * the consumer, may {@link #poll() poll}, {@link #peek() peek} or {@link #drain(Consumer) drain}
+ * elements.</p>
+ * <p>The consumer may briefly spin if it observes an element that is being offered
+ * but that is not linked yet to the previous element.</p>
+ * <p>{@link #size()} and {@link #iterator()} may be called by any thread, but are
+ * weakly consistent and linear in the number of elements, so they should only be
+ * used for diagnostic purposes.</p>
+ * <p>The algorithm is the non intrusive MPSC node based queue by Dmitry Vyukov.</p>
+ *
+ * @param <E> the type of the elements
+ */
+public class MpscQueue<E> extends AbstractQueue<E>
+{
+    private final AtomicReference<Node<E>> _tail;
+    private Node<E> _head;
+
+    public MpscQueue()
+    {
+        Node<E> node = new Node<>(null);
+        _head = node;
+        _tail = new AtomicReference<>(node);
+    }
+
+    /**
+     * <p>Offers an element to the queue; may be called by any thread.</p>
+     *
+     * @param e the element to offer
+     * @return always true, since the queue is unbounded
+     */
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        Node<E> node = new Node<>(e);
+        Node<E> previous = _tail.getAndSet(node);
+        // The consumer may see the new tail before the link,
+        // in which case it waits for the link to be set.
+        previous._next = node;
+        return true;
+    }
+
+    /**
+     * <p>Removes the element at the head of the queue; must be called only by the consumer.</p>
+     *
+     * @return the element at the head of the queue, or null if the queue is empty
+     */
+    @Override
+    public E poll()
+    {
+        Node<E> next = next();
+        if (next == null)
+            return null;
+        E element = next._element;
+        next._element = null;
+        _head = next;
+        return element;
+    }
+
+    /**
+     * <p>Returns the element at the head of the queue; must be called only by the consumer.</p>
+     *
+     * @return the element at the head of the queue, or null if the queue is empty
+     */
+    @Override
+    public E peek()
+    {
+        Node<E> next = next();
+        return next == null ? null : next._element;
+    }
+
+    /**
+     * <p>Removes the elements offered before this call and passes them to the
+     * given consumer; must be called only by the consumer.</p>
+     * <p>Elements offered after this call, including those offered by the
+     * given consumer, are not drained.</p>
+     *
+     * @param consumer the consumer of the elements
+     * @return the number of elements drained
+     */
+    public int drain(Consumer<? super E> consumer)
+    {
+        Node<E> tail = _tail.get();
+        int drained = 0;
+        while (_head != tail)
+        {
+            E element = poll();
+            ++drained;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    /**
+     * <p>Returns whether the queue is empty; may be called by any thread,
+     * but it is accurate only when called by the consumer.</p>
+     *
+     * @return whether the queue is empty
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return _head == _tail.get();
+    }
+
+    @Override
+    public int size()
+    {
+        int size = 0;
+        for (Node<E> node = _head._next; node != null; node = node._next)
+        {
+            if (node._element != null)
+                ++size;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return new Iterator<E>()
+        {
+            private Node<E> _node = _head;
+            private E _next = advance();
+
+            private E advance()
+            {
+                // Skip the nodes that have been concurrently consumed.
+                while (true)
+                {
+                    Node<E> node = _node._next;
+                    if (node == null)
+                        return null;
+                    _node = node;
+                    E element = node._element;
+                    if (element != null)
+                        return element;
+                }
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return _next != null;
+            }
+
+            @Override
+            public E next()
+            {
+                E element = _next;
+                if (element == null)
+                    throw new NoSuchElementException();
+                _next = advance();
+                return element;
+            }
+        };
+    }
+
+    private Node<E> next()
+    {
+        Node<E> head = _head;
+        Node<E> next = head._next;
+        if (next == null)
+        {
+            if (head == _tail.get())
+                return null;
+            // An element is being offered, wait for it to be linked.
+            while ((next = head._next) == null)
+            {
+                Thread.onSpinWait();
+            }
+        }
+        return next;
+    }
+
+    private static class Node<E>
+    {
+        private E _element;
+        private volatile Node<E> _next;
+
+        private Node(E element)
+        {
+            _element = element;
+        }
+    }
+}
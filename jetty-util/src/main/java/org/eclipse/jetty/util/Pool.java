@@ -101,6 +101,14 @@ public class Pool<T> implements AutoCloseable, Dumpable
          * No entries are favoured and contention is reduced.
          */
         ROUND_ROBIN,
+
+        /**
+         * A strategy that looks for the entry with the lowest multiplexing count,
+         * so that the load is spread among the multiplexed entries.
+         * Every search iterates over all the entries, and the {@link ThreadLocal}
+         * cache is not used.
+         */
+        LEAST_MULTIPLEXED,
     }
 
     /**
@@ -250,6 +258,9 @@ public class Pool<T> implements AutoCloseable, Dumpable
         if (size == 0)
             return null;
 
+        if (strategyType == StrategyType.LEAST_MULTIPLEXED)
+            return acquireLeastMultiplexed();
+
         if (cache != null)
         {
             Pool<T>.Entry entry = cache.get();
@@ -282,6 +293,29 @@ public class Pool<T> implements AutoCloseable, Dumpable
         return null;
     }
 
+    private Entry acquireLeastMultiplexed()
+    {
+        while (true)
+        {
+            Entry least = null;
+            int leastCount = Integer.MAX_VALUE;
+            for (Entry entry : entries)
+            {
+                int count = entry.getAcquirableMultiplexCount();
+                if (count >= 0 && count < leastCount)
+                {
+                    least = entry;
+                    leastCount = count;
+                }
+            }
+            if (least == null)
+                return null;
+            // Retry if another thread acquired or removed the entry concurrently.
+            if (least.tryAcquire())
+                return least;
+        }
+    }
+
     private int startIndex(int size)
     {
         switch (strategyType)
@@ -596,6 +630,20 @@ public class Pool<T> implements AutoCloseable, Dumpable
             }
         }
 
+        /**
+         * @return the multiplexing count if the entry can be acquired, -1 otherwise
+         */
+        private int getAcquirableMultiplexCount()
+        {
+            long encoded = state.get();
+            int usageCount = AtomicBiInteger.getHi(encoded);
+            int multiplexingCount = AtomicBiInteger.getLo(encoded);
+            int currentMaxUsageCount = maxUsageCount;
+            if (usageCount < 0 || multiplexingCount >= maxMultiplex || (currentMaxUsageCount > 0 && usageCount >= currentMaxUsageCount))
+                return -1;
+            return multiplexingCount;
+        }
+
         public boolean isClosed()
         {
             return state.getHi() < 0;
@@ -634,6 +682,14 @@ public class Pool<T> implements AutoCloseable, Dumpable
             return Math.max(state.getHi(), 0);
         }
 
+        /**
+         * @return the number of times the entry is currently acquired
+         */
+        public int getMultiplexCount()
+        {
+            return state.getLo();
+        }
+
         @Override
         public String toString()
         {
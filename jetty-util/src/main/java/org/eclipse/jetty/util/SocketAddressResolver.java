@@ -17,15 +17,21 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
+import java.security.Security;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -194,4 +200,336 @@ public interface SocketAddressResolver
             });
         }
     }
+
+    /**
+     * <p>Caches the resolutions performed by another {@link SocketAddressResolver}.</p>
+     * <p>Successful resolutions are cached for the positive time-to-live, and
+     * {@link UnknownHostException} failures for the negative time-to-live;
+     * they default to the values of the {@code networkaddress.cache.ttl} and
+     * {@code networkaddress.cache.negative.ttl} security properties, like
+     * the JDK {@link InetAddress} cache (the per-record DNS TTL is not available
+     * through {@link InetAddress}).</p>
+     * <p>A cached resolution that is accessed after the prefetch ratio of its
+     * time-to-live has elapsed is refreshed in the background, so that frequently
+     * resolved hosts never wait for a resolution.
+     * Concurrent resolutions of the same host are performed only once.</p>
+     * <p>Expired resolutions are evicted when accessed, and when the cache is full;
+     * if the cache is still full, the resolution that expires first is evicted.</p>
+     */
+    @ManagedObject("The caching address resolver")
+    public static class Caching implements SocketAddressResolver
+    {
+        private static final Logger LOG = LoggerFactory.getLogger(SocketAddressResolver.class);
+
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final SocketAddressResolver resolver;
+        private final long ttl;
+        private final long negativeTTL;
+        private double prefetchRatio = 0.75D;
+        private int maxSize = 1024;
+
+        /**
+         * Creates a new instance with the time-to-live values of the JDK {@link InetAddress} cache.
+         *
+         * @param resolver the resolver to cache the resolutions of
+         */
+        public Caching(SocketAddressResolver resolver)
+        {
+            this(resolver, securityTTL("networkaddress.cache.ttl", 30), securityTTL("networkaddress.cache.negative.ttl", 10));
+        }
+
+        /**
+         * @param resolver the resolver to cache the resolutions of
+         * @param ttl the time-to-live, in milliseconds, of successful resolutions
+         * @param negativeTTL the time-to-live, in milliseconds, of failed resolutions
+         */
+        public Caching(SocketAddressResolver resolver, long ttl, long negativeTTL)
+        {
+            this.resolver = resolver;
+            this.ttl = ttl;
+            this.negativeTTL = negativeTTL;
+        }
+
+        private static long securityTTL(String name, long defaultSeconds)
+        {
+            try
+            {
+                String value = Security.getProperty(name);
+                long seconds = value == null ? defaultSeconds : Long.parseLong(value.trim());
+                // Caching forever is not supported.
+                return TimeUnit.SECONDS.toMillis(seconds < 0 ? defaultSeconds : seconds);
+            }
+            catch (Throwable x)
+            {
+                return TimeUnit.SECONDS.toMillis(defaultSeconds);
+            }
+        }
+
+        public SocketAddressResolver getSocketAddressResolver()
+        {
+            return resolver;
+        }
+
+        @ManagedAttribute(value = "The time-to-live, in milliseconds, of successful resolutions", readonly = true)
+        public long getTTL()
+        {
+            return ttl;
+        }
+
+        @ManagedAttribute(value = "The time-to-live, in milliseconds, of failed resolutions", readonly = true)
+        public long getNegativeTTL()
+        {
+            return negativeTTL;
+        }
+
+        /**
+         * @return the ratio of the time-to-live after which a cached resolution is refreshed when accessed
+         */
+        @ManagedAttribute("The ratio of the time-to-live after which a cached resolution is refreshed when accessed")
+        public double getPrefetchRatio()
+        {
+            return prefetchRatio;
+        }
+
+        /**
+         * @param prefetchRatio the ratio of the time-to-live after which a cached resolution is refreshed
+         * when accessed, or a value greater than or equal to 1 to disable prefetching
+         */
+        public void setPrefetchRatio(double prefetchRatio)
+        {
+            this.prefetchRatio = prefetchRatio;
+        }
+
+        @ManagedAttribute(value = "The number of resolutions served by the cache", readonly = true)
+        public long getHits()
+        {
+            return hits.sum();
+        }
+
+        @ManagedAttribute(value = "The number of resolutions not served by the cache", readonly = true)
+        public long getMisses()
+        {
+            return misses.sum();
+        }
+
+        @ManagedAttribute(value = "The number of cached resolutions", readonly = true)
+        public int getSize()
+        {
+            return entries.size();
+        }
+
+        /**
+         * @return the max number of cached resolutions
+         */
+        @ManagedAttribute("The max number of cached resolutions")
+        public int getMaxSize()
+        {
+            return maxSize;
+        }
+
+        /**
+         * @param maxSize the max number of cached resolutions
+         */
+        public void setMaxSize(int maxSize)
+        {
+            if (maxSize <= 0)
+                throw new IllegalArgumentException("Invalid max size " + maxSize);
+            this.maxSize = maxSize;
+        }
+
+        @ManagedOperation(value = "Removes all the cached resolutions", impact = "ACTION")
+        public void clear()
+        {
+            entries.clear();
+        }
+
+        @Override
+        public void resolve(String host, int port, Promise<List<InetSocketAddress>> promise)
+        {
+            long now = System.nanoTime();
+            Entry entry = entries.get(host);
+            if (entry != null && now - entry.expireNanoTime < 0)
+            {
+                hits.increment();
+                if (entry.addresses != null && now - entry.prefetchNanoTime >= 0 && !resolutions.containsKey(host))
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Prefetching {}", host);
+                    resolve(host, new Resolution(host));
+                }
+                entry.complete(port, promise);
+                return;
+            }
+
+            if (entry != null)
+                entries.remove(host, entry);
+            misses.increment();
+            Resolution resolution = new Resolution(host);
+            resolution.add(port, promise);
+            resolve(host, resolution);
+        }
+
+        private void resolve(String host, Resolution resolution)
+        {
+            while (true)
+            {
+                Resolution existing = resolutions.putIfAbsent(host, resolution);
+                if (existing == null)
+                {
+                    resolver.resolve(host, 0, resolution);
+                    return;
+                }
+                // Join the resolution in progress, if it is not complete yet.
+                if (existing.join(resolution))
+                    return;
+                resolutions.remove(host, existing);
+            }
+        }
+
+        private void cache(String host, Entry entry)
+        {
+            if (!entries.containsKey(host) && entries.size() >= getMaxSize())
+                evict();
+            entries.put(host, entry);
+        }
+
+        private void evict()
+        {
+            long now = System.nanoTime();
+            String oldest = null;
+            long oldestExpireNanoTime = 0;
+            for (Map.Entry<String, Entry> e : entries.entrySet())
+            {
+                long expireNanoTime = e.getValue().expireNanoTime;
+                if (now - expireNanoTime >= 0)
+                    entries.remove(e.getKey(), e.getValue());
+                else if (oldest == null || expireNanoTime - oldestExpireNanoTime < 0)
+                {
+                    oldest = e.getKey();
+                    oldestExpireNanoTime = expireNanoTime;
+                }
+            }
+            if (oldest != null && entries.size() >= getMaxSize())
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Evicting {}", oldest);
+                entries.remove(oldest);
+            }
+        }
+
+        private static class Entry
+        {
+            private final InetAddress[] addresses;
+            private final Throwable failure;
+            private final long expireNanoTime;
+            private final long prefetchNanoTime;
+
+            private Entry(InetAddress[] addresses, Throwable failure, long ttl, double prefetchRatio)
+            {
+                this.addresses = addresses;
+                this.failure = failure;
+                long now = System.nanoTime();
+                long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+                this.expireNanoTime = now + ttlNanos;
+                this.prefetchNanoTime = now + (long)(ttlNanos * Math.min(1D, prefetchRatio));
+            }
+
+            private void complete(int port, Promise<List<InetSocketAddress>> promise)
+            {
+                if (failure != null)
+                {
+                    promise.failed(failure);
+                    return;
+                }
+                List<InetSocketAddress> result = new ArrayList<>(addresses.length);
+                for (InetAddress address : addresses)
+                {
+                    result.add(new InetSocketAddress(address, port));
+                }
+                promise.succeeded(result);
+            }
+        }
+
+        private class Resolution implements Promise<List<InetSocketAddress>>
+        {
+            private final AutoLock lock = new AutoLock();
+            private final List<Waiter> waiters = new ArrayList<>(1);
+            private final String host;
+            private Entry entry;
+
+            private Resolution(String host)
+            {
+                this.host = host;
+            }
+
+            private void add(int port, Promise<List<InetSocketAddress>> promise)
+            {
+                waiters.add(new Waiter(port, promise));
+            }
+
+            private boolean join(Resolution resolution)
+            {
+                try (AutoLock l = lock.lock())
+                {
+                    if (entry != null)
+                        return false;
+                    waiters.addAll(resolution.waiters);
+                    return true;
+                }
+            }
+
+            @Override
+            public void succeeded(List<InetSocketAddress> result)
+            {
+                InetAddress[] addresses = new InetAddress[result.size()];
+                for (int i = 0; i < addresses.length; ++i)
+                {
+                    addresses[i] = result.get(i).getAddress();
+                }
+                complete(new Entry(addresses, null, getTTL(), getPrefetchRatio()), true);
+            }
+
+            @Override
+            public void failed(Throwable x)
+            {
+                // Only negative answers are cached, not timeouts or other errors.
+                boolean cache = x instanceof UnknownHostException && getNegativeTTL() > 0;
+                complete(new Entry(null, x, getNegativeTTL(), 1D), cache);
+            }
+
+            private void complete(Entry result, boolean cache)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Resolved {} {}", host, result.failure == null ? result.addresses : result.failure);
+                List<Waiter> waiters;
+                try (AutoLock l = lock.lock())
+                {
+                    entry = result;
+                    waiters = new ArrayList<>(this.waiters);
+                }
+                if (cache)
+                    cache(host, result);
+                resolutions.remove(host, this);
+                for (Waiter waiter : waiters)
+                {
+                    result.complete(waiter.port, waiter.promise);
+                }
+            }
+        }
+
+        private static class Waiter
+        {
+            private final int port;
+            private final Promise<List<InetSocketAddress>> promise;
+
+            private Waiter(int port, Promise<List<InetSocketAddress>> promise)
+            {
+                this.port = port;
+                this.promise = promise;
+            }
+        }
+    }
 }
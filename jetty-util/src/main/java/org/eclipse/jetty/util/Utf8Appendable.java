@@ -14,7 +14,10 @@
 package org.eclipse.jetty.util;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +54,9 @@ public abstract class Utf8Appendable
     public static final byte[] REPLACEMENT_UTF8 = new byte[]{(byte)0xEF, (byte)0xBF, (byte)0xBD};
     private static final int UTF8_ACCEPT = 0;
     private static final int UTF8_REJECT = 12;
+    // The high bit of each of 8 bytes, which are all clear for 8 ASCII bytes.
+    private static final long ASCII_MASK = 0x8080808080808080L;
+    private static final VarHandle BYTES_AS_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
 
     protected final Appendable _appendable;
     protected int _state = UTF8_ACCEPT;
@@ -158,17 +164,42 @@ public abstract class Utf8Appendable
 
     public void append(ByteBuffer buf)
     {
+        int pos = buf.position();
+        int end = buf.limit();
         try
         {
-            while (buf.remaining() > 0)
+            while (pos < end)
             {
-                appendByte(buf.get());
+                if (_state == UTF8_ACCEPT)
+                {
+                    // Fast path: skip over runs of ASCII bytes 8 at a time.
+                    int ascii = pos;
+                    while (end - ascii >= Long.BYTES && (buf.getLong(ascii) & ASCII_MASK) == 0)
+                    {
+                        ascii += Long.BYTES;
+                    }
+                    while (ascii < end && buf.get(ascii) >= 0)
+                    {
+                        ++ascii;
+                    }
+                    if (ascii > pos)
+                    {
+                        appendAscii(buf, pos, ascii - pos);
+                        pos = ascii;
+                        continue;
+                    }
+                }
+                appendByte(buf.get(pos++));
             }
         }
         catch (IOException e)
         {
             throw new RuntimeException(e);
         }
+        finally
+        {
+            buf.position(pos);
+        }
     }
 
     public void append(byte[] b)
@@ -181,9 +212,29 @@ public abstract class Utf8Appendable
         try
         {
             int end = offset + length;
-            for (int i = offset; i < end; i++)
+            int i = offset;
+            while (i < end)
             {
-                appendByte(b[i]);
+                if (_state == UTF8_ACCEPT)
+                {
+                    // Fast path: skip over runs of ASCII bytes 8 at a time.
+                    int ascii = i;
+                    while (end - ascii >= Long.BYTES && ((long)BYTES_AS_LONG.get(b, ascii) & ASCII_MASK) == 0)
+                    {
+                        ascii += Long.BYTES;
+                    }
+                    while (ascii < end && b[ascii] >= 0)
+                    {
+                        ++ascii;
+                    }
+                    if (ascii > i)
+                    {
+                        appendAscii(b, i, ascii - i);
+                        i = ascii;
+                        continue;
+                    }
+                }
+                appendByte(b[i++]);
             }
         }
         catch (IOException e)
@@ -211,6 +262,38 @@ public abstract class Utf8Appendable
         }
     }
 
+    /**
+     * <p>Appends a run of ASCII bytes, that need no decoding, while no UTF-8 sequence is in progress.</p>
+     *
+     * @param buf the buffer containing the ASCII bytes
+     * @param index the absolute index of the first ASCII byte
+     * @param length the number of ASCII bytes
+     * @throws IOException if the bytes cannot be appended
+     */
+    protected void appendAscii(ByteBuffer buf, int index, int length) throws IOException
+    {
+        for (int i = index, end = index + length; i < end; i++)
+        {
+            _appendable.append((char)buf.get(i));
+        }
+    }
+
+    /**
+     * <p>Appends a run of ASCII bytes, that need no decoding, while no UTF-8 sequence is in progress.</p>
+     *
+     * @param b the array containing the ASCII bytes
+     * @param offset the offset of the first ASCII byte
+     * @param length the number of ASCII bytes
+     * @throws IOException if the bytes cannot be appended
+     */
+    protected void appendAscii(byte[] b, int offset, int length) throws IOException
+    {
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            _appendable.append((char)b[i]);
+        }
+    }
+
     protected void appendByte(byte b) throws IOException
     {
 
@@ -13,6 +13,8 @@
 
 package org.eclipse.jetty.util;
 
+import java.nio.ByteBuffer;
+
 /**
  * UTF-8 StringBuilder.
  *
@@ -47,6 +49,26 @@ public class Utf8StringBuilder extends Utf8Appendable
         return _buffer.length();
     }
 
+    @Override
+    protected void appendAscii(ByteBuffer buf, int index, int length)
+    {
+        _buffer.ensureCapacity(_buffer.length() + length);
+        for (int i = index, end = index + length; i < end; i++)
+        {
+            _buffer.append((char)buf.get(i));
+        }
+    }
+
+    @Override
+    protected void appendAscii(byte[] b, int offset, int length)
+    {
+        _buffer.ensureCapacity(_buffer.length() + length);
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            _buffer.append((char)b[i]);
+        }
+    }
+
     @Override
     public void reset()
     {
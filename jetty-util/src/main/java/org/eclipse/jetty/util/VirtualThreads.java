@@ -0,0 +1,156 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Utility class to use virtual threads, if they are supported by the runtime.</p>
+ * <p>Virtual threads are accessed via reflection, so that this class can be
+ * compiled and used with JDKs that do not support virtual threads.</p>
+ *
+ * @see Configurable
+ */
+public class VirtualThreads
+{
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final Executor executor = probeVirtualThreadsExecutor();
+    private static final Method isVirtualThread = probeIsVirtualThread();
+
+    private static Executor probeVirtualThreadsExecutor()
+    {
+        try
+        {
+            return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (Throwable x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Virtual threads not supported", x);
+            return null;
+        }
+    }
+
+    private static Method probeIsVirtualThread()
+    {
+        try
+        {
+            return Thread.class.getMethod("isVirtual");
+        }
+        catch (Throwable x)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the runtime supports virtual threads
+     */
+    public static boolean areSupported()
+    {
+        return executor != null;
+    }
+
+    /**
+     * @return a default executor that runs each task in a new virtual thread,
+     * or null if virtual threads are not supported
+     */
+    public static Executor getDefaultVirtualThreadsExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * @return whether the current thread is a virtual thread
+     */
+    public static boolean isVirtualThread()
+    {
+        try
+        {
+            return isVirtualThread != null && (Boolean)isVirtualThread.invoke(Thread.currentThread());
+        }
+        catch (Throwable x)
+        {
+            LOG.trace("IGNORED", x);
+            return false;
+        }
+    }
+
+    /**
+     * @param executor the executor to inspect
+     * @return the executor for virtual threads configured on the given executor,
+     * or null if the executor is not {@link Configurable} or does not use virtual threads
+     */
+    public static Executor getVirtualThreadsExecutor(Executor executor)
+    {
+        if (executor instanceof Configurable)
+            return ((Configurable)executor).getVirtualThreadsExecutor();
+        return null;
+    }
+
+    /**
+     * <p>Implemented by components, typically thread pools, that can be
+     * configured to run blocking tasks in virtual threads.</p>
+     * <p>Tasks that only produce other tasks, such as selector production,
+     * and {@link org.eclipse.jetty.util.thread.ReservedThreadExecutor reserved threads}
+     * keep using the platform threads of the component.</p>
+     */
+    public interface Configurable
+    {
+        /**
+         * @return the executor that runs blocking tasks in virtual threads, or null to use platform threads
+         */
+        Executor getVirtualThreadsExecutor();
+
+        /**
+         * @param executor the executor that runs blocking tasks in virtual threads, or null to use platform threads
+         */
+        void setVirtualThreadsExecutor(Executor executor);
+
+        /**
+         * @return whether blocking tasks are run in virtual threads
+         */
+        default boolean isUseVirtualThreads()
+        {
+            return getVirtualThreadsExecutor() != null;
+        }
+
+        /**
+         * <p>Configures whether blocking tasks are run in virtual threads, using the
+         * {@link #getDefaultVirtualThreadsExecutor() default virtual threads executor}.</p>
+         * <p>If the runtime does not support virtual threads, a warning is logged
+         * and blocking tasks keep running in platform threads.</p>
+         *
+         * @param useVirtualThreads whether blocking tasks are run in virtual threads
+         */
+        default void setUseVirtualThreads(boolean useVirtualThreads)
+        {
+            if (useVirtualThreads && !areSupported())
+            {
+                LOG.warn("Virtual threads are not supported by Java {}, using platform threads for {}", JavaVersion.VERSION, this);
+                return;
+            }
+            setVirtualThreadsExecutor(useVirtualThreads ? getDefaultVirtualThreadsExecutor() : null);
+        }
+    }
+
+    private VirtualThreads()
+    {
+    }
+}
@@ -14,14 +14,20 @@
 package org.eclipse.jetty.util.compression;
 
 import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.util.Pool;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 
+@ManagedObject
 public abstract class CompressionPool<T> extends AbstractLifeCycle
 {
     public static final int DEFAULT_CAPACITY = 1024;
 
+    private final AtomicInteger _count = new AtomicInteger();
+    private final AtomicInteger _inUseCount = new AtomicInteger();
     private int _capacity;
     private Pool<Entry> _pool;
 
@@ -39,6 +45,7 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
         _capacity = capacity;
     }
 
+    @ManagedAttribute("The maximum number of pooled objects")
     public int getCapacity()
     {
         return _capacity;
@@ -51,6 +58,42 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
         _capacity = capacity;
     }
 
+    /**
+     * @return the number of live objects, either in use or idle in the pool
+     */
+    @ManagedAttribute("The number of live objects, in use or pooled")
+    public int getCount()
+    {
+        return _count.get();
+    }
+
+    /**
+     * @return the number of objects that have been acquired and not yet released
+     */
+    @ManagedAttribute("The number of objects in use")
+    public int getInUseCount()
+    {
+        return _inUseCount.get();
+    }
+
+    /**
+     * @return an estimate of the native memory held by the live objects, in bytes
+     * @see #getNativeMemoryPerObject()
+     */
+    @ManagedAttribute("The estimated native memory held by the live objects, in bytes")
+    public long getNativeMemory()
+    {
+        return (long)getCount() * getNativeMemoryPerObject();
+    }
+
+    /**
+     * @return an estimate of the native memory held by each object, in bytes
+     */
+    protected long getNativeMemoryPerObject()
+    {
+        return 0;
+    }
+
     protected abstract T newPooled();
 
     protected abstract void end(T object);
@@ -65,12 +108,22 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
         Entry entry = null;
         if (_pool != null)
         {
-            Pool<Entry>.Entry acquiredEntry = _pool.acquire(e -> new Entry(newPooled(), e));
+            Pool<Entry>.Entry acquiredEntry = _pool.acquire(e -> new Entry(newObject(), e));
             if (acquiredEntry != null)
                 entry = acquiredEntry.getPooled();
         }
 
-        return (entry == null) ? new Entry(newPooled()) : entry;
+        if (entry == null)
+            entry = new Entry(newObject());
+        _inUseCount.incrementAndGet();
+        return entry;
+    }
+
+    private T newObject()
+    {
+        T object = newPooled();
+        _count.incrementAndGet();
+        return object;
     }
 
     /**
@@ -123,6 +176,8 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
 
         public void release()
         {
+            _inUseCount.decrementAndGet();
+
             // Reset the value for the next usage.
             reset(_value);
 
@@ -145,17 +200,20 @@ public abstract class CompressionPool<T> extends AbstractLifeCycle
         public void close()
         {
             end(_value);
+            _count.decrementAndGet();
         }
     }
 
     @Override
     public String toString()
     {
-        return String.format("%s@%x{%s,size=%d,capacity=%s}",
+        return String.format("%s@%x{%s,size=%d,capacity=%s,count=%d,inUse=%d}",
             getClass().getSimpleName(),
             hashCode(),
             getState(),
             (_pool == null) ? -1 : _pool.size(),
-            _capacity);
+            _capacity,
+            getCount(),
+            getInUseCount());
     }
 }
@@ -20,6 +20,13 @@ import org.eclipse.jetty.util.thread.ThreadPool;
 
 public class DeflaterPool extends CompressionPool<Deflater>
 {
+    /**
+     * The zlib state of a Deflater with the default window bits (15) and memory level (8):
+     * 64KiB each for the window, the hash chains, the hash heads and the pending buffer,
+     * plus the deflate state itself.
+     */
+    private static final long NATIVE_MEMORY_PER_DEFLATER = 4 * 64 * 1024 + 6 * 1024;
+
     private final int compressionLevel;
     private final boolean nowrap;
 
@@ -47,6 +54,12 @@ public class DeflaterPool extends CompressionPool<Deflater>
         return new Deflater(compressionLevel, nowrap);
     }
 
+    @Override
+    protected long getNativeMemoryPerObject()
+    {
+        return NATIVE_MEMORY_PER_DEFLATER;
+    }
+
     @Override
     protected void end(Deflater deflater)
     {
@@ -20,6 +20,12 @@ import org.eclipse.jetty.util.thread.ThreadPool;
 
 public class InflaterPool extends CompressionPool<Inflater>
 {
+    /**
+     * The zlib state of an Inflater: the inflate state itself plus
+     * the 32KiB window allocated when inflating the first block.
+     */
+    private static final long NATIVE_MEMORY_PER_INFLATER = 32 * 1024 + 7 * 1024;
+
     private final boolean nowrap;
 
     /**
@@ -44,6 +50,12 @@ public class InflaterPool extends CompressionPool<Inflater>
         return new Inflater(nowrap);
     }
 
+    @Override
+    protected long getNativeMemoryPerObject()
+    {
+        return NATIVE_MEMORY_PER_INFLATER;
+    }
+
     @Override
     protected void end(Inflater inflater)
     {
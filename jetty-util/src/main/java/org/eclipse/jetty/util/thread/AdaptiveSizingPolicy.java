@@ -0,0 +1,313 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A sizing policy for {@link QueuedThreadPool} that chooses a target number of threads
+ * from the measured queue latency and task execution time, rather than from thread counts.</p>
+ * <p>A fraction of the jobs submitted to the pool (see {@link #getSampleRate()}) are timed
+ * to measure how long they wait in the queue and how long they run.
+ * Every {@link #getUpdatePeriod() update period}, the target number of threads is recomputed:</p>
+ * <ul>
+ * <li>the number of threads needed to run the jobs is estimated with Little's law, as the job
+ * arrival rate times the average task execution time, plus a configurable {@link #getHeadroom() headroom};</li>
+ * <li>threads leased from the {@link ThreadPoolBudget} (for example by selectors and acceptors) are
+ * added to the estimate, since they are never available to run jobs;</li>
+ * <li>if the queue latency measured during the period exceeds the {@link #getTargetQueueLatency() target
+ * queue latency}, or jobs are waiting for a thread, the target grows by half; while jobs are waiting
+ * for a thread the target is recomputed as often as every target queue latency, so that bursts
+ * are quickly absorbed;</li>
+ * <li>otherwise the target shrinks by at most a quarter per period towards the estimate.</li>
+ * </ul>
+ * <p>The target is always bounded by the pool {@code maxThreads}, and never goes below the pool
+ * {@code minThreads} plus the leased threads, so that leased threads never starve the jobs
+ * and {@code maxThreads} can be configured for the worst bursts without the pool overshooting
+ * the number of threads that the load actually needs.</p>
+ *
+ * @see QueuedThreadPool#setSizingPolicy(AdaptiveSizingPolicy)
+ */
+@ManagedObject("Sizing policy of a thread pool driven by queue latency")
+public class AdaptiveSizingPolicy
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveSizingPolicy.class);
+
+    private final AtomicLong _lastUpdate = new AtomicLong(System.nanoTime());
+    private final LongAdder _executed = new LongAdder();
+    private final LongAdder _samples = new LongAdder();
+    private final LongAdder _queueNanos = new LongAdder();
+    private final LongAdder _taskNanos = new LongAdder();
+    private int _sampleRate = 16;
+    private long _targetQueueLatency = TimeUnit.MILLISECONDS.toNanos(1);
+    private long _updatePeriod = TimeUnit.SECONDS.toNanos(1);
+    private int _headroom = 25;
+    private volatile int _targetThreads;
+    private volatile long _queueLatency;
+    private volatile long _taskLatency;
+    private volatile long _arrivalRate;
+
+    /**
+     * @return one job every sample rate jobs is timed
+     */
+    @ManagedAttribute("One job every sampleRate jobs is timed")
+    public int getSampleRate()
+    {
+        return _sampleRate;
+    }
+
+    /**
+     * @param sampleRate one job every sample rate jobs is timed
+     */
+    public void setSampleRate(int sampleRate)
+    {
+        if (sampleRate <= 0)
+            throw new IllegalArgumentException("Invalid sample rate " + sampleRate);
+        _sampleRate = sampleRate;
+    }
+
+    /**
+     * @return the queue latency, in milliseconds, above which the pool is considered congested
+     */
+    @ManagedAttribute("The queue latency, in milliseconds, above which the pool grows")
+    public long getTargetQueueLatency()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_targetQueueLatency);
+    }
+
+    /**
+     * @param targetQueueLatency the queue latency, in milliseconds, above which the pool is considered congested
+     */
+    public void setTargetQueueLatency(long targetQueueLatency)
+    {
+        _targetQueueLatency = TimeUnit.MILLISECONDS.toNanos(targetQueueLatency);
+    }
+
+    /**
+     * @return the period, in milliseconds, between recomputations of the target threads
+     */
+    @ManagedAttribute("The period, in milliseconds, between recomputations of the target threads")
+    public long getUpdatePeriod()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_updatePeriod);
+    }
+
+    /**
+     * @param updatePeriod the period, in milliseconds, between recomputations of the target threads
+     */
+    public void setUpdatePeriod(long updatePeriod)
+    {
+        if (updatePeriod <= 0)
+            throw new IllegalArgumentException("Invalid update period " + updatePeriod);
+        _updatePeriod = TimeUnit.MILLISECONDS.toNanos(updatePeriod);
+    }
+
+    /**
+     * @return the percentage of threads added to the estimated demand
+     */
+    @ManagedAttribute("The percentage of threads added to the estimated demand")
+    public int getHeadroom()
+    {
+        return _headroom;
+    }
+
+    /**
+     * @param headroom the percentage of threads added to the estimated demand
+     */
+    public void setHeadroom(int headroom)
+    {
+        if (headroom < 0)
+            throw new IllegalArgumentException("Invalid headroom " + headroom);
+        _headroom = headroom;
+    }
+
+    /**
+     * @return the current target number of threads
+     */
+    @ManagedAttribute(value = "The current target number of threads", readonly = true)
+    public int getTargetThreads()
+    {
+        return _targetThreads;
+    }
+
+    /**
+     * @return the smoothed average time jobs wait in the queue, in nanoseconds
+     */
+    @ManagedAttribute(value = "The average time jobs wait in the queue, in nanoseconds", readonly = true)
+    public long getQueueLatency()
+    {
+        return _queueLatency;
+    }
+
+    /**
+     * @return the smoothed average task execution time, in nanoseconds
+     */
+    @ManagedAttribute(value = "The average task execution time, in nanoseconds", readonly = true)
+    public long getTaskLatency()
+    {
+        return _taskLatency;
+    }
+
+    /**
+     * @return the job arrival rate, in jobs per second, measured over the last update period
+     */
+    @ManagedAttribute(value = "The job arrival rate, in jobs per second", readonly = true)
+    public long getArrivalRate()
+    {
+        return _arrivalRate;
+    }
+
+    /**
+     * <p>Resets the measurements and the target threads.</p>
+     *
+     * @param targetThreads the initial target number of threads
+     */
+    @ManagedOperation(value = "Resets the measurements", impact = "ACTION")
+    public void reset(int targetThreads)
+    {
+        _lastUpdate.set(System.nanoTime());
+        _executed.reset();
+        _samples.reset();
+        _queueNanos.reset();
+        _taskNanos.reset();
+        _queueLatency = 0;
+        _taskLatency = 0;
+        _arrivalRate = 0;
+        _targetThreads = targetThreads;
+    }
+
+    /**
+     * <p>Counts the given job and possibly wraps it to time its queue latency and execution time.</p>
+     *
+     * @param job the job submitted to the pool
+     * @return the job to queue
+     */
+    Runnable onExecute(Runnable job)
+    {
+        _executed.increment();
+        int sampleRate = _sampleRate;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+            return job;
+        return new Sampled(job);
+    }
+
+    /**
+     * <p>Recomputes the target number of threads if the update period has elapsed,
+     * or if the pool is congested and the target queue latency has elapsed.</p>
+     *
+     * @param now the current {@link System#nanoTime() nano time}
+     * @param minThreads the pool minimum number of threads
+     * @param maxThreads the pool maximum number of threads
+     * @param leasedThreads the number of threads leased from the pool budget
+     * @param backlog the number of queued jobs without an idle thread to run them
+     * @return the target number of threads
+     */
+    int update(long now, int minThreads, int maxThreads, int leasedThreads, int backlog)
+    {
+        long last = _lastUpdate.get();
+        long elapsed = now - last;
+        long period = backlog > 0 ? Math.min(_targetQueueLatency, _updatePeriod) : _updatePeriod;
+        int floor = Math.min(maxThreads, minThreads + leasedThreads);
+        if (elapsed < period || !_lastUpdate.compareAndSet(last, now))
+            return Math.max(floor, Math.min(maxThreads, _targetThreads));
+
+        long executed = _executed.sumThenReset();
+        long samples = _samples.sumThenReset();
+        long queueNanos = _queueNanos.sumThenReset();
+        long taskNanos = _taskNanos.sumThenReset();
+        long queueLatency = samples > 0 ? queueNanos / samples : 0;
+        _queueLatency = smooth(_queueLatency, queueLatency);
+        if (samples > 0)
+            _taskLatency = smooth(_taskLatency, taskNanos / samples);
+        long arrivalRate = executed * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsed);
+        _arrivalRate = arrivalRate;
+
+        // Little's law: the average number of busy threads is the
+        // arrival rate of the jobs times their average execution time.
+        double busy = (double)arrivalRate * _taskLatency / TimeUnit.SECONDS.toNanos(1);
+        int demand = leasedThreads + (int)Math.ceil(busy * (100 + _headroom) / 100);
+
+        int previous = _targetThreads;
+        boolean congested = backlog > 0 || queueLatency > _targetQueueLatency;
+        int target = congested
+            ? Math.max(demand, previous + Math.max(1, previous / 2))
+            : Math.max(demand, previous - Math.max(1, previous / 4));
+        target = Math.max(floor, Math.min(maxThreads, target));
+        _targetThreads = target;
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Updated target threads {}->{} demand={} congested={} {}", previous, target, demand, congested, this);
+        return target;
+    }
+
+    private static long smooth(long average, long sample)
+    {
+        return average == 0 ? sample : (3 * average + sample) / 4;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[target=%d,queueLatency=%dns,taskLatency=%dns,rate=%d/s]",
+            getClass().getSimpleName(),
+            hashCode(),
+            getTargetThreads(),
+            getQueueLatency(),
+            getTaskLatency(),
+            getArrivalRate());
+    }
+
+    private class Sampled implements Runnable
+    {
+        private final Runnable _job;
+        private final long _queued = System.nanoTime();
+
+        private Sampled(Runnable job)
+        {
+            _job = job;
+        }
+
+        @Override
+        public void run()
+        {
+            long begin = System.nanoTime();
+            try
+            {
+                _job.run();
+            }
+            finally
+            {
+                long end = System.nanoTime();
+                _queueNanos.add(begin - _queued);
+                _taskNanos.add(end - begin);
+                _samples.increment();
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return _job.toString();
+        }
+    }
+}
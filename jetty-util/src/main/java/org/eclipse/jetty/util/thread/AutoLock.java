@@ -45,6 +45,27 @@ public class AutoLock implements AutoCloseable, Serializable
         return this;
     }
 
+    /**
+     * <p>Acquires the lock only if it is not held by another thread.</p>
+     * <p>Since a {@code null} resource is not closed, the result can be used
+     * in a try-with-resources statement:</p>
+     * <pre>
+     * try (AutoLock l = this.lock.tryLock())
+     * {
+     *     if (l == null)
+     *         return;
+     *     // Something
+     * }
+     * </pre>
+     *
+     * @return this AutoLock for unlocking, or null if the lock was not acquired
+     * @see ReentrantLock#tryLock()
+     */
+    public AutoLock tryLock()
+    {
+        return _lock.tryLock() ? this : null;
+    }
+
     /**
      * @see ReentrantLock#isHeldByCurrentThread()
      * @return whether this lock is held by the current thread
@@ -20,14 +20,17 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.util.AtomicBiInteger;
 import org.eclipse.jetty.util.BlockingArrayQueue;
 import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
@@ -40,7 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @ManagedObject("A thread pool")
-public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactory, SizedThreadPool, Dumpable, TryExecutor
+public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactory, SizedThreadPool, Dumpable, TryExecutor, VirtualThreads.Configurable
 {
     private static final Logger LOG = LoggerFactory.getLogger(QueuedThreadPool.class);
     private static Runnable NOOP = () ->
@@ -75,6 +78,10 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     private int _lowThreadsThreshold = 1;
     private ThreadPoolBudget _budget;
     private long _stopTimeout;
+    private final AtomicBoolean _sizingCheck = new AtomicBoolean();
+    private AdaptiveSizingPolicy _sizingPolicy;
+    private Scheduler _sizingScheduler;
+    private Executor _virtualThreadsExecutor;
 
     public QueuedThreadPool()
     {
@@ -164,6 +171,63 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         return _stopTimeout;
     }
 
+    @Override
+    public Executor getVirtualThreadsExecutor()
+    {
+        return _virtualThreadsExecutor;
+    }
+
+    /**
+     * <p>Sets the executor used to run blocking tasks, such as the
+     * handling of HTTP requests by blocking applications, in virtual threads.</p>
+     * <p>The threads of this pool keep running the non blocking tasks, the
+     * selector production and the {@link ReservedThreadExecutor reserved threads}.</p>
+     *
+     * @param executor the executor that runs blocking tasks in virtual threads, or null to use the threads of this pool
+     * @see #setUseVirtualThreads(boolean)
+     */
+    @Override
+    public void setVirtualThreadsExecutor(Executor executor)
+    {
+        _virtualThreadsExecutor = executor;
+    }
+
+    @Override
+    @ManagedAttribute("whether blocking tasks are run in virtual threads")
+    public boolean isUseVirtualThreads()
+    {
+        return VirtualThreads.Configurable.super.isUseVirtualThreads();
+    }
+
+    /**
+     * @return the sizing policy, or null if the pool is sized only by its thread counts
+     */
+    @ManagedAttribute("the sizing policy")
+    public AdaptiveSizingPolicy getSizingPolicy()
+    {
+        return _sizingPolicy;
+    }
+
+    /**
+     * <p>Sets a sizing policy that bounds the number of threads, between
+     * {@link #getMinThreads() minThreads} and {@link #getMaxThreads() maxThreads},
+     * to a target computed from the queue latency and the task execution time.</p>
+     * <p>Threads above the target are not started, and idle threads above the
+     * target exit without waiting for the {@link #getIdleTimeout() idle timeout}.</p>
+     * <p>The target is recomputed when jobs are submitted and when threads become idle;
+     * while jobs are queued without a thread to run them, the target is also recomputed
+     * by a scheduler, so that the pool grows even if all its threads are blocked.</p>
+     *
+     * @param sizingPolicy the sizing policy, or null to size the pool only by its thread counts
+     */
+    public void setSizingPolicy(AdaptiveSizingPolicy sizingPolicy)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        updateBean(_sizingPolicy, sizingPolicy);
+        _sizingPolicy = sizingPolicy;
+    }
+
     @Override
     protected void doStart() throws Exception
     {
@@ -180,8 +244,19 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         addBean(_tryExecutor);
 
         _lastShrink.set(System.nanoTime());
+        if (_sizingPolicy != null)
+        {
+            _sizingScheduler = new ScheduledExecutorScheduler(_name + "-sizing", true);
+            addBean(_sizingScheduler, true);
+        }
 
         super.doStart();
+        // Seed the target after the beans, such as the reserved threads, have leased their threads.
+        if (_sizingPolicy != null)
+        {
+            ThreadPoolBudget budget = _budget;
+            _sizingPolicy.reset(_minThreads + (budget == null ? 0 : budget.getLeasedThreads()));
+        }
         // The threads count set to MIN_VALUE is used to signal to Runners that the pool is stopped.
         _counts.set(0, 0); // threads, idle
         ensureThreads();
@@ -197,6 +272,11 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
 
         removeBean(_tryExecutor);
         _tryExecutor = TryExecutor.NO_TRY;
+        if (_sizingScheduler != null)
+        {
+            removeBean(_sizingScheduler);
+            _sizingScheduler = null;
+        }
 
         // Signal the Runner threads that we are stopping
         int threads = _counts.getAndSetHi(Integer.MIN_VALUE);
@@ -508,6 +588,11 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     @Override
     public void execute(Runnable job)
     {
+        AdaptiveSizingPolicy sizingPolicy = _sizingPolicy;
+        if (sizingPolicy != null)
+            job = sizingPolicy.onExecute(job);
+        int maxThreads = getTargetThreads();
+
         // Determine if we need to start a thread, use and idle thread or just queue this job
         int startThread;
         while (true)
@@ -527,7 +612,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
 
             // Start a thread if we have insufficient idle threads to meet demand
             // and we are not at max threads.
-            startThread = (idle <= 0 && threads < _maxThreads) ? 1 : 0;
+            startThread = (idle <= 0 && threads < maxThreads) ? 1 : 0;
 
             // The job will be run by an idle thread when available
             if (!_counts.compareAndSet(counts, threads + startThread, idle + startThread - 1))
@@ -548,6 +633,8 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
             LOG.debug("queue {} startThread={}", job, startThread);
 
         // Start a thread if one was needed
+        if (startThread == 0)
+            scheduleSizingCheck();
         while (startThread-- > 0)
             startThread();
     }
@@ -628,8 +715,59 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         return getMaxThreads() - getThreads() + getIdleThreads() - getQueueSize() <= getLowThreadsThreshold();
     }
 
+    /**
+     * @return the maximum number of threads, bounded by the sizing policy target if any
+     */
+    private int getTargetThreads()
+    {
+        AdaptiveSizingPolicy sizingPolicy = _sizingPolicy;
+        if (sizingPolicy == null)
+            return _maxThreads;
+        ThreadPoolBudget budget = _budget;
+        int leased = budget == null ? 0 : budget.getLeasedThreads();
+        int backlog = Math.max(0, -_counts.getLo());
+        return sizingPolicy.update(System.nanoTime(), _minThreads, _maxThreads, leased, backlog);
+    }
+
+    /**
+     * <p>With a sizing policy, schedules a recomputation of the target threads
+     * while jobs are queued without a thread to run them, as the threads may be
+     * blocked and no other job submitted to trigger the recomputation.</p>
+     */
+    private void scheduleSizingCheck()
+    {
+        AdaptiveSizingPolicy sizingPolicy = _sizingPolicy;
+        Scheduler scheduler = _sizingScheduler;
+        if (sizingPolicy == null || scheduler == null)
+            return;
+        long counts = _counts.get();
+        int threads = AtomicBiInteger.getHi(counts);
+        if (threads == Integer.MIN_VALUE || threads >= _maxThreads || AtomicBiInteger.getLo(counts) >= 0)
+            return;
+        if (!_sizingCheck.compareAndSet(false, true))
+            return;
+        long delay = Math.max(1, Math.min(sizingPolicy.getTargetQueueLatency(), sizingPolicy.getUpdatePeriod()));
+        try
+        {
+            scheduler.schedule(this::sizingCheck, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException x)
+        {
+            _sizingCheck.set(false);
+            LOG.trace("IGNORED", x);
+        }
+    }
+
+    private void sizingCheck()
+    {
+        _sizingCheck.set(false);
+        ensureThreads();
+        scheduleSizingCheck();
+    }
+
     private void ensureThreads()
     {
+        int maxThreads = getTargetThreads();
         while (true)
         {
             long counts = _counts.get();
@@ -640,7 +778,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
             // If we have less than min threads
             // OR insufficient idle threads to meet demand
             int idle = AtomicBiInteger.getLo(counts);
-            if (threads < _minThreads || (idle < 0 && threads < _maxThreads))
+            if (threads < _minThreads || (idle < 0 && threads < maxThreads))
             {
                 // Then try to start a thread.
                 if (_counts.compareAndSet(counts, threads + 1, idle + 1))
@@ -758,7 +896,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         int idle = Math.max(0, AtomicBiInteger.getLo(count));
         int queue = getQueueSize();
 
-        return String.format("%s[%s]@%x{%s,%d<=%d<=%d,i=%d,r=%d,q=%d}[%s]",
+        return String.format("%s[%s]@%x{%s,%d<=%d<=%d,i=%d,r=%d,q=%d,v=%b}[%s]",
             getClass().getSimpleName(),
             _name,
             hashCode(),
@@ -769,6 +907,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
             idle,
             getReservedThreads(),
             queue,
+            isUseVirtualThreads(),
             _tryExecutor);
     }
 
@@ -839,6 +978,11 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     {
         private Runnable idleJobPoll(long idleTimeout) throws InterruptedException
         {
+            // With a sizing policy, wake up at least every update period
+            // so that threads above the target threads can exit.
+            AdaptiveSizingPolicy sizingPolicy = _sizingPolicy;
+            if (sizingPolicy != null)
+                idleTimeout = idleTimeout <= 0 ? sizingPolicy.getUpdatePeriod() : Math.min(idleTimeout, sizingPolicy.getUpdatePeriod());
             if (idleTimeout <= 0)
                 return _jobs.take();
             return _jobs.poll(idleTimeout, TimeUnit.MILLISECONDS);
@@ -877,12 +1021,16 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
                         if (job == null)
                         {
                             // No job immediately available maybe we should shrink?
+                            // Threads above the sizing policy target shrink without waiting for the idle timeout.
                             long idleTimeout = getIdleTimeout();
-                            if (idleTimeout > 0 && getThreads() > _minThreads)
+                            int threads = getThreads();
+                            boolean aboveTarget = threads > getTargetThreads();
+                            if ((idleTimeout > 0 || aboveTarget) && threads > _minThreads)
                             {
                                 long last = _lastShrink.get();
                                 long now = System.nanoTime();
-                                if ((now - last) > TimeUnit.MILLISECONDS.toNanos(idleTimeout) && _lastShrink.compareAndSet(last, now))
+                                long shrinkPeriod = aboveTarget ? 0 : TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+                                if ((now - last) > shrinkPeriod && _lastShrink.compareAndSet(last, now))
                                 {
                                     if (LOG.isDebugEnabled())
                                         LOG.debug("shrinking {}", QueuedThreadPool.this);
@@ -0,0 +1,255 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+
+/**
+ * <p>A {@link ThreadPool} partitioned in shards, each shard being a
+ * dedicated {@link QueuedThreadPool}.</p>
+ * <p>Tasks executed by a thread of a shard are executed by the same shard, so
+ * that related tasks, for example those of the same connection, keep running
+ * on the same subset of threads and their data stays in the same CPU caches.
+ * Tasks executed by other threads are distributed to the shards in round robin.</p>
+ * <p>Components may execute tasks directly on a {@link #getShard(int) shard};
+ * for example a {@code ManagedSelector} runs its tasks, and therefore its
+ * connections, on the shard with the same index as the selector.</p>
+ * <p>Components may also use {@link #getCurrentShard()} to partition other
+ * resources, such as buffer pools, along the same shards.</p>
+ * <p>Each shard has its own {@link ThreadPoolBudget}; components that need
+ * threads from this pool should {@link #leaseTo(Object, int) lease} them,
+ * so that each shard is checked for the threads it will have to provide.</p>
+ */
+@ManagedObject("A thread pool partitioned in shards")
+public class ShardedThreadPool extends ContainerLifeCycle implements ThreadPool, TryExecutor
+{
+    private static final ThreadLocal<Shard> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger _next = new AtomicInteger();
+    private final Shard[] _shards;
+
+    /**
+     * @param shards the number of shards
+     * @param maxThreadsPerShard the max number of threads of each shard
+     */
+    public ShardedThreadPool(@Name("shards") int shards, @Name("maxThreadsPerShard") int maxThreadsPerShard)
+    {
+        if (shards <= 0)
+            throw new IllegalArgumentException("Invalid shards " + shards);
+        _shards = new Shard[shards];
+        for (int i = 0; i < shards; ++i)
+        {
+            Shard shard = new Shard(i, maxThreadsPerShard);
+            shard.setName(String.format("shard%x-%d", hashCode(), i));
+            _shards[i] = shard;
+            addBean(shard);
+        }
+    }
+
+    /**
+     * @return the index of the shard of the current thread, or -1 if the current thread does not belong to a shard
+     */
+    public static int getCurrentShard()
+    {
+        Shard shard = CURRENT.get();
+        return shard == null ? -1 : shard._index;
+    }
+
+    /**
+     * @return the number of shards
+     */
+    @ManagedAttribute("The number of shards")
+    public int getShards()
+    {
+        return _shards.length;
+    }
+
+    /**
+     * @param index the shard index, modulo the number of shards
+     * @return the shard thread pool
+     */
+    public QueuedThreadPool getShard(int index)
+    {
+        return _shards[Math.floorMod(index, _shards.length)];
+    }
+
+    /**
+     * <p>Leases the given number of threads from the shards' {@link ThreadPoolBudget}s.</p>
+     * <p>The threads are leased in round robin, the thread {@code k} being leased from
+     * the shard {@code k} modulo the number of shards, matching the way components
+     * such as {@code SelectorManager} distribute their long running tasks to the shards.</p>
+     *
+     * @param leasee the object leasing the threads
+     * @param threads the number of threads to lease
+     * @return a lease over the shards' budgets
+     * @throws IllegalStateException if a shard has insufficient configured threads
+     */
+    public ThreadPoolBudget.Lease leaseTo(Object leasee, int threads)
+    {
+        List<ThreadPoolBudget.Lease> leases = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < _shards.length && i < threads; ++i)
+            {
+                ThreadPoolBudget budget = _shards[i].getThreadPoolBudget();
+                if (budget == null)
+                    continue;
+                int shardThreads = threads / _shards.length + (i < threads % _shards.length ? 1 : 0);
+                leases.add(budget.leaseTo(leasee, shardThreads));
+            }
+        }
+        catch (IllegalStateException e)
+        {
+            leases.forEach(ShardedThreadPool::close);
+            throw e;
+        }
+        return new ShardedLease(leases);
+    }
+
+    private static void close(ThreadPoolBudget.Lease lease)
+    {
+        try
+        {
+            lease.close();
+        }
+        catch (IOException x)
+        {
+            throw new UncheckedIOException(x);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        Shard shard = CURRENT.get();
+        if (shard == null || shard.getShardedThreadPool() != this)
+            shard = _shards[Math.floorMod(_next.getAndIncrement(), _shards.length)];
+        shard.execute(task);
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task)
+    {
+        Shard shard = CURRENT.get();
+        return shard != null && shard.getShardedThreadPool() == this && shard.tryExecute(task);
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        for (Shard shard : _shards)
+        {
+            shard.join();
+        }
+    }
+
+    @Override
+    public int getThreads()
+    {
+        int threads = 0;
+        for (Shard shard : _shards)
+        {
+            threads += shard.getThreads();
+        }
+        return threads;
+    }
+
+    @Override
+    public int getIdleThreads()
+    {
+        int idle = 0;
+        for (Shard shard : _shards)
+        {
+            idle += shard.getIdleThreads();
+        }
+        return idle;
+    }
+
+    /**
+     * @return whether any shard is low on threads
+     */
+    @Override
+    public boolean isLowOnThreads()
+    {
+        for (Shard shard : _shards)
+        {
+            if (shard.isLowOnThreads())
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,shards=%d}", getClass().getSimpleName(), hashCode(), getState(), _shards.length);
+    }
+
+    private static class ShardedLease implements ThreadPoolBudget.Lease
+    {
+        private final List<ThreadPoolBudget.Lease> _leases;
+
+        private ShardedLease(List<ThreadPoolBudget.Lease> leases)
+        {
+            _leases = leases;
+        }
+
+        @Override
+        public int getThreads()
+        {
+            return _leases.stream().mapToInt(ThreadPoolBudget.Lease::getThreads).sum();
+        }
+
+        @Override
+        public void close()
+        {
+            _leases.forEach(ShardedThreadPool::close);
+        }
+    }
+
+    private class Shard extends QueuedThreadPool
+    {
+        private final int _index;
+
+        private Shard(int index, int maxThreads)
+        {
+            super(maxThreads, Math.min(2, maxThreads));
+            _index = index;
+        }
+
+        private ShardedThreadPool getShardedThreadPool()
+        {
+            return ShardedThreadPool.this;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            return super.newThread(() ->
+            {
+                CURRENT.set(this);
+                runnable.run();
+            });
+        }
+    }
+}
@@ -99,6 +99,19 @@ public class ThreadPoolBudget
         return pool;
     }
 
+    /**
+     * @return the number of threads currently leased
+     */
+    public int getLeasedThreads()
+    {
+        int leased = 0;
+        for (Leased lease : leases)
+        {
+            leased += lease.getThreads();
+        }
+        return leased;
+    }
+
     public void reset()
     {
         leases.clear();
@@ -130,9 +143,7 @@ public class ThreadPoolBudget
      */
     public boolean check(int maxThreads) throws IllegalStateException
     {
-        int required = leases.stream()
-            .mapToInt(Lease::getThreads)
-            .sum();
+        int required = getLeasedThreads();
         int left = maxThreads - required;
         if (left <= 0)
         {
@@ -159,6 +170,8 @@ public class ThreadPoolBudget
 
     public static Lease leaseFrom(Executor executor, Object leasee, int threads)
     {
+        if (executor instanceof ShardedThreadPool)
+            return ((ShardedThreadPool)executor).leaseTo(leasee, threads);
         if (executor instanceof ThreadPool.SizedThreadPool)
         {
             ThreadPoolBudget budget = ((ThreadPool.SizedThreadPool)executor).getThreadPoolBudget();
@@ -20,6 +20,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
@@ -48,6 +49,10 @@ import org.slf4j.LoggerFactory;
  * indicated it is non-blocking, then this strategy will dispatch the execution of
  * the task and immediately continue production. When operating in this pattern, the
  * sub-strategy is called ProduceExecuteConsume (PEC).</p>
+ * <p>If the executor is {@link VirtualThreads.Configurable configured} to use virtual
+ * threads, then tasks that have indicated they are blocking are always executed in a
+ * virtual thread with the PEC sub-strategy, while production remains on the threads
+ * of the executor.</p>
  */
 @ManagedObject("eat what you kill execution strategy")
 public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrategy, Runnable
@@ -202,7 +207,16 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
         }
 
         Mode mode;
-        if (nonBlocking)
+        Executor executor = _executor;
+        Executor virtualThreadsExecutor = VirtualThreads.getVirtualThreadsExecutor(_executor);
+        if (virtualThreadsExecutor != null && Invocable.getInvocationType(task) == Invocable.InvocationType.BLOCKING)
+        {
+            // Blocking tasks are executed in virtual threads, so production
+            // continues in this thread without the need of a pending producer.
+            mode = Mode.PRODUCE_EXECUTE_CONSUME;
+            executor = virtualThreadsExecutor;
+        }
+        else if (nonBlocking)
         {
             // The calling thread cannot block, so we only have a choice between PC and PEC modes,
             // based on the invocation type of the task
@@ -302,7 +316,7 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
 
             case PRODUCE_EXECUTE_CONSUME:
                 _pecMode.increment();
-                execute(task);
+                execute(executor, task);
                 return true;
 
             case EXECUTE_PRODUCE_CONSUME:
@@ -363,11 +377,11 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
         }
     }
 
-    private void execute(Runnable task)
+    private void execute(Executor executor, Runnable task)
     {
         try
         {
-            _executor.execute(task);
+            executor.execute(task);
         }
         catch (RejectedExecutionException e)
         {
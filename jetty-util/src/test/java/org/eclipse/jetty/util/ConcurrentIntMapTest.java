@@ -0,0 +1,159 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentIntMapTest
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+        assertTrue(map.isEmpty());
+
+        for (int key : new int[]{0, 1, -1, 2, Integer.MIN_VALUE, Integer.MAX_VALUE})
+        {
+            assertNull(map.get(key));
+            assertNull(map.putIfAbsent(key, "v" + key));
+            assertEquals("v" + key, map.putIfAbsent(key, "other"));
+            assertEquals("v" + key, map.get(key));
+        }
+        assertEquals(6, map.size());
+        assertEquals(Set.of("v0", "v1", "v-1", "v2", "v" + Integer.MIN_VALUE, "v" + Integer.MAX_VALUE), new HashSet<>(map.values()));
+
+        assertEquals("v1", map.put(1, "w1"));
+        assertEquals("w1", map.get(1));
+
+        assertEquals("v0", map.remove(0));
+        assertEquals("w1", map.remove(1));
+        assertNull(map.remove(1));
+        assertFalse(map.containsKey(1));
+        assertEquals(4, map.size());
+
+        // A removed key can be put again.
+        assertNull(map.putIfAbsent(1, "x1"));
+        assertEquals("x1", map.get(1));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(-1));
+    }
+
+    @Test
+    public void testRandomOperationsAgainstHashMap()
+    {
+        Random random = new Random(1234);
+        ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; ++i)
+        {
+            int key = random.nextInt(512) - 256;
+            int value = random.nextInt();
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                    break;
+                default:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+            }
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.size(), map.size());
+        }
+        List<Integer> values = map.values();
+        assertEquals(expected.size(), values.size());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(values));
+    }
+
+    @Test
+    public void testMonotonicKeysDoNotGrowTheMap()
+    {
+        ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+        int window = 100;
+        for (int key = 1; key < 1_000_000; key += 2)
+        {
+            map.putIfAbsent(key, key);
+            int old = key - 2 * window;
+            if (old > 0)
+                assertEquals(Integer.valueOf(old), map.remove(old));
+        }
+        assertEquals(window, map.size());
+        // The removed slots are discarded when the map is rehashed.
+        assertTrue(map.toString().contains("capacity=512"), map.toString());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception
+    {
+        ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+        AtomicInteger lastKey = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger errors = new AtomicInteger();
+        int readers = 4;
+        CountDownLatch latch = new CountDownLatch(readers);
+        for (int i = 0; i < readers; ++i)
+        {
+            new Thread(() ->
+            {
+                Random random = new Random();
+                while (running.get())
+                {
+                    int last = lastKey.get();
+                    // Keys below the last key are either mapped to themselves or removed.
+                    int key = 1 + 2 * random.nextInt(Math.max(1, last / 2));
+                    Integer value = map.get(key);
+                    if (value != null && value != key)
+                        errors.incrementAndGet();
+                    // The last key is never removed before lastKey is updated.
+                    if (last > 0 && map.get(last) == null && lastKey.get() == last)
+                        errors.incrementAndGet();
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        for (int key = 1; key < 200_000; key += 2)
+        {
+            map.putIfAbsent(key, key);
+            lastKey.set(key);
+            if (key > 200)
+                map.remove(key - 200);
+        }
+        running.set(false);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+    }
+}
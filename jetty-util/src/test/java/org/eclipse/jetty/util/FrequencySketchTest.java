@@ -0,0 +1,82 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FrequencySketchTest
+{
+    @Test
+    public void testIncrement()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        assertEquals(0, sketch.frequency("a"));
+        sketch.increment("a");
+        assertEquals(1, sketch.frequency("a"));
+        sketch.increment("a");
+        assertEquals(2, sketch.frequency("a"));
+    }
+
+    @Test
+    public void testMaxFrequency()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 100; i++)
+        {
+            sketch.increment("a");
+        }
+        assertEquals(15, sketch.frequency("a"));
+    }
+
+    @Test
+    public void testReset()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 10; i++)
+        {
+            sketch.increment("hot");
+        }
+        assertEquals(10, sketch.frequency("hot"));
+
+        // Increment many distinct items to reach the sample size.
+        for (int i = 0; i < sketch.getSampleSize(); i++)
+        {
+            sketch.increment(i);
+        }
+
+        assertThat(sketch.frequency("hot"), lessThan(10));
+    }
+
+    @Test
+    public void testFrequentItemsEstimatedHigher()
+    {
+        FrequencySketch sketch = new FrequencySketch(512);
+        for (int i = 0; i < 512; i++)
+        {
+            sketch.increment("item" + i);
+            if (i % 8 == 0)
+            {
+                for (int j = 0; j < 5; j++)
+                {
+                    sketch.increment("popular");
+                }
+            }
+        }
+        assertThat(sketch.frequency("item1"), lessThan(sketch.frequency("popular")));
+    }
+}
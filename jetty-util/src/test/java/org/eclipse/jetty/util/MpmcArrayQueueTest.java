@@ -0,0 +1,153 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MpmcArrayQueueTest
+{
+    @Test
+    public void testOfferPoll()
+    {
+        MpmcArrayQueue<String> queue = new MpmcArrayQueue<>(3);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertTrue(queue.offer("c"));
+        assertFalse(queue.offer("d"));
+        assertEquals(3, queue.size());
+        assertThat(new ArrayList<>(queue), contains("a", "b", "c"));
+
+        assertEquals("a", queue.peek());
+        assertEquals("a", queue.poll());
+        assertTrue(queue.offer("d"));
+        assertEquals("b", queue.poll());
+        assertThat(new ArrayList<>(queue), contains("c", "d"));
+        assertEquals("c", queue.poll());
+        assertEquals("d", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        MpmcArrayQueue<String> queue = new MpmcArrayQueue<>(3);
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+
+        assertTrue(queue.remove("b"));
+        assertFalse(queue.remove("b"));
+        assertEquals(2, queue.size());
+        assertThat(new ArrayList<>(queue), contains("a", "c"));
+
+        // The room of the removed element can be reused.
+        assertTrue(queue.offer("d"));
+        assertFalse(queue.offer("e"));
+
+        assertEquals("a", queue.poll());
+        assertEquals("c", queue.poll());
+        assertEquals("d", queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testRemovedElementsDoNotReduceCapacity()
+    {
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(4);
+        for (int i = 0; i < 100; i++)
+        {
+            assertTrue(queue.offer(i));
+            assertTrue(queue.remove(i));
+        }
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertThat(new ArrayList<>(queue), contains(0, 1, 2, 3));
+    }
+
+    @Test
+    public void testConcurrentProducersConsumers() throws Exception
+    {
+        int threads = 4;
+        int count = 10_000;
+        int capacity = 64;
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(capacity);
+        ConcurrentHashMap<Integer, Boolean> taken = new ConcurrentHashMap<>();
+        AtomicInteger maxSize = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(2 * threads);
+        List<Thread> list = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            int producer = t;
+            list.add(new Thread(() ->
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    Integer element = producer * count + i;
+                    while (!queue.offer(element))
+                    {
+                        Thread.yield();
+                    }
+                    maxSize.accumulateAndGet(queue.size(), Math::max);
+                    // Some elements are removed instead of being polled.
+                    if (ThreadLocalRandom.current().nextInt(10) == 0 && queue.remove(element))
+                        assertNull(taken.put(element, true));
+                }
+                latch.countDown();
+            }));
+            list.add(new Thread(() ->
+            {
+                while (taken.size() < threads * count)
+                {
+                    Integer element = queue.poll();
+                    if (element == null)
+                        Thread.yield();
+                    else
+                        assertNull(taken.put(element, true));
+                }
+                latch.countDown();
+            }));
+        }
+        list.forEach(Thread::start);
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(threads * count, taken.size());
+        assertTrue(queue.isEmpty());
+        assertThat(maxSize.get(), lessThanOrEqualTo(capacity));
+    }
+}
@@ -0,0 +1,121 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MpscQueueTest
+{
+    @Test
+    public void testOfferPoll()
+    {
+        MpscQueue<String> queue = new MpscQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+        assertEquals(3, queue.size());
+        assertThat(new ArrayList<>(queue), contains("a", "b", "c"));
+
+        assertEquals("a", queue.peek());
+        assertEquals("a", queue.poll());
+        assertEquals("b", queue.poll());
+        assertThat(new ArrayList<>(queue), contains("c"));
+        assertEquals("c", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testDrainOnlyPreviouslyOffered()
+    {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        queue.offer(1);
+        queue.offer(2);
+
+        List<Integer> drained = new ArrayList<>();
+        int count = queue.drain(e ->
+        {
+            drained.add(e);
+            // Elements offered while draining are not drained.
+            queue.offer(e + 10);
+        });
+
+        assertEquals(2, count);
+        assertThat(drained, contains(1, 2));
+        assertThat(new ArrayList<>(queue), contains(11, 12));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception
+    {
+        int producers = 8;
+        int count = 100_000;
+        MpscQueue<long[]> queue = new MpscQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++)
+        {
+            int producer = p;
+            new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    for (int i = 0; i < count; i++)
+                    {
+                        queue.offer(new long[]{producer, i});
+                    }
+                }
+                catch (InterruptedException x)
+                {
+                    throw new RuntimeException(x);
+                }
+            }).start();
+        }
+        start.countDown();
+
+        // The elements of each producer are consumed in order.
+        long[] expected = new long[producers];
+        int consumed = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (consumed < producers * count)
+        {
+            long[] element = queue.poll();
+            if (element == null)
+            {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.yield();
+                continue;
+            }
+            assertEquals(expected[(int)element[0]]++, element[1]);
+            ++consumed;
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import static java.util.stream.Collectors.toList;
 import static org.eclipse.jetty.util.Pool.StrategyType.FIRST;
+import static org.eclipse.jetty.util.Pool.StrategyType.LEAST_MULTIPLEXED;
 import static org.eclipse.jetty.util.Pool.StrategyType.RANDOM;
 import static org.eclipse.jetty.util.Pool.StrategyType.ROUND_ROBIN;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -699,4 +700,37 @@ public class PoolTest
         assertThat(e3.getPooled().get(), greaterThan(10));
         assertThat(e4.getPooled().get(), greaterThan(10));
     }
+
+    @Test
+    public void testLeastMultiplexedStrategy()
+    {
+        Pool<AtomicInteger> pool = new Pool<>(LEAST_MULTIPLEXED, 3);
+        pool.setMaxMultiplex(3);
+
+        Pool<AtomicInteger>.Entry e1 = pool.acquire(e -> new AtomicInteger());
+        // Entries are created only when no entry can be acquired.
+        assertThat(pool.acquire(e -> new AtomicInteger()), sameInstance(e1));
+        pool.release(e1);
+        pool.release(e1);
+        Pool<AtomicInteger>.Entry e2 = pool.reserve(-1);
+        e2.enable(new AtomicInteger(), false);
+        Pool<AtomicInteger>.Entry e3 = pool.reserve(-1);
+        e3.enable(new AtomicInteger(), false);
+
+        // The load is spread among the entries.
+        for (int i = 0; i < 6; i++)
+        {
+            pool.acquire().getPooled().incrementAndGet();
+        }
+        assertThat(e1.getMultiplexCount(), is(2));
+        assertThat(e2.getMultiplexCount(), is(2));
+        assertThat(e3.getMultiplexCount(), is(2));
+
+        // The least multiplexed entry is always chosen.
+        pool.release(e2);
+        pool.release(e2);
+        assertThat(pool.acquire(), sameInstance(e2));
+        assertThat(pool.acquire(), sameInstance(e2));
+        assertThat(e2.getMultiplexCount(), is(2));
+    }
 }
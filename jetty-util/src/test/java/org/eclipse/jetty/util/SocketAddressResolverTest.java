@@ -0,0 +1,184 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class SocketAddressResolverTest
+{
+    @Test
+    public void testCachingResolverCachesAddresses() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 60000, 60000);
+
+        AtomicReference<List<InetSocketAddress>> result = new AtomicReference<>();
+        caching.resolve("host", 80, Promise.from(result::set, x -> {}));
+        resolver.complete(0);
+        List<InetSocketAddress> result1 = result.get();
+        List<InetSocketAddress> result2 = resolve(caching, "host", 8080);
+
+        assertEquals(1, resolver.promises.size());
+        assertEquals(80, result1.get(0).getPort());
+        assertEquals(8080, result2.get(0).getPort());
+        assertEquals(result1.get(0).getAddress(), result2.get(0).getAddress());
+        assertEquals(1, caching.getHits());
+        assertEquals(1, caching.getMisses());
+    }
+
+    @Test
+    public void testCachingResolverCoalescesConcurrentResolutions() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 60000, 60000);
+
+        List<List<InetSocketAddress>> results = new ArrayList<>();
+        for (int i = 0; i < 3; ++i)
+        {
+            caching.resolve("host", 80 + i, Promise.from(results::add, x -> {}));
+        }
+        assertEquals(1, resolver.promises.size());
+        assertEquals(0, results.size());
+
+        resolver.complete(0);
+
+        assertEquals(3, results.size());
+        assertEquals(1, caching.getSize());
+    }
+
+    @Test
+    public void testCachingResolverCachesUnknownHost() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 60000, 60000);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        caching.resolve("unknown", 80, Promise.from(r -> {}, failure::set));
+        resolver.promises.get(0).failed(new UnknownHostException("unknown"));
+        assertThat(failure.get(), instanceOf(UnknownHostException.class));
+
+        failure.set(null);
+        caching.resolve("unknown", 80, Promise.from(r -> {}, failure::set));
+        assertThat(failure.get(), instanceOf(UnknownHostException.class));
+        assertEquals(1, resolver.promises.size());
+    }
+
+    @Test
+    public void testCachingResolverDoesNotCacheTimeouts() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 60000, 60000);
+
+        caching.resolve("host", 80, Promise.from(r -> {}, x -> {}));
+        resolver.promises.get(0).failed(new TimeoutException());
+        caching.resolve("host", 80, Promise.from(r -> {}, x -> {}));
+
+        assertEquals(2, resolver.promises.size());
+    }
+
+    @Test
+    public void testCachingResolverPrefetches() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 60000, 60000);
+        caching.setPrefetchRatio(0);
+
+        caching.resolve("host", 80, Promise.from(r -> {}, x -> {}));
+        resolver.complete(0);
+
+        // The cached addresses are served immediately while they are refreshed.
+        assertNotNull(resolve(caching, "host", 80));
+        assertEquals(2, resolver.promises.size());
+        // A prefetch is already in progress.
+        assertNotNull(resolve(caching, "host", 80));
+        assertEquals(2, resolver.promises.size());
+        resolver.complete(1);
+        assertEquals(2, caching.getHits());
+        assertEquals(1, caching.getMisses());
+    }
+
+    @Test
+    public void testCachingResolverEvictsExpiredEntries() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 0, 0);
+
+        caching.resolve("host", 80, Promise.from(r -> {}, x -> {}));
+        resolver.complete(0);
+        assertEquals(1, caching.getSize());
+
+        // The expired entry is evicted when accessed.
+        caching.resolve("host", 80, Promise.from(r -> {}, x -> {}));
+        assertEquals(0, caching.getSize());
+        assertEquals(2, caching.getMisses());
+    }
+
+    @Test
+    public void testCachingResolverMaxSize() throws Exception
+    {
+        RecordingResolver resolver = new RecordingResolver();
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver, 60000, 60000);
+        caching.setMaxSize(2);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            caching.resolve("host" + i, 80, Promise.from(r -> {}, x -> {}));
+            resolver.complete(i);
+        }
+        assertEquals(2, caching.getSize());
+
+        // The first resolution, which expires first, has been evicted.
+        caching.resolve("host0", 80, Promise.from(r -> {}, x -> {}));
+        assertEquals(4, resolver.promises.size());
+        assertNotNull(resolve(caching, "host2", 80));
+        assertEquals(4, resolver.promises.size());
+    }
+
+    private List<InetSocketAddress> resolve(SocketAddressResolver resolver, String host, int port)
+    {
+        AtomicReference<List<InetSocketAddress>> result = new AtomicReference<>();
+        resolver.resolve(host, port, Promise.from(result::set, x -> {}));
+        return result.get();
+    }
+
+    private static class RecordingResolver implements SocketAddressResolver
+    {
+        private final List<Promise<List<InetSocketAddress>>> promises = new ArrayList<>();
+
+        @Override
+        public void resolve(String host, int port, Promise<List<InetSocketAddress>> promise)
+        {
+            promises.add(promise);
+        }
+
+        private void complete(int index) throws UnknownHostException
+        {
+            InetAddress address = InetAddress.getByAddress(new byte[]{10, 0, 0, (byte)(index + 1)});
+            promises.get(index).succeeded(List.of(new InetSocketAddress(address, 0)));
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package org.eclipse.jetty.util;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -249,6 +250,56 @@ public class Utf8AppendableTest
         assertThat("Seq3", ret3, is("\uC3A4\uC3BC\uC3A0\uC3A1-UTF-8!!"));
     }
 
+    @ParameterizedTest
+    @MethodSource("implementations")
+    public void testAsciiRunsBetweenMultiByteSequences(Class<Utf8Appendable> impl) throws Exception
+    {
+        StringBuilder source = new StringBuilder();
+        for (int run = 0; run <= 20; run++)
+        {
+            for (int i = 0; i < run; i++)
+            {
+                source.append((char)('a' + i));
+            }
+            source.append(run % 2 == 0 ? "\u00e4" : "\uD842\uDF9F");
+        }
+        byte[] bytes = source.toString().getBytes(StandardCharsets.UTF_8);
+
+        Utf8Appendable array = impl.getDeclaredConstructor().newInstance();
+        array.append(bytes, 0, bytes.length);
+        assertEquals(source.toString(), array.toString());
+
+        // Split the bytes at every offset, so that multi-byte
+        // sequences span across the ASCII fast path.
+        for (int split = 0; split <= bytes.length; split++)
+        {
+            Utf8Appendable buffer = impl.getDeclaredConstructor().newInstance();
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            direct.limit(split);
+            buffer.append(direct);
+            assertEquals(split, direct.position());
+            direct.limit(bytes.length);
+            buffer.append(direct);
+            assertEquals(source.toString(), buffer.toString(), "split=" + split);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("implementations")
+    public void testInvalidByteAfterAsciiRun(Class<Utf8Appendable> impl) throws Exception
+    {
+        byte[] bytes = "0123456789abcdefXY".getBytes(StandardCharsets.UTF_8);
+        bytes[16] = (byte)0xC0;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        Utf8Appendable utf8 = impl.getDeclaredConstructor().newInstance();
+        assertThrows(NotUtf8Exception.class, () -> utf8.append(buffer));
+        // The invalid byte has been consumed.
+        assertEquals(17, buffer.position());
+        assertThat(utf8.getPartialString(), is("0123456789abcdef\uFFFD"));
+    }
+
     @TestFactory
     public Iterator<DynamicTest> testBadUtf8()
     {
@@ -0,0 +1,73 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest
+{
+    @Test
+    public void testPlatformThread()
+    {
+        assertFalse(VirtualThreads.isVirtualThread());
+    }
+
+    @Test
+    public void testUseVirtualThreads() throws Exception
+    {
+        QueuedThreadPool qtp = new QueuedThreadPool();
+        assertFalse(qtp.isUseVirtualThreads());
+        assertNull(VirtualThreads.getVirtualThreadsExecutor(qtp));
+
+        qtp.setUseVirtualThreads(true);
+        assertTrue(qtp.isUseVirtualThreads() == VirtualThreads.areSupported());
+        assertSame(VirtualThreads.getDefaultVirtualThreadsExecutor(), VirtualThreads.getVirtualThreadsExecutor(qtp));
+
+        assumeTrue(VirtualThreads.areSupported());
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean();
+        VirtualThreads.getVirtualThreadsExecutor(qtp).execute(() ->
+        {
+            virtual.set(VirtualThreads.isVirtualThread());
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+
+        qtp.setUseVirtualThreads(false);
+        assertFalse(qtp.isUseVirtualThreads());
+    }
+
+    @Test
+    public void testVirtualThreadsExecutor()
+    {
+        QueuedThreadPool qtp = new QueuedThreadPool();
+        qtp.setVirtualThreadsExecutor(Runnable::run);
+        assertTrue(qtp.isUseVirtualThreads());
+        assertNotNull(VirtualThreads.getVirtualThreadsExecutor(qtp));
+        assertNull(VirtualThreads.getVirtualThreadsExecutor(Runnable::run));
+    }
+}
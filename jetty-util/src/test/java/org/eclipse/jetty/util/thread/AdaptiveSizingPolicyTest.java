@@ -0,0 +1,137 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveSizingPolicyTest
+{
+    private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    @Test
+    public void testNoUpdateBeforePeriod()
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.reset(10);
+        long now = System.nanoTime();
+
+        assertEquals(10, policy.update(now, 2, 100, 0, 0));
+        assertEquals(10, policy.getTargetThreads());
+    }
+
+    @Test
+    public void testGrowsWhenJobsAreWaiting()
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.setTargetQueueLatency(1);
+        policy.reset(8);
+        long now = System.nanoTime();
+
+        // With a backlog the target is recomputed after the target queue latency.
+        now += TimeUnit.MILLISECONDS.toNanos(2);
+        assertEquals(12, policy.update(now, 2, 100, 0, 5));
+        now += TimeUnit.MILLISECONDS.toNanos(2);
+        assertEquals(18, policy.update(now, 2, 100, 0, 5));
+
+        // The target never exceeds maxThreads.
+        for (int i = 0; i < 10; i++)
+        {
+            now += TimeUnit.MILLISECONDS.toNanos(2);
+            policy.update(now, 2, 100, 0, 5);
+        }
+        assertEquals(100, policy.getTargetThreads());
+    }
+
+    @Test
+    public void testShrinksWhenIdle()
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.reset(100);
+        long now = System.nanoTime();
+
+        now += PERIOD;
+        assertEquals(75, policy.update(now, 2, 100, 0, 0));
+
+        // The target never goes below minThreads.
+        for (int i = 0; i < 20; i++)
+        {
+            now += PERIOD;
+            policy.update(now, 2, 100, 0, 0);
+        }
+        assertEquals(2, policy.getTargetThreads());
+    }
+
+    @Test
+    public void testLeasedThreadsAreAddedToDemand()
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.reset(1);
+        long now = System.nanoTime();
+
+        now += PERIOD;
+        assertEquals(21, policy.update(now, 1, 100, 20, 0));
+
+        // The leased threads never consume the minimum threads, even before an update.
+        policy.reset(1);
+        assertEquals(6, policy.update(now, 1, 100, 5, 0));
+    }
+
+    @Test
+    public void testSampling() throws Exception
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.setSampleRate(1);
+        policy.reset(1);
+
+        Runnable job = () ->
+        {
+            try
+            {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException x)
+            {
+                throw new RuntimeException(x);
+            }
+        };
+        for (int i = 0; i < 10; i++)
+        {
+            Runnable sampled = policy.onExecute(job);
+            assertNotSame(job, sampled);
+            sampled.run();
+        }
+
+        // Ten jobs of 10 ms in a 1 s period keep one tenth of a thread busy.
+        long now = System.nanoTime() + PERIOD;
+        policy.update(now, 1, 100, 0, 0);
+        assertTrue(policy.getTaskLatency() >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(policy.getArrivalRate() > 0);
+        assertEquals(1, policy.getTargetThreads());
+
+        policy.setSampleRate(Integer.MAX_VALUE);
+        int sampled = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            if (policy.onExecute(job) != job)
+                sampled++;
+        }
+        assertTrue(sampled < 10);
+    }
+}
@@ -15,10 +15,13 @@ package org.eclipse.jetty.util.thread;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AutoLockTest
@@ -64,6 +67,26 @@ public class AutoLockTest
         assertFalse(lock.isLocked());
     }
 
+    @Test
+    public void testTryLock() throws Exception
+    {
+        AutoLock lock = new AutoLock();
+
+        try (AutoLock l = lock.tryLock())
+        {
+            assertNotNull(l);
+            assertTrue(lock.isLocked());
+
+            AtomicReference<AutoLock> other = new AtomicReference<>(lock);
+            Thread thread = new Thread(() -> other.set(lock.tryLock()));
+            thread.start();
+            thread.join();
+            assertNull(other.get());
+        }
+
+        assertFalse(lock.isLocked());
+    }
+
     @Test
     public void testContend() throws Exception
     {
@@ -17,6 +17,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.logging.StacklessLogging;
@@ -24,7 +25,10 @@ import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class EatWhatYouKillTest
 {
@@ -118,6 +122,37 @@ public class EatWhatYouKillTest
         }
     }
 
+    @Test
+    public void testBlockingTaskExecutedInVirtualThreads() throws Exception
+    {
+        QueuedThreadPool executor = new QueuedThreadPool();
+        AtomicInteger virtualTasks = new AtomicInteger();
+        executor.setVirtualThreadsExecutor(task ->
+        {
+            virtualTasks.incrementAndGet();
+            new Thread(task).start();
+        });
+        CountDownLatch latch = new CountDownLatch(2);
+        Thread producer = Thread.currentThread();
+        AtomicReference<Thread> nonBlockingThread = new AtomicReference<>();
+        BlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+        tasks.offer(new Task(latch::countDown, Invocable.InvocationType.BLOCKING));
+        tasks.offer(new Task(() ->
+        {
+            nonBlockingThread.set(Thread.currentThread());
+            latch.countDown();
+        }, Invocable.InvocationType.NON_BLOCKING));
+        ewyk = new EatWhatYouKill(tasks::poll, executor);
+        ewyk.start();
+
+        ewyk.produce();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, virtualTasks.get());
+        assertEquals(1, ewyk.getPECTasksExecuted());
+        assertSame(producer, nonBlockingThread.get());
+    }
+
     private static class Task implements Runnable, Invocable
     {
         private final Runnable task;
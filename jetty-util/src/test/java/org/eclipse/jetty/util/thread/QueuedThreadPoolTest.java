@@ -504,6 +504,108 @@ public class QueuedThreadPoolTest extends AbstractThreadPoolTest
         tp.stop();
     }
 
+    @Test
+    public void testSizingPolicy() throws Exception
+    {
+        Runnable job = () ->
+        {
+            try
+            {
+                Thread.sleep(20);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        };
+
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.setSampleRate(1);
+        policy.setUpdatePeriod(100);
+        QueuedThreadPool tp = new QueuedThreadPool();
+        tp.setMinThreads(2);
+        tp.setMaxThreads(50);
+        tp.setSizingPolicy(policy);
+
+        tp.start();
+        waitForThreads(tp, 2);
+        // The reserved thread is leased, so it is added to the minimum threads.
+        int leased = tp.getThreadPoolBudget().getLeasedThreads();
+        assertThat(policy.getTargetThreads(), is(2 + leased));
+
+        // A steady load of 20 ms jobs every 2 ms needs about 10 threads.
+        for (int i = 0; i < 500; i++)
+        {
+            tp.execute(job);
+            Thread.sleep(2);
+        }
+        assertThat(policy.getTargetThreads(), greaterThanOrEqualTo(4));
+        assertThat(tp.getThreads(), greaterThanOrEqualTo(4));
+        assertThat(tp.getThreads(), lessThan(50));
+
+        // Without load the threads shrink well before the idle timeout.
+        waitForThreads(tp, 2 + leased);
+        tp.stop();
+    }
+
+    @Test
+    public void testSizingPolicyGrowsWhenThreadsAreBlocked() throws Exception
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        policy.setTargetQueueLatency(10);
+        QueuedThreadPool tp = new QueuedThreadPool();
+        tp.setMinThreads(2);
+        tp.setMaxThreads(10);
+        tp.setReservedThreads(0);
+        tp.setSizingPolicy(policy);
+        tp.start();
+        waitForThreads(tp, 2);
+
+        // Block all the target threads on a job that is queued after them.
+        CountDownLatch blocked = new CountDownLatch(2);
+        CountDownLatch latch = new CountDownLatch(1);
+        Runnable job = () ->
+        {
+            try
+            {
+                blocked.countDown();
+                latch.await();
+            }
+            catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        };
+        tp.execute(job);
+        tp.execute(job);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertThat(tp.getIdleThreads(), is(0));
+        tp.execute(latch::countDown);
+
+        // No other job is submitted, yet the pool grows to run the queued job.
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(policy.getTargetThreads(), greaterThanOrEqualTo(3));
+        tp.stop();
+    }
+
+    @Test
+    public void testSizingPolicyTargetIncludesLeasedThreads() throws Exception
+    {
+        AdaptiveSizingPolicy policy = new AdaptiveSizingPolicy();
+        QueuedThreadPool tp = new QueuedThreadPool();
+        tp.setMinThreads(2);
+        tp.setMaxThreads(10);
+        tp.setReservedThreads(0);
+        tp.setSizingPolicy(policy);
+        tp.getThreadPoolBudget().leaseTo(this, 3);
+        tp.start();
+
+        // The leased threads do not consume the minimum threads available to jobs.
+        assertThat(policy.getTargetThreads(), is(5));
+        waitForThreads(tp, 2);
+        tp.stop();
+    }
+
     @Test
     public void testSteadyShrink() throws Exception
     {
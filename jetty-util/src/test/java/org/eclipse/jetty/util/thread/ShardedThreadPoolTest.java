@@ -0,0 +1,117 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedThreadPoolTest
+{
+    private ShardedThreadPool pool;
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (pool != null)
+            pool.stop();
+    }
+
+    @Test
+    public void testRoundRobinFromOtherThreads() throws Exception
+    {
+        pool = new ShardedThreadPool(4, 8);
+        pool.start();
+        assertEquals(-1, ShardedThreadPool.getCurrentShard());
+
+        Set<Integer> shards = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(8);
+        for (int i = 0; i < 8; ++i)
+        {
+            pool.execute(() ->
+            {
+                shards.add(ShardedThreadPool.getCurrentShard());
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Set.of(0, 1, 2, 3), shards);
+    }
+
+    @Test
+    public void testTasksStayOnShard() throws Exception
+    {
+        pool = new ShardedThreadPool(4, 8);
+        pool.start();
+
+        AtomicInteger mismatches = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(10);
+        pool.getShard(2).execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (ShardedThreadPool.getCurrentShard() != 2)
+                    mismatches.incrementAndGet();
+                latch.countDown();
+                if (latch.getCount() > 0)
+                    pool.execute(this);
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, mismatches.get());
+        // Shard indexes wrap around the number of shards.
+        assertSame(pool.getShard(2), pool.getShard(6));
+    }
+
+    @Test
+    public void testLeaseIsCheckedAgainstEachShard() throws Exception
+    {
+        pool = new ShardedThreadPool(2, 8);
+        pool.start();
+        ThreadPoolBudget budget0 = pool.getShard(0).getThreadPoolBudget();
+        ThreadPoolBudget budget1 = pool.getShard(1).getThreadPoolBudget();
+        // The shards may already lease threads, for example for their reserved threads.
+        int leased0 = budget0.getLeasedThreads();
+        int leased1 = budget1.getLeasedThreads();
+
+        // 3 threads: 2 from shard 0 and 1 from shard 1.
+        ThreadPoolBudget.Lease lease = ThreadPoolBudget.leaseFrom(pool, this, 3);
+        assertEquals(3, lease.getThreads());
+        assertEquals(leased0 + 2, budget0.getLeasedThreads());
+        assertEquals(leased1 + 1, budget1.getLeasedThreads());
+
+        // Shard 0 does not have enough threads left, although the whole pool has.
+        int left0 = 8 - budget0.getLeasedThreads();
+        assertThrows(IllegalStateException.class, () -> pool.leaseTo(this, 2 * left0));
+        assertEquals(leased0 + 2, budget0.getLeasedThreads());
+        assertEquals(leased1 + 1, budget1.getLeasedThreads());
+
+        lease.close();
+        assertEquals(leased0, budget0.getLeasedThreads());
+        assertEquals(leased1, budget1.getLeasedThreads());
+    }
+}
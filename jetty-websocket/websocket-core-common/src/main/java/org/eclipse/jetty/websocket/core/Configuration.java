@@ -70,27 +70,66 @@ public interface Configuration
     void setMaxTextMessageSize(long maxSize);
 
     /**
-     * Get the maximum number of data frames allowed to be waiting to be sent at any one time.
+     * Get the maximum number of data frames allowed to be waiting to be sent at any one time,
+     * including the one being sent.
      * The default value is -1, this indicates there is no limit on how many frames can be
-     * queued to be sent by the implementation. If the limit is exceeded, subsequent frames
-     * sent are failed with a {@link java.nio.channels.WritePendingException} but
-     * the connection is not failed and will remain open.
+     * queued to be sent by the implementation. If the limit is exceeded, the
+     * {@link #getOutgoingQueuePolicy() outgoing queue policy} is applied; with the default
+     * policy subsequent frames sent are failed with a {@link java.nio.channels.WritePendingException}
+     * but the connection is not failed and will remain open.
      *
      * @return the max number of frames.
      */
     int getMaxOutgoingFrames();
 
     /**
-     * Set the maximum number of data frames allowed to be waiting to be sent at any one time.
+     * Set the maximum number of data frames allowed to be waiting to be sent at any one time,
+     * including the one being sent.
      * The default value is -1, this indicates there is no limit on how many frames can be
-     * queued to be sent by the implementation. If the limit is exceeded, subsequent frames
-     * sent are failed with a {@link java.nio.channels.WritePendingException} but
-     * the connection is not failed and will remain open.
+     * queued to be sent by the implementation. If the limit is exceeded, the
+     * {@link #getOutgoingQueuePolicy() outgoing queue policy} is applied; with the default
+     * policy subsequent frames sent are failed with a {@link java.nio.channels.WritePendingException}
+     * but the connection is not failed and will remain open.
      *
      * @param maxOutgoingFrames the max number of frames.
      */
     void setMaxOutgoingFrames(int maxOutgoingFrames);
 
+    /**
+     * Get the maximum number of payload bytes of the data frames waiting to be written to the network,
+     * including the one being written.
+     * The default value is -1, this indicates there is no limit on how many bytes can be queued.
+     * If the limit is exceeded, the {@link #getOutgoingQueuePolicy() outgoing queue policy} is applied.
+     *
+     * @return the max number of queued bytes.
+     */
+    long getMaxOutgoingBytes();
+
+    /**
+     * Set the maximum number of payload bytes of the data frames waiting to be written to the network.
+     *
+     * @param maxOutgoingBytes the max number of queued bytes, or -1 for no limit.
+     * @see #getMaxOutgoingBytes()
+     */
+    void setMaxOutgoingBytes(long maxOutgoingBytes);
+
+    /**
+     * Get the policy applied when the {@link #getMaxOutgoingFrames() max outgoing frames} or the
+     * {@link #getMaxOutgoingBytes() max outgoing bytes} limit is exceeded.
+     * The default value is {@link OutgoingQueuePolicy#FAIL}.
+     *
+     * @return the outgoing queue policy.
+     */
+    OutgoingQueuePolicy getOutgoingQueuePolicy();
+
+    /**
+     * Set the policy applied when the outgoing queue limits are exceeded.
+     *
+     * @param outgoingQueuePolicy the outgoing queue policy.
+     * @see #getOutgoingQueuePolicy()
+     */
+    void setOutgoingQueuePolicy(OutgoingQueuePolicy outgoingQueuePolicy);
+
     interface Customizer
     {
         void customize(Configuration configurable);
@@ -107,6 +146,8 @@ public interface Configuration
         private Long maxBinaryMessageSize;
         private Long maxTextMessageSize;
         private Integer maxOutgoingFrames;
+        private Long maxOutgoingBytes;
+        private OutgoingQueuePolicy outgoingQueuePolicy;
 
         @Override
         public Duration getIdleTimeout()
@@ -216,6 +257,30 @@ public interface Configuration
             this.maxOutgoingFrames = maxOutgoingFrames;
         }
 
+        @Override
+        public long getMaxOutgoingBytes()
+        {
+            return maxOutgoingBytes == null ? WebSocketConstants.DEFAULT_MAX_OUTGOING_BYTES : maxOutgoingBytes;
+        }
+
+        @Override
+        public void setMaxOutgoingBytes(long maxOutgoingBytes)
+        {
+            this.maxOutgoingBytes = maxOutgoingBytes;
+        }
+
+        @Override
+        public OutgoingQueuePolicy getOutgoingQueuePolicy()
+        {
+            return outgoingQueuePolicy == null ? WebSocketConstants.DEFAULT_OUTGOING_QUEUE_POLICY : outgoingQueuePolicy;
+        }
+
+        @Override
+        public void setOutgoingQueuePolicy(OutgoingQueuePolicy outgoingQueuePolicy)
+        {
+            this.outgoingQueuePolicy = outgoingQueuePolicy;
+        }
+
         @Override
         public void customize(Configuration configurable)
         {
@@ -237,6 +302,10 @@ public interface Configuration
                 configurable.setMaxTextMessageSize(maxTextMessageSize);
             if (maxOutgoingFrames != null)
                 configurable.setMaxOutgoingFrames(maxOutgoingFrames);
+            if (maxOutgoingBytes != null)
+                configurable.setMaxOutgoingBytes(maxOutgoingBytes);
+            if (outgoingQueuePolicy != null)
+                configurable.setOutgoingQueuePolicy(outgoingQueuePolicy);
         }
     }
 }
@@ -166,6 +166,56 @@ public interface CoreSession extends OutgoingFrames, Configuration
      */
     void demand(long n);
 
+    /**
+     * <p>Sends a whole message that may have been pre-encoded for many sessions.</p>
+     * <p>Implementations write the pre-encoded bytes when the negotiated extensions allow it,
+     * otherwise they send {@link PreEncodedFrame#newFrame() a copy} of the original frame
+     * like {@link #sendFrame(Frame, Callback, boolean)} does, which is what the default
+     * implementation does.</p>
+     *
+     * @param frame the pre-encoded message
+     * @param callback the callback to track the message sent (or failed)
+     * @param batch whether the frame may be batched
+     */
+    default void sendFrame(PreEncodedFrame frame, Callback callback, boolean batch)
+    {
+        sendFrame(frame.newFrame(), callback, batch);
+    }
+
+    /**
+     * @return the number of outgoing data frames waiting to be written to the network,
+     * including the one being written
+     */
+    default int getQueuedOutgoingFrames()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the number of payload bytes of the outgoing data frames waiting to be
+     * written to the network, including the one being written
+     */
+    default long getQueuedOutgoingBytes()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the number of outgoing frames dropped by the {@link OutgoingQueuePolicy outgoing queue policy}
+     */
+    default long getDroppedOutgoingFrames()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the number of outgoing frames rejected because the outgoing queue was full
+     */
+    default long getRejectedOutgoingFrames()
+    {
+        return 0;
+    }
+
     class Empty extends ConfigurationCustomizer implements CoreSession
     {
         @Override
@@ -14,6 +14,7 @@
 package org.eclipse.jetty.websocket.core;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import org.eclipse.jetty.util.BufferUtil;
@@ -371,27 +372,32 @@ public class Frame
             {
                 maskInt = (maskInt << 8) + (maskByte & 0xFF);
             }
+            long maskLong = ((long)maskInt << 32) | (maskInt & 0xFFFFFFFFL);
+            if (payload.order() == ByteOrder.LITTLE_ENDIAN)
+            {
+                maskInt = Integer.reverseBytes(maskInt);
+                maskLong = Long.reverseBytes(maskLong);
+            }
 
-            int maskOffset = 0;
-
+            // The mask starts at the payload position, so it can be
+            // applied a long at a time, and then an int and a byte
+            // at a time to the remaining tail.
             int start = payload.position();
             int end = payload.limit();
-            int offset = maskOffset;
-            int remaining;
-            while ((remaining = end - start) > 0)
+            while (end - start >= Long.BYTES)
+            {
+                payload.putLong(start, payload.getLong(start) ^ maskLong);
+                start += Long.BYTES;
+            }
+            if (end - start >= Integer.BYTES)
+            {
+                payload.putInt(start, payload.getInt(start) ^ maskInt);
+                start += Integer.BYTES;
+            }
+            for (int offset = 0; start < end; ++offset)
             {
-                if (remaining >= 4 && (offset & 3) == 0)
-                {
-                    payload.putInt(start, payload.getInt(start) ^ maskInt);
-                    start += 4;
-                    offset += 4;
-                }
-                else
-                {
-                    payload.put(start, (byte)(payload.get(start) ^ mask[offset & 3]));
-                    ++start;
-                    ++offset;
-                }
+                payload.put(start, (byte)(payload.get(start) ^ mask[offset]));
+                ++start;
             }
 
             Arrays.fill(mask, (byte)0);
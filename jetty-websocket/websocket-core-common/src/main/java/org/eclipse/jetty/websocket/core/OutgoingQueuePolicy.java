@@ -0,0 +1,53 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+package org.eclipse.jetty.websocket.core;
+
+/**
+ * <p>The policy applied when a data frame is sent while the queue of frames waiting
+ * to be written to the network is already at its {@link Configuration#getMaxOutgoingFrames() frame}
+ * or {@link Configuration#getMaxOutgoingBytes() byte} limit, typically because the remote peer
+ * is not reading fast enough.</p>
+ * <p>The frame being written counts toward the limits, like the frames waiting behind it.
+ * Frames are dropped from the queue before the negotiated extensions encode them, so
+ * dropping them never corrupts the encoding of the following messages.
+ * {@link #DROP_OLDEST} and {@link #COALESCE_LATEST} only drop whole messages that are not
+ * being written yet; if dropping them does not make room for the new frame, the new frame
+ * is failed as with {@link #FAIL}.</p>
+ */
+public enum OutgoingQueuePolicy
+{
+    /**
+     * The new frame is failed with a {@link java.nio.channels.WritePendingException},
+     * and the connection remains open.
+     */
+    FAIL,
+
+    /**
+     * The oldest queued messages are dropped, and their callbacks failed,
+     * until the new frame fits in the queue.
+     */
+    DROP_OLDEST,
+
+    /**
+     * All the queued messages are dropped, and their callbacks failed,
+     * so that only the latest message is sent.
+     */
+    COALESCE_LATEST,
+
+    /**
+     * The new frame and the queued data frames are failed, and the session is closed
+     * with {@link CloseStatus#POLICY_VIOLATION}; the close frame is written as soon as
+     * the frame being written, if any, completes.
+     */
+    CLOSE
+}
@@ -0,0 +1,193 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+package org.eclipse.jetty.websocket.core;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A cache of {@code permessage-deflate} compressed payloads, keyed by the uncompressed payload.</p>
+ * <p>Without compression context takeover every message is compressed with a fresh {@link java.util.zip.Deflater},
+ * so identical messages compress to identical payloads, that can be reused across messages and sessions
+ * without borrowing a Deflater at all.</p>
+ * <p>The cache is bounded by the total size of its keys and values, and evicts the least recently used entries.</p>
+ *
+ * @see WebSocketComponents#setDeflateMemorySaving(boolean)
+ */
+@ManagedObject("Cache of permessage-deflate compressed payloads")
+public class PerMessageDeflateCache
+{
+    private final AutoLock lock = new AutoLock();
+    private final Map<ByteBuffer, ByteBuffer> cache = new LinkedHashMap<>(16, 0.75F, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private int maxMessageSize = 16 * 1024;
+    private long maxCacheSize = 4 * 1024 * 1024;
+    private long cacheSize;
+
+    /**
+     * @return the max size of the uncompressed messages that are cached
+     */
+    @ManagedAttribute("The max size of the uncompressed messages that are cached")
+    public int getMaxMessageSize()
+    {
+        return maxMessageSize;
+    }
+
+    public void setMaxMessageSize(int maxMessageSize)
+    {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @return the max total size, in bytes, of the cached uncompressed and compressed payloads
+     */
+    @ManagedAttribute("The max total size of the cached payloads, in bytes")
+    public long getMaxCacheSize()
+    {
+        return maxCacheSize;
+    }
+
+    public void setMaxCacheSize(long maxCacheSize)
+    {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    @ManagedAttribute("The total size of the cached payloads, in bytes")
+    public long getCacheSize()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return cacheSize;
+        }
+    }
+
+    @ManagedAttribute("The number of cached payloads")
+    public int getSize()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return cache.size();
+        }
+    }
+
+    @ManagedAttribute("The number of cache hits")
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    @ManagedAttribute("The number of cache misses")
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @param payload the uncompressed payload
+     * @return whether the given payload may be cached
+     */
+    public boolean isCacheable(ByteBuffer payload)
+    {
+        int length = BufferUtil.length(payload);
+        return length > 0 && length <= getMaxMessageSize() && 2L * length <= getMaxCacheSize();
+    }
+
+    /**
+     * @param payload the uncompressed payload, whose position and limit are not modified
+     * @return a new read-only buffer with the compressed payload, or null if the payload is not cached
+     */
+    public ByteBuffer get(ByteBuffer payload)
+    {
+        if (!isCacheable(payload))
+            return null;
+
+        ByteBuffer compressed;
+        try (AutoLock l = lock.lock())
+        {
+            compressed = cache.get(payload);
+        }
+
+        if (compressed == null)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return compressed.slice();
+    }
+
+    /**
+     * <p>Caches a copy of the given payloads, evicting the least recently used entries if necessary.</p>
+     *
+     * @param payload the uncompressed payload, whose position and limit are not modified
+     * @param compressed the compressed payload, whose position and limit are not modified
+     */
+    public void put(ByteBuffer payload, ByteBuffer compressed)
+    {
+        if (!isCacheable(payload))
+            return;
+
+        ByteBuffer key = copy(payload);
+        ByteBuffer value = copy(compressed).asReadOnlyBuffer();
+        long size = key.remaining() + value.remaining();
+        try (AutoLock l = lock.lock())
+        {
+            ByteBuffer existing = cache.put(key, value);
+            if (existing != null)
+                cacheSize -= key.remaining() + existing.remaining();
+            cacheSize += size;
+
+            Iterator<Map.Entry<ByteBuffer, ByteBuffer>> iterator = cache.entrySet().iterator();
+            while (cacheSize > getMaxCacheSize() && iterator.hasNext())
+            {
+                Map.Entry<ByteBuffer, ByteBuffer> eldest = iterator.next();
+                cacheSize -= eldest.getKey().remaining() + eldest.getValue().remaining();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer)
+    {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.slice()).flip();
+        return copy;
+    }
+
+    @ManagedOperation(value = "Clears the cache", impact = "ACTION")
+    public void clear()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            cache.clear();
+            cacheSize = 0;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,cacheSize=%d,hits=%d,misses=%d}",
+            getClass().getSimpleName(), hashCode(), getSize(), getCacheSize(), getHits(), getMisses());
+    }
+}
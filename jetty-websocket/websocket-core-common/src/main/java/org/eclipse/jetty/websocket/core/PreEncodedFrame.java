@@ -0,0 +1,296 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.core;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.CountingCallback;
+import org.eclipse.jetty.util.Retainable;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.websocket.core.internal.Generator;
+import org.eclipse.jetty.websocket.core.internal.PerMessageDeflateExtension;
+
+/**
+ * <p>A whole WebSocket message that is encoded once and sent to many {@link CoreSession}s.</p>
+ * <p>The wire bytes of the message, header included, are generated lazily the first time
+ * a session needs them, into a reference counted buffer that is then written by every session
+ * without further copies. Two encodings may be generated: a plain one, and a compressed one for
+ * sessions that negotiated {@code permessage-deflate} with {@code server_no_context_takeover}.</p>
+ * <p>Sessions that cannot use the pre-encoded bytes (for example client sessions, that must mask
+ * their frames, or sessions with compression context takeover or other extensions) fall back to
+ * sending {@link #newFrame() a copy} of the original frame, encoded by the session itself.</p>
+ * <p>A PreEncodedFrame is created with a reference count of 1, and must be {@link #release() released}
+ * once it has been sent to all the sessions; in-flight writes retain the encoded bytes until they complete.</p>
+ *
+ * @see CoreSession#sendFrame(PreEncodedFrame, Callback, boolean)
+ */
+public class PreEncodedFrame implements Retainable
+{
+    private final AutoLock lock = new AutoLock();
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final WebSocketComponents components;
+    private final Frame frame;
+    private final boolean useDirectByteBuffers;
+    private RetainableByteBuffer plain;
+    private RetainableByteBuffer deflated;
+
+    public PreEncodedFrame(WebSocketComponents components, Frame frame)
+    {
+        this(components, frame, false);
+    }
+
+    /**
+     * @param components the components providing the buffer and deflater pools
+     * @param frame a whole, unmasked, TEXT or BINARY message
+     * @param useDirectByteBuffers whether to encode into direct buffers
+     */
+    public PreEncodedFrame(WebSocketComponents components, Frame frame, boolean useDirectByteBuffers)
+    {
+        byte opCode = frame.getOpCode();
+        if (opCode != OpCode.TEXT && opCode != OpCode.BINARY)
+            throw new IllegalArgumentException("Not a TEXT or BINARY frame: " + frame);
+        if (!frame.isFin())
+            throw new IllegalArgumentException("Not a whole message: " + frame);
+        if (frame.isMasked() || frame.hasRsv())
+            throw new IllegalArgumentException("Masked or RSV frame: " + frame);
+        this.components = components;
+        this.frame = frame;
+        this.useDirectByteBuffers = useDirectByteBuffers;
+    }
+
+    /**
+     * @return the original frame
+     */
+    public Frame getFrame()
+    {
+        return frame;
+    }
+
+    /**
+     * @return a new frame sharing the payload of the original frame,
+     * for sessions that must encode the message themselves
+     */
+    public Frame newFrame()
+    {
+        return new Frame(frame.getOpCode(), true, frame.hasPayload() ? frame.getPayload().slice() : null);
+    }
+
+    /**
+     * <p>Returns a new frame that carries the pre-encoded bytes of the message to a single session.</p>
+     * <p>The returned frame retains the encoded bytes, and must be {@link Encoded#release() released}
+     * when the write completes.</p>
+     *
+     * @param deflate whether to return the compressed encoding
+     * @return a new frame that carries the pre-encoded bytes
+     * @throws IllegalStateException if this PreEncodedFrame has already been released
+     */
+    public Encoded newEncodedFrame(boolean deflate)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            if (references.get() <= 0)
+                throw new IllegalStateException("Released " + this);
+            if (deflate)
+            {
+                if (deflated == null)
+                    deflated = encode(deflate(), true);
+                return new Encoded(frame.getOpCode(), true, deflated);
+            }
+            if (plain == null)
+                plain = encode(frame.getPayload(), false);
+            return new Encoded(frame.getOpCode(), false, plain);
+        }
+    }
+
+    /**
+     * <p>Sends this message to all the given sessions.</p>
+     *
+     * @param sessions the sessions to send the message to
+     * @param callback the callback that completes when all the sends complete, or when the first one fails
+     * @param batch whether the sessions may batch the frame
+     */
+    public void sendTo(Collection<? extends CoreSession> sessions, Callback callback, boolean batch)
+    {
+        if (sessions.isEmpty())
+        {
+            callback.succeeded();
+            return;
+        }
+        Callback counting = new CountingCallback(callback, sessions.size());
+        for (CoreSession session : sessions)
+        {
+            session.sendFrame(this, counting, batch);
+        }
+    }
+
+    @Override
+    public void retain()
+    {
+        while (true)
+        {
+            int r = references.get();
+            if (r <= 0)
+                throw new IllegalStateException("Released " + this);
+            if (references.compareAndSet(r, r + 1))
+                break;
+        }
+    }
+
+    /**
+     * <p>Releases this PreEncodedFrame, releasing the encoded bytes
+     * once the last reference is released and all the writes completed.</p>
+     *
+     * @return the remaining reference count
+     */
+    public int release()
+    {
+        int ref = references.decrementAndGet();
+        if (ref == 0)
+        {
+            try (AutoLock l = lock.lock())
+            {
+                if (plain != null)
+                    plain.release();
+                plain = null;
+                if (deflated != null)
+                    deflated.release();
+                deflated = null;
+            }
+        }
+        else if (ref < 0)
+        {
+            throw new IllegalStateException("Already released " + this);
+        }
+        return ref;
+    }
+
+    private RetainableByteBuffer encode(ByteBuffer payload, boolean rsv1)
+    {
+        Frame encoded = new Frame(frame.getOpCode(), true, payload);
+        encoded.setRsv1(rsv1);
+        int length = Generator.MAX_HEADER_LENGTH + encoded.getPayloadLength();
+        RetainableByteBuffer buffer = new RetainableByteBuffer(components.getBufferPool(), length, useDirectByteBuffers);
+        BufferUtil.clear(buffer.getBuffer());
+        new Generator().generateWholeFrame(encoded, buffer.getBuffer());
+        return buffer;
+    }
+
+    private ByteBuffer deflate()
+    {
+        // Compress the whole message as PerMessageDeflateExtension does without context
+        // takeover: a fresh deflater, a sync flush, and the trailing empty block removed.
+        ByteBufferPool bufferPool = components.getBufferPool();
+        DeflaterPool.Entry entry = components.getDeflaterPool().acquire();
+        try
+        {
+            Deflater deflater = entry.get();
+            if (frame.hasPayload())
+                deflater.setInput(frame.getPayload().slice());
+            ByteBuffer output = BufferUtil.allocate(Math.max(64, frame.getPayloadLength() / 2 + 16));
+            while (true)
+            {
+                if (BufferUtil.space(output) == 0)
+                {
+                    ByteBuffer larger = BufferUtil.allocate(output.capacity() * 2);
+                    BufferUtil.append(larger, output);
+                    output = larger;
+                }
+                int position = BufferUtil.flipToFill(output);
+                int compressed = deflater.deflate(output.array(), output.arrayOffset() + output.position(), output.remaining(), Deflater.SYNC_FLUSH);
+                output.position(output.position() + compressed);
+                BufferUtil.flipToFlush(output, position);
+                if (compressed == 0 && deflater.needsInput() && BufferUtil.space(output) > 0)
+                    break;
+            }
+            if (PerMessageDeflateExtension.endsWithTail(output))
+                output.limit(output.limit() - 4);
+            if (!output.hasRemaining())
+            {
+                // RFC 7692, 7.2.3.6. Generating an Empty Fragment Manually.
+                output = ByteBuffer.wrap(new byte[]{0x00});
+            }
+            return output;
+        }
+        finally
+        {
+            entry.release();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,r=%d}", getClass().getSimpleName(), hashCode(), frame, references.get());
+    }
+
+    /**
+     * <p>A frame that carries the pre-encoded bytes of a {@link PreEncodedFrame} to a single session.</p>
+     * <p>Its payload is the (possibly compressed) payload of the message, so that the session can
+     * account and validate it like any other frame, but the frame is written as the pre-encoded bytes.</p>
+     */
+    public static class Encoded extends Frame
+    {
+        private final RetainableByteBuffer encoded;
+        private final AtomicInteger released = new AtomicInteger();
+
+        private Encoded(byte opCode, boolean rsv1, RetainableByteBuffer encoded)
+        {
+            super(opCode);
+            encoded.retain();
+            this.encoded = encoded;
+            ByteBuffer bytes = encoded.getBuffer();
+            int payloadLength = (int)payloadLength(bytes);
+            ByteBuffer payload = bytes.slice();
+            payload.position(payload.limit() - payloadLength);
+            setPayload(payload.slice());
+            setRsv1(rsv1);
+        }
+
+        /**
+         * @return a new slice of the encoded bytes, header included
+         */
+        public ByteBuffer getEncodedBytes()
+        {
+            return encoded.getBuffer().slice();
+        }
+
+        /**
+         * <p>Releases the encoded bytes retained by this frame; subsequent calls are ignored.</p>
+         */
+        public void release()
+        {
+            if (released.compareAndSet(0, 1))
+                encoded.release();
+        }
+
+        private static long payloadLength(ByteBuffer bytes)
+        {
+            int index = bytes.position() + 1;
+            int length = bytes.get(index) & 0x7F;
+            if (length == 0x7E)
+                return ((bytes.get(index + 1) & 0xFF) << 8) | (bytes.get(index + 2) & 0xFF);
+            if (length == 0x7F)
+                return bytes.getLong(index + 1);
+            return length;
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class WebSocketComponents extends ContainerLifeCycle
     private final ByteBufferPool bufferPool;
     private final InflaterPool inflaterPool;
     private final DeflaterPool deflaterPool;
+    private final PerMessageDeflateCache deflateCache = new PerMessageDeflateCache();
+    private boolean deflateMemorySaving;
 
     public WebSocketComponents()
     {
@@ -49,8 +51,9 @@ public class WebSocketComponents extends ContainerLifeCycle
         this.inflaterPool = (inflaterPool == null) ? new InflaterPool(CompressionPool.DEFAULT_CAPACITY, true) : inflaterPool;
         this.deflaterPool = (deflaterPool == null) ? new DeflaterPool(CompressionPool.DEFAULT_CAPACITY, Deflater.DEFAULT_COMPRESSION, true) : deflaterPool;
 
-        addBean(inflaterPool);
-        addBean(deflaterPool);
+        addBean(this.inflaterPool);
+        addBean(this.deflaterPool);
+        addBean(deflateCache);
     }
 
     public ByteBufferPool getBufferPool()
@@ -77,4 +80,35 @@ public class WebSocketComponents extends ContainerLifeCycle
     {
         return deflaterPool;
     }
+
+    /**
+     * @return the cache of compressed payloads used in the {@link #isDeflateMemorySaving() memory saving mode}
+     */
+    public PerMessageDeflateCache getDeflateCache()
+    {
+        return deflateCache;
+    }
+
+    /**
+     * @return whether {@code permessage-deflate} runs in the memory saving mode
+     * @see #setDeflateMemorySaving(boolean)
+     */
+    public boolean isDeflateMemorySaving()
+    {
+        return deflateMemorySaving;
+    }
+
+    /**
+     * <p>Sets the memory saving mode of the {@code permessage-deflate} extension.</p>
+     * <p>In this mode servers always negotiate {@code server_no_context_takeover}, so that sessions
+     * borrow a {@link java.util.zip.Deflater} from the {@link #getDeflaterPool() pool} only for the duration
+     * of each outgoing message, rather than holding its native memory for their whole lifetime;
+     * compressed payloads are also {@link #getDeflateCache() cached} and reused for identical messages.</p>
+     *
+     * @param deflateMemorySaving whether {@code permessage-deflate} runs in the memory saving mode
+     */
+    public void setDeflateMemorySaving(boolean deflateMemorySaving)
+    {
+        this.deflateMemorySaving = deflateMemorySaving;
+    }
 }
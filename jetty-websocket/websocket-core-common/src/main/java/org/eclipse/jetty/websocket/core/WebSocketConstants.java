@@ -28,6 +28,8 @@ public final class WebSocketConstants
     public static final int DEFAULT_INPUT_BUFFER_SIZE = 4 * 1024;
     public static final int DEFAULT_OUTPUT_BUFFER_SIZE = 4 * 1024;
     public static final int DEFAULT_MAX_OUTGOING_FRAMES = -1;
+    public static final long DEFAULT_MAX_OUTGOING_BYTES = -1;
+    public static final OutgoingQueuePolicy DEFAULT_OUTGOING_QUEUE_POLICY = OutgoingQueuePolicy.FAIL;
     public static final boolean DEFAULT_AUTO_FRAGMENT = true;
     public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
     public static final Duration DEFAULT_WRITE_TIMEOUT = Duration.ZERO;
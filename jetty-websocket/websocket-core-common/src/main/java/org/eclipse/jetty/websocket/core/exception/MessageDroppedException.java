@@ -0,0 +1,27 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+package org.eclipse.jetty.websocket.core.exception;
+
+/**
+ * Exception used to fail the callback of a frame that has been dropped
+ * from the outgoing queue without being sent.
+ *
+ * @see org.eclipse.jetty.websocket.core.OutgoingQueuePolicy
+ */
+public class MessageDroppedException extends WebSocketException
+{
+    public MessageDroppedException(String message)
+    {
+        super(message);
+    }
+}
@@ -101,6 +101,20 @@ public class ExtensionStack implements IncomingFrames, OutgoingFrames, Dumpable
         incoming.onFrame(frame, callback);
     }
 
+    private ExtensionConfig configure(ExtensionConfig config)
+    {
+        // In the memory saving mode the server never takes over its compression context,
+        // so that the Deflater is only borrowed from the pool for the duration of a message.
+        if (behavior == Behavior.SERVER && components.isDeflateMemorySaving() &&
+            "permessage-deflate".equals(config.getName()) &&
+            !config.getParameterKeys().contains("server_no_context_takeover"))
+        {
+            config = new ExtensionConfig(config);
+            config.setParameter("server_no_context_takeover");
+        }
+        return config;
+    }
+
     /**
      * Perform the extension negotiation.
      * <p>
@@ -122,7 +136,7 @@ public class ExtensionStack implements IncomingFrames, OutgoingFrames, Dumpable
 
             try
             {
-                ext = components.getExtensionRegistry().newInstance(config, components);
+                ext = components.getExtensionRegistry().newInstance(configure(config), components);
             }
             catch (Throwable t)
             {
@@ -19,6 +19,7 @@ import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.websocket.core.Configuration;
 import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +46,7 @@ public abstract class FragmentingFlusher extends TransformingFlusher
     protected boolean onFrame(Frame frame, Callback callback, boolean batch)
     {
         long maxFrameSize = configuration.getMaxFrameSize();
-        if (frame.isControlFrame() || maxFrameSize <= 0 || frame.getPayloadLength() <= maxFrameSize)
+        if (frame.isControlFrame() || frame instanceof PreEncodedFrame.Encoded || maxFrameSize <= 0 || frame.getPayloadLength() <= maxFrameSize)
         {
             forwardFrame(frame, callback, batch);
             return true;
@@ -35,6 +35,7 @@ import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.websocket.core.CloseStatus;
 import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
 import org.eclipse.jetty.websocket.core.exception.WebSocketException;
 import org.eclipse.jetty.websocket.core.exception.WebSocketWriteTimeoutException;
 import org.slf4j.Logger;
@@ -224,6 +225,28 @@ public class FrameFlusher extends IteratingCallback
 
                 int batchSpace = batchBuffer == null ? bufferSize : BufferUtil.space(batchBuffer);
 
+                if (entry.frame instanceof PreEncodedFrame.Encoded)
+                {
+                    // The frame is already encoded, header included.
+                    ByteBuffer encoded = ((PreEncodedFrame.Encoded)entry.frame).getEncodedBytes();
+                    if (entry.batch && encoded.remaining() < bufferSize / 4 && batchSpace >= encoded.remaining())
+                    {
+                        if (batchBuffer == null)
+                        {
+                            batchBuffer = acquireBuffer(bufferSize);
+                            buffers.add(batchBuffer);
+                        }
+                        BufferUtil.append(batchBuffer, encoded);
+                    }
+                    else
+                    {
+                        buffers.add(encoded);
+                        flush = true;
+                    }
+                    flushed = flush;
+                    continue;
+                }
+
                 boolean batch = entry.batch &&
                     !entry.frame.isControlFrame() &&
                     entry.frame.getPayloadLength() < bufferSize / 4 &&
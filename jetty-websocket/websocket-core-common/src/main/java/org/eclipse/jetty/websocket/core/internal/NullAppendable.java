@@ -13,6 +13,8 @@
 
 package org.eclipse.jetty.websocket.core.internal;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jetty.util.Utf8Appendable;
 
 public class NullAppendable extends Utf8Appendable
@@ -41,6 +43,18 @@ public class NullAppendable extends Utf8Appendable
         });
     }
 
+    @Override
+    protected void appendAscii(ByteBuffer buf, int index, int length)
+    {
+        // Only validating, ASCII bytes are always valid.
+    }
+
+    @Override
+    protected void appendAscii(byte[] b, int offset, int length)
+    {
+        // Only validating, ASCII bytes are always valid.
+    }
+
     @Override
     public int length()
     {
@@ -28,6 +28,8 @@ import org.eclipse.jetty.websocket.core.AbstractExtension;
 import org.eclipse.jetty.websocket.core.ExtensionConfig;
 import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.PerMessageDeflateCache;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
 import org.eclipse.jetty.websocket.core.WebSocketComponents;
 import org.eclipse.jetty.websocket.core.exception.BadPayloadException;
 import org.eclipse.jetty.websocket.core.exception.MessageTooLargeException;
@@ -52,6 +54,7 @@ public class PerMessageDeflateExtension extends AbstractExtension
     private DeflaterPool.Entry deflaterHolder;
     private InflaterPool.Entry inflaterHolder;
     private boolean incomingCompressed;
+    private PerMessageDeflateCache deflateCache;
 
     private ExtensionConfig configRequested;
     private ExtensionConfig configNegotiated;
@@ -138,6 +141,9 @@ public class PerMessageDeflateExtension extends AbstractExtension
             }
         }
 
+        if (components.isDeflateMemorySaving())
+            deflateCache = components.getDeflateCache();
+
         configNegotiated = new ExtensionConfig(config.getName(), paramsNegotiated);
         LOG.debug("config: outgoingContextTakover={}, incomingContextTakeover={} : {}", outgoingContextTakeover, incomingContextTakeover, this);
 
@@ -173,6 +179,15 @@ public class PerMessageDeflateExtension extends AbstractExtension
         return true;
     }
 
+    /**
+     * @return whether the compression context is kept across outgoing messages,
+     * that is whether {@code server_no_context_takeover} was not negotiated
+     */
+    public boolean isOutgoingContextTakeover()
+    {
+        return outgoingContextTakeover;
+    }
+
     public Deflater getDeflater()
     {
         if (deflaterHolder == null)
@@ -236,21 +251,44 @@ public class PerMessageDeflateExtension extends AbstractExtension
         super.nextOutgoingFrame(frame, callback, batch);
     }
 
+    private int getDeflateBufferSize()
+    {
+        long maxFrameSize = getConfiguration().getMaxFrameSize();
+        return (maxFrameSize <= 0) ? deflateBufferSize : (int)Math.min(maxFrameSize, deflateBufferSize);
+    }
+
     private class OutgoingFlusher extends TransformingFlusher
     {
         private boolean _first;
         private Frame _frame;
         private boolean _batch;
+        private boolean _cacheable;
 
         @Override
         protected boolean onFrame(Frame frame, Callback callback, boolean batch)
         {
-            if (OpCode.isControlFrame(frame.getOpCode()))
+            // Control frames are not compressed, and pre-encoded frames are already compressed.
+            if (OpCode.isControlFrame(frame.getOpCode()) || frame instanceof PreEncodedFrame.Encoded)
             {
                 nextOutgoingFrame(frame, callback, batch);
                 return true;
             }
 
+            // Without context takeover a whole message always compresses to the same payload.
+            _cacheable = deflateCache != null && !outgoingContextTakeover && frame.isFin() &&
+                frame.getOpCode() != OpCode.CONTINUATION && deflateCache.isCacheable(frame.getPayload());
+            if (_cacheable)
+            {
+                ByteBuffer cached = deflateCache.get(frame.getPayload());
+                if (cached != null && cached.remaining() < getDeflateBufferSize())
+                {
+                    Frame compressed = new Frame(frame.getOpCode(), true, cached);
+                    compressed.setRsv1(true);
+                    nextOutgoingFrame(compressed, callback, batch);
+                    return true;
+                }
+            }
+
             _first = true;
             _frame = frame;
             _batch = batch;
@@ -271,9 +309,8 @@ public class PerMessageDeflateExtension extends AbstractExtension
 
         private boolean deflate(Callback callback)
         {
-            // Get a buffer for the inflated payload.
-            long maxFrameSize = getConfiguration().getMaxFrameSize();
-            int bufferSize = (maxFrameSize <= 0) ? deflateBufferSize : (int)Math.min(maxFrameSize, deflateBufferSize);
+            // Get a buffer for the deflated payload.
+            int bufferSize = getDeflateBufferSize();
             final ByteBuffer buffer = getBufferPool().acquire(bufferSize, false);
             callback = Callback.from(callback, () -> getBufferPool().release(buffer));
             BufferUtil.clear(buffer);
@@ -325,6 +362,10 @@ public class PerMessageDeflateExtension extends AbstractExtension
             if (LOG.isDebugEnabled())
                 LOG.debug("Compressed {}: payload:{}", _frame, payload.remaining());
 
+            // Only cache messages compressed into a single frame.
+            if (_cacheable && _first && finished)
+                deflateCache.put(_frame.getPayload(), payload);
+
             Frame chunk = new Frame(_first ? _frame.getOpCode() : OpCode.CONTINUATION);
             chunk.setRsv1(_first && _frame.getOpCode() != OpCode.CONTINUATION);
             chunk.setPayload(payload);
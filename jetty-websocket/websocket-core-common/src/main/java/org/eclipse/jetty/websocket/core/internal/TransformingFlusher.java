@@ -13,13 +13,22 @@
 
 package org.eclipse.jetty.websocket.core.internal;
 
+import java.nio.channels.WritePendingException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
 import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.OutgoingQueuePolicy;
+import org.eclipse.jetty.websocket.core.exception.MessageDroppedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +38,11 @@ import org.slf4j.LoggerFactory;
  * Subsequent calls to {@link #transform(Callback)} are made on each callback success until one of these calls returns
  * true to indicate they are done processing the frame and are ready to receive a new one.
  * The {@link Callback} passed in to both these method must be succeeded in order to continue processing.
+ * <p>
+ * The data frames waiting to be processed, together with the data frame being processed, can be limited
+ * in number and payload bytes, in which case the {@link OutgoingQueuePolicy queue policy} is applied
+ * when a data frame would exceed the limits.
+ * </p>
  */
 public abstract class TransformingFlusher
 {
@@ -37,8 +51,15 @@ public abstract class TransformingFlusher
     private final AutoLock lock = new AutoLock();
     private final Queue<FrameEntry> entries = new ArrayDeque<>();
     private final IteratingCallback flusher = new Flusher();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder rejectedFrames = new LongAdder();
     private boolean finished = true;
     private Throwable failure;
+    private int maxQueuedFrames = -1;
+    private long maxQueuedBytes = -1;
+    private OutgoingQueuePolicy queuePolicy = OutgoingQueuePolicy.FAIL;
+    private int queuedFrames;
+    private long queuedBytes;
 
     /**
      * Called when a frame is ready to be transformed.
@@ -65,35 +86,259 @@ public abstract class TransformingFlusher
             log.debug("Queuing {}", entry);
 
         boolean enqueued = false;
+        boolean rejected = false;
+        List<FrameEntry> droppedEntries = null;
+        OutgoingQueuePolicy policy = null;
         try (AutoLock l = lock.lock())
         {
             if (failure == null)
-                enqueued = entries.add(entry);
+            {
+                if (isQueueLimited(frame))
+                {
+                    if (exceedsQueueLimits(frame))
+                    {
+                        policy = queuePolicy;
+                        if (policy == OutgoingQueuePolicy.CLOSE)
+                        {
+                            // The session is closed, so drop all the data frames waiting
+                            // to be processed for the close frame to be processed next.
+                            droppedEntries = dropQueuedEntries();
+                            rejected = true;
+                        }
+                        else
+                        {
+                            droppedEntries = dropQueuedEntries(frame, policy);
+                            rejected = exceedsQueueLimits(frame);
+                        }
+                    }
+                    if (!rejected)
+                    {
+                        queuedFrames++;
+                        queuedBytes += frame.getPayloadLength();
+                    }
+                }
+                if (!rejected)
+                    enqueued = entries.add(entry);
+            }
         }
 
-        if (enqueued)
+        if (droppedEntries != null && !droppedEntries.isEmpty())
+        {
+            droppedFrames.add(droppedEntries.size());
+            if (log.isDebugEnabled())
+                log.debug("Dropped {} entries to queue {}", droppedEntries.size(), entry);
+            MessageDroppedException dropped = new MessageDroppedException("Outgoing queue limit exceeded: " + policy);
+            for (FrameEntry e : droppedEntries)
+            {
+                notifyCallbackFailure(e.callback, dropped);
+            }
+        }
+
+        if (rejected)
+        {
+            rejectedFrames.increment();
+            if (log.isDebugEnabled())
+                log.debug("Rejected {}", entry);
+            notifyCallbackFailure(callback, new WritePendingException());
+            if (policy == OutgoingQueuePolicy.CLOSE)
+                onQueueOverflow();
+        }
+        else if (enqueued)
             flusher.iterate();
         else
             notifyCallbackFailure(callback, failure);
     }
 
+    public int getMaxQueuedFrames()
+    {
+        return maxQueuedFrames;
+    }
+
+    /**
+     * @param maxQueuedFrames the max number of data frames waiting to be processed,
+     * including the one being processed, or -1 for no limit
+     */
+    public void setMaxQueuedFrames(int maxQueuedFrames)
+    {
+        this.maxQueuedFrames = maxQueuedFrames;
+    }
+
+    public long getMaxQueuedBytes()
+    {
+        return maxQueuedBytes;
+    }
+
+    /**
+     * @param maxQueuedBytes the max number of payload bytes of the data frames waiting to be processed,
+     * including the one being processed, or -1 for no limit
+     */
+    public void setMaxQueuedBytes(long maxQueuedBytes)
+    {
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    public OutgoingQueuePolicy getQueuePolicy()
+    {
+        return queuePolicy;
+    }
+
+    /**
+     * @param queuePolicy the policy applied when a data frame would exceed the queue limits
+     */
+    public void setQueuePolicy(OutgoingQueuePolicy queuePolicy)
+    {
+        this.queuePolicy = Objects.requireNonNull(queuePolicy);
+    }
+
+    /**
+     * @return the number of data frames waiting to be processed, including the one being processed
+     */
+    public int getQueuedFrames()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return queuedFrames;
+        }
+    }
+
+    /**
+     * @return the number of payload bytes of the data frames waiting to be processed,
+     * including the one being processed
+     */
+    public long getQueuedBytes()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return queuedBytes;
+        }
+    }
+
+    /**
+     * @return the number of frames dropped from the queue
+     */
+    public long getDroppedFrames()
+    {
+        return droppedFrames.longValue();
+    }
+
+    /**
+     * @return the number of frames rejected because the queue was full
+     */
+    public long getRejectedFrames()
+    {
+        return rejectedFrames.longValue();
+    }
+
+    /**
+     * Called, outside of any lock, when a frame has been rejected because it exceeded the
+     * queue limits and the queue policy is {@link OutgoingQueuePolicy#CLOSE}, after the data
+     * frames waiting to be processed have been dropped.
+     */
+    protected void onQueueOverflow()
+    {
+    }
+
+    /**
+     * Returns whether the given frame may be dropped from the queue without corrupting
+     * the stream of frames, that is whether it is a whole message.
+     *
+     * @param frame the queued frame
+     * @return whether the frame may be dropped from the queue
+     */
+    protected boolean isDroppable(Frame frame)
+    {
+        if (!frame.isFin())
+            return false;
+        byte opCode = frame.getOpCode();
+        return opCode == OpCode.TEXT || opCode == OpCode.BINARY;
+    }
+
+    private boolean isQueueLimited(Frame frame)
+    {
+        return frame != FrameFlusher.FLUSH_FRAME && frame.isDataFrame();
+    }
+
+    private boolean exceedsQueueLimits(Frame frame)
+    {
+        // A frame is always queued when there are no other data frames, so that large messages can be sent.
+        if (queuedFrames == 0)
+            return false;
+        if (maxQueuedFrames > 0 && queuedFrames >= maxQueuedFrames)
+            return true;
+        return maxQueuedBytes > 0 && queuedBytes + frame.getPayloadLength() > maxQueuedBytes;
+    }
+
+    private List<FrameEntry> dropQueuedEntries(Frame frame, OutgoingQueuePolicy policy)
+    {
+        if (policy != OutgoingQueuePolicy.DROP_OLDEST && policy != OutgoingQueuePolicy.COALESCE_LATEST)
+            return null;
+
+        List<FrameEntry> dropped = new ArrayList<>();
+        Iterator<FrameEntry> iterator = entries.iterator();
+        while (iterator.hasNext())
+        {
+            if (policy == OutgoingQueuePolicy.DROP_OLDEST && !exceedsQueueLimits(frame))
+                break;
+            FrameEntry entry = iterator.next();
+            if (isQueueLimited(entry.frame) && isDroppable(entry.frame))
+            {
+                iterator.remove();
+                onDequeued(entry);
+                dropped.add(entry);
+            }
+        }
+        return dropped;
+    }
+
+    private List<FrameEntry> dropQueuedEntries()
+    {
+        List<FrameEntry> dropped = new ArrayList<>();
+        Iterator<FrameEntry> iterator = entries.iterator();
+        while (iterator.hasNext())
+        {
+            FrameEntry entry = iterator.next();
+            if (isQueueLimited(entry.frame))
+            {
+                iterator.remove();
+                onDequeued(entry);
+                dropped.add(entry);
+            }
+        }
+        return dropped;
+    }
+
+    private void onDequeued(FrameEntry entry)
+    {
+        if (entry != null && isQueueLimited(entry.frame))
+        {
+            queuedFrames--;
+            queuedBytes -= entry.frame.getPayloadLength();
+        }
+    }
+
     private void onFailure(Throwable t)
     {
+        List<FrameEntry> failedEntries;
         try (AutoLock l = lock.lock())
         {
             if (failure == null)
                 failure = t;
+            failedEntries = new ArrayList<>(entries);
+            entries.clear();
+            queuedFrames = 0;
+            queuedBytes = 0;
         }
 
-        for (FrameEntry entry : entries)
+        for (FrameEntry entry : failedEntries)
             notifyCallbackFailure(entry.callback, t);
-        entries.clear();
     }
 
-    private FrameEntry pollEntry()
+    private FrameEntry pollEntry(FrameEntry processed)
     {
         try (AutoLock l = lock.lock())
         {
+            // The entry being processed counts toward the queue limits until it completes.
+            onDequeued(processed);
             return entries.poll();
         }
     }
@@ -107,10 +352,11 @@ public abstract class TransformingFlusher
         {
             if (finished)
             {
-                if (current != null)
-                    notifyCallbackSuccess(current.callback);
+                FrameEntry processed = current;
+                current = pollEntry(processed);
+                if (processed != null)
+                    notifyCallbackSuccess(processed.callback);
 
-                current = pollEntry();
                 if (current == null)
                     return Action.IDLE;
 
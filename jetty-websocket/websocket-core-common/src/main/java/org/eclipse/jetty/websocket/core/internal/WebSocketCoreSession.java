@@ -18,28 +18,32 @@ import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.nio.channels.ClosedChannelException;
-import java.nio.channels.WritePendingException;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Utf8Appendable;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.websocket.core.Behavior;
 import org.eclipse.jetty.websocket.core.CloseStatus;
 import org.eclipse.jetty.websocket.core.Configuration;
 import org.eclipse.jetty.websocket.core.CoreSession;
+import org.eclipse.jetty.websocket.core.Extension;
 import org.eclipse.jetty.websocket.core.ExtensionConfig;
 import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.FrameHandler;
 import org.eclipse.jetty.websocket.core.IncomingFrames;
 import org.eclipse.jetty.websocket.core.OpCode;
 import org.eclipse.jetty.websocket.core.OutgoingFrames;
+import org.eclipse.jetty.websocket.core.OutgoingQueuePolicy;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
 import org.eclipse.jetty.websocket.core.WebSocketComponents;
 import org.eclipse.jetty.websocket.core.WebSocketConstants;
 import org.eclipse.jetty.websocket.core.exception.CloseException;
@@ -56,6 +60,7 @@ import static org.eclipse.jetty.util.Callback.NOOP;
 /**
  * The Core WebSocket Session.
  */
+@ManagedObject("WebSocket core session")
 public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpable
 {
     private static final Logger LOG = LoggerFactory.getLogger(WebSocketCoreSession.class);
@@ -70,7 +75,8 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
     private final Flusher flusher = new Flusher(this);
 
     private int maxOutgoingFrames = -1;
-    private final AtomicInteger numOutgoingFrames = new AtomicInteger();
+    private long maxOutgoingBytes = WebSocketConstants.DEFAULT_MAX_OUTGOING_BYTES;
+    private OutgoingQueuePolicy outgoingQueuePolicy = WebSocketConstants.DEFAULT_OUTGOING_QUEUE_POLICY;
 
     private WebSocketConnection connection;
     private boolean autoFragment = WebSocketConstants.DEFAULT_AUTO_FRAGMENT;
@@ -533,17 +539,6 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
     @Override
     public void sendFrame(Frame frame, Callback callback, boolean batch)
     {
-        if (maxOutgoingFrames > 0 && frame.isDataFrame())
-        {
-            // Increase the number of outgoing frames, will be decremented when callback is completed.
-            callback = Callback.from(callback, numOutgoingFrames::decrementAndGet);
-            if (numOutgoingFrames.incrementAndGet() > maxOutgoingFrames)
-            {
-                callback.failed(new WritePendingException());
-                return;
-            }
-        }
-
         try
         {
             assertValidOutgoing(frame);
@@ -593,6 +588,31 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
         }
     }
 
+    @Override
+    public void sendFrame(PreEncodedFrame frame, Callback callback, boolean batch)
+    {
+        // Only server frames are unmasked, and the pre-encoded bytes can only be used
+        // if the negotiated extensions would not transform the frame in a different way.
+        boolean encoded = behavior == Behavior.SERVER && isOutgoingMessageIndependent();
+        boolean deflate = encoded && !negotiated.getExtensions().getExtensions().isEmpty();
+
+        if (encoded)
+        {
+            PreEncodedFrame.Encoded encodedFrame = frame.newEncodedFrame(deflate);
+            // The frame would be fragmented, so let the session encode it.
+            if (maxFrameSize <= 0 || encodedFrame.getPayloadLength() <= maxFrameSize)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("sendFrame({}, {}, {}) pre-encoded", frame, callback, batch);
+                sendFrame(encodedFrame, Callback.from(callback, encodedFrame::release), batch);
+                return;
+            }
+            encodedFrame.release();
+        }
+
+        sendFrame(frame.newFrame(), callback, batch);
+    }
+
     @Override
     public void flush(Callback callback)
     {
@@ -693,6 +713,85 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
     public void setMaxOutgoingFrames(int maxOutgoingFrames)
     {
         this.maxOutgoingFrames = maxOutgoingFrames;
+        configureFlusher();
+    }
+
+    @Override
+    public long getMaxOutgoingBytes()
+    {
+        return maxOutgoingBytes;
+    }
+
+    @Override
+    public void setMaxOutgoingBytes(long maxOutgoingBytes)
+    {
+        this.maxOutgoingBytes = maxOutgoingBytes;
+        configureFlusher();
+    }
+
+    @Override
+    public OutgoingQueuePolicy getOutgoingQueuePolicy()
+    {
+        return outgoingQueuePolicy;
+    }
+
+    @Override
+    public void setOutgoingQueuePolicy(OutgoingQueuePolicy outgoingQueuePolicy)
+    {
+        this.outgoingQueuePolicy = Objects.requireNonNull(outgoingQueuePolicy);
+        configureFlusher();
+    }
+
+    private void configureFlusher()
+    {
+        // The frames sent wait in the queue of the flusher until the previous one is written,
+        // so this is where the queue limits apply, whatever the policy.
+        flusher.setMaxQueuedFrames(maxOutgoingFrames);
+        flusher.setMaxQueuedBytes(maxOutgoingBytes);
+        flusher.setQueuePolicy(outgoingQueuePolicy);
+    }
+
+    @Override
+    @ManagedAttribute("The number of outgoing data frames waiting to be written, including the one being written")
+    public int getQueuedOutgoingFrames()
+    {
+        return flusher.getQueuedFrames();
+    }
+
+    @Override
+    @ManagedAttribute("The number of payload bytes of the outgoing data frames waiting to be written, including the one being written")
+    public long getQueuedOutgoingBytes()
+    {
+        return flusher.getQueuedBytes();
+    }
+
+    @Override
+    @ManagedAttribute("The number of outgoing frames dropped by the outgoing queue policy")
+    public long getDroppedOutgoingFrames()
+    {
+        return flusher.getDroppedFrames();
+    }
+
+    @Override
+    @ManagedAttribute("The number of outgoing frames rejected because the outgoing queue was full")
+    public long getRejectedOutgoingFrames()
+    {
+        return flusher.getRejectedFrames();
+    }
+
+    /**
+     * @return whether each outgoing message is encoded independently of the previous ones,
+     * that is whether there are no extensions, or only permessage-deflate without context takeover
+     */
+    private boolean isOutgoingMessageIndependent()
+    {
+        List<Extension> extensions = negotiated.getExtensions().getExtensions();
+        if (extensions.isEmpty())
+            return true;
+        Extension extension = extensions.get(0);
+        return extensions.size() == 1 &&
+            extension instanceof PerMessageDeflateExtension &&
+            !((PerMessageDeflateExtension)extension).isOutgoingContextTakeover();
     }
 
     private class IncomingAdaptor implements IncomingFrames
@@ -784,6 +883,14 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
     {
         Dumpable.dumpObjects(out, indent, this,
             "subprotocol=" + negotiated.getSubProtocol(),
+            String.format("outgoingQueue=%s,frames=%d/%d,bytes=%d/%d,dropped=%d,rejected=%d",
+                outgoingQueuePolicy,
+                getQueuedOutgoingFrames(),
+                maxOutgoingFrames,
+                getQueuedOutgoingBytes(),
+                maxOutgoingBytes,
+                getDroppedOutgoingFrames(),
+                getRejectedOutgoingFrames()),
             negotiated.getExtensions(),
             handler);
     }
@@ -857,5 +964,11 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
         {
             negotiated.getExtensions().sendFrame(frame, callback, batch);
         }
+
+        @Override
+        protected void onQueueOverflow()
+        {
+            close(CloseStatus.POLICY_VIOLATION, "Outgoing queue limit exceeded", NOOP);
+        }
     }
 }
@@ -0,0 +1,132 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+package org.eclipse.jetty.websocket.core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PreEncodedFrameTest
+{
+    private static final String MESSAGE = "Hello World, Hello World, Hello World, Hello World, Hello World!";
+
+    private WebSocketComponents components;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        components = new WebSocketComponents();
+        components.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        components.stop();
+    }
+
+    @Test
+    public void testEncodedFrameParses() throws Exception
+    {
+        PreEncodedFrame preEncoded = new PreEncodedFrame(components, new Frame(OpCode.TEXT).setPayload(MESSAGE));
+        PreEncodedFrame.Encoded encoded1 = preEncoded.newEncodedFrame(false);
+        PreEncodedFrame.Encoded encoded2 = preEncoded.newEncodedFrame(false);
+        preEncoded.release();
+
+        // Both frames share the same encoded bytes, which are retained until they are released.
+        assertThat(encoded1.getEncodedBytes(), is(encoded2.getEncodedBytes()));
+        assertThat(encoded1.getPayloadAsUTF8(), is(MESSAGE));
+
+        ParserCapture capture = new ParserCapture();
+        capture.parse(encoded1.getEncodedBytes());
+        Frame frame = capture.framesQueue.poll(1, TimeUnit.SECONDS);
+        assertThat(frame.getOpCode(), is(OpCode.TEXT));
+        assertTrue(frame.isFin());
+        assertThat(frame.getPayloadAsUTF8(), is(MESSAGE));
+
+        encoded1.release();
+        encoded1.release();
+        encoded2.release();
+    }
+
+    @Test
+    public void testDeflatedFrameInflates() throws Exception
+    {
+        PreEncodedFrame preEncoded = new PreEncodedFrame(components, new Frame(OpCode.TEXT).setPayload(MESSAGE));
+        PreEncodedFrame.Encoded encoded = preEncoded.newEncodedFrame(true);
+
+        ByteBuffer bytes = encoded.getEncodedBytes();
+        assertThat(bytes.get(0), is((byte)0xC1));
+        assertTrue(encoded.isRsv1());
+        assertTrue(encoded.getPayloadLength() < MESSAGE.length());
+
+        Inflater inflater = new Inflater(true);
+        ByteBuffer payload = encoded.getPayload();
+        byte[] input = new byte[payload.remaining() + 4];
+        payload.get(input, 0, payload.remaining());
+        input[input.length - 2] = (byte)0xFF;
+        input[input.length - 1] = (byte)0xFF;
+        inflater.setInput(input);
+        byte[] output = new byte[MESSAGE.length() * 2];
+        int length = inflater.inflate(output);
+        inflater.end();
+        assertThat(new String(output, 0, length, UTF_8), is(MESSAGE));
+
+        encoded.release();
+        preEncoded.release();
+    }
+
+    @Test
+    public void testNewFrameSharesPayload()
+    {
+        Frame original = new Frame(OpCode.BINARY).setPayload(BufferUtil.toBuffer(MESSAGE));
+        PreEncodedFrame preEncoded = new PreEncodedFrame(components, original);
+        assertThat(preEncoded.getFrame(), sameInstance(original));
+
+        Frame copy = preEncoded.newFrame();
+        assertThat(copy.getOpCode(), is(OpCode.BINARY));
+        assertTrue(copy.isFin());
+        assertFalse(copy.isMasked());
+        assertThat(copy.getPayload(), is(original.getPayload()));
+        preEncoded.release();
+    }
+
+    @Test
+    public void testInvalidFrames()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new PreEncodedFrame(components, new Frame(OpCode.PING)));
+        assertThrows(IllegalArgumentException.class, () -> new PreEncodedFrame(components, new Frame(OpCode.TEXT, false, "partial")));
+    }
+
+    @Test
+    public void testReleased()
+    {
+        PreEncodedFrame preEncoded = new PreEncodedFrame(components, new Frame(OpCode.TEXT).setPayload(MESSAGE));
+        preEncoded.release();
+        assertThrows(IllegalStateException.class, () -> preEncoded.newEncodedFrame(false));
+        assertThrows(IllegalStateException.class, preEncoded::retain);
+    }
+}
@@ -14,6 +14,8 @@
 package org.eclipse.jetty.websocket.core;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
 
 import org.eclipse.jetty.toolchain.test.Hex;
 import org.eclipse.jetty.util.BufferUtil;
@@ -123,4 +125,36 @@ public class WebSocketFrameTest
             assertEquals("Ff0000FfFf0f00F0".substring(0, i * 2), BufferUtil.toHexString(frame.getPayload()), "len=" + i);
         }
     }
+
+    @Test
+    public void testDemaskWordAtATime()
+    {
+        Random random = new Random();
+        byte[] mask = new byte[]{(byte)0x12, (byte)0x34, (byte)0x56, (byte)0x78};
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+        {
+            for (int length = 0; length <= 41; length++)
+            {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                byte[] expected = new byte[length];
+                for (int i = 0; i < length; i++)
+                {
+                    expected[i] = (byte)(bytes[i] ^ mask[i & 3]);
+                }
+
+                // Payload with a non-zero position, as when sliced from a network buffer.
+                ByteBuffer payload = ByteBuffer.allocateDirect(length + 3).order(order);
+                payload.position(3);
+                payload.put(bytes);
+                payload.position(3);
+
+                Frame frame = new Frame(OpCode.BINARY);
+                frame.setPayload(payload);
+                frame.setMask(mask.clone());
+                frame.demask();
+                assertEquals(TypeUtil.toHexString(expected), BufferUtil.toHexString(frame.getPayload()), "order=" + order + ",len=" + length);
+            }
+        }
+    }
 }
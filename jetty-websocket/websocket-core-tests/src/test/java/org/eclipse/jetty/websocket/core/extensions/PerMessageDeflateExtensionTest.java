@@ -32,6 +32,7 @@ import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.IncomingFramesCapture;
 import org.eclipse.jetty.websocket.core.OpCode;
 import org.eclipse.jetty.websocket.core.OutgoingFramesCapture;
+import org.eclipse.jetty.websocket.core.PerMessageDeflateCache;
 import org.eclipse.jetty.websocket.core.TestMessageHandler;
 import org.eclipse.jetty.websocket.core.exception.ProtocolException;
 import org.eclipse.jetty.websocket.core.internal.ExtensionStack;
@@ -590,6 +591,68 @@ public class PerMessageDeflateExtensionTest extends AbstractExtensionTest
         tester.assertHasFrames("tora", "tora", "tora");
     }
 
+    @Test
+    public void testMemorySavingNegotiatesServerNoContextTakeover()
+    {
+        components.setDeflateMemorySaving(true);
+
+        ExtensionStack stack = new ExtensionStack(components, Behavior.SERVER);
+        List<ExtensionConfig> offered = List.of(ExtensionConfig.parse("permessage-deflate; client_max_window_bits"));
+        stack.negotiate(offered, offered);
+
+        assertThat(ExtensionConfig.toHeaderValue(stack.getNegotiatedExtensions()), is("permessage-deflate;server_no_context_takeover"));
+        PerMessageDeflateExtension ext = (PerMessageDeflateExtension)stack.getExtensions().get(0);
+        assertThat(ext.isOutgoingContextTakeover(), is(false));
+    }
+
+    @Test
+    public void testMemorySavingCachesCompressedPayloads() throws Exception
+    {
+        components.setDeflateMemorySaving(true);
+        PerMessageDeflateCache cache = components.getDeflateCache();
+
+        String message = "Hello World, Hello World, Hello World, Hello World, Hello World!";
+        List<ByteBuffer> payloads = new ArrayList<>();
+        for (int i = 0; i < 2; i++)
+        {
+            PerMessageDeflateExtension ext = new PerMessageDeflateExtension();
+            ext.init(ExtensionConfig.parse("permessage-deflate; server_no_context_takeover"), components);
+            ext.setCoreSession(newSession());
+            OutgoingFramesCapture capture = new OutgoingFramesCapture();
+            ext.setNextOutgoingFrames(capture);
+
+            ext.sendFrame(new Frame(OpCode.TEXT).setPayload(message), Callback.NOOP, false);
+
+            capture.assertFrameCount(1);
+            Frame actual = capture.frames.poll(1, TimeUnit.SECONDS);
+            assertThat("Frame.opcode", actual.getOpCode(), is(OpCode.TEXT));
+            assertThat("Frame.fin", actual.isFin(), is(true));
+            assertThat("Frame.rsv1", actual.isRsv1(), is(true));
+            payloads.add(BufferUtil.copy(actual.getPayload()));
+        }
+
+        // The second message has been served from the cache.
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getSize(), is(1));
+        assertThat(payloads.get(1), is(payloads.get(0)));
+
+        // Without context takeover the Deflater has been returned to the pool.
+        assertThat(components.getDeflaterPool().getInUseCount(), is(0));
+
+        // The cached payload inflates to the original message.
+        IncomingFramesCapture incoming = new IncomingFramesCapture();
+        PerMessageDeflateExtension ext = new PerMessageDeflateExtension();
+        init(ext);
+        ext.setCoreSession(newSession());
+        ext.setNextIncomingFrames(incoming);
+        Frame compressed = new Frame(OpCode.TEXT).setPayload(payloads.get(1));
+        compressed.setRsv1(true);
+        ext.onFrame(compressed, Callback.NOOP);
+        incoming.assertHasOpCount(OpCode.TEXT, 1);
+        assertThat(incoming.frames.poll().getPayloadAsUTF8(), is(message));
+    }
+
     private WebSocketCoreSession newSession()
     {
         return newSessionFromConfig(new ConfigurationCustomizer());
@@ -0,0 +1,317 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.core.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritePendingException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FutureCallback;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.websocket.core.Behavior;
+import org.eclipse.jetty.websocket.core.CloseStatus;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.OutgoingQueuePolicy;
+import org.eclipse.jetty.websocket.core.TestFrameHandler;
+import org.eclipse.jetty.websocket.core.WebSocketComponents;
+import org.eclipse.jetty.websocket.core.exception.MessageDroppedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the outgoing queue limits of a {@link WebSocketCoreSession} with each {@link OutgoingQueuePolicy},
+ * while the first frame is stuck writing to the network and the next ones wait in the queue.
+ */
+public class OutgoingQueuePolicyTest
+{
+    private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+    private Scheduler scheduler;
+    private StalledEndPoint endPoint;
+    private WebSocketCoreSession coreSession;
+
+    @BeforeEach
+    public void start() throws Exception
+    {
+        scheduler = new ScheduledExecutorScheduler();
+        scheduler.start();
+    }
+
+    @AfterEach
+    public void stop() throws Exception
+    {
+        scheduler.stop();
+    }
+
+    private void open(OutgoingQueuePolicy policy, int maxOutgoingFrames, long maxOutgoingBytes)
+    {
+        WebSocketComponents components = new WebSocketComponents();
+        ExtensionStack exStack = new ExtensionStack(components, Behavior.SERVER);
+        exStack.negotiate(new LinkedList<>(), new LinkedList<>());
+        TestFrameHandler handler = new TestFrameHandler()
+        {
+            @Override
+            public boolean isDemanding()
+            {
+                // Do not read from the end point.
+                return true;
+            }
+        };
+        coreSession = new WebSocketCoreSession(handler, Behavior.SERVER, Negotiated.from(exStack), components);
+        coreSession.setMaxOutgoingFrames(maxOutgoingFrames);
+        coreSession.setMaxOutgoingBytes(maxOutgoingBytes);
+        coreSession.setOutgoingQueuePolicy(policy);
+
+        endPoint = new StalledEndPoint(bufferPool);
+        WebSocketConnection connection = new WebSocketConnection(endPoint, Runnable::run, scheduler, bufferPool, coreSession);
+        coreSession.setWebSocketConnection(connection);
+        coreSession.onOpen();
+    }
+
+    private FutureCallback send(byte opCode, String payload, boolean fin)
+    {
+        FutureCallback callback = new FutureCallback();
+        coreSession.sendFrame(new Frame(opCode).setPayload(payload).setFin(fin), callback, false);
+        return callback;
+    }
+
+    private FutureCallback sendText(String text)
+    {
+        return send(OpCode.TEXT, text, true);
+    }
+
+    private static void assertFailed(FutureCallback callback, Class<? extends Throwable> failure)
+    {
+        ExecutionException x = assertThrows(ExecutionException.class, () -> callback.get(5, TimeUnit.SECONDS));
+        assertThat(x.getCause(), instanceOf(failure));
+    }
+
+    @Test
+    public void testFramesLimitFail() throws Exception
+    {
+        open(OutgoingQueuePolicy.FAIL, 2, -1);
+
+        FutureCallback callback1 = sendText("one");
+        FutureCallback callback2 = sendText("two");
+        // The frame being written counts toward the limit.
+        FutureCallback callback3 = sendText("three");
+
+        assertFailed(callback3, WritePendingException.class);
+        assertFalse(callback1.isDone());
+        assertFalse(callback2.isDone());
+        assertThat(coreSession.getQueuedOutgoingFrames(), is(2));
+        assertThat(coreSession.getRejectedOutgoingFrames(), is(1L));
+
+        assertThat(endPoint.writeAll(), contains("one", "two"));
+        callback1.get(5, TimeUnit.SECONDS);
+        callback2.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBytesLimitFail() throws Exception
+    {
+        open(OutgoingQueuePolicy.FAIL, -1, 10);
+
+        // The first frame is always accepted, even if it is larger than the limit.
+        FutureCallback callback1 = sendText("0123456789AB");
+        FutureCallback callback2 = sendText("rejected");
+
+        assertFailed(callback2, WritePendingException.class);
+        assertThat(coreSession.getRejectedOutgoingFrames(), is(1L));
+        assertThat(coreSession.getQueuedOutgoingFrames(), is(1));
+        assertThat(coreSession.getQueuedOutgoingBytes(), is(12L));
+
+        // Control frames are never limited.
+        FutureCallback pingCallback = send(OpCode.PING, "ping", true);
+
+        assertThat(endPoint.writeAll(), contains("0123456789AB", "ping"));
+        callback1.get(5, TimeUnit.SECONDS);
+        pingCallback.get(5, TimeUnit.SECONDS);
+        assertThat(coreSession.getQueuedOutgoingFrames(), is(0));
+        assertThat(coreSession.getQueuedOutgoingBytes(), is(0L));
+    }
+
+    @Test
+    public void testFramesLimitDropOldest() throws Exception
+    {
+        open(OutgoingQueuePolicy.DROP_OLDEST, 2, -1);
+
+        FutureCallback callback1 = sendText("one");
+        FutureCallback callback2 = sendText("two");
+        FutureCallback callback3 = sendText("three");
+        FutureCallback callback4 = sendText("four");
+
+        // The frame being written cannot be dropped.
+        assertFailed(callback2, MessageDroppedException.class);
+        assertFailed(callback3, MessageDroppedException.class);
+        assertThat(coreSession.getDroppedOutgoingFrames(), is(2L));
+        assertThat(coreSession.getQueuedOutgoingFrames(), is(2));
+        assertTrue(coreSession.isOutputOpen());
+
+        assertThat(endPoint.writeAll(), contains("one", "four"));
+        callback1.get(5, TimeUnit.SECONDS);
+        callback4.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFramesLimitDropOldestKeepsFragments() throws Exception
+    {
+        open(OutgoingQueuePolicy.DROP_OLDEST, 2, -1);
+
+        FutureCallback callback1 = sendText("one");
+        // A fragment cannot be dropped without corrupting its message, so the new frame is rejected.
+        FutureCallback callback2 = send(OpCode.TEXT, "frag", false);
+        FutureCallback callback3 = send(OpCode.CONTINUATION, "ment", true);
+
+        assertFailed(callback3, WritePendingException.class);
+        assertThat(coreSession.getDroppedOutgoingFrames(), is(0L));
+        assertThat(coreSession.getRejectedOutgoingFrames(), is(1L));
+
+        assertThat(endPoint.writeAll(), contains("one", "frag"));
+        callback1.get(5, TimeUnit.SECONDS);
+        callback2.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBytesLimitCoalesceLatest() throws Exception
+    {
+        open(OutgoingQueuePolicy.COALESCE_LATEST, -1, 12);
+
+        FutureCallback callback1 = sendText("one");
+        FutureCallback callback2 = sendText("state1");
+        FutureCallback callback3 = sendText("state2");
+        FutureCallback callback4 = sendText("state3");
+
+        assertFailed(callback2, MessageDroppedException.class);
+        assertFailed(callback3, MessageDroppedException.class);
+        assertThat(coreSession.getDroppedOutgoingFrames(), is(2L));
+        assertThat(coreSession.getQueuedOutgoingFrames(), is(2));
+        assertThat(coreSession.getQueuedOutgoingBytes(), is(9L));
+        assertTrue(coreSession.isOutputOpen());
+
+        assertThat(endPoint.writeAll(), contains("one", "state3"));
+        callback1.get(5, TimeUnit.SECONDS);
+        callback4.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFramesLimitCoalesceLatest() throws Exception
+    {
+        open(OutgoingQueuePolicy.COALESCE_LATEST, 2, -1);
+
+        sendText("one");
+        FutureCallback callback2 = sendText("two");
+        FutureCallback callback3 = sendText("three");
+        FutureCallback callback4 = sendText("four");
+
+        assertFailed(callback2, MessageDroppedException.class);
+        assertFailed(callback3, MessageDroppedException.class);
+        assertThat(endPoint.writeAll(), contains("one", "four"));
+        callback4.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFramesLimitClose() throws Exception
+    {
+        open(OutgoingQueuePolicy.CLOSE, 2, -1);
+
+        FutureCallback callback1 = sendText("one");
+        FutureCallback callback2 = sendText("two");
+        assertTrue(coreSession.isOutputOpen());
+        FutureCallback callback3 = sendText("three");
+
+        // The queued frames are failed, so that the close
+        // frame is written right after the frame being written.
+        assertFailed(callback3, WritePendingException.class);
+        assertFailed(callback2, MessageDroppedException.class);
+        assertFalse(coreSession.isOutputOpen());
+        assertThat(coreSession.getDroppedOutgoingFrames(), is(1L));
+        assertThat(coreSession.getRejectedOutgoingFrames(), is(1L));
+
+        assertThat(endPoint.writeAll(), contains("one", "close:" + CloseStatus.POLICY_VIOLATION));
+        callback1.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * An end point whose writes only complete when {@link #writeAll()} is called.
+     */
+    public static class StalledEndPoint extends FrameFlusherTest.CapturingEndPoint
+    {
+        private final LinkedBlockingQueue<Callback> writes = new LinkedBlockingQueue<>();
+
+        public StalledEndPoint(ByteBufferPool bufferPool)
+        {
+            super(bufferPool);
+        }
+
+        @Override
+        public void setIdleTimeout(long idleTimeout)
+        {
+        }
+
+        @Override
+        public void close(Throwable cause)
+        {
+        }
+
+        @Override
+        public void write(Callback callback, ByteBuffer... buffers) throws WritePendingException
+        {
+            super.write(Callback.from(() -> writes.offer(callback), callback::failed), buffers);
+        }
+
+        /**
+         * Completes the pending writes until no more frames are written.
+         *
+         * @return the payloads of the frames written, or the close code of close frames
+         */
+        public List<String> writeAll() throws InterruptedException
+        {
+            Callback callback;
+            while ((callback = writes.poll(1, TimeUnit.SECONDS)) != null)
+            {
+                callback.succeeded();
+            }
+
+            List<String> written = new ArrayList<>();
+            Frame frame;
+            while ((frame = incomingFrames.poll()) != null)
+            {
+                if (frame.getOpCode() == OpCode.CLOSE)
+                    written.add("close:" + CloseStatus.getCloseStatus(frame).getCode());
+                else
+                    written.add(frame.getPayloadAsUTF8());
+            }
+            return written;
+        }
+    }
+}
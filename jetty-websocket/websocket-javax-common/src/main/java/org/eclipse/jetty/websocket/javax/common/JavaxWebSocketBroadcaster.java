@@ -0,0 +1,83 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+package org.eclipse.jetty.websocket.javax.common;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.CountingCallback;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
+
+/**
+ * <p>Sends the same message to many {@link Session}s, encoding it only once.</p>
+ * <p>The message is sent with each session's async remote, honoring its batching mode;
+ * the given {@link SendHandler} is notified once all the sends have completed, or when
+ * the first one fails. Sessions that are not {@link JavaxWebSocketSession}s fail the send.</p>
+ *
+ * @see PreEncodedFrame
+ */
+public final class JavaxWebSocketBroadcaster
+{
+    private JavaxWebSocketBroadcaster()
+    {
+    }
+
+    public static void broadcastText(Collection<? extends Session> sessions, String text, SendHandler handler)
+    {
+        broadcast(sessions, new Frame(OpCode.TEXT).setPayload(text), handler);
+    }
+
+    public static void broadcastBinary(Collection<? extends Session> sessions, ByteBuffer data, SendHandler handler)
+    {
+        broadcast(sessions, new Frame(OpCode.BINARY).setPayload(data), handler);
+    }
+
+    private static void broadcast(Collection<? extends Session> sessions, Frame frame, SendHandler handler)
+    {
+        Callback callback = new SendHandlerCallback(handler);
+        if (sessions.isEmpty())
+        {
+            callback.succeeded();
+            return;
+        }
+
+        Callback counting = new CountingCallback(callback, sessions.size());
+        PreEncodedFrame preEncoded = null;
+        try
+        {
+            for (Session session : sessions)
+            {
+                if (!(session instanceof JavaxWebSocketSession))
+                {
+                    counting.failed(new IllegalArgumentException("Unsupported session " + session));
+                    continue;
+                }
+                JavaxWebSocketSession javaxSession = (JavaxWebSocketSession)session;
+                if (preEncoded == null)
+                    preEncoded = new PreEncodedFrame(javaxSession.getCoreSession().getWebSocketComponents(), frame);
+                JavaxWebSocketRemoteEndpoint remote = (JavaxWebSocketRemoteEndpoint)javaxSession.getAsyncRemote();
+                remote.sendFrame(preEncoded, counting, remote.getBatchingAllowed());
+            }
+        }
+        finally
+        {
+            if (preEncoded != null)
+                preEncoded.release();
+        }
+    }
+}
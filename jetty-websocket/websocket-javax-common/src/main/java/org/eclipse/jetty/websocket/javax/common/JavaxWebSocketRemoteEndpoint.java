@@ -28,6 +28,7 @@ import org.eclipse.jetty.websocket.core.CoreSession;
 import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.OpCode;
 import org.eclipse.jetty.websocket.core.OutgoingFrames;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
 import org.eclipse.jetty.websocket.core.exception.WebSocketException;
 import org.eclipse.jetty.websocket.core.internal.messages.MessageOutputStream;
 import org.eclipse.jetty.websocket.core.internal.messages.MessageWriter;
@@ -150,6 +151,24 @@ public class JavaxWebSocketRemoteEndpoint implements javax.websocket.RemoteEndpo
         }
     }
 
+    /**
+     * <p>Sends a whole message that has been encoded once for many sessions.</p>
+     *
+     * @param frame the pre-encoded message
+     * @param callback the callback that completes when the message is sent
+     * @param batch whether the message may be batched
+     * @see CoreSession#sendFrame(PreEncodedFrame, Callback, boolean)
+     */
+    public void sendFrame(PreEncodedFrame frame, Callback callback, boolean batch)
+    {
+        if (messageType != -1)
+        {
+            callback.failed(new WebSocketException("Cannot send a whole message while a partial message is not complete yet"));
+            return;
+        }
+        coreSession.sendFrame(frame, callback, batch);
+    }
+
     public void sendObject(Object data, Callback callback) throws IOException, EncodeException
     {
         try
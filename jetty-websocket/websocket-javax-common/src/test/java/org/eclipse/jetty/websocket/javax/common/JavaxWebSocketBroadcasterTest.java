@@ -0,0 +1,46 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.javax.common;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class JavaxWebSocketBroadcasterTest
+{
+    @Test
+    public void testForeignSessionFailsHandler()
+    {
+        Session foreign = (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) ->
+        {
+            if ("toString".equals(method.getName()))
+                return "ForeignSession";
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        AtomicReference<SendResult> result = new AtomicReference<>();
+        JavaxWebSocketBroadcaster.broadcastText(List.of(foreign, foreign), "hello", result::set);
+
+        assertFalse(result.get().isOK());
+        assertThat(result.get().getException(), instanceOf(IllegalArgumentException.class));
+    }
+}
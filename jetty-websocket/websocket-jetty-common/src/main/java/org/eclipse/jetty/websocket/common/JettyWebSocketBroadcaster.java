@@ -0,0 +1,83 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+package org.eclipse.jetty.websocket.common;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.CountingCallback;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
+
+/**
+ * <p>Sends the same message to many {@link Session}s, encoding it only once.</p>
+ * <p>The message is sent with each session's {@link Session#getRemote() remote endpoint},
+ * honoring its {@link org.eclipse.jetty.websocket.api.BatchMode}; the given {@link WriteCallback}
+ * is notified once all the sends have completed, or when the first one fails.
+ * Sessions that are not {@link WebSocketSession}s fail the send.</p>
+ *
+ * @see PreEncodedFrame
+ */
+public final class JettyWebSocketBroadcaster
+{
+    private JettyWebSocketBroadcaster()
+    {
+    }
+
+    public static void broadcastString(Collection<? extends Session> sessions, String text, WriteCallback callback)
+    {
+        broadcast(sessions, new Frame(OpCode.TEXT).setPayload(text), callback);
+    }
+
+    public static void broadcastBytes(Collection<? extends Session> sessions, ByteBuffer data, WriteCallback callback)
+    {
+        broadcast(sessions, new Frame(OpCode.BINARY).setPayload(data), callback);
+    }
+
+    private static void broadcast(Collection<? extends Session> sessions, Frame frame, WriteCallback callback)
+    {
+        Callback cb = callback == null ? Callback.NOOP : Callback.from(callback::writeSuccess, callback::writeFailed);
+        if (sessions.isEmpty())
+        {
+            cb.succeeded();
+            return;
+        }
+
+        Callback counting = new CountingCallback(cb, sessions.size());
+        PreEncodedFrame preEncoded = null;
+        try
+        {
+            for (Session session : sessions)
+            {
+                if (!(session instanceof WebSocketSession))
+                {
+                    counting.failed(new IllegalArgumentException("Unsupported session " + session));
+                    continue;
+                }
+                WebSocketSession webSocketSession = (WebSocketSession)session;
+                if (preEncoded == null)
+                    preEncoded = new PreEncodedFrame(webSocketSession.getCoreSession().getWebSocketComponents(), frame);
+                webSocketSession.getRemote().sendFrame(preEncoded, counting);
+            }
+        }
+        finally
+        {
+            if (preEncoded != null)
+                preEncoded.release();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.core.CoreSession;
 import org.eclipse.jetty.websocket.core.Frame;
 import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.PreEncodedFrame;
 import org.eclipse.jetty.websocket.core.exception.ProtocolException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,6 +107,23 @@ public class JettyWebSocketRemoteEndpoint implements org.eclipse.jetty.websocket
             isBatch());
     }
 
+    /**
+     * Send a whole message that has been encoded once for many sessions.
+     *
+     * @param frame the pre-encoded message
+     * @param callback the callback that completes when the message is sent
+     * @see CoreSession#sendFrame(PreEncodedFrame, Callback, boolean)
+     */
+    public void sendFrame(PreEncodedFrame frame, Callback callback)
+    {
+        if (messageType != -1)
+        {
+            callback.failed(new ProtocolException("Attempt to send whole message while partial message is not complete"));
+            return;
+        }
+        coreSession.sendFrame(frame, callback, isBatch());
+    }
+
     @Override
     public void sendPartialBytes(ByteBuffer fragment, boolean isLast) throws IOException
     {
@@ -238,6 +238,42 @@ public class WebSocketSession implements Session, SuspendToken, Dumpable
         return coreSession;
     }
 
+    /**
+     * @return the number of outgoing data frames waiting to be written, including the one being written
+     * @see CoreSession#getQueuedOutgoingFrames()
+     */
+    public int getQueuedOutgoingFrames()
+    {
+        return coreSession.getQueuedOutgoingFrames();
+    }
+
+    /**
+     * @return the number of payload bytes of the outgoing data frames waiting to be written
+     * @see CoreSession#getQueuedOutgoingBytes()
+     */
+    public long getQueuedOutgoingBytes()
+    {
+        return coreSession.getQueuedOutgoingBytes();
+    }
+
+    /**
+     * @return the number of outgoing frames dropped by the outgoing queue policy
+     * @see CoreSession#getDroppedOutgoingFrames()
+     */
+    public long getDroppedOutgoingFrames()
+    {
+        return coreSession.getDroppedOutgoingFrames();
+    }
+
+    /**
+     * @return the number of outgoing frames rejected because the outgoing queue was full
+     * @see CoreSession#getRejectedOutgoingFrames()
+     */
+    public long getRejectedOutgoingFrames()
+    {
+        return coreSession.getRejectedOutgoingFrames();
+    }
+
     @Override
     public void dump(Appendable out, String indent) throws IOException
     {
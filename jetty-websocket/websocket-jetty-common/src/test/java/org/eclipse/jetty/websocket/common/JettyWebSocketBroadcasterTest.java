@@ -0,0 +1,61 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JettyWebSocketBroadcasterTest
+{
+    @Test
+    public void testForeignSessionFailsCallback()
+    {
+        Session foreign = (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) ->
+        {
+            if ("toString".equals(method.getName()))
+                return "ForeignSession";
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        AtomicInteger successes = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        JettyWebSocketBroadcaster.broadcastString(List.of(foreign, foreign), "hello", new WriteCallback()
+        {
+            @Override
+            public void writeFailed(Throwable x)
+            {
+                failure.set(x);
+            }
+
+            @Override
+            public void writeSuccess()
+            {
+                successes.incrementAndGet();
+            }
+        });
+
+        assertThat(failure.get(), instanceOf(IllegalArgumentException.class));
+        assertEquals(0, successes.get());
+    }
+}
@@ -0,0 +1,108 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.client.jmh;
+
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.MpmcArrayQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the queues used by {@code HttpDestination} to queue exchanges,
+ * with many threads sending to the same destination.</p>
+ * <p>Each operation queues an exchange, and then dequeues an exchange as
+ * {@code HttpDestination.process()} does when a connection is available.
+ * Run together with {@link ConnectionPoolsBenchmark} to compare the costs
+ * of queueing exchanges and of acquiring connections.</p>
+ */
+@State(Scope.Benchmark)
+public class ExchangeQueuesBenchmark
+{
+    private Queue<Object> queue;
+
+    @Param({"blocking-array", "mpmc-array"})
+    public static String QUEUE_TYPE;
+
+    @Setup
+    public void setUp()
+    {
+        // The default HttpClient.maxRequestsQueuedPerDestination.
+        int maxCapacity = 1024;
+        switch (QUEUE_TYPE)
+        {
+            case "blocking-array":
+                queue = new BlockingArrayQueue<>(maxCapacity);
+                break;
+            case "mpmc-array":
+                queue = new MpmcArrayQueue<>(maxCapacity);
+                break;
+            default:
+                throw new AssertionError("Unknown queue type: " + QUEUE_TYPE);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        queue.clear();
+        queue = null;
+    }
+
+    @Benchmark
+    public void testOfferPoll(Blackhole blackhole)
+    {
+        Object exchange = new Object();
+        if (!queue.offer(exchange))
+            throw new AssertionError("from thread " + Thread.currentThread().getName());
+        Blackhole.consumeCPU(ThreadLocalRandom.current().nextInt(10, 20));
+        blackhole.consume(queue.poll());
+    }
+
+    @Benchmark
+    public void testOfferSizePoll(Blackhole blackhole)
+    {
+        // HttpDestination checks the queue size when processing exchanges.
+        Object exchange = new Object();
+        if (!queue.offer(exchange))
+            throw new AssertionError("from thread " + Thread.currentThread().getName());
+        blackhole.consume(queue.size());
+        blackhole.consume(queue.poll());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ExchangeQueuesBenchmark.class.getSimpleName())
+            .include(ConnectionPoolsBenchmark.class.getSimpleName())
+            .warmupIterations(3)
+            .measurementIterations(3)
+            .forks(1)
+            .threads(12)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
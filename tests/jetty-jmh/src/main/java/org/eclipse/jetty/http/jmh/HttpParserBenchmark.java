@@ -0,0 +1,173 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpParser;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class HttpParserBenchmark
+{
+    // A typical browser request, with headers that are not in HttpParser.CACHE.
+    private static final String REQUEST =
+        "GET /static/app/main.3f2a1c.js HTTP/1.1\r\n" +
+            "Host: www.example.com\r\n" +
+            "Connection: keep-alive\r\n" +
+            "sec-ch-ua: \" Not A;Brand\";v=\"99\", \"Chromium\";v=\"96\", \"Google Chrome\";v=\"96\"\r\n" +
+            "sec-ch-ua-mobile: ?0\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36\r\n" +
+            "sec-ch-ua-platform: \"Linux\"\r\n" +
+            "Accept: */*\r\n" +
+            "Sec-Fetch-Site: same-origin\r\n" +
+            "Sec-Fetch-Mode: no-cors\r\n" +
+            "Sec-Fetch-Dest: script\r\n" +
+            "Referer: https://www.example.com/products/index.html?category=books&page=3\r\n" +
+            "Accept-Encoding: gzip, deflate, br\r\n" +
+            "Accept-Language: en-US,en;q=0.9,it;q=0.8\r\n" +
+            "Cookie: _ga=GA1.2.1234567890.1234567890; session=3f2a1c5b7d9e0a1b2c3d4e5f6a7b8c9d; theme=dark\r\n" +
+            "If-None-Match: W/\"3f2a1c-17d8a0b1c2d\"\r\n" +
+            "If-Modified-Since: Tue, 14 Dec 2021 10:00:00 GMT\r\n" +
+            "\r\n";
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private ByteBuffer buffer;
+    private Handler handler;
+    private HttpParser parser;
+
+    @Setup
+    public void setUp()
+    {
+        buffer = BufferUtil.toBuffer(REQUEST);
+        handler = new Handler();
+        parser = new HttpParser(handler);
+        parser.setLazyHeaderValues(lazy);
+        // Measure the parsing, not the per connection field cache.
+        parser.setHeaderCacheSize(0);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testParseAndReadHost()
+    {
+        parse();
+        return handler.fields.get(HttpHeader.HOST);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testParseAndReadAll()
+    {
+        parse();
+        int length = 0;
+        for (HttpField field : handler.fields)
+        {
+            length += field.getValue().length();
+        }
+        return length;
+    }
+
+    private void parse()
+    {
+        handler.fields = HttpFields.build();
+        buffer.position(0);
+        parser.reset();
+        parser.parseNext(buffer);
+    }
+
+    private static class Handler implements HttpParser.RequestHandler
+    {
+        private HttpFields.Mutable fields;
+
+        @Override
+        public void startRequest(String method, String uri, HttpVersion version)
+        {
+        }
+
+        @Override
+        public void parsedHeader(HttpField field)
+        {
+            fields.add(field);
+        }
+
+        @Override
+        public boolean headerComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer item)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean contentComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete()
+        {
+            return true;
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpParserBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,217 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Utf8StringBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Compares {@link Huffman} with the previous byte at a time implementation.</p>
+ * <p>This benchmark is in the {@code org.eclipse.jetty.http2.hpack} package
+ * to access the Huffman tables needed by the previous implementation.</p>
+ */
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class HuffmanBenchmark
+{
+    private static final String COOKIE = "_ga=GA1.2.1234567890.1234567890; session=3f2a1c5b7d9e0a1b2c3d4e5f6a7b8c9d; theme=dark";
+    private static final String JWT = "Bearer eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9" +
+        ".eyJzdWIiOiIxMjM0NTY3ODkwIiwibmFtZSI6IkpvaG4gRG9lIiwiaWF0IjoxNTE2MjM5MDIyfQ" +
+        ".SflKxwRJSMeKKF2QT4fwpMeJf36POk6yJV_adQssw5c";
+    private static final String USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36";
+
+    @Param({"cookie", "jwt", "user-agent"})
+    public String header;
+
+    private String value;
+    private ByteBuffer encoded;
+    private ByteBuffer output;
+
+    @Setup
+    public void setUp()
+    {
+        switch (header)
+        {
+            case "cookie":
+                value = COOKIE;
+                break;
+            case "jwt":
+                value = JWT;
+                break;
+            case "user-agent":
+                value = USER_AGENT;
+                break;
+            default:
+                throw new IllegalArgumentException(header);
+        }
+        encoded = BufferUtil.allocate(Huffman.octetsNeeded(value));
+        int pos = BufferUtil.flipToFill(encoded);
+        Huffman.encode(encoded, value);
+        BufferUtil.flipToFlush(encoded, pos);
+        output = ByteBuffer.allocate(2 * value.length());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecode() throws Exception
+    {
+        encoded.position(0);
+        return Huffman.decode(encoded);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testLegacyDecode() throws Exception
+    {
+        encoded.position(0);
+        return legacyDecode(encoded, encoded.remaining());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public ByteBuffer testEncode()
+    {
+        output.clear();
+        Huffman.encode(output, value);
+        return output;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public ByteBuffer testLegacyEncode()
+    {
+        output.clear();
+        legacyEncode(output, value);
+        return output;
+    }
+
+    private static String legacyDecode(ByteBuffer buffer, int length) throws HpackException.CompressionException
+    {
+        Utf8StringBuilder utf8 = new Utf8StringBuilder(length * 2);
+        int node = 0;
+        int current = 0;
+        int bits = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            int b = buffer.get() & 0xFF;
+            current = (current << 8) | b;
+            bits += 8;
+            while (bits >= 8)
+            {
+                int c = (current >>> (bits - 8)) & 0xFF;
+                node = Huffman.tree[node * 256 + c];
+                if (Huffman.rowbits[node] != 0)
+                {
+                    if (Huffman.rowsym[node] == Huffman.EOS)
+                        throw new HpackException.CompressionException("EOS in content");
+                    utf8.append((byte)(0xFF & Huffman.rowsym[node]));
+                    bits -= Huffman.rowbits[node];
+                    node = 0;
+                }
+                else
+                {
+                    bits -= 8;
+                }
+            }
+        }
+
+        while (bits > 0)
+        {
+            int c = (current << (8 - bits)) & 0xFF;
+            int lastNode = node;
+            node = Huffman.tree[node * 256 + c];
+            if (Huffman.rowbits[node] == 0 || Huffman.rowbits[node] > bits)
+            {
+                int requiredPadding = (1 << bits) - 1;
+                if ((c >> (8 - bits)) != requiredPadding)
+                    throw new HpackException.CompressionException("Incorrect padding");
+                node = lastNode;
+                break;
+            }
+            utf8.append((byte)(0xFF & Huffman.rowsym[node]));
+            bits -= Huffman.rowbits[node];
+            node = 0;
+        }
+
+        if (node != 0)
+            throw new HpackException.CompressionException("Bad termination");
+
+        return utf8.toString();
+    }
+
+    private static void legacyEncode(ByteBuffer buffer, String s)
+    {
+        long current = 0;
+        int n = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            int code = Huffman.CODES[c][0];
+            int bits = Huffman.CODES[c][1];
+
+            current <<= bits;
+            current |= code;
+            n += bits;
+
+            while (n >= 8)
+            {
+                n -= 8;
+                buffer.put((byte)(current >> n));
+            }
+        }
+
+        if (n > 0)
+        {
+            current <<= (8 - n);
+            current |= (0xFF >>> n);
+            buffer.put((byte)(current));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HuffmanBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
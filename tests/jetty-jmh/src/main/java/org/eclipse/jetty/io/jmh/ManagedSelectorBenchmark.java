@@ -0,0 +1,144 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io.jmh;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Drives a {@link ManagedSelector} with many threads submitting updates, as
+ * it happens with many connections calling {@code fillInterested()} concurrently.</p>
+ * <p>The number of selects and of updates is printed after each iteration,
+ * which shows how well wakeups are coalesced for batches of updates.</p>
+ */
+@State(Scope.Benchmark)
+@Threads(16)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class ManagedSelectorBenchmark
+{
+    private static final LongAdder selects = new LongAdder();
+    private static final LongAdder updates = new LongAdder();
+
+    private QueuedThreadPool threadPool;
+    private ScheduledExecutorScheduler scheduler;
+    private SelectorManager selectorManager;
+    private ManagedSelector selector;
+    private final ManagedSelector.SelectorUpdate update = s -> updates.increment();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        threadPool = new QueuedThreadPool();
+        threadPool.start();
+        scheduler = new ScheduledExecutorScheduler();
+        scheduler.start();
+        selectorManager = new SelectorManager(threadPool, scheduler, 1)
+        {
+            @Override
+            protected ManagedSelector newSelector(int id)
+            {
+                return new ManagedSelector(this, id)
+                {
+                    @Override
+                    protected int select(Selector selector) throws IOException
+                    {
+                        selects.increment();
+                        return super.select(selector);
+                    }
+                };
+            }
+
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey selectionKey)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        selectorManager.start();
+        selector = selectorManager.getBean(ManagedSelector.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        selectorManager.stop();
+        scheduler.stop();
+        threadPool.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters()
+    {
+        selects.reset();
+        updates.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounters()
+    {
+        long selectCount = selects.sum();
+        long updateCount = updates.sum();
+        System.err.printf("%nselects=%d updates=%d updates/select=%.1f%n", selectCount, updateCount, (double)updateCount / Math.max(1, selectCount));
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void testSubmit()
+    {
+        selector.submit(update);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ManagedSelectorBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,131 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.jmh;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.ConcurrentIntMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Compares the maps that can track the streams of an HTTP/2 session.</p>
+ * <p>Each map holds a window of {@code streams} live stream ids, and in the
+ * group benchmarks one thread opens and closes streams, sliding the window
+ * forward, while the other threads look up streams, like frames do.</p>
+ */
+@State(Scope.Group)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class ConcurrentIntMapBenchmark
+{
+    private static final Object STREAM = new Object();
+
+    @Param({"10", "1000"})
+    public int streams;
+
+    private ConcurrentMap<Integer, Object> concurrentHashMap;
+    private ConcurrentIntMap<Object> concurrentIntMap;
+    private volatile int lastStreamId;
+
+    @Setup
+    public void setUp()
+    {
+        concurrentHashMap = new ConcurrentHashMap<>();
+        concurrentIntMap = new ConcurrentIntMap<>();
+        for (int i = 0; i < streams; ++i)
+        {
+            lastStreamId = 2 * i + 1;
+            concurrentHashMap.put(lastStreamId, STREAM);
+            concurrentIntMap.put(lastStreamId, STREAM);
+        }
+    }
+
+    private int randomStreamId()
+    {
+        // The last stream id may be stale, which is fine for lookups.
+        int last = lastStreamId;
+        return last - 2 * ThreadLocalRandom.current().nextInt(streams);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("concurrentHashMap")
+    @GroupThreads(3)
+    public Object testConcurrentHashMapGet()
+    {
+        return concurrentHashMap.get(randomStreamId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("concurrentHashMap")
+    @GroupThreads(1)
+    public Object testConcurrentHashMapPutRemove()
+    {
+        int streamId = lastStreamId + 2;
+        concurrentHashMap.putIfAbsent(streamId, STREAM);
+        lastStreamId = streamId;
+        return concurrentHashMap.remove(streamId - 2 * streams);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("concurrentIntMap")
+    @GroupThreads(3)
+    public Object testConcurrentIntMapGet()
+    {
+        return concurrentIntMap.get(randomStreamId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("concurrentIntMap")
+    @GroupThreads(1)
+    public Object testConcurrentIntMapPutRemove()
+    {
+        int streamId = lastStreamId + 2;
+        concurrentIntMap.putIfAbsent(streamId, STREAM);
+        lastStreamId = streamId;
+        return concurrentIntMap.remove(streamId - 2 * streams);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ConcurrentIntMapBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,123 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.internal.NullAppendable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class FrameBenchmark
+{
+    // A JSON record, mostly ASCII with a few multi-byte characters.
+    // @checkstyle-disable-check : AvoidEscapedUnicodeCharactersCheck
+    private static final String RECORD = "{\"id\":12345,\"user\":\"jos\u00e9\",\"text\":\"Stra\u00dfe caf\u00e9 \u20ac10\",\"tags\":[\"a\",\"b\"],\"ok\":true},";
+    // @checkstyle-enable-check : AvoidEscapedUnicodeCharactersCheck
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private final byte[] mask = new byte[4];
+    private byte[] maskingKey;
+    private Frame frame;
+    private ByteBuffer text;
+
+    @Setup
+    public void setUp()
+    {
+        ThreadLocalRandom.current().nextBytes(mask);
+        maskingKey = mask.clone();
+
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() <= size)
+        {
+            builder.append(RECORD);
+        }
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        // Trim to the size, without splitting a multi-byte character.
+        int length = size;
+        while ((bytes[length] & 0xC0) == 0x80)
+        {
+            --length;
+        }
+        bytes = Arrays.copyOf(bytes, length);
+
+        text = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+        text.put(bytes).flip();
+
+        ByteBuffer payload = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+        payload.put(bytes).flip();
+        frame = new Frame(OpCode.TEXT);
+        frame.setPayload(payload);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Frame testDemask()
+    {
+        // Frame.demask() clears the masking key, so restore it.
+        System.arraycopy(mask, 0, maskingKey, 0, mask.length);
+        frame.setMask(maskingKey);
+        frame.demask();
+        return frame;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public boolean testValidateUtf8()
+    {
+        NullAppendable appendable = new NullAppendable();
+        appendable.append(text.slice());
+        return appendable.isUtf8SequenceComplete();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(FrameBenchmark.class.getSimpleName())
+            .warmupIterations(10)
+            .measurementIterations(10)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -13,11 +13,21 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * JDBCSessionDataStoreTest
  */
@@ -64,6 +74,44 @@ public class JDBCSessionDataStoreTest extends AbstractSessionDataStoreTest
         super.testCleanOrphans();
     }
 
+    /**
+     * Test that the sessions of a batch are all stored or none of them.
+     */
+    @Test
+    public void testStoreAllRollsBack() throws Exception
+    {
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        SessionDataStore store = createSessionDataStoreFactory().getSessionDataStore(context.getSessionHandler());
+        SessionContext sessionContext = new SessionContext("foo", context.getServletContext());
+        store.initialize(sessionContext);
+        store.start();
+
+        long now = System.currentTimeMillis();
+        //a session that looks like it was never saved, so the batch inserts it again and fails
+        SessionData duplicate = store.newSessionData("bbb1", 100, now, now - 1, -1);
+        duplicate.setLastNode(sessionContext.getWorkerName());
+        persistSession(duplicate);
+
+        SessionData created = store.newSessionData("bbb2", 100, now, now - 1, -1);
+        created.setLastNode(sessionContext.getWorkerName());
+        created.setAttribute("a", "b");
+
+        Map<String, SessionData> sessions = new LinkedHashMap<>();
+        sessions.put("bbb2", created);
+        sessions.put("bbb1", duplicate);
+        assertThrows(Exception.class, () -> store.storeAll(sessions));
+
+        //the insert of the new session was rolled back
+        assertFalse(JdbcTestHelper.existsInSessionTable("bbb2", false));
+        assertEquals(0, created.getLastSaved());
+        assertTrue(created.isDirty());
+
+        //and can be stored once the batch no longer fails
+        store.storeAll(Collections.singletonMap("bbb2", created));
+        assertTrue(checkSessionPersisted(created));
+    }
+
     @Override
     public boolean checkSessionExists(SessionData data) throws Exception
     {
@@ -16,7 +16,9 @@ package org.eclipse.jetty.nosql.mongodb;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.server.session.AbstractSessionDataStoreFactory;
 import org.eclipse.jetty.server.session.AbstractSessionDataStoreTest;
@@ -32,6 +34,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * MongoSessionDataStoreTest
@@ -138,4 +141,51 @@ public class MongoSessionDataStoreTest extends AbstractSessionDataStoreTest
         //and that it has now been written out with the new format
         MongoTestHelper.checkSessionPersisted(loaded);
     }
+
+    /**
+     * Test that storing several existing sessions at once updates
+     * the expiry of each of them.
+     */
+    @Test
+    public void testStoreAllUpdatesExpiry() throws Exception
+    {
+        //create the SessionDataStore
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        SessionDataStoreFactory factory = createSessionDataStoreFactory();
+        ((AbstractSessionDataStoreFactory)factory).setGracePeriodSec(GRACE_PERIOD_SEC);
+        SessionDataStore store = factory.getSessionDataStore(context.getSessionHandler());
+        SessionContext sessionContext = new SessionContext("foo", context.getServletContext());
+        store.initialize(sessionContext);
+        store.start();
+
+        long now = System.currentTimeMillis();
+        Map<String, SessionData> sessions = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++)
+        {
+            String id = "ccc" + i;
+            SessionData data = store.newSessionData(id, 100, now - 2, now - 3, TimeUnit.MINUTES.toMillis(1));
+            data.setAttribute("a", "b");
+            data.setLastNode(sessionContext.getWorkerName());
+            data.setLastSaved(400);
+            persistSession(data);
+            sessions.put(id, data);
+        }
+
+        //only change the expiry of some of the sessions
+        for (int i = 0; i < 2; i++)
+        {
+            SessionData data = sessions.get("ccc" + i);
+            data.setAccessed(now);
+            data.setMaxInactiveMs(TimeUnit.MINUTES.toMillis(2 + i));
+            data.calcAndSetExpiry(now);
+        }
+        sessions.get("ccc2").setAttribute("a", "c");
+        store.storeAll(sessions);
+
+        for (SessionData data : sessions.values())
+        {
+            assertTrue(checkSessionPersisted(data));
+        }
+    }
 }
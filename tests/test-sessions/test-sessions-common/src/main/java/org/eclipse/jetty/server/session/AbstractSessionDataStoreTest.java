@@ -23,6 +23,8 @@ import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -208,6 +210,56 @@ public abstract class AbstractSessionDataStoreTest
         assertTrue(checkSessionPersisted(data));
     }
 
+    /**
+     * Test that the store can create and update several
+     * sessions at once.
+     */
+    @Test
+    public void testStoreAllSessions() throws Exception
+    {
+        //create the SessionDataStore
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        SessionDataStoreFactory factory = createSessionDataStoreFactory();
+        ((AbstractSessionDataStoreFactory)factory).setGracePeriodSec(GRACE_PERIOD_SEC);
+        SessionDataStore store = factory.getSessionDataStore(context.getSessionHandler());
+        SessionContext sessionContext = new SessionContext("foo", context.getServletContext());
+        store.initialize(sessionContext);
+
+        store.start();
+
+        //create a session that was previously saved by the store
+        final long now = System.currentTimeMillis();
+        SessionData existing = store.newSessionData("aaa3", 100, 200, 199, -1);//never expires
+        existing.setAttribute("a", "b");
+        existing.setLastNode(sessionContext.getWorkerName());
+        existing.setLastSaved(400);
+        persistSession(existing);
+
+        //update it, including its expiry
+        existing.setLastAccessed(now - 1);
+        existing.setAccessed(now);
+        existing.setMaxInactiveMs(TimeUnit.MINUTES.toMillis(2));
+        existing.setAttribute("a", "c");
+
+        //and create a session that was never saved
+        SessionData created = store.newSessionData("aaa4", 100, now, now - 1, TimeUnit.MINUTES.toMillis(1));
+        created.setAttribute("d", "e");
+        created.setLastNode(sessionContext.getWorkerName());
+
+        Map<String, SessionData> sessions = new LinkedHashMap<>();
+        sessions.put("aaa3", existing);
+        sessions.put("aaa4", created);
+        store.storeAll(sessions);
+
+        assertTrue(checkSessionPersisted(existing));
+        assertTrue(checkSessionPersisted(created));
+        assertTrue(existing.getLastSaved() > 400);
+        assertTrue(created.getLastSaved() > 0);
+        assertFalse(existing.isDirty());
+        assertFalse(created.isDirty());
+    }
+
     /**
      * Test that the store can persist a session that contains
      * serializable Proxy objects in the attributes.